@@ -28,7 +28,10 @@ import java.io.*;
 import java.net.URL;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.function.UnaryOperator;
 
@@ -74,11 +77,17 @@ public class AnsHackathonMapsController implements Initializable {
     @FXML
     private JFXButton infoButtonAccept;
 
+    // poziomy szczegolowosci pelnego eksportu: 2.5, ok. 1.25 i ok. 0.3 bloku na metr
+    private static final int[] DETAIL_LEVELS = {0, 1, 3};
+
     private List<File> files;
     private Long pointsCount;
     private ExportService exportService;
     private LoadService loadService;
     private Boolean readyToExport = true;
+    // ostatni udany eksport: swiat i daty modyfikacji jego plikow
+    private File exportedLevelDir;
+    private Map<File, Long> exportedFiles;
     static Stage toastStage;
 
     @FXML
@@ -175,7 +184,16 @@ public class AnsHackathonMapsController implements Initializable {
                 exportService = new ExportService();
                 exportService.setFiles(files);
                 exportService.setPointsCount(pointsCount);
+                exportService.setDetailLevels(DETAIL_LEVELS);
+                Map<File, Long> modified = lastModified(files);
+                List<File> changedFiles = changedFiles(modified);
+                if (changedFiles != null) {
+                    exportService.setUpdate(exportedLevelDir, changedFiles);
+                }
                 exportService.setOnSucceeded((WorkerStateEvent t) -> {
+                    File levelDir = exportService.getLevelDir();
+                    exportedLevelDir = levelDir;
+                    exportedFiles = levelDir != null ? modified : null;
                     stopButton.setVisible(false);
                     openFolderButton.setVisible(true);
                     convertButton.setDisable(false);
@@ -184,11 +202,14 @@ public class AnsHackathonMapsController implements Initializable {
                     SucssesToast("Converter info", "Punkty wyeksportowano poprawnie.");
                 });
                 exportService.setOnFailed((WorkerStateEvent t) -> {
+                    // swiat mogl zostac zapisany tylko czesciowo
+                    exportedFiles = null;
                     taskSpinner.setVisible(false);
                     stopButton.setVisible(false);
                     ErrorToast("Converter error", "Eksport przerwany.");
                 });
                 exportService.setOnCancelled((WorkerStateEvent t) -> {
+                    exportedFiles = null;
                     taskSpinner.setVisible(false);
                     stopButton.setVisible(false);
                     convertButton.setDisable(false);
@@ -225,6 +246,30 @@ public class AnsHackathonMapsController implements Initializable {
 
 
 
+    private static Map<File, Long> lastModified(List<File> files) {
+        Map<File, Long> modified = new HashMap<>();
+        for (File file : files) {
+            modified.put(file, file.lastModified());
+        }
+        return modified;
+    }
+
+    // pliki zmienione od ostatniego eksportu tych samych plikow; null gdy trzeba wyeksportowac
+    // wszystko od nowa (inny zestaw plikow, brak swiata albo nic sie nie zmienilo)
+    private List<File> changedFiles(Map<File, Long> modified) {
+        if (exportedFiles == null || exportedLevelDir == null || !exportedLevelDir.isDirectory()
+                || !exportedFiles.keySet().equals(new HashSet<>(modified.keySet()))) {
+            return null;
+        }
+        List<File> changed = new ArrayList<>();
+        for (Map.Entry<File, Long> entry : modified.entrySet()) {
+            if (!entry.getValue().equals(exportedFiles.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed.isEmpty() ? null : changed;
+    }
+
     private void resetInterface() {
         progressBar.setVisible(false);
         convertButton.setDisable(true);
@@ -0,0 +1,515 @@
+package ConvexHull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reconstructs simple building models from building points. The points are
+ * binned into a grid of unit cells in the x-y plane, occupied cells are
+ * grouped into buildings by 8-connected components, and the footprint of every
+ * building is the convex hull of its cells. A hull does not take occupied
+ * cells of other components, and where hulls overlap the empty cells go to
+ * the first building, so every cell belongs to at most one building. Each
+ * footprint cell gets a roof height, taken from the highest point in it, and
+ * cells on the border of the footprint are marked as walls. Buildings are
+ * processed in parallel.
+ * <p>
+ * Coordinates are expected in grid units (one cell per unit), x and y being
+ * the horizontal axes and z the height.
+ */
+public class BuildingExtractor {
+
+    /**
+     * Buildings with fewer occupied cells than this keep their occupied cells
+     * as footprint instead of a hull.
+     */
+    private static final int MIN_HULL_CELLS = 3;
+
+    private static final int[] NEIGHBOURS_X = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBOURS_Y = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    private static final int[] EDGES_X = {-1, 1, 0, 0};
+    private static final int[] EDGES_Y = {0, 0, -1, 1};
+
+    /**
+     * Cells whose center is at most this far outside of a hull edge still
+     * belong to the footprint, so hull edges through cell centers are kept.
+     */
+    private static final double EDGE_TOLERANCE = 1e-6;
+
+    /**
+     * Hull workspace of each thread, reused for all buildings it processes.
+     */
+    private static final ThreadLocal<ConvexHull3D> HULLS = ThreadLocal.withInitial(ConvexHull3D::new);
+
+    private int minCells = 1;
+
+    /**
+     * Sets the minimum number of occupied cells of a building; smaller
+     * components are dropped as noise.
+     *
+     * @param minCells minimum number of cells
+     */
+    public void setMinCells(int minCells) {
+        this.minCells = minCells;
+    }
+
+    /**
+     * Extracts the buildings of a set of building points.
+     *
+     * @param points building points, in grid units
+     * @return buildings
+     */
+    public List<Building> extract(List<? extends Point3d> points) {
+        if (points.isEmpty()) {
+            return new ArrayList<Building>();
+        }
+
+        // bin the points into a dense grid over their bounding box
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Point3d p : points) {
+            int x = (int) Math.round(p.x);
+            int y = (int) Math.round(p.y);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        Grid grid = new Grid(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        for (Point3d p : points) {
+            grid.add((int) Math.round(p.x), (int) Math.round(p.y), (int) Math.round(p.z), p.i);
+        }
+
+        List<int[]> components = grid.components(minCells);
+        double[][] polygons = new double[components.size()][];
+        IntStream.range(0, components.size())
+                .parallel()
+                .forEach(i -> {
+                    int[] cells = components.get(i);
+                    polygons[i] = cells.length >= MIN_HULL_CELLS ? footprint(grid, cells) : null;
+                });
+        int[] owners = owners(grid, components, polygons);
+        return IntStream.range(0, components.size())
+                .parallel()
+                .mapToObj(i -> createBuilding(grid, components.get(i), polygons[i], owners, i))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Assigns every cell to at most one building: occupied cells to their
+     * component, empty cells inside hulls to the first hull covering them.
+     * Occupied cells of dropped components belong to no building.
+     *
+     * @return building index of each grid cell, or -1
+     */
+    private static int[] owners(Grid grid, List<int[]> components, double[][] polygons) {
+        int[] owners = new int[grid.count.length];
+        Arrays.fill(owners, -1);
+        for (int i = 0; i < components.size(); i++) {
+            for (int cell : components.get(i)) {
+                owners[cell] = i;
+            }
+        }
+        for (int i = 0; i < components.size(); i++) {
+            double[] polygon = polygons[i];
+            if (polygon == null) {
+                continue;
+            }
+            // the hull of the cell centers lies within their bounding box
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int cell : components.get(i)) {
+                minX = Math.min(minX, grid.x(cell));
+                minY = Math.min(minY, grid.y(cell));
+                maxX = Math.max(maxX, grid.x(cell));
+                maxY = Math.max(maxY, grid.y(cell));
+            }
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int cell = grid.index(x, y);
+                    if (owners[cell] < 0 && grid.count[cell] == 0 && insideConvex(polygon, x, y)) {
+                        owners[cell] = i;
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    private static Building createBuilding(Grid grid, int[] cells, double[] polygon, int[] owners, int index) {
+        // bounding box of the occupied cells
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int[] heights = new int[cells.length];
+        double intensity = 0;
+        long count = 0;
+        for (int k = 0; k < cells.length; k++) {
+            int cell = cells[k];
+            minX = Math.min(minX, grid.x(cell));
+            minY = Math.min(minY, grid.y(cell));
+            maxX = Math.max(maxX, grid.x(cell));
+            maxY = Math.max(maxY, grid.y(cell));
+            heights[k] = grid.maxZ[cell];
+            intensity += grid.intensitySum[cell];
+            count += grid.count[cell];
+        }
+        Arrays.sort(heights);
+        int roofHeight = heights[heights.length / 2];
+        double meanIntensity = intensity / count;
+
+        // footprint cells in a local grid: the cells this building owns
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        boolean[] inside = new boolean[width * height];
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                inside[(y - minY) * width + x - minX] = owners[grid.index(x, y)] == index;
+            }
+        }
+
+        // roof heights; cells without points get the median height
+        int[] roofs = new int[width * height];
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int cell = grid.index(x, y);
+                roofs[(y - minY) * width + x - minX] = grid.count[cell] > 0 ? grid.maxZ[cell] : roofHeight;
+            }
+        }
+
+        Building building = new Building(polygon);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int local = y * width + x;
+                if (!inside[local]) {
+                    continue;
+                }
+                // the roof reaches down to its lowest neighbour, so steps leave no gaps
+                int roof = roofs[local];
+                int base = roof;
+                boolean wall = false;
+                for (int k = 0; k < EDGES_X.length; k++) {
+                    int nx = x + EDGES_X[k];
+                    int ny = y + EDGES_Y[k];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height || !inside[ny * width + nx]) {
+                        wall = true;
+                    } else {
+                        base = Math.min(base, roofs[ny * width + nx] + 1);
+                    }
+                }
+                int cell = grid.index(x + minX, y + minY);
+                double cellIntensity = grid.count[cell] > 0 ? grid.intensitySum[cell] / grid.count[cell] : meanIntensity;
+                building.add(x + minX, y + minY, roof, base, cellIntensity, wall);
+            }
+        }
+        return building;
+    }
+
+    /**
+     * Computes the convex footprint polygon of the cells with ConvexHull3D. The
+     * cell centers are lifted to two planes so that the 3D hull is a prism
+     * whose vertices project onto the 2D hull.
+     *
+     * @return counter-clockwise x, y pairs, or null if the cells are collinear
+     */
+    private static double[] footprint(Grid grid, int[] cells) {
+        double[] coords = new double[cells.length * 6];
+        for (int k = 0; k < cells.length; k++) {
+            int x = grid.x(cells[k]);
+            int y = grid.y(cells[k]);
+            coords[k * 6] = x;
+            coords[k * 6 + 1] = y;
+            coords[k * 6 + 2] = 0;
+            coords[k * 6 + 3] = x;
+            coords[k * 6 + 4] = y;
+            coords[k * 6 + 5] = 1;
+        }
+        if (collinear(coords, cells.length * 2)) {
+            return null;
+        }
+
+        ConvexHull3D hull = HULLS.get();
+        hull.build(coords, cells.length * 2);
+        int numv = hull.getNumVertices();
+        if (numv < 6) {
+            return null;
+        }
+        double[] vertices = new double[numv * 3];
+        hull.getVertices(vertices);
+
+        // keep the bottom vertices and order them by angle
+        int n = 0;
+        double[] polygon = new double[numv];
+        double cx = 0, cy = 0;
+        for (int i = 0; i < numv; i++) {
+            if (vertices[i * 3 + 2] == 0) {
+                polygon[n * 2] = vertices[i * 3];
+                polygon[n * 2 + 1] = vertices[i * 3 + 1];
+                cx += polygon[n * 2];
+                cy += polygon[n * 2 + 1];
+                n++;
+            }
+        }
+        if (n < 3) {
+            return null;
+        }
+        cx /= n;
+        cy /= n;
+        Integer[] order = new Integer[n];
+        double[] angles = new double[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            angles[i] = Math.atan2(polygon[i * 2 + 1] - cy, polygon[i * 2] - cx);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(angles[a], angles[b]));
+        double[] sorted = new double[n * 2];
+        for (int i = 0; i < n; i++) {
+            sorted[i * 2] = polygon[order[i] * 2];
+            sorted[i * 2 + 1] = polygon[order[i] * 2 + 1];
+        }
+        return sorted;
+    }
+
+    private static boolean collinear(double[] coords, int nump) {
+        // the hull needs a triangle in the x-y plane
+        double x0 = coords[0], y0 = coords[1];
+        int far = -1;
+        for (int i = 1; i < nump && far < 0; i++) {
+            if (coords[i * 3] != x0 || coords[i * 3 + 1] != y0) {
+                far = i;
+            }
+        }
+        if (far < 0) {
+            return true;
+        }
+        double dx = coords[far * 3] - x0, dy = coords[far * 3 + 1] - y0;
+        for (int i = 0; i < nump; i++) {
+            if (dx * (coords[i * 3 + 1] - y0) - dy * (coords[i * 3] - x0) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean insideConvex(double[] polygon, double x, double y) {
+        int n = polygon.length / 2;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double ex = polygon[j * 2] - polygon[i * 2];
+            double ey = polygon[j * 2 + 1] - polygon[i * 2 + 1];
+            double cross = ex * (y - polygon[i * 2 + 1]) - ey * (x - polygon[i * 2]);
+            if (cross < -EDGE_TOLERANCE * Math.sqrt(ex * ex + ey * ey)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A dense grid of cells with point statistics.
+     */
+    private static final class Grid {
+        final int minX, minY, width, height;
+        final int[] count;
+        final int[] maxZ;
+        final double[] intensitySum;
+
+        Grid(int minX, int minY, int width, int height) {
+            this.minX = minX;
+            this.minY = minY;
+            this.width = width;
+            this.height = height;
+            count = new int[width * height];
+            maxZ = new int[width * height];
+            Arrays.fill(maxZ, Integer.MIN_VALUE);
+            intensitySum = new double[width * height];
+        }
+
+        int index(int x, int y) {
+            return (y - minY) * width + x - minX;
+        }
+
+        int x(int cell) {
+            return cell % width + minX;
+        }
+
+        int y(int cell) {
+            return cell / width + minY;
+        }
+
+        void add(int x, int y, int z, double intensity) {
+            int cell = index(x, y);
+            count[cell]++;
+            maxZ[cell] = Math.max(maxZ[cell], z);
+            intensitySum[cell] += intensity;
+        }
+
+        /**
+         * Labels the 8-connected components of the occupied cells.
+         */
+        List<int[]> components(int minCells) {
+            List<int[]> components = new ArrayList<int[]>();
+            boolean[] visited = new boolean[count.length];
+            int[] stack = new int[16];
+            for (int start = 0; start < count.length; start++) {
+                if (count[start] == 0 || visited[start]) {
+                    continue;
+                }
+                // the stack doubles as the list of the component's cells
+                int size = 0;
+                int next = 0;
+                stack[size++] = start;
+                visited[start] = true;
+                while (next < size) {
+                    int cell = stack[next++];
+                    int cx = cell % width;
+                    int cy = cell / width;
+                    for (int k = 0; k < NEIGHBOURS_X.length; k++) {
+                        int nx = cx + NEIGHBOURS_X[k];
+                        int ny = cy + NEIGHBOURS_Y[k];
+                        if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                            continue;
+                        }
+                        int neighbour = ny * width + nx;
+                        if (count[neighbour] > 0 && !visited[neighbour]) {
+                            visited[neighbour] = true;
+                            if (size == stack.length) {
+                                stack = Arrays.copyOf(stack, size * 2);
+                            }
+                            stack[size++] = neighbour;
+                        }
+                    }
+                }
+                if (size >= minCells) {
+                    components.add(Arrays.copyOf(stack, size));
+                }
+            }
+            return components;
+        }
+    }
+
+    /**
+     * A reconstructed building: its footprint cells with roof heights, mean
+     * intensities and wall flags.
+     */
+    public static class Building {
+
+        private final double[] footprint;
+        private int[] xs = new int[16];
+        private int[] ys = new int[16];
+        private int[] roofs = new int[16];
+        private int[] bases = new int[16];
+        private double[] intensities = new double[16];
+        private boolean[] walls = new boolean[16];
+        private int cells;
+
+        Building(double[] footprint) {
+            this.footprint = footprint;
+        }
+
+        void add(int x, int y, int roof, int base, double intensity, boolean wall) {
+            if (cells == xs.length) {
+                int capacity = cells * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                roofs = Arrays.copyOf(roofs, capacity);
+                bases = Arrays.copyOf(bases, capacity);
+                intensities = Arrays.copyOf(intensities, capacity);
+                walls = Arrays.copyOf(walls, capacity);
+            }
+            xs[cells] = x;
+            ys[cells] = y;
+            roofs[cells] = roof;
+            bases[cells] = base;
+            intensities[cells] = intensity;
+            walls[cells] = wall;
+            cells++;
+        }
+
+        /**
+         * Returns the footprint polygon.
+         *
+         * @return counter-clockwise x, y pairs of the hull vertices, or null
+         * if the building is too small or thin for a hull
+         */
+        public double[] getFootprint() {
+            return footprint == null ? null : footprint.clone();
+        }
+
+        /**
+         * Returns the number of footprint cells.
+         *
+         * @return number of cells
+         */
+        public int getCellCount() {
+            return cells;
+        }
+
+        /**
+         * Returns the x coordinate of a cell.
+         *
+         * @param cell cell index
+         * @return x coordinate
+         */
+        public int getX(int cell) {
+            return xs[cell];
+        }
+
+        /**
+         * Returns the y coordinate of a cell.
+         *
+         * @param cell cell index
+         * @return y coordinate
+         */
+        public int getY(int cell) {
+            return ys[cell];
+        }
+
+        /**
+         * Returns the roof height of a cell: the height of its highest point,
+         * or the median roof height of the building for cells without points.
+         *
+         * @param cell cell index
+         * @return roof height
+         */
+        public int getRoofHeight(int cell) {
+            return roofs[cell];
+        }
+
+        /**
+         * Returns the lowest height of the roof surface in a cell. A roof cell
+         * higher than its neighbours reaches down to just above the lowest of
+         * them, so that the roof is closed.
+         *
+         * @param cell cell index
+         * @return lowest roof height, at most the roof height
+         */
+        public int getRoofBase(int cell) {
+            return bases[cell];
+        }
+
+        /**
+         * Returns the mean intensity of the points in a cell, or of the whole
+         * building for cells without points.
+         *
+         * @param cell cell index
+         * @return mean intensity
+         */
+        public double getIntensity(int cell) {
+            return intensities[cell];
+        }
+
+        /**
+         * Determines if a cell lies on the border of the footprint.
+         *
+         * @param cell cell index
+         * @return true if the cell is part of a wall
+         */
+        public boolean isWall(int cell) {
+            return walls[cell];
+        }
+    }
+}
@@ -4,8 +4,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class ConvexHull3D {
 
@@ -53,13 +56,37 @@ public class ConvexHull3D {
 
     protected int[] vertexPointIndices = new int[0];
 
+    // maps the points of this hull to the caller's input points when the hull
+    // was built from candidate points, see buildParallel; null otherwise
+    protected int[] inputIndices;
+
+    /**
+     * Point sets smaller than this are hulled by a single thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
     private Face[] discardedFaces = new Face[3];
 
+    // faces and half-edges, recycled by every build of this hull
+    private final HullPool pool = new HullPool();
+
+    private final Vertex[] simplexVtxs = new Vertex[4];
+
+    private final Face[] simplexFaces = new Face[4];
+
+    private final Vector3d u01 = new Vector3d();
+
+    private final Vector3d diff02 = new Vector3d();
+
+    private final Vector3d nrml = new Vector3d();
+
+    private final Vector3d xprod = new Vector3d();
+
     private Vertex[] maxVtxs = new Vertex[3];
 
     private Vertex[] minVtxs = new Vertex[3];
 
-    protected Vector faces = new Vector(16);
+    protected Vector<Face> faces = new Vector<Face>(16);
 
     protected Vector horizon = new Vector(16);
 
@@ -193,7 +220,7 @@ public class ConvexHull3D {
      * @throws IllegalArgumentException the number of input points is less than four, or the points
      *                                  appear to be coincident, colinear, or coplanar.
      */
-    public ConvexHull3D(Point3d[] points) throws IllegalArgumentException {
+    public ConvexHull3D(Vector3d[] points) throws IllegalArgumentException {
         build(points, points.length);
     }
 
@@ -294,7 +321,7 @@ public class ConvexHull3D {
 
     private void printPoints(PrintStream ps) {
         for (int i = 0; i < numPoints; i++) {
-            Point3d pnt = pointBuffer[i].pnt;
+            Vector3d pnt = pointBuffer[i].pnt;
             ps.println(pnt.x + ", " + pnt.y + ", " + pnt.z + ",");
         }
     }
@@ -342,12 +369,15 @@ public class ConvexHull3D {
      * @throws IllegalArgumentException the number of input points is less than four, or the points
      *                                  appear to be coincident, colinear, or coplanar.
      */
-    public void build(Point3d[] points) throws IllegalArgumentException {
+    public void build(Vector3d[] points) throws IllegalArgumentException {
         build(points, points.length);
     }
 
     /**
-     * Constructs the convex hull of a set of points.
+     * Constructs the convex hull of a set of points. Only the coordinates of
+     * the points are copied; attributes of {@link Point3d} input points stay
+     * with the caller and can be looked up through
+     * {@link #getVertexPointIndices()}.
      *
      * @param points input points
      * @param nump   number of input points
@@ -355,7 +385,7 @@ public class ConvexHull3D {
      *                                  the length of <code>points</code>, or the points appear to be
      *                                  coincident, colinear, or coplanar.
      */
-    public void build(Point3d[] points, int nump) throws IllegalArgumentException {
+    public void build(Vector3d[] points, int nump) throws IllegalArgumentException {
         if (nump < 4) {
             throw new IllegalArgumentException("Less than four input points specified");
         }
@@ -370,6 +400,162 @@ public class ConvexHull3D {
         buildHull();
     }
 
+    /**
+     * Constructs the convex hull of a large set of points in parallel. The
+     * points are split into contiguous partitions whose hulls are computed
+     * concurrently; the vertices of neighbouring sub-hulls are combined and
+     * hulled again, and a final QuickHull pass over the remaining candidates
+     * yields the hull of the whole set. Since every vertex of the hull is a
+     * vertex of the hull of its partition, the result equals that of
+     * {@link #build(double[], int)}, and vertex and face indices still refer
+     * to the input points.
+     * <p>
+     * Partitions that are too degenerate to have a hull of their own pass all
+     * their points on to the next pass.
+     *
+     * @param coords x, y, and z coordinates of each input point. The length of
+     *               this array must be at least three times <code>nump</code>.
+     * @param nump   number of input points
+     * @return the convex hull
+     * @throws IllegalArgumentException the number of input points is less than four or greater than
+     *                                  1/3 the length of <code>coords</code>
+     */
+    public static ConvexHull3D buildParallel(double[] coords, int nump) throws IllegalArgumentException {
+        if (nump < 4) {
+            throw new IllegalArgumentException("Less than four input points specified");
+        }
+        if (coords.length / 3 < nump) {
+            throw new IllegalArgumentException("Coordinate array too small for specified number of points");
+        }
+        ConvexHull3D hull = new ConvexHull3D();
+        if (nump <= PARALLEL_THRESHOLD) {
+            hull.build(coords, nump);
+            return hull;
+        }
+
+        Candidates candidates = ForkJoinPool.commonPool().invoke(new SubHull(coords, 0, nump, true));
+        hull.build(candidates.coords, candidates.count);
+        hull.inputIndices = candidates.indices;
+        return hull;
+    }
+
+    /**
+     * Reduces candidate points to the vertices of their hull. Returns the
+     * candidates unchanged if they have no proper hull.
+     */
+    static Candidates reduce(ConvexHull3D hull, Candidates candidates) {
+        if (!hull.spansVolume(candidates.coords, candidates.count)) {
+            return candidates;
+        }
+        hull.build(candidates.coords, candidates.count);
+        int numv = hull.getNumVertices();
+        if (numv < 4) {
+            return candidates;
+        }
+        Candidates reduced = new Candidates(numv);
+        hull.getVertices(reduced.coords);
+        for (int i = 0; i < numv; i++) {
+            reduced.indices[i] = candidates.indices[hull.vertexPointIndices[i]];
+        }
+        reduced.count = numv;
+        return reduced;
+    }
+
+    /**
+     * Returns whether points have a proper hull, that is, whether they are at
+     * least four and not coincident, colinear, or coplanar within the distance
+     * tolerance. Degenerate points can then be passed over without letting
+     * {@link #build(double[], int)} fail.
+     */
+    boolean spansVolume(double[] coords, int nump) {
+        if (nump < 4) {
+            return false;
+        }
+        initBuffers(nump);
+        setPoints(coords, nump);
+        computeMaxAndMin();
+        return findSimplexVertices() == null;
+    }
+
+    private int inputIndex(int pointIndex) {
+        return inputIndices != null ? inputIndices[pointIndex] : pointIndex;
+    }
+
+    /**
+     * Points that may be vertices of a hull, with their input indices.
+     */
+    static final class Candidates {
+        double[] coords;
+        int[] indices;
+        int count;
+
+        Candidates(int capacity) {
+            coords = new double[capacity * 3];
+            indices = new int[capacity];
+        }
+
+        void add(double[] src, int srcIndex, int index) {
+            if (count == indices.length) {
+                ensureCapacity(Math.max(16, count * 2));
+            }
+            System.arraycopy(src, srcIndex * 3, coords, count * 3, 3);
+            indices[count++] = index;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > indices.length) {
+                coords = Arrays.copyOf(coords, capacity * 3);
+                indices = Arrays.copyOf(indices, capacity);
+            }
+        }
+
+        void addAll(Candidates other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.coords, i, other.indices[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes the hull vertices of a range of points, splitting large ranges
+     * in two.
+     */
+    @SuppressWarnings("serial")
+    private static final class SubHull extends RecursiveTask<Candidates> {
+        private final double[] coords;
+        private final int from;
+        private final int to;
+        private final boolean root;
+
+        SubHull(double[] coords, int from, int to, boolean root) {
+            this.coords = coords;
+            this.from = from;
+            this.to = to;
+            this.root = root;
+        }
+
+        @Override
+        protected Candidates compute() {
+            Candidates candidates;
+            if (to - from > PARALLEL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                SubHull left = new SubHull(coords, from, mid, false);
+                left.fork();
+                candidates = new SubHull(coords, mid, to, false).compute();
+                candidates.addAll(left.join());
+            } else {
+                candidates = new Candidates(to - from);
+                System.arraycopy(coords, from * 3, candidates.coords, 0, (to - from) * 3);
+                for (int i = from; i < to; i++) {
+                    candidates.indices[i - from] = i;
+                }
+                candidates.count = to - from;
+            }
+            // the root's candidates get their final pass in buildParallel
+            return root ? candidates : reduce(new ConvexHull3D(), candidates);
+        }
+    }
+
     /**
      * Triangulates any non-triangular hull faces. In some cases, due to
      * precision issues, the resulting triangles may be very thin or small, and
@@ -379,10 +565,10 @@ public class ConvexHull3D {
     public void triangulate() {
         double minArea = 1000 * charLength * DOUBLE_PREC;
         newFaces.clear();
-        for (Iterator it = faces.iterator(); it.hasNext(); ) {
-            Face face = (Face) it.next();
+        for (int i = 0; i < faces.size(); i++) {
+            Face face = faces.get(i);
             if (face.mark == Face.VISIBLE) {
-                face.triangulate(newFaces, minArea);
+                face.triangulate(newFaces, minArea, pool);
                 // splitFace (face);
             }
         }
@@ -423,19 +609,21 @@ public class ConvexHull3D {
         }
         faces.clear();
         claimed.clear();
+        pool.clear();
         numFaces = 0;
         numPoints = nump;
+        inputIndices = null;
     }
 
     protected void setPoints(double[] coords, int nump) {
         for (int i = 0; i < nump; i++) {
             Vertex vtx = pointBuffer[i];
-            vtx.pnt.set(coords[i * 3 + 0], coords[i * 3 + 1], coords[i * 3 + 2], vtx.pnt.r, vtx.pnt.g, vtx.pnt.b);
+            vtx.pnt.set(coords[i * 3 + 0], coords[i * 3 + 1], coords[i * 3 + 2]);
             vtx.index = i;
         }
     }
 
-    protected void setPoints(Point3d[] pnts, int nump) {
+    protected void setPoints(Vector3d[] pnts, int nump) {
         for (int i = 0; i < nump; i++) {
             Vertex vtx = pointBuffer[i];
             vtx.pnt.set(pnts[i]);
@@ -444,63 +632,64 @@ public class ConvexHull3D {
     }
 
     public void computeMaxAndMin() {
-        Vector3d max = new Vector3d();
-        Vector3d min = new Vector3d();
-
         for (int i = 0; i < 3; i++) {
             maxVtxs[i] = minVtxs[i] = pointBuffer[0];
         }
-        max.set(pointBuffer[0].pnt);
-        min.set(pointBuffer[0].pnt);
+        Vector3d first = pointBuffer[0].pnt;
+        double maxX = first.x, maxY = first.y, maxZ = first.z;
+        double minX = maxX, minY = maxY, minZ = maxZ;
 
         for (int i = 1; i < numPoints; i++) {
-            Point3d pnt = pointBuffer[i].pnt;
-            if (pnt.x > max.x) {
-                max.x = pnt.x;
+            Vector3d pnt = pointBuffer[i].pnt;
+            if (pnt.x > maxX) {
+                maxX = pnt.x;
                 maxVtxs[0] = pointBuffer[i];
-            } else if (pnt.x < min.x) {
-                min.x = pnt.x;
+            } else if (pnt.x < minX) {
+                minX = pnt.x;
                 minVtxs[0] = pointBuffer[i];
             }
-            if (pnt.y > max.y) {
-                max.y = pnt.y;
+            if (pnt.y > maxY) {
+                maxY = pnt.y;
                 maxVtxs[1] = pointBuffer[i];
-            } else if (pnt.y < min.y) {
-                min.y = pnt.y;
+            } else if (pnt.y < minY) {
+                minY = pnt.y;
                 minVtxs[1] = pointBuffer[i];
             }
-            if (pnt.z > max.z) {
-                max.z = pnt.z;
+            if (pnt.z > maxZ) {
+                maxZ = pnt.z;
                 maxVtxs[2] = pointBuffer[i];
-            } else if (pnt.z < min.z) {
-                min.z = pnt.z;
+            } else if (pnt.z < minZ) {
+                minZ = pnt.z;
                 minVtxs[2] = pointBuffer[i];
             }
         }
 
 
-        minX = min.x;
-        maxX = max.x;
-        minY = min.y;
-        maxY = max.y;
-        minZ = min.z;
-        maxZ = max.z;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
         // this epsilon formula comes from QuickHull, and I'm
         // not about to quibble.
-        charLength = Math.max(max.x - min.x, max.y - min.y);
-        charLength = Math.max(max.z - min.z, charLength);
+        charLength = Math.max(maxX - minX, maxY - minY);
+        charLength = Math.max(maxZ - minZ, charLength);
         if (explicitTolerance == AUTOMATIC_TOLERANCE) {
             tolerance =
-                    3 * DOUBLE_PREC * (Math.max(Math.abs(max.x), Math.abs(min.x)) + Math.max(Math.abs(max.y), Math.abs(min.y)) + Math.max(Math.abs(max.z), Math.abs(min.z)));
+                    3 * DOUBLE_PREC * (Math.max(Math.abs(maxX), Math.abs(minX)) + Math.max(Math.abs(maxY), Math.abs(minY)) + Math.max(Math.abs(maxZ), Math.abs(minZ)));
         } else {
             tolerance = explicitTolerance;
         }
     }
 
     /**
-     * Creates the initial simplex from which the hull will be built.
+     * Selects the four vertices of the initial simplex and the normal of the
+     * plane through the first three.
+     *
+     * @return null, or why the points have no proper hull
      */
-    protected void createInitialSimplex() throws IllegalArgumentException {
+    private String findSimplexVertices() {
         double max = 0;
         int imax = 0;
 
@@ -513,9 +702,10 @@ public class ConvexHull3D {
         }
 
         if (max <= tolerance) {
-            throw new IllegalArgumentException("Input points appear to be coincident");
+            return "Input points appear to be coincident";
         }
-        Vertex[] vtx = new Vertex[4];
+        Vertex[] vtx = simplexVtxs;
+        vtx[2] = vtx[3] = null;
         // set first two vertices to be those with the greatest
         // one dimensional separation
 
@@ -524,10 +714,6 @@ public class ConvexHull3D {
 
         // set third vertex to be the vertex farthest from
         // the line between vtx0 and vtx1
-        Vector3d u01 = new Vector3d();
-        Vector3d diff02 = new Vector3d();
-        Vector3d nrml = new Vector3d();
-        Vector3d xprod = new Vector3d();
         double maxSqr = 0;
         u01.sub(vtx[1].pnt, vtx[0].pnt);
         u01.normalize();
@@ -543,7 +729,7 @@ public class ConvexHull3D {
             }
         }
         if (Math.sqrt(maxSqr) <= 100 * tolerance) {
-            throw new IllegalArgumentException("Input points appear to be colinear");
+            return "Input points appear to be colinear";
         }
         nrml.normalize();
 
@@ -558,8 +744,21 @@ public class ConvexHull3D {
             }
         }
         if (Math.abs(maxDist) <= 100 * tolerance) {
-            throw new IllegalArgumentException("Input points appear to be coplanar");
+            return "Input points appear to be coplanar";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the initial simplex from which the hull will be built.
+     */
+    protected void createInitialSimplex() throws IllegalArgumentException {
+        String degeneracy = findSimplexVertices();
+        if (degeneracy != null) {
+            throw new IllegalArgumentException(degeneracy);
         }
+        Vertex[] vtx = simplexVtxs;
+        double d0 = vtx[2].pnt.dot(nrml);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("initial vertices:");
@@ -569,13 +768,13 @@ public class ConvexHull3D {
             LOG.debug(vtx[3].index + ": " + vtx[3].pnt);
         }
 
-        Face[] tris = new Face[4];
+        Face[] tris = simplexFaces;
 
         if (vtx[3].pnt.dot(nrml) - d0 < 0) {
-            tris[0] = Face.createTriangle(vtx[0], vtx[1], vtx[2]);
-            tris[1] = Face.createTriangle(vtx[3], vtx[1], vtx[0]);
-            tris[2] = Face.createTriangle(vtx[3], vtx[2], vtx[1]);
-            tris[3] = Face.createTriangle(vtx[3], vtx[0], vtx[2]);
+            tris[0] = Face.createTriangle(pool, vtx[0], vtx[1], vtx[2], 0);
+            tris[1] = Face.createTriangle(pool, vtx[3], vtx[1], vtx[0], 0);
+            tris[2] = Face.createTriangle(pool, vtx[3], vtx[2], vtx[1], 0);
+            tris[3] = Face.createTriangle(pool, vtx[3], vtx[0], vtx[2], 0);
 
             for (int i = 0; i < 3; i++) {
                 int k = (i + 1) % 3;
@@ -583,10 +782,10 @@ public class ConvexHull3D {
                 tris[i + 1].getEdge(2).setOpposite(tris[0].getEdge(k));
             }
         } else {
-            tris[0] = Face.createTriangle(vtx[0], vtx[2], vtx[1]);
-            tris[1] = Face.createTriangle(vtx[3], vtx[0], vtx[1]);
-            tris[2] = Face.createTriangle(vtx[3], vtx[1], vtx[2]);
-            tris[3] = Face.createTriangle(vtx[3], vtx[2], vtx[0]);
+            tris[0] = Face.createTriangle(pool, vtx[0], vtx[2], vtx[1], 0);
+            tris[1] = Face.createTriangle(pool, vtx[3], vtx[0], vtx[1], 0);
+            tris[2] = Face.createTriangle(pool, vtx[3], vtx[1], vtx[2], 0);
+            tris[3] = Face.createTriangle(pool, vtx[3], vtx[2], vtx[0], 0);
 
             for (int i = 0; i < 3; i++) {
                 int k = (i + 1) % 3;
@@ -606,7 +805,7 @@ public class ConvexHull3D {
                 continue;
             }
 
-            maxDist = tolerance;
+            double maxDist = tolerance;
             Face maxFace = null;
             for (int k = 0; k < 4; k++) {
                 double dist = tris[k].distanceToPlane(v.pnt);
@@ -637,8 +836,8 @@ public class ConvexHull3D {
      * @see ConvexHull3D#getVertices(double[])
      * @see ConvexHull3D#getFaces()
      */
-    public Point3d[] getVertices() {
-        Point3d[] vtxs = new Point3d[numVertices];
+    public Vector3d[] getVertices() {
+        Vector3d[] vtxs = new Vector3d[numVertices];
         for (int i = 0; i < numVertices; i++) {
             vtxs[i] = pointBuffer[vertexPointIndices[i]].pnt;
         }
@@ -657,7 +856,7 @@ public class ConvexHull3D {
      */
     public int getVertices(double[] coords) {
         for (int i = 0; i < numVertices; i++) {
-            Point3d pnt = pointBuffer[vertexPointIndices[i]].pnt;
+            Vector3d pnt = pointBuffer[vertexPointIndices[i]].pnt;
             coords[i * 3 + 0] = pnt.x;
             coords[i * 3 + 1] = pnt.y;
             coords[i * 3 + 2] = pnt.z;
@@ -674,7 +873,7 @@ public class ConvexHull3D {
     public int[] getVertexPointIndices() {
         int[] indices = new int[numVertices];
         for (int i = 0; i < numVertices; i++) {
-            indices[i] = vertexPointIndices[i];
+            indices[i] = inputIndex(vertexPointIndices[i]);
         }
         return indices;
     }
@@ -779,7 +978,7 @@ public class ConvexHull3D {
             indexFlags |= INDEXED_FROM_ONE;
         }
         for (int i = 0; i < numVertices; i++) {
-            Point3d pnt = pointBuffer[vertexPointIndices[i]].pnt;
+            Vector3d pnt = pointBuffer[vertexPointIndices[i]].pnt;
             ps.println("v " + pnt.x + " " + pnt.y + " " + pnt.z);
         }
         for (Iterator fi = faces.iterator(); fi.hasNext(); ) {
@@ -805,7 +1004,7 @@ public class ConvexHull3D {
         do {
             int idx = hedge.head().index;
             if (pointRelative) {
-                idx = vertexPointIndices[idx];
+                idx = inputIndex(vertexPointIndices[idx]);
             }
             if (indexedFromOne) {
                 idx++;
@@ -931,7 +1130,7 @@ public class ConvexHull3D {
         return false;
     }
 
-    protected void calculateHorizon(Point3d eyePnt, HalfEdge edge0, Face face, Vector horizon) {
+    protected void calculateHorizon(Vector3d eyePnt, HalfEdge edge0, Face face, Vector horizon) {
         // oldFaces.add (face);
         deleteFacePoints(face, null);
         face.mark = Face.DELETED;
@@ -962,7 +1161,7 @@ public class ConvexHull3D {
     }
 
     private HalfEdge addAdjoiningFace(Vertex eyeVtx, HalfEdge he) {
-        Face face = Face.createTriangle(eyeVtx, he.tail(), he.head());
+        Face face = Face.createTriangle(pool, eyeVtx, he.tail(), he.head(), 0);
         faces.add(face);
         face.getEdge(-1).setOpposite(he.getOpposite());
         return face.getEdge(0);
@@ -974,8 +1173,8 @@ public class ConvexHull3D {
         HalfEdge hedgeSidePrev = null;
         HalfEdge hedgeSideBegin = null;
 
-        for (Iterator it = horizon.iterator(); it.hasNext(); ) {
-            HalfEdge horizonHe = (HalfEdge) it.next();
+        for (int i = 0; i < horizon.size(); i++) {
+            HalfEdge horizonHe = (HalfEdge) horizon.get(i);
             HalfEdge hedgeSide = addAdjoiningFace(eyeVtx, horizonHe);
             if (LOG.isDebugEnabled()) {
                 LOG.debug("new face: " + hedgeSide.face.getVertexString());
@@ -1084,15 +1283,14 @@ public class ConvexHull3D {
         }
         // remove inactive faces and mark active vertices
         numFaces = 0;
-        for (Iterator it = faces.iterator(); it.hasNext(); ) {
-            Face face = (Face) it.next();
-            if (face.mark != Face.VISIBLE) {
-                it.remove();
-            } else {
+        for (int i = 0; i < faces.size(); i++) {
+            Face face = faces.get(i);
+            if (face.mark == Face.VISIBLE) {
                 markFaceVertices(face, 0);
-                numFaces++;
+                faces.set(numFaces++, face);
             }
         }
+        faces.setSize(numFaces);
         // reindex vertices
         numVertices = 0;
         for (int i = 0; i < numPoints; i++) {
@@ -1196,7 +1394,7 @@ public class ConvexHull3D {
         // check point inclusion
 
         for (int i = 0; i < numPoints; i++) {
-            Point3d pnt = pointBuffer[i].pnt;
+            Vector3d pnt = pointBuffer[i].pnt;
             for (Iterator it = faces.iterator(); it.hasNext(); ) {
                 Face face = (Face) it.next();
                 if (face.mark == Face.VISIBLE) {
@@ -55,16 +55,29 @@ class Face {
 
     protected double planeOffset;
 
-    private Point3d centroid;
+    private Vector3d centroid;
 
     private Vector3d normal;
 
     public Face() {
         normal = new Vector3d();
-        centroid = new Point3d();
+        centroid = new Vector3d();
         mark = VISIBLE;
     }
 
+    /**
+     * Resets a recycled face to the state of a new one.
+     */
+    void reset() {
+        area = 0;
+        he0 = null;
+        mark = VISIBLE;
+        next = null;
+        numVerts = 0;
+        outside = null;
+        planeOffset = 0;
+    }
+
     public static Face create(Vertex[] vtxArray, int[] indices) {
         Face face = new Face();
         HalfEdge hePrev = null;
@@ -102,10 +115,28 @@ class Face {
      */
     public static Face createTriangle(Vertex v0, Vertex v1, Vertex v2, double minArea) {
         Face face = new Face();
-        HalfEdge he0 = new HalfEdge(v0, face);
-        HalfEdge he1 = new HalfEdge(v1, face);
-        HalfEdge he2 = new HalfEdge(v2, face);
+        return face.setTriangle(new HalfEdge(v0, face), new HalfEdge(v1, face), new HalfEdge(v2, face), minArea);
+    }
 
+    /**
+     * Constructs a triangle Face from vertices v0, v1, and v2, taking the face
+     * and its half-edges from a pool.
+     *
+     * @param pool
+     *            pool of faces and half-edges
+     * @param v0
+     *            first vertex
+     * @param v1
+     *            second vertex
+     * @param v2
+     *            third vertex
+     */
+    public static Face createTriangle(HullPool pool, Vertex v0, Vertex v1, Vertex v2, double minArea) {
+        Face face = pool.face();
+        return face.setTriangle(pool.edge(v0, face), pool.edge(v1, face), pool.edge(v2, face), minArea);
+    }
+
+    private Face setTriangle(HalfEdge he0, HalfEdge he1, HalfEdge he2, double minArea) {
         he0.prev = he2;
         he0.next = he1;
         he1.prev = he0;
@@ -113,14 +144,14 @@ class Face {
         he2.prev = he1;
         he2.next = he0;
 
-        face.he0 = he0;
+        this.he0 = he0;
 
         // compute the normal and offset
-        face.computeNormalAndCentroid(minArea);
-        return face;
+        computeNormalAndCentroid(minArea);
+        return this;
     }
 
-    public void computeCentroid(Point3d centroid) {
+    public void computeCentroid(Vector3d centroid) {
         centroid.setZero();
         HalfEdge he = he0;
         do {
@@ -134,8 +165,8 @@ class Face {
         HalfEdge he1 = he0.next;
         HalfEdge he2 = he1.next;
 
-        Point3d p0 = he0.head().pnt;
-        Point3d p2 = he1.head().pnt;
+        Vector3d p0 = he0.head().pnt;
+        Vector3d p2 = he1.head().pnt;
 
         double d2x = p2.x - p0.x;
         double d2y = p2.y - p0.y;
@@ -186,8 +217,8 @@ class Face {
                 hedge = hedge.next;
             } while (hedge != he0);
 
-            Point3d p2 = hedgeMax.head().pnt;
-            Point3d p1 = hedgeMax.tail().pnt;
+            Vector3d p2 = hedgeMax.head().pnt;
+            Vector3d p1 = hedgeMax.tail().pnt;
             double lenMax = Math.sqrt(lenSqrMax);
             double ux = (p2.x - p1.x) / lenMax;
             double uy = (p2.y - p1.y) / lenMax;
@@ -208,7 +239,7 @@ class Face {
      *            the point
      * @return distance from the point to the plane
      */
-    public double distanceToPlane(Point3d p) {
+    public double distanceToPlane(Vector3d p) {
         return normal.x * p.x + normal.y * p.y + normal.z * p.z - planeOffset;
     }
 
@@ -233,7 +264,7 @@ class Face {
         return null;
     }
 
-    public Point3d getCentroid() {
+    public Vector3d getCentroid() {
         return centroid;
     }
 
@@ -351,7 +382,7 @@ class Face {
         return numVerts;
     }
 
-    public void triangulate(FaceList newFaces, double minArea) {
+    public void triangulate(FaceList newFaces, double minArea, HullPool pool) {
         HalfEdge hedge;
 
         if (numVertices() < 4) {
@@ -366,7 +397,7 @@ class Face {
         Face face0 = null;
 
         for (hedge = hedge.next; hedge != he0.prev; hedge = hedge.next) {
-            Face face = createTriangle(v0, hedge.prev.head(), hedge.head(), minArea);
+            Face face = createTriangle(pool, v0, hedge.prev.head(), hedge.head(), minArea);
             face.he0.next.setOpposite(oppPrev);
             face.he0.prev.setOpposite(hedge.opposite);
             oppPrev = face.he0;
@@ -375,7 +406,7 @@ class Face {
                 face0 = face;
             }
         }
-        hedge = new HalfEdge(he0.prev.prev.head(), this);
+        hedge = pool.edge(he0.prev.prev.head(), this);
         hedge.setOpposite(oppPrev);
 
         hedge.prev = he0;
@@ -398,9 +429,9 @@ class Face {
         // by the half edge hedge0 and the point at the
         // head of hedge1.
 
-        Point3d p0 = hedge0.tail().pnt;
-        Point3d p1 = hedge0.head().pnt;
-        Point3d p2 = hedge1.head().pnt;
+        Vector3d p0 = hedge0.tail().pnt;
+        Vector3d p1 = hedge0.head().pnt;
+        Vector3d p2 = hedge1.head().pnt;
 
         double dx1 = p1.x - p0.x;
         double dy1 = p1.y - p0.y;
@@ -72,6 +72,23 @@ class HalfEdge {
     public HalfEdge() {
     }
 
+    /**
+     * Resets a recycled half-edge to the state of a new one with head vertex
+     * <code>v</code> and left-hand triangular face <code>f</code>.
+     *
+     * @param v
+     *            head vertex
+     * @param f
+     *            left-hand triangular face
+     */
+    void reset(Vertex v, Face f) {
+        vertex = v;
+        face = f;
+        next = null;
+        prev = null;
+        opposite = null;
+    }
+
     /**
      * Sets the value of the next edge adjacent (counter-clockwise) to this one
      * within the triangle.
@@ -0,0 +1,105 @@
+package ConvexHull;
+
+/**
+ * Computes the convex hull of a stream of points without keeping the points.
+ * Points are added as coordinates, one by one or in batches from a coordinate
+ * array, and collected in a primitive buffer; whenever the buffer fills up it
+ * is reduced to the vertices of its hull. Memory therefore stays proportional
+ * to the hull size plus one batch, however many points are added.
+ * <p>
+ * The exception are points that have no proper hull: as long as all points
+ * added are coincident, colinear, or coplanar, such as those of a flat roof,
+ * there is nothing to reduce them to, and every point is kept. The buffer then
+ * doubles whenever it fills up, like a list, until a point off the plane makes
+ * the next reduction effective.
+ * <p>
+ * Vertex and face indices of the resulting hull refer to the order in which
+ * the points were added.
+ */
+public class HullAccumulator {
+
+    private static final int MIN_CAPACITY = 4096;
+
+    private final ConvexHull3D workspace = new ConvexHull3D();
+
+    private ConvexHull3D.Candidates candidates = new ConvexHull3D.Candidates(MIN_CAPACITY);
+
+    private int numPoints;
+
+    /**
+     * Adds a point.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param z z coordinate
+     */
+    public void add(double x, double y, double z) {
+        if (candidates.count == candidates.indices.length) {
+            reduce();
+        }
+        int k = candidates.count * 3;
+        candidates.coords[k] = x;
+        candidates.coords[k + 1] = y;
+        candidates.coords[k + 2] = z;
+        candidates.indices[candidates.count++] = numPoints++;
+    }
+
+    /**
+     * Adds points from a coordinate array.
+     *
+     * @param coords x, y, and z coordinates of each point
+     * @param first  index of the first point to add
+     * @param nump   number of points to add
+     */
+    public void add(double[] coords, int first, int nump) {
+        for (int i = first; i < first + nump; i++) {
+            add(coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+        }
+    }
+
+    /**
+     * Returns the number of points added so far.
+     *
+     * @return number of points
+     */
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    /**
+     * Builds the hull of all points added so far. The accumulator can be used
+     * further afterwards.
+     *
+     * @return the convex hull
+     * @throws IllegalArgumentException less than four points were added
+     */
+    public ConvexHull3D build() throws IllegalArgumentException {
+        ConvexHull3D hull = new ConvexHull3D();
+        hull.build(candidates.coords, candidates.count);
+        int[] indices = new int[candidates.count];
+        System.arraycopy(candidates.indices, 0, indices, 0, candidates.count);
+        hull.inputIndices = indices;
+        return hull;
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear() {
+        candidates.count = 0;
+        numPoints = 0;
+    }
+
+    private void reduce() {
+        ConvexHull3D.Candidates reduced = ConvexHull3D.reduce(workspace, candidates);
+        if (reduced == candidates) {
+            // degenerate, nothing was removed
+            candidates.ensureCapacity(candidates.count * 2);
+            return;
+        }
+        // reducing pays off only if the hull is small compared to the buffer
+        ConvexHull3D.Candidates next = new ConvexHull3D.Candidates(Math.max(MIN_CAPACITY, reduced.count * 4));
+        next.addAll(reduced);
+        candidates = next;
+    }
+}
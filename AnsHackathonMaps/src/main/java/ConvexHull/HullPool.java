@@ -0,0 +1,69 @@
+package ConvexHull;
+
+/**
+ * Recycles the faces and half-edges of a hull between builds. A build takes
+ * its faces and half-edges from the pool, including the ones that are deleted
+ * again while the hull grows; {@link #clear()} hands all of them out anew to
+ * the next build, so a workspace that has hulled a point set once builds
+ * hulls of similar size without allocating.
+ */
+class HullPool {
+
+    private Face[] faces = new Face[16];
+
+    private int numFaces;
+
+    private HalfEdge[] edges = new HalfEdge[48];
+
+    private int numEdges;
+
+    /**
+     * Returns a visible face without edges.
+     */
+    public Face face() {
+        if (numFaces == faces.length) {
+            Face[] grown = new Face[faces.length * 2];
+            System.arraycopy(faces, 0, grown, 0, numFaces);
+            faces = grown;
+        }
+        Face face = faces[numFaces];
+        if (face == null) {
+            face = new Face();
+            faces[numFaces] = face;
+        } else {
+            face.reset();
+        }
+        numFaces++;
+        return face;
+    }
+
+    /**
+     * Returns an unlinked half-edge with head vertex <code>v</code> and
+     * left-hand face <code>f</code>.
+     */
+    public HalfEdge edge(Vertex v, Face f) {
+        if (numEdges == edges.length) {
+            HalfEdge[] grown = new HalfEdge[edges.length * 2];
+            System.arraycopy(edges, 0, grown, 0, numEdges);
+            edges = grown;
+        }
+        HalfEdge edge = edges[numEdges];
+        if (edge == null) {
+            edge = new HalfEdge(v, f);
+            edges[numEdges] = edge;
+        } else {
+            edge.reset(v, f);
+        }
+        numEdges++;
+        return edge;
+    }
+
+    /**
+     * Returns all faces and half-edges to the pool. Faces and half-edges
+     * handed out before must not be used any more.
+     */
+    public void clear() {
+        numFaces = 0;
+        numEdges = 0;
+    }
+}
@@ -1,7 +1,18 @@
 package ConvexHull;
 
+/**
+ * A point of the point cloud: its coordinates with colour, intensity and
+ * classification. The geometry code works on the plain coordinates of
+ * {@link Vector3d}; the attributes are looked up by point index afterwards.
+ */
 public class Point3d extends Vector3d {
 
+    public int r;
+    public int g;
+    public int b;
+    public double i;
+    public double c;
+
     public Point3d() {
     }
 
@@ -9,9 +20,9 @@ public class Point3d extends Vector3d {
             double x,
             double y,
             double z,
-            Integer r,
-            Integer g,
-            Integer b,
+            int r,
+            int g,
+            int b,
             double i,
             double c
     ) {
@@ -27,7 +38,13 @@ public class Point3d extends Vector3d {
         );
     }
 
-    private void set(double x, double y, double z, Integer r, Integer g, Integer b, double i, double c) {
+    private void set(double x, double y, double z, int r, int g, int b, double i, double c) {
+        set(x, y, z);
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.i = i;
+        this.c = c;
     }
     public static double getDoubleX(Point3d p) {
         return p.x;
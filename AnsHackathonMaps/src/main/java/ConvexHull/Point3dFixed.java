@@ -1,6 +1,6 @@
 package ConvexHull;
 
-public class Point3dFixed extends Vector3d {
+public class Point3dFixed extends Point3d {
 
     public Point3dFixed() {
     }
@@ -9,13 +9,13 @@ public class Point3dFixed extends Vector3d {
             int x,
             int y,
             int z,
-            Integer r,
-            Integer g,
-            Integer b,
+            int r,
+            int g,
+            int b,
             double i,
             double c
     ) {
-        set(
+        super(
                 x,
                 y,
                 z,
@@ -26,7 +26,4 @@ public class Point3dFixed extends Vector3d {
                 c
         );
     }
-
-    private void set(int x, int y, int z, Integer r, Integer g, Integer b, double i, double c) {
-    }
-}
\ No newline at end of file
+}
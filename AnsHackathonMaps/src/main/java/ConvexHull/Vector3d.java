@@ -54,13 +54,6 @@ public class Vector3d {
      */
     public double z;
 
-    public Integer r;
-    public Integer g;
-    public Integer b;
-    public double c;
-    public double i;
-
-
     /**
      * Creates a 3-vector and initializes its elements to 0.
      */
@@ -87,8 +80,8 @@ public class Vector3d {
      * @param z
      *            third element
      */
-    public Vector3d(double x, double y, double z, Integer r, Integer g, Integer b) {
-        set(x, y, z, r, g ,b);
+    public Vector3d(double x, double y, double z) {
+        set(x, y, z);
     }
 
     /**
@@ -121,17 +114,13 @@ public class Vector3d {
      * Sets a single element of this vector. Elements 0, 1, and 2 correspond to
      * x, y, and z.
      *
-     * @param x
-     * @param y
-     * @param z
-     * @param r
-     * @param g
-     * @param i     element index
-     * @param value element value
-     * @return element value throws ArrayIndexOutOfBoundsException if i is not
-     * in the range 0 to 2.
+     * @param i
+     *            element index
+     * @param value
+     *            element value throws ArrayIndexOutOfBoundsException if i is
+     *            not in the range 0 to 2.
      */
-    public void set(double x, double y, double z, Integer r, Integer g, int i, double value) {
+    public void set(int i, double value) {
         switch (i) {
             case 0: {
                 this.x = value;
@@ -162,10 +151,6 @@ public class Vector3d {
         x = v1.x;
         y = v1.y;
         z = v1.z;
-        r = v1.r;
-        g = v1.g;
-        b = v1.b;
-        i = v1.i;
     }
 
     /**
@@ -330,16 +315,15 @@ public class Vector3d {
 
     /**
      * Sets the elements of this vector to the prescribed values.
+     * 
      * @param x
      *            value for first element
      * @param y
      *            value for second element
      * @param z
-     * @param r
-     * @param g
-     * @param b
+     *            value for third element
      */
-    public void set(double x, double y, double z, Integer r, Integer g, Integer b) {
+    public void set(double x, double y, double z) {
         this.x = x;
         this.y = y;
         this.z = z;
@@ -2,7 +2,7 @@ package ConvexHull;
 
 class Vertex {
 
-    Point3d pnt;
+    Vector3d pnt;
 
     int index;
 
@@ -13,11 +13,11 @@ class Vertex {
     Face face;
 
     public Vertex() {
-        pnt = new Point3d();
+        pnt = new Vector3d();
     }
 
-    public Vertex(double x, double y, double z, Integer r, Integer g, Integer b, double i, double c, int idx) {
-        pnt = new Point3d(x, y, z, r, g, b, i, c);
+    public Vertex(double x, double y, double z, int idx) {
+        pnt = new Vector3d(x, y, z);
         index = idx;
     }
 
@@ -1,12 +1,17 @@
 import java.io.*;
 import java.util.*;
 
+import ConvexHull.BuildingExtractor;
 import ConvexHull.Point3d;
 import ConvexHull.Point3dFixed;
 import ConvexHull.ConvexHull3D;
 import Octree.AABB;
 import Octree.Cube3d;
-import Octree.Octree;
+import Octree.HeightGrid;
+import Octree.PointFeatures;
+import Octree.PointOctree;
+import Octree.VoxelGrid;
+import Octree.VoxelPyramid;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -36,9 +41,22 @@ import net.morbz.minecraft.world.World;
 
 public class ExportService extends Service<Void> {
 
+    private static final String OFFSETS_FILE = "export.properties";
+    // pionowosc powyzej ktorej teren to skala (nachylenie ok. 45 stopni)
+    private static final float STEEP_SLOPE = 0.3f;
+    // grubosc warstwy gruntu pod powierzchnia
+    private static final int TERRAIN_DEPTH = 6;
+    // wysokosc pnia drzewa z punktow drzew i z wokseli klasy 4 (w blokach przy LOD 0)
+    private static final int TREE_HEIGHT = 50;
+    private static final int VOXEL_TREE_HEIGHT = 10;
+
     private Boolean currentState;
     private ObjectProperty<String> currentWork = new SimpleObjectProperty<>();
     private List<File> files;
+    private File updateLevelDir;
+    private List<File> changedFiles;
+    private int[] detailLevels = {0};
+    private File levelDir;
     private long pointsCount;
     private long pointsExportCount;
 
@@ -49,7 +67,6 @@ public class ExportService extends Service<Void> {
     //    private List<Cube3d> cube3dListLocalTemp;
 //    private List<Cube3d> cube3dListLocal;
     private Point3d[] vertices;
-    private Octree octree;
     private int counter = 0;
     private long max = 0;
 
@@ -153,15 +170,22 @@ public class ExportService extends Service<Void> {
                 dictionary  = new HashMap<String, String>();
                 counter = 0;
                 currentState = true;
+                levelDir = null;
 
                 // ilosc operacji do progressu
                 max = pointsCount;
                 double minX = 0, minY = 0, minZ = 0, maxX = 0, maxY = 0;
                 boolean isMin = false;
 
+                // zakres zmienionych kafli przy aktualizacji
+                boolean update = updateLevelDir != null && changedFiles != null;
+                double changedMinX = Double.MAX_VALUE, changedMinY = Double.MAX_VALUE;
+                double changedMaxX = -Double.MAX_VALUE, changedMaxY = -Double.MAX_VALUE;
+
                 try {
 
                     for (File file : files) {
+                        boolean changed = update && changedFiles.contains(file);
 
                         BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
                         String row;
@@ -207,6 +231,12 @@ public class ExportService extends Service<Void> {
                                     maxX = Math.max(maxX, point3d.x);
                                     maxY = Math.max(maxY, point3d.y);
                                     points3dList.add(point3d);
+                                    if (changed) {
+                                        changedMinX = Math.min(changedMinX, point3d.x);
+                                        changedMinY = Math.min(changedMinY, point3d.y);
+                                        changedMaxX = Math.max(changedMaxX, point3d.x);
+                                        changedMaxY = Math.max(changedMaxY, point3d.y);
+                                    }
                                 }
 
                             } catch (Exception e) {
@@ -226,6 +256,28 @@ public class ExportService extends Service<Void> {
                     e.printStackTrace();
                 }
 
+                // przy aktualizacji uzywamy przesuniecia z pierwszego eksportu, zeby bloki
+                // niezmienionych kafli zostaly na swoim miejscu
+                int[] updateArea = null;
+                if (update) {
+                    double[] offsets = loadOffsets(updateLevelDir);
+                    if (offsets == null || changedMinX > changedMaxX) {
+                        System.out.println("Update not possible, exporting the whole world");
+                        update = false;
+                    } else {
+                        minX = offsets[0];
+                        minY = offsets[1];
+                        minZ = offsets[2];
+
+                        // bloki X = x, Z = -y, GenBlocks rysuje do 1 bloku obok punktu
+                        updateArea = new int[]{
+                                (int) Math.floor((changedMinX - minX) * 2.5) - 2,
+                                -(int) Math.ceil((changedMaxY - minY) * 2.5) - 2,
+                                (int) Math.ceil((changedMaxX - minX) * 2.5) + 2,
+                                -(int) Math.floor((changedMinY - minY) * 2.5) + 2};
+                    }
+                }
+
                 try {
                     Platform.runLater(
                             () -> {
@@ -328,6 +380,20 @@ public class ExportService extends Service<Void> {
                     e.printStackTrace();
                 }
 
+                // wartosci liczone z calej chmury, zeby aktualizacja dala te same bloki
+                int[][] arr = Indentity(points3dList);
+                double planeMax = points3dList_v2.isEmpty() ? 0 : points3dList_v2.get(points3dList_v2.size() - 1).x;
+
+                if (updateArea != null) {
+                    // dalej liczymy tylko punkty w zmienionym obszarze z marginesem
+                    int[] clip = clipArea(updateArea);
+                    points3dList_v2 = pointsInArea(points3dList_v2, clip);
+                    pointsOfGround = pointsInArea(pointsOfGround, clip);
+                    pointOfBuilding = pointsInArea(pointOfBuilding, clip);
+                    pointOfVegetation4 = pointsInArea(pointOfVegetation4, clip);
+                    pointsOfClass = pointsInArea(pointsOfClass, clip);
+                }
+
                 List<Point3d> list1 = new ArrayList<Point3d>();
                 List<Point3d> list2 = new ArrayList<Point3d>();
                 List<Point3d> list3 = new ArrayList<Point3d>();
@@ -416,71 +482,115 @@ public class ExportService extends Service<Void> {
                             }
                     );
 
-                    DefaultLayers layers = new DefaultLayers();
-                    IGenerator generator = new FlatGenerator(layers);
-                    Level level = new Level("HackathonMap", generator);
-                    level.setGameType(GameType.CREATIVE);
-                    level.setAllowCommands(true);
-                    level.setMapFeatures(false);
-                    World world = new World(level, layers);
-                    level.setSpawnPoint(10, (int) (minZ+100.0), -700);
-
-                    double min=1000;
-                    int[][] arr = Indentity(points3dList);
-                    for(int i = -100; i < points3dList_v2.get(points3dList_v2.size()-1).x+400; i++){
-                        for(int j = -100; j < points3dList_v2.get(points3dList_v2.size()-1).x+400; j++){
-                            world.setBlock(i, 0, j * -1, SimpleBlock.DIRT);
-                            world.setBlock(i, 3, j * -1, SimpleBlock.WATER);
-                            world.setBlock(i, 2, j * -1, SimpleBlock.WATER);
-                            world.setBlock(i, 1, j * -1, SimpleBlock.WATER);
+                    // w trybie aktualizacji tylko pelna rozdzielczosc, do niej zapisane sa przesuniecia
+                    int[] levels = updateArea != null ? new int[]{0} : detailLevels;
+                    int maxLevel = 0;
+                    for (int lod : levels) maxLevel = Math.max(maxLevel, lod);
+
+                    // jeden blok na woksel, klasa wybierana wiekszoscia glosow punktow;
+                    // budynki rekonstruowane sa osobno
+                    List<Point3d> voxelPoints = new ArrayList<Point3d>(points3dList_v2.size() + pointsOfGround.size());
+                    voxelPoints.addAll(points3dList_v2);
+                    voxelPoints.addAll(pointsOfGround);
+                    // woksele o boku 1 wokol liczb calkowitych, tak jak Math.round w GenBlocks
+                    VoxelGrid grid = VoxelGrid.build(voxelPoints, 1, -0.5, -0.5, -0.5);
+                    // kolejne poziomy szczegolowosci liczone z wokseli, bez ponownego czytania chmury
+                    VoxelPyramid pyramid = new VoxelPyramid(grid, maxLevel + 1);
+                    BuildingExtractor buildingExtractor = new BuildingExtractor();
+
+                    for (int lod : levels) {
+                        int scale = VoxelPyramid.getScale(lod);
+
+                        DefaultLayers layers = new DefaultLayers();
+                        IGenerator generator = new FlatGenerator(layers);
+                        Level level = new Level(lod == 0 ? "HackathonMap" : "HackathonMap LOD" + lod, generator);
+                        level.setGameType(GameType.CREATIVE);
+                        level.setAllowCommands(true);
+                        level.setMapFeatures(false);
+                        World world = new World(level, layers);
+                        level.setSpawnPoint(10, (int) (minZ+100.0), -700 / scale);
+                        double planeFromI = -100.0 / scale, planeToI = (planeMax+400) / scale;
+                        double planeFromJ = -100.0 / scale, planeToJ = (planeMax+400) / scale;
+                        if (updateArea != null) {
+                            int[] clip = clipArea(updateArea);
+                            world.setClip(clip[0], clip[1], clip[2], clip[3]);
+                            planeFromI = Math.max(planeFromI, clip[0]);
+                            planeToI = Math.min(planeToI, clip[2] + 1);
+                            planeFromJ = Math.max(planeFromJ, -clip[3]);
+                            planeToJ = Math.min(planeToJ, -clip[1] + 1);
                         }
-                    }
 
-                    for (int i = 0; i < points3dList_v2.size(); i++) {
-                        Point3d point = points3dList_v2.get(i);
-                        GenBlocks(point,world,arr);
-                        if(point.z < min) min=point.z;
-                        //world.setBlock((int) point.x, (int) point.z, (int) point.y * -1, SimpleBlock.GRASS);
-                    }
+                        for(int i = (int) Math.ceil(planeFromI); i < planeToI; i++){
+                            for(int j = (int) Math.ceil(planeFromJ); j < planeToJ; j++){
+                                world.setBlock(i, 0, j * -1, SimpleBlock.DIRT);
+                                world.setBlock(i, 3, j * -1, SimpleBlock.WATER);
+                                world.setBlock(i, 2, j * -1, SimpleBlock.WATER);
+                                world.setBlock(i, 1, j * -1, SimpleBlock.WATER);
+                            }
+                        }
 
-                    for(int i = 0; i < pointsOfGround.size(); i++){
-                        Point3d point = pointsOfGround.get(i);
-                        GenBlocks(point,world,arr);
-                    }
+                        cube3dList = pyramid.getLevel(lod).toCubes();
+                        List<Point3d> buildingPoints = scaledPoints(pointOfBuilding, scale);
 
-                    for(int i = 0; i < pointOfBuilding.size(); i++){
-                        Point3d point = pointOfBuilding.get(i);
-                        GenBlocks(point,world,arr);
-                    }
+                        // grunt pod drzewami i budynkami: siatka wysokosci z interpolacja dziur
+                        List<Point3d> ground = scaledPoints(pointsOfGround, scale);
+                        if (!ground.isEmpty()) {
+                            HeightGrid terrain = HeightGrid.build(ground);
+                            terrain.fill();
+                            GenTerrain(terrain, cube3dList, buildingPoints, world);
+                        }
 
-                    for(int i = 0; i < pointsOfTrees.size(); i++){
-                        Point3d point = pointsOfTrees.get(i);
-                        GenTree(point,world);
-                    }
-                    for(int i = 0; i < pointsOfClass.size(); i++){
+                        // nachylenie terenu z sasiednich wokseli gruntu, zeby odroznic stoki od rownin
+                        float[] verticality = groundVerticality(cube3dList);
+                        for (int i = 0; i < cube3dList.size(); i++) {
+                            GenBlocks(cube3dList.get(i), world, arr, verticality[i], scale);
+                        }
 
-                        Point3d point = pointsOfClass.get(i);
-                        if((int)point.z>=30)
-                        {
-                            for(int j = 0; j < pointsOfClass.size(); j++)
+                        List<BuildingExtractor.Building> buildings = buildingExtractor.extract(buildingPoints);
+                        for (int i = 0; i < buildings.size(); i++) {
+                            GenBuilding(buildings.get(i), world, arr);
+                        }
+
+                        List<Point3d> trees = scaledPoints(pointsOfTrees, scale);
+                        for(int i = 0; i < trees.size(); i++){
+                            Point3d point = trees.get(i);
+                            GenTree(point, world, scale);
+                        }
+                        List<Point3d> classPoints = scaledPoints(pointsOfClass, scale);
+                        for(int i = 0; i < classPoints.size(); i++){
+
+                            Point3d point = classPoints.get(i);
+                            if((int)point.z>=30)
                             {
-                                Point3d point2 = pointsOfClass.get(j);
+                                for(int j = 0; j < classPoints.size(); j++)
+                                {
+                                    Point3d point2 = classPoints.get(j);
 
 
 
-                                if(Math.sqrt(Math.pow((int)point.x-(int)point2.x,2)+(Math.pow((int)point.x-(int)point2.x,2)))<2)
-                                {
-                                    //      System.out.println("glglg");
-                                    //System.out.println(point.x);
-                                    //System.out.println(point.y);
-                                    //      System.out.println(point.c);
-                                    world.setBlock((int)point.x,(int)point.z,-(int)point.y, SimpleBlock.GLOWSTONE);
+                                    if(Math.sqrt(Math.pow((int)point.x-(int)point2.x,2)+(Math.pow((int)point.x-(int)point2.x,2)))<2)
+                                    {
+                                        //      System.out.println("glglg");
+                                        //System.out.println(point.x);
+                                        //System.out.println(point.y);
+                                        //      System.out.println(point.c);
+                                        world.setBlock((int)point.x,(int)point.z,-(int)point.y, SimpleBlock.GLOWSTONE);
+                                    }
                                 }
                             }
+                            //GenBlocks(point,world,arr);
+                        }
+                        if (updateArea != null) {
+                            world.update(updateLevelDir, updateArea[0], updateArea[1], updateArea[2], updateArea[3]);
+                            levelDir = updateLevelDir;
+                        } else {
+                            File savedDir = world.save();
+                            if (lod == 0) {
+                                saveOffsets(savedDir, minX, minY, minZ);
+                                levelDir = savedDir;
+                            }
                         }
-                        //GenBlocks(point,world,arr);
                     }
-                    world.save();
 
                 } catch (Throwable e) {
                     e.printStackTrace();
@@ -514,6 +624,32 @@ public class ExportService extends Service<Void> {
         this.pointsCount = pointsCount;
     }
 
+    // Tryb aktualizacji: zamiast nowego swiata przebudowujemy tylko chunki zmienionych plikow
+    // w swiecie z poprzedniego eksportu. setFiles() nadal musi dostac wszystkie pliki projektu.
+    public void setUpdate(File levelDir, List<File> changedFiles) {
+        this.updateLevelDir = levelDir;
+        this.changedFiles = changedFiles;
+    }
+
+
+    // Poziomy szczegolowosci do eksportu: 0 to pelna skala (2.5 bloku na metr), kazdy kolejny
+    // poziom ma bloki 2x wieksze. Kazdy poziom zapisywany jest jako osobny swiat.
+    public void setDetailLevels(int... detailLevels) {
+        if (detailLevels.length == 0) {
+            throw new IllegalArgumentException("At least one level of detail is needed");
+        }
+        for (int lod : detailLevels) {
+            if (lod < 0) {
+                throw new IllegalArgumentException("Level of detail should not be negative: " + lod);
+            }
+        }
+        this.detailLevels = detailLevels.clone();
+    }
+
+    // katalog swiata w pelnej skali po udanym eksporcie, null jesli nie zostal zapisany
+    public File getLevelDir() {
+        return levelDir;
+    }
 
     public ObjectProperty<String> currentWorkProperty() {
         return currentWork;
@@ -553,29 +689,77 @@ public class ExportService extends Service<Void> {
     }
 
     public void GenTree(Point3d point, World world) {
-        point.x = (double) Math.round(point.x);
-        int x = (int) point.x;
-        point.y = (double) Math.round(point.y);
-        int y = (int) point.y;
-        point.z = (double) Math.round(point.z);
-        int z = (int) point.z;
+        GenTree(point, world, 1);
+    }
+
+    // scale: skala LOD, wysokosc pnia maleje razem z terenem; punkt nie jest zmieniany
+    public void GenTree(Point3d point, World world, int scale) {
+        int x = (int) Math.round(point.x);
+        int y = (int) Math.round(point.y);
+        int z = (int) Math.round(point.z);
         System.out.println("x:" + x + "y" + y + "z" + z);
         double rand = Math.random();
         if (rand > 0.98) {
-            for (int i = 0; i < 50; i++) {
+            int height = scaledHeight(TREE_HEIGHT, scale);
+            for (int i = 0; i < height; i++) {
 
 
                 world.setBlock(x, z - i, y * -1, SimpleBlock.LOG);
             }
         }
     }
+    // Budynek: sciany na obwodzie od ziemi do dachu, w srodku tylko dach
+    public void GenBuilding(BuildingExtractor.Building building, World world, int[][] arr) {
+        int differ = arr[6][1]/20;
+        for (int k = 0; k < building.getCellCount(); k++) {
+            int x = building.getX(k);
+            int z = -building.getY(k);
+            int roof = building.getRoofHeight(k);
+            double intensity = building.getIntensity(k);
+            IBlock roofBlock = intensity > arr[6][0] && intensity < arr[6][0] + 18*differ ? SimpleBlock.BRICK_BLOCK : SimpleBlock.STONE;
+            if (building.isWall(k)) {
+                world.fillColumn(x, z, 0, roof - 1, SimpleBlock.BRICK_BLOCK);
+            } else {
+                world.fillColumn(x, z, building.getRoofBase(k), roof - 1, SimpleBlock.BRICK_BLOCK);
+            }
+            world.setBlock(x, roof, z, roofBlock);
+        }
+    }
+
+    public void GenBlocks(Cube3d cube, World world, int[][] arr) {
+        GenBlocks(cube, world, arr, 0);
+    }
+
+    public void GenBlocks(Cube3d cube, World world, int[][] arr, float verticality) {
+        GenBlocks(cube, world, arr, verticality, 1);
+    }
+
+    public void GenBlocks(Cube3d cube, World world, int[][] arr, float verticality, int scale) {
+        Point3d point = new Point3d();
+        point.x = cube.getMineX();
+        point.y = cube.getMineY();
+        point.z = cube.getMineZ();
+        point.r = cube.getRed();
+        point.g = cube.getGreen();
+        point.b = cube.getBlue();
+        point.i = cube.getIntensity();
+        point.c = cube.getMostClassification();
+        GenBlocks(point, world, arr, verticality, scale);
+    }
+
     public void GenBlocks(Point3d point,World world,int[][] arr){
-        point.x  = (double) Math.round(point.x);
-        int x = (int)point.x;
-        point.y  = (double) Math.round(point.y);
-        int y = (int) point.y;
-        point.z  = (double) Math.round(point.z);
-        int z = (int)point.z;
+        GenBlocks(point, world, arr, 0);
+    }
+
+    public void GenBlocks(Point3d point, World world, int[][] arr, float verticality){
+        GenBlocks(point, world, arr, verticality, 1);
+    }
+
+    // scale: skala LOD, wysokosc drzew maleje razem z terenem; punkt nie jest zmieniany
+    public void GenBlocks(Point3d point, World world, int[][] arr, float verticality, int scale){
+        int x = (int) Math.round(point.x);
+        int y = (int) Math.round(point.y);
+        int z = (int) Math.round(point.z);
 
         int cat = (int)point.c;
         switch (cat){
@@ -586,18 +770,14 @@ public class ExportService extends Service<Void> {
             case 2:
                 int diff = arr[2][1]/4;
 
-                if(point.i > arr[2][0] && point.i < arr[2][0] + 1.85*diff){
-                    world.setBlock(x, z, y * -1,SimpleBlock.SAND);
-                    for(int j = 0; j < 7; j++){
-                        world.setBlock(x, (int) z - j, y * -1, SimpleBlock.COBBLESTONE);
-                    }
+                if(verticality > STEEP_SLOPE){
+                    // strome zbocze: skala zamiast trawy
+                    world.fillColumn(x, y * -1, z - TERRAIN_DEPTH, z, SimpleBlock.STONE);
+                } else if(point.i > arr[2][0] && point.i < arr[2][0] + 1.85*diff){
+                    world.fillColumn(x, y * -1, z - TERRAIN_DEPTH, z, SimpleBlock.COBBLESTONE);
                 } else{
-                    world.setBlock(x, z, y * -1, SimpleBlock.GRASS);
-                    world.setBlock(x, z-1, y * -1, SimpleBlock.GRASS);
                     for(int i = -1; i < 2; i ++) world.setBlock(x+i,z,i+y*-1,SimpleBlock.GRASS);
-                    for(int j = 0; j < 7; j++){
-                        world.setBlock(x, (int) z - j, y * -1, SimpleBlock.GRASS);
-                    }
+                    world.fillColumn(x, y * -1, z - TERRAIN_DEPTH, z, SimpleBlock.GRASS);
                 }
                 break;
             case 3:
@@ -608,7 +788,8 @@ public class ExportService extends Service<Void> {
                 break;
             case 4:
                 world.setBlock(x,z+1,y*-1,new StainedBlock(StainedBlock.StainedMaterial.WOOL, StainedBlock.StainedColor.GREEN));
-                for(int i = 0; i < 10; i++){
+                int trunk = scaledHeight(VOXEL_TREE_HEIGHT, scale);
+                for(int i = 0; i < trunk; i++){
                     world.setBlock(x,z-i,y*-1,SimpleBlock.LOG);
                 }
                 break;
@@ -647,6 +828,146 @@ public class ExportService extends Service<Void> {
         }
     }
 
+    /**
+     * Kolumny gruntu tam, gdzie nad ziemia sa punkty roslinnosci (klasy 3-5) lub
+     * budynkow, a zaden punkt gruntu nie trafil; wysokosc z interpolacji siatki.
+     * Woda i pozostale klasy nie zaslaniaja gruntu, wiec pod nimi nic nie dodajemy.
+     */
+    private static void GenTerrain(HeightGrid terrain, List<Cube3d> cubes, List<Point3d> buildingPoints, World world) {
+        int minX = terrain.getMinX(), minY = terrain.getMinY();
+        int sizeX = terrain.getSizeX(), sizeY = terrain.getSizeY();
+        boolean[] covered = new boolean[sizeX * sizeY];
+        for (Cube3d cube : cubes) {
+            int classification = cube.getMostClassification();
+            if (classification >= 3 && classification <= 5) {
+                markCovered(covered, cube.getMineX() - minX, cube.getMineY() - minY, sizeX, sizeY);
+            }
+        }
+        for (Point3d point : buildingPoints) {
+            markCovered(covered, (int) Math.round(point.x) - minX, (int) Math.round(point.y) - minY, sizeX, sizeY);
+        }
+
+        for (int j = 0; j < sizeY; j++) {
+            for (int i = 0; i < sizeX; i++) {
+                int x = minX + i, y = minY + j;
+                if (covered[j * sizeX + i] && !terrain.isMeasured(x, y)) {
+                    int z = (int) Math.round(terrain.getHeight(x, y));
+                    world.fillColumn(x, y * -1, z - TERRAIN_DEPTH, z, SimpleBlock.GRASS);
+                }
+            }
+        }
+    }
+
+    private static void markCovered(boolean[] covered, int i, int j, int sizeX, int sizeY) {
+        if (i >= 0 && i < sizeX && j >= 0 && j < sizeY) {
+            covered[j * sizeX + i] = true;
+        }
+    }
+
+    /**
+     * Pionowosc kazdego woksela gruntu (klasa 2), liczona tylko z sasiednich
+     * wokseli gruntu, zeby woda, roslinnosc i budynki nie zmienialy nachylenia
+     * stoku; pozostale woksele, i wszystkie gdy gruntu jest mniej niz sasiadow,
+     * dostaja 0. Indeksy jak w liscie cubes.
+     */
+    private static float[] groundVerticality(List<Cube3d> cubes) {
+        int[] ground = new int[cubes.size()];
+        int count = 0;
+        for (int i = 0; i < cubes.size(); i++) {
+            if (cubes.get(i).getMostClassification() == 2) {
+                ground[count++] = i;
+            }
+        }
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] z = new double[count];
+        for (int k = 0; k < count; k++) {
+            Cube3d cube = cubes.get(ground[k]);
+            x[k] = cube.getMineX();
+            y[k] = cube.getMineY();
+            z[k] = cube.getMineZ();
+        }
+
+        float[] verticality = new float[cubes.size()];
+        if (count >= PointFeatures.DEFAULT_NEIGHBOURS) {
+            PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z), PointFeatures.DEFAULT_NEIGHBOURS);
+            for (int k = 0; k < count; k++) {
+                verticality[ground[k]] = features.getVerticality(k);
+            }
+        }
+        return verticality;
+    }
+
+    // cale chunki zmienionego obszaru z marginesem na swiatlo, inaczej brakujace bloki to otwarte niebo
+    private static int[] clipArea(int[] updateArea) {
+        return World.getUpdateClip(updateArea[0], updateArea[1], updateArea[2], updateArea[3]);
+    }
+
+    // zawsze kopia, GenTree i GenBlocks nie moga zmieniac punktow z pliku LAS
+    private static List<Point3d> scaledPoints(List<Point3d> points, int scale) {
+        List<Point3d> result = new ArrayList<Point3d>(points.size());
+        for (Point3d point : points) {
+            Point3d scaled = new Point3d();
+            scaled.x = point.x / scale;
+            scaled.y = point.y / scale;
+            scaled.z = point.z / scale;
+            scaled.r = point.r;
+            scaled.g = point.g;
+            scaled.b = point.b;
+            scaled.i = point.i;
+            scaled.c = point.c;
+            result.add(scaled);
+        }
+        return result;
+    }
+
+    private static int scaledHeight(int height, int scale) {
+        return Math.max(1, height / scale);
+    }
+
+    private static List<Point3d> pointsInArea(List<Point3d> points, int[] area) {
+        List<Point3d> result = new ArrayList<Point3d>();
+        for (Point3d point : points) {
+            long x = Math.round(point.x);
+            long z = -Math.round(point.y);
+            // drzewa i trawa siegaja kilka blokow od punktu
+            if (x >= area[0] - 2 && x <= area[2] + 2 && z >= area[1] - 2 && z <= area[3] + 2) {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    private static void saveOffsets(File levelDir, double minX, double minY, double minZ) {
+        Properties properties = new Properties();
+        properties.setProperty("minX", Double.toString(minX));
+        properties.setProperty("minY", Double.toString(minY));
+        properties.setProperty("minZ", Double.toString(minZ));
+        try (OutputStream out = new FileOutputStream(new File(levelDir, OFFSETS_FILE))) {
+            properties.store(out, "AnsHackathonMaps export offsets");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static double[] loadOffsets(File levelDir) {
+        File file = new File(levelDir, OFFSETS_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+            return new double[]{
+                    Double.parseDouble(properties.getProperty("minX")),
+                    Double.parseDouble(properties.getProperty("minY")),
+                    Double.parseDouble(properties.getProperty("minZ"))};
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public int[][] Indentity(List<Point3d> points3dList){
         int[][] arr = new int[9][2];
         for(int i = 0 ; i < arr.length ; i ++){
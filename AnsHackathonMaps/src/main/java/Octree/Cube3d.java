@@ -17,6 +17,11 @@ public class Cube3d {
     private Integer mostClassification = 0;
     private Integer mostClassificationCount = 0;
 
+    // statystyki woksela z VoxelGrid, bez list punktow
+    private int pointCount;
+    private double intensity;
+    private int red, green, blue;
+
     public Cube3d(double _minX, double _maxX, double _minY, double _maxY, double _minZ, double _maxZ) {
         this.minX = _minX;
         this.maxX = _maxX;
@@ -104,4 +109,38 @@ public class Cube3d {
     public void setMostClassificationCount(Integer mostClassificationCount) {
         this.mostClassificationCount = mostClassificationCount;
     }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public double getIntensity() {
+        return intensity;
+    }
+
+    public void setIntensity(double intensity) {
+        this.intensity = intensity;
+    }
+
+    public int getRed() {
+        return red;
+    }
+
+    public int getGreen() {
+        return green;
+    }
+
+    public int getBlue() {
+        return blue;
+    }
+
+    public void setRgb(int red, int green, int blue) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
 }
@@ -0,0 +1,528 @@
+package Octree;
+
+import ConvexHull.Point3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * A dense raster of terrain heights (a digital terrain model) with one cell
+ * per block. Cell (x, y) holds the mean z of the ground points that round to
+ * it, like the blocks of {@code GenBlocks}.
+ * <p>
+ * {@link #fill()} interpolates the cells no point fell into, such as the
+ * ground under buildings and trees, with the harmonic (Laplace) surface that
+ * passes through the measured cells: every filled cell ends up at the mean of
+ * its four neighbours, so holes are bridged by the smoothest possible
+ * surface. The solve runs coarse to fine over a pyramid of the measured cells
+ * (a cascadic multigrid): each level starts from the bilinear interpolation
+ * of the coarser solution and refines it with conjugate gradients on
+ * overlapping tiles that run in parallel. Each tile solves over a halo of
+ * {@value #HALO} cells around it, fixed at the estimate on its outer ring,
+ * and keeps only its own cells. As the estimate is already right at the
+ * scale of the coarser level, a few iterations per tile suffice, however
+ * large the holes.
+ */
+public final class HeightGrid {
+
+  /**
+   * Edge length of a tile, in cells.
+   */
+  private static final int TILE = 256;
+
+  /**
+   * Cells solved around each tile but not kept.
+   */
+  private static final int HALO = 16;
+
+  /**
+   * The conjugate gradient iteration stops once the root mean square
+   * residual of a tile is this small, in blocks.
+   */
+  private static final double TOLERANCE = 3e-3;
+
+  /**
+   * Neighbour bits of a free cell.
+   */
+  private static final int LEFT = 1;
+  private static final int RIGHT = 2;
+  private static final int DOWN = 4;
+  private static final int UP = 8;
+
+  private final int minX;
+  private final int minY;
+  private final int sizeX;
+  private final int sizeY;
+
+  /**
+   * Sums of the heights of each cell, then their means.
+   */
+  private final double[] heights;
+  private final int[] counts;
+
+  private boolean filled;
+
+
+  /**
+   * Constructs an empty grid.
+   *
+   * @param minX  x-coordinate of the first column
+   * @param minY  y-coordinate of the first row
+   * @param sizeX number of columns
+   * @param sizeY number of rows
+   */
+  public HeightGrid(int minX, int minY, int sizeX, int sizeY) {
+    if (sizeX <= 0 || sizeY <= 0) {
+      throw new IllegalArgumentException("Grid size should be positive");
+    }
+    this.minX = minX;
+    this.minY = minY;
+    this.sizeX = sizeX;
+    this.sizeY = sizeY;
+    heights = new double[sizeX * sizeY];
+    counts = new int[sizeX * sizeY];
+  }
+
+
+  /**
+   * Builds a grid that covers all points and adds them.
+   *
+   * @param points ground points, at least one
+   * @return the grid, not yet filled
+   */
+  public static HeightGrid build(List<? extends Point3d> points) {
+    if (points.isEmpty()) {
+      throw new IllegalArgumentException("No ground points");
+    }
+    long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+    long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+    for (Point3d point : points) {
+      long x = Math.round(point.x);
+      long y = Math.round(point.y);
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+    }
+    HeightGrid grid = new HeightGrid((int) minX, (int) minY,
+                                     (int) (maxX - minX + 1),
+                                     (int) (maxY - minY + 1));
+    for (Point3d point : points) {
+      grid.add(point.x, point.y, point.z);
+    }
+    return grid;
+  }
+
+
+  /**
+   * Adds a ground point. Points outside the grid are ignored.
+   *
+   * @param x x-coordinate
+   * @param y y-coordinate
+   * @param z height
+   */
+  public void add(double x, double y, double z) {
+    if (filled) {
+      throw new IllegalStateException("Grid is already filled");
+    }
+    int index = index(Math.round(x), Math.round(y));
+    if (index >= 0) {
+      heights[index] += z;
+      counts[index]++;
+    }
+  }
+
+
+  /**
+   * Returns the x-coordinate of the first column.
+   *
+   * @return x-coordinate
+   */
+  public int getMinX() {
+    return minX;
+  }
+
+
+  /**
+   * Returns the y-coordinate of the first row.
+   *
+   * @return y-coordinate
+   */
+  public int getMinY() {
+    return minY;
+  }
+
+
+  /**
+   * Returns the number of columns.
+   *
+   * @return number of columns
+   */
+  public int getSizeX() {
+    return sizeX;
+  }
+
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return number of rows
+   */
+  public int getSizeY() {
+    return sizeY;
+  }
+
+
+  /**
+   * Checks whether any ground point fell into a cell.
+   *
+   * @param x x-coordinate of the cell
+   * @param y y-coordinate of the cell
+   * @return true if the cell height was measured
+   */
+  public boolean isMeasured(int x, int y) {
+    int index = index(x, y);
+    return index >= 0 && counts[index] > 0;
+  }
+
+
+  /**
+   * Returns the terrain height of a cell.
+   *
+   * @param x x-coordinate of the cell
+   * @param y y-coordinate of the cell
+   * @return the mean height of its points, the interpolated height of an
+   * empty cell once the grid is filled, or NaN
+   */
+  public double getHeight(int x, int y) {
+    int index = index(x, y);
+    if (index < 0) {
+      return Double.NaN;
+    }
+    if (counts[index] > 0) {
+      return filled ? heights[index] : heights[index] / counts[index];
+    }
+    return filled ? heights[index] : Double.NaN;
+  }
+
+
+  /**
+   * Interpolates the heights of all empty cells. Does nothing if no cell
+   * was measured.
+   */
+  public void fill() {
+    if (filled) {
+      return;
+    }
+    int measured = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0) {
+        heights[i] /= counts[i];
+        measured++;
+      }
+    }
+    filled = true;
+    if (measured == 0) {
+      Arrays.fill(heights, Double.NaN);
+      return;
+    }
+    if (measured == counts.length) {
+      return;
+    }
+
+    // pull: a pyramid of the means of the measured cells
+    Level level = new Level(heights.clone(), new boolean[counts.length], sizeX, sizeY);
+    for (int i = 0; i < counts.length; i++) {
+      level.known[i] = counts[i] > 0;
+    }
+    List<Level> pyramid = new ArrayList<>();
+    pyramid.add(level);
+    while (level.w > 1 || level.h > 1) {
+      level = level.coarsen();
+      pyramid.add(level);
+    }
+
+    // push: solve each level, starting from the solution of the next coarser
+    // one
+    double[] solution = level.values;
+    for (int l = pyramid.size() - 2; l >= 0; l--) {
+      level = pyramid.get(l);
+      level.prolong(solution, pyramid.get(l + 1).w, pyramid.get(l + 1).h);
+      int tilesX = (level.w + TILE - 1) / TILE;
+      int tilesY = (level.h + TILE - 1) / TILE;
+      level.solution = level.values.clone();
+      if (tilesX * tilesY == 1) {
+        solveTile(level, 0, 0, level.w, level.h);
+      } else {
+        ForkJoinPool.commonPool().invoke(new Tiles(level, tilesX, 0, tilesX * tilesY));
+      }
+      solution = level.solution;
+    }
+    System.arraycopy(solution, 0, heights, 0, heights.length);
+  }
+
+
+  private int index(long x, long y) {
+    long column = x - minX;
+    long row = y - minY;
+    if (column < 0 || column >= sizeX || row < 0 || row >= sizeY) {
+      return -1;
+    }
+    return (int) (row * sizeX + column);
+  }
+
+
+  /**
+   * A level of the pyramid. Cells are known where a measured cell lies below
+   * them; the values of the others are estimates.
+   */
+  private static final class Level {
+
+    private final double[] values;
+    private final boolean[] known;
+    private final int w;
+    private final int h;
+    private double[] solution;
+
+
+    Level(double[] values, boolean[] known, int w, int h) {
+      this.values = values;
+      this.known = known;
+      this.w = w;
+      this.h = h;
+    }
+
+
+    /**
+     * Returns the next coarser level, whose cells hold the means of their
+     * known children.
+     */
+    Level coarsen() {
+      int cw = (w + 1) / 2;
+      int ch = (h + 1) / 2;
+      Level coarse = new Level(new double[cw * ch], new boolean[cw * ch], cw, ch);
+      for (int y = 0; y < ch; y++) {
+        for (int x = 0; x < cw; x++) {
+          double sum = 0;
+          int n = 0;
+          for (int fy = 2 * y; fy < Math.min(2 * y + 2, h); fy++) {
+            for (int fx = 2 * x; fx < Math.min(2 * x + 2, w); fx++) {
+              if (known[fy * w + fx]) {
+                sum += values[fy * w + fx];
+                n++;
+              }
+            }
+          }
+          if (n > 0) {
+            coarse.values[y * cw + x] = sum / n;
+            coarse.known[y * cw + x] = true;
+          }
+        }
+      }
+      return coarse;
+    }
+
+
+    /**
+     * Estimates the unknown cells by bilinear interpolation of the solution
+     * of the next coarser level.
+     */
+    void prolong(double[] coarse, int cw, int ch) {
+      for (int y = 0; y < h; y++) {
+        // centre of the cell in the coordinates of the coarse cells
+        double cy = Math.min(Math.max((y - 0.5) / 2, 0), ch - 1);
+        int y0 = Math.min((int) cy, ch - 1);
+        int y1 = Math.min(y0 + 1, ch - 1);
+        double ty = cy - y0;
+        for (int x = 0; x < w; x++) {
+          if (known[y * w + x]) {
+            continue;
+          }
+          double cx = Math.min(Math.max((x - 0.5) / 2, 0), cw - 1);
+          int x0 = Math.min((int) cx, cw - 1);
+          int x1 = Math.min(x0 + 1, cw - 1);
+          double tx = cx - x0;
+          values[y * w + x] =
+              (1 - ty) * ((1 - tx) * coarse[y0 * cw + x0] + tx * coarse[y0 * cw + x1])
+              + ty * ((1 - tx) * coarse[y1 * cw + x0] + tx * coarse[y1 * cw + x1]);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Solves the tiles of a range of a level in parallel. The estimates are
+   * only read, and every tile writes its own cells of the solution, so tiles
+   * need no synchronization.
+   */
+  @SuppressWarnings("serial")
+  private static final class Tiles extends RecursiveAction {
+
+    private final Level level;
+    private final int tilesX;
+    private final int from;
+    private final int to;
+
+
+    Tiles(Level level, int tilesX, int from, int to) {
+      this.level = level;
+      this.tilesX = tilesX;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new Tiles(level, tilesX, from, mid),
+                  new Tiles(level, tilesX, mid, to));
+        return;
+      }
+      int tileX = from % tilesX * TILE;
+      int tileY = from / tilesX * TILE;
+      solveTile(level, tileX, tileY, Math.min(TILE, level.w - tileX),
+                Math.min(TILE, level.h - tileY));
+    }
+  }
+
+
+  /**
+   * Solves the Laplace equation for the unknown cells of a tile and its halo
+   * with conjugate gradients, and stores the tile's cells in the solution.
+   */
+  private static void solveTile(Level level, int tileX, int tileY, int tileW,
+                                int tileH) {
+    int sizeX = level.w;
+    int sizeY = level.h;
+    boolean[] known = level.known;
+    double[] estimate = level.values;
+    int x0 = Math.max(0, tileX - HALO);
+    int y0 = Math.max(0, tileY - HALO);
+    int x1 = Math.min(sizeX, tileX + tileW + HALO);
+    int y1 = Math.min(sizeY, tileY + tileH + HALO);
+    int w = x1 - x0;
+    int h = y1 - y0;
+
+    boolean empty = false;
+    for (int y = tileY; y < tileY + tileH && !empty; y++) {
+      for (int x = tileX; x < tileX + tileW; x++) {
+        if (!known[y * sizeX + x]) {
+          empty = true;
+          break;
+        }
+      }
+    }
+    if (!empty) {
+      return;
+    }
+
+    // free cells are the unknown ones, except on a cut through the grid,
+    // where the estimate serves as boundary value
+    double[] v = new double[w * h];
+    int[] cells = new int[w * h];
+    int unknowns = 0;
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        int cell = (y + y0) * sizeX + x + x0;
+        v[y * w + x] = estimate[cell];
+        boolean cut = (x == 0 && x0 > 0) || (x == w - 1 && x1 < sizeX)
+                      || (y == 0 && y0 > 0) || (y == h - 1 && y1 < sizeY);
+        if (!known[cell] && !cut) {
+          cells[unknowns++] = y * w + x;
+        }
+      }
+    }
+    // which of the four neighbours of each free cell lie inside the grid
+    byte[] links = new byte[unknowns];
+    for (int k = 0; k < unknowns; k++) {
+      int x = cells[k] % w;
+      int y = cells[k] / w;
+      links[k] = (byte) ((x > 0 ? LEFT : 0) | (x < w - 1 ? RIGHT : 0)
+                         | (y > 0 ? DOWN : 0) | (y < h - 1 ? UP : 0));
+    }
+
+    // r = -L v on the free cells, the residual of the mean value property
+    double[] r = new double[w * h];
+    double[] p = new double[w * h];
+    double[] q = new double[w * h];
+    double rr = 0;
+    for (int k = 0; k < unknowns; k++) {
+      int i = cells[k];
+      r[i] = -laplacian(v, i, w, links[k]);
+      p[i] = r[i];
+      rr += r[i] * r[i];
+    }
+    double limit = TOLERANCE * TOLERANCE * unknowns;
+    int maxIterations = 4 * (w + h);
+
+    for (int iteration = 0; iteration < maxIterations && rr > limit; iteration++) {
+      double pq = 0;
+      for (int k = 0; k < unknowns; k++) {
+        int i = cells[k];
+        q[i] = laplacian(p, i, w, links[k]);
+        pq += p[i] * q[i];
+      }
+      if (!(pq > 0)) {
+        break;
+      }
+      double alpha = rr / pq;
+      double next = 0;
+      for (int k = 0; k < unknowns; k++) {
+        int i = cells[k];
+        v[i] += alpha * p[i];
+        r[i] -= alpha * q[i];
+        next += r[i] * r[i];
+      }
+      double beta = next / rr;
+      rr = next;
+      for (int k = 0; k < unknowns; k++) {
+        int i = cells[k];
+        p[i] = r[i] + beta * p[i];
+      }
+    }
+
+    double[] solution = level.solution;
+    for (int y = tileY; y < tileY + tileH; y++) {
+      for (int x = tileX; x < tileX + tileW; x++) {
+        if (!known[y * sizeX + x]) {
+          solution[y * sizeX + x] = v[(y - y0) * w + x - x0];
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Returns the graph Laplacian of a field at a cell: its value times the
+   * number of neighbours, minus their values. Neighbours outside the grid are
+   * left out, which makes the surface level at the grid edge.
+   */
+  private static double laplacian(double[] field, int i, int w, int links) {
+    double sum = 0;
+    int neighbours = 0;
+    if ((links & LEFT) != 0) {
+      sum += field[i - 1];
+      neighbours++;
+    }
+    if ((links & RIGHT) != 0) {
+      sum += field[i + 1];
+      neighbours++;
+    }
+    if ((links & DOWN) != 0) {
+      sum += field[i - w];
+      neighbours++;
+    }
+    if ((links & UP) != 0) {
+      sum += field[i + w];
+      neighbours++;
+    }
+    return neighbours * field[i] - sum;
+  }
+}
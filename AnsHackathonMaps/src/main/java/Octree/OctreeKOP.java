@@ -1,6 +1,9 @@
 package Octree;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.min;
@@ -22,9 +25,30 @@ public final class OctreeKOP<D extends Volume> {
   private static final Volume[] EMPTY = new Volume[0];
 
   /**
-   * The octree node's bounding box.
+   * Nodes with fewer entries than this are bulk loaded in the calling thread.
    */
-  private final AABB bounds;
+  private static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * Bulk loading stops splitting at this depth, so that many entries with the
+   * same small bounds cannot recurse forever.
+   */
+  private static final int MAX_BULK_DEPTH = 32;
+
+  /**
+   * Index of the bounds of a node in its packed bounds.
+   */
+  private static final int BOUNDS = 0;
+
+  /**
+   * Index of the loose bounds of a node in its packed bounds.
+   */
+  private static final int LOOSE = 1;
+
+  /**
+   * Index of the bounds of the first entry of a node in its packed bounds.
+   */
+  private static final int FIRST_ENTRY = 2;
 
   /**
    * The looseness of this octree.
@@ -36,11 +60,6 @@ public final class OctreeKOP<D extends Volume> {
    */
   private final int max;
 
-  /**
-   * The octree node's bounding box.
-   */
-  private final AABB looseBounds;
-
   /**
    * The octree node children (or null if a leaf node)
    */
@@ -51,6 +70,13 @@ public final class OctreeKOP<D extends Volume> {
    */
   private final D[] entries;
 
+  /**
+   * The bounds and the loose bounds of this node, followed by the bounds of
+   * the entries. Queries read these instead of the bounds of each entry.
+   * Copies of a node with the same entries share them.
+   */
+  private final PackedBounds packed;
+
 
   /**
    * Constructs a new bounding box with the specified boundary.
@@ -71,8 +97,7 @@ public final class OctreeKOP<D extends Volume> {
    *                           splitting it
    */
   public OctreeKOP(AABB bounds, double looseness, int maxBoundedShape3Ds) {
-    this(bounds,
-         bounds.grow(looseness),
+    this(rootBounds(bounds, looseness),
          null,
          (D[]) EMPTY,
          looseness,
@@ -83,18 +108,16 @@ public final class OctreeKOP<D extends Volume> {
   /**
    * Private constructor used by methods of this class.
    *
-   * @param bounds   bounds of the node
+   * @param packed   bounds of the node and of its entries, see {@link #pack}
    * @param children children of the node (may be null to indicate a leaf node)
    * @param entries  entries of the node (not null)
    */
-  private OctreeKOP(AABB bounds,
-                    AABB looseBounds,
+  private OctreeKOP(PackedBounds packed,
                     OctreeKOP<D>[] children,
                     D[] entries,
                     double looseness,
                     int max) {
-    this.bounds = bounds;
-    this.looseBounds = looseBounds;
+    this.packed = packed;
     this.children = children;
     this.entries = entries;
     this.looseness = looseness;
@@ -103,12 +126,60 @@ public final class OctreeKOP<D extends Volume> {
 
 
   /**
-   * Returns the loose bounds of this octree
+   * Packs the bounds of a node, copied from another list, and of its entries.
    *
-   * @return bounding box
+   * @param boxes   list holding the bounds of the node
+   * @param bounds  index of the bounds in the list
+   * @param loose   index of the loose bounds in the list
+   * @param entries entries of the node
+   * @return packed bounds for a node
    */
-  private AABB getLooseBounds() {
-    return looseBounds;
+  private static PackedBounds pack(PackedBounds boxes,
+                                   int bounds,
+                                   int loose,
+                                   Volume[] entries) {
+    PackedBounds packed = new PackedBounds(FIRST_ENTRY + entries.length);
+    packed.add(boxes, bounds);
+    packed.add(boxes, loose);
+    for (Volume entry : entries) {
+      packed.add(entry.getBounds());
+    }
+    return packed;
+  }
+
+
+  /**
+   * Packs the bounds of a root node without entries.
+   *
+   * @param bounds    bounds of the root
+   * @param looseness looseness factor to use
+   * @return packed bounds for a node
+   */
+  private static PackedBounds rootBounds(AABB bounds, double looseness) {
+    PackedBounds packed = new PackedBounds(FIRST_ENTRY);
+    packed.add(bounds);
+    packed.grow(packed.add(bounds), looseness);
+    return packed;
+  }
+
+
+  /**
+   * Appends the octants of a box, followed by their loose bounds.
+   *
+   * @param boxes     list holding the box
+   * @param index     index of the box to split
+   * @param looseness looseness factor to use
+   * @return index of the first octant; the loose bounds of octant i are at
+   * this index plus {@code OCTO + i}
+   */
+  private static int addOctants(PackedBounds boxes,
+                                int index,
+                                double looseness) {
+    int first = boxes.addOctants(index);
+    for (int i = 0; i < OCTO; i++) {
+      boxes.grow(boxes.add(boxes, first + i), looseness);
+    }
+    return first;
   }
 
 
@@ -118,7 +189,7 @@ public final class OctreeKOP<D extends Volume> {
    * @return bounding box
    */
   public AABB getBounds() {
-    return bounds;
+    return packed.get(BOUNDS);
   }
 
 
@@ -132,33 +203,87 @@ public final class OctreeKOP<D extends Volume> {
 
     List<D> selected = new ArrayList<>();
 
-    select(bounds, selected);
+    select(new QueryBox().set(bounds), selected::add);
 
     return selected;
   }
 
 
   /**
-   * Selects all objects intersecting the specified bounds and stores the result
-   * in the specified list.
+   * Visits all objects intersecting the specified bounds without collecting
+   * them. The visitor returns false to stop the selection early.
+   *
+   * @param bounds  bounding box to select
+   * @param visitor visitor receiving the selected objects
+   * @return true if all objects were visited, false if the visitor stopped
+   * the selection
+   */
+  public boolean select(AABB bounds, Predicate<? super D> visitor) {
+    return select(new QueryBox().set(bounds), visitor);
+  }
+
+
+  /**
+   * Visits all objects intersecting the specified query box without
+   * collecting them. Reusing the query box makes repeated small queries free
+   * of allocations.
    *
-   * @param bounds bounds
-   * @param out    output list
+   * @param box     query box
+   * @param visitor visitor receiving the selected objects, returns false to
+   *                stop the selection
+   * @return true if all objects were visited, false if the visitor stopped
+   * the selection
    */
-  private void select(AABB bounds, List<D> out) {
-    for (Volume element : this.entries) {
-      if (element.getBounds().intersects(bounds)) {
-        out.add((D) element);
+  public boolean select(QueryBox box, Predicate<? super D> visitor) {
+    PackedBounds packed = this.packed;
+    D[] entries = this.entries;
+    for (int i = 0; i < entries.length; i++) {
+      if (packed.intersects(box, FIRST_ENTRY + i) &&
+          !visitor.test(entries[i])) {
+        return false;
+      }
+    }
+
+    if (this.children != null) {
+      for (OctreeKOP<D> child : this.children) {
+        if (child.packed.intersects(box, LOOSE) &&
+            !child.select(box, visitor)) {
+          return false;
+        }
       }
     }
+    return true;
+  }
+
+
+  /**
+   * Counts the objects intersecting the specified bounds.
+   *
+   * @param bounds bounding box to select
+   * @return number of selected objects
+   */
+  public int count(AABB bounds) {
+    return count(new QueryBox().set(bounds));
+  }
+
+
+  /**
+   * Counts the objects intersecting the specified query box.
+   *
+   * @param box query box
+   * @return number of selected objects
+   */
+  public int count(QueryBox box) {
+    int count = packed.count(box, FIRST_ENTRY, FIRST_ENTRY + entries.length);
 
     if (this.children != null) {
       for (OctreeKOP<D> child : this.children) {
-        if (child.getLooseBounds().intersects(bounds)) {
-          child.select(bounds, out);
+        if (child.packed.intersects(box, LOOSE)) {
+          count += child.count(box);
         }
       }
     }
+    return count;
   }
 
 
@@ -173,10 +298,6 @@ public final class OctreeKOP<D extends Volume> {
 
     AABB bounds = data.getBounds();
 
-    double centerX = bounds.getCenterX();
-    double centerY = bounds.getCenterY();
-    double centerZ = bounds.getCenterZ();
-
     for (int i = 0; i < entries.length; i++) {
       Volume entry = this.entries[i];
       if (data.equals(entry)) {
@@ -186,18 +307,12 @@ public final class OctreeKOP<D extends Volume> {
 
 
     if (!isLeaf()) {
-      OctreeKOP[] children = this.children.clone();
+      OctreeKOP<D>[] children = this.children.clone();
       for (int i = 0; i < children.length; i++) {
         OctreeKOP<D> child = children[i];
-        if (child.getBounds().contains(centerX, centerY, centerZ) &&
-            child.getLooseBounds().contains(bounds)) {
+        if (child.fits(bounds)) {
           children[i] = child.delete(data);
-          return new OctreeKOP<D>(this.bounds,
-                              this.looseBounds,
-                              children,
-                              this.entries,
-                              this.looseness,
-                              this.max);
+          return withChildren(children);
         }
       }
     }
@@ -223,12 +338,123 @@ public final class OctreeKOP<D extends Volume> {
                      index,
                      entries.length - index);
 
-    return new OctreeKOP<D>(this.bounds,
-                        this.looseBounds,
-                        this.children,
-                        (D[]) entries,
-                        this.looseness,
-                        this.max);
+    return withEntries(entries);
+  }
+
+
+  /**
+   * Builds an octree from a collection of data in a single pass. This is much
+   * faster than inserting the data into an empty octree: the entries are
+   * partitioned by child octant once per level, the octants are built in
+   * parallel and no intermediate octrees are created.
+   *
+   * @param bounds bounding box of the root of the octree
+   * @param data   data to insert; entries that do not fit into the octree are
+   *               skipped, just like {@link #insert(Volume)} does
+   * @param <D>    type of the entries
+   * @return octree
+   */
+  public static <D extends Volume> OctreeKOP<D> build(AABB bounds,
+                                                      Collection<D> data) {
+    return build(bounds, DEFAULT_LOOSENESS, DEFAULT_MAX_ELEMENTS, data);
+  }
+
+
+  /**
+   * Builds an octree from a collection of data in a single pass.
+   *
+   * @param bounds             bounding box of the root of the octree
+   * @param looseness          looseness factor to use
+   * @param maxBoundedShape3Ds maximum number of entries a leaf may hold
+   * @param data               data to insert
+   * @param <D>                type of the entries
+   * @return octree
+   * @see #build(AABB, Collection)
+   */
+  public static <D extends Volume> OctreeKOP<D> build(AABB bounds,
+                                                      double looseness,
+                                                      int maxBoundedShape3Ds,
+                                                      Collection<D> data) {
+    PackedBounds root = rootBounds(bounds, looseness);
+
+    Volume[] entries = new Volume[data.size()];
+    int count = 0;
+    for (D entry : data) {
+      if (fits(root, BOUNDS, LOOSE, entry.getBounds())) {
+        entries[count++] = entry;
+      }
+    }
+
+    BulkLoader<D> loader = new BulkLoader<>(root,
+                                            BOUNDS,
+                                            LOOSE,
+                                            entries,
+                                            new Volume[count],
+                                            0,
+                                            count,
+                                            0,
+                                            looseness,
+                                            maxBoundedShape3Ds);
+    return ForkJoinPool.commonPool().invoke(loader);
+  }
+
+
+  /**
+   * Determines if an entry belongs to a node.
+   *
+   * @param boxes  list holding the bounds of the node
+   * @param bounds index of the bounds of the node
+   * @param loose  index of the loose bounds of the node
+   * @param entry  bounds of the entry
+   * @return true if the entry may be stored in the node
+   */
+  private static boolean fits(PackedBounds boxes,
+                              int bounds,
+                              int loose,
+                              AABB entry) {
+    return boxes.contains(bounds,
+                          entry.getCenterX(),
+                          entry.getCenterY(),
+                          entry.getCenterZ()) &&
+           boxes.contains(loose, entry);
+  }
+
+
+  /**
+   * Determines if an entry belongs to this node.
+   *
+   * @param entry bounds of the entry
+   * @return true if the entry may be stored in this node
+   */
+  private boolean fits(AABB entry) {
+    return fits(packed, BOUNDS, LOOSE, entry);
+  }
+
+
+  /**
+   * Returns a copy of this node with other entries.
+   *
+   * @param entries entries of the copy
+   * @return octree
+   */
+  private OctreeKOP<D> withEntries(Volume[] entries) {
+    return new OctreeKOP<D>(pack(packed, BOUNDS, LOOSE, entries),
+                            children,
+                            (D[]) entries,
+                            looseness,
+                            max);
+  }
+
+
+  /**
+   * Returns a copy of this node with other children. The copy shares the
+   * packed bounds, as the entries are the same.
+   *
+   * @param children children of the copy
+   * @return octree
+   */
+  private OctreeKOP<D> withChildren(OctreeKOP<D>[] children) {
+    return new OctreeKOP<D>(packed, children, entries, looseness, max);
   }
 
 
@@ -254,7 +480,6 @@ public final class OctreeKOP<D extends Volume> {
    * @return octree
    */
   public OctreeKOP<D> insertData(List<D> data) {
-    System.out.println("Octree info: entries.length:"+entries.length+", data.size: "+data.size()+", max: "+max);
     if (isLeaf()) {
       if (entries.length + data.size() > max) {
         return split().insert(data);
@@ -291,14 +516,8 @@ public final class OctreeKOP<D extends Volume> {
                      entries,
                      data.size(),
                      this.entries.length);
-    System.out.println("entries: "+this.entries.length);
 
-    return new OctreeKOP<D>(bounds,
-                        looseBounds,
-                        children,
-                        (D[]) entries,
-                        looseness,
-                        max);
+    return withEntries(entries);
   }
 
 
@@ -320,14 +539,7 @@ public final class OctreeKOP<D extends Volume> {
       for (Iterator<D> i = remaining.iterator(); i.hasNext();) {
         D entry = i.next();
 
-        AABB bounds = entry.getBounds();
-
-        double centerX = bounds.getCenterX();
-        double centerY = bounds.getCenterY();
-        double centerZ = bounds.getCenterZ();
-
-        if (child.bounds.contains(centerX, centerY, centerZ) &&
-            child.looseBounds.contains(bounds)) {
+        if (child.fits(entry.getBounds())) {
           childEntries.add(entry);
           i.remove();
         }
@@ -337,12 +549,7 @@ public final class OctreeKOP<D extends Volume> {
       }
     }
 
-    return new OctreeKOP<D>(bounds,
-                        looseBounds,
-                        children,
-                        entries,
-                        looseness,
-                        max).insertEntries(remaining);
+    return withChildren(children).insertEntries(remaining);
   }
 
 
@@ -358,14 +565,7 @@ public final class OctreeKOP<D extends Volume> {
 
     // no need to insert the entry if its bounds are not contained in this
     // octree
-    AABB bounds = entry.getBounds();
-
-    double centerX = bounds.getCenterX();
-    double centerY = bounds.getCenterY();
-    double centerZ = bounds.getCenterZ();
-
-    if (!(this.bounds.contains(centerX, centerY, centerZ) &&
-          this.looseBounds.contains(bounds))) {
+    if (!fits(entry.getBounds())) {
       return this;
     }
 
@@ -394,17 +594,12 @@ public final class OctreeKOP<D extends Volume> {
    * @return the octree with the inserted entry
    */
   private OctreeKOP<D> insertEntry(D entry) {
-    D[] entries = (D[]) new Volume[this.entries.length + 1];
+    Volume[] entries = new Volume[this.entries.length + 1];
 
     System.arraycopy(this.entries, 0, entries, 0, this.entries.length);
     entries[this.entries.length] = entry;
 
-    return new OctreeKOP<D>(this.bounds,
-                        this.looseBounds,
-                        this.children,
-                        entries,
-                        looseness,
-                        max);
+    return withEntries(entries);
   }
 
 
@@ -421,12 +616,7 @@ public final class OctreeKOP<D extends Volume> {
     for (int i = 0; i < children.length; i++) {
       children[i] = this.children[i].insert(element);
       if (children[i] != this.children[i]) {
-        return new OctreeKOP<D>(this.bounds,
-                            this.looseBounds,
-                            children,
-                            this.entries,
-                            looseness,
-                            max);
+        return withChildren(children);
       }
     }
 
@@ -442,15 +632,20 @@ public final class OctreeKOP<D extends Volume> {
   @SuppressWarnings("SuspiciousToArrayCall")
   public OctreeKOP<D> split() {
 
-    AABB[] boxes = createBoxes();
+    PackedBounds boxes = new PackedBounds(1 + 2 * OCTO);
+    int first = addOctants(boxes, boxes.add(packed, BOUNDS), looseness);
 
-    OctreeKOP<D>[] children = (OctreeKOP<D>[]) new OctreeKOP[OCTO];
+    OctreeKOP<D>[] children = (OctreeKOP<D>[]) new OctreeKOP<?>[OCTO];
 
     List<D> elements = new ArrayList<>(Arrays.asList(this.entries));
-    System.out.println("Octree boxes: "+boxes.length);
 
-    for (int i = 0; i < boxes.length; i++) {
-      children[i] = new OctreeKOP<D>(boxes[i]);
+    for (int i = 0; i < OCTO; i++) {
+      children[i] = new OctreeKOP<D>(pack(boxes, first + i, first + OCTO + i,
+                                          EMPTY),
+                                     null,
+                                     (D[]) EMPTY,
+                                     looseness,
+                                     max);
       for (Iterator<D> iterator = elements.iterator(); iterator.hasNext(); ) {
         OctreeKOP<D> octree = children[i].insert(iterator.next());
 
@@ -461,40 +656,12 @@ public final class OctreeKOP<D extends Volume> {
       }
     }
 
-    return new OctreeKOP<D>(this.bounds,
-                        this.looseBounds,
-                        children,
-                        (D[]) elements.toArray(new Volume[elements.size()]),
-                        looseness,
-                        max);
-  }
-
-
-  /**
-   * Returns the child boxes in a new array
-   *
-   * @return child boxes
-   */
-  private AABB[] createBoxes() {
-
-    double midX = bounds.getMinX() / 2 + bounds.getMaxX() / 2;
-    double midY = bounds.getMinY() / 2 + bounds.getMaxY() / 2;
-    double midZ = bounds.getMinZ() / 2 + bounds.getMaxZ() / 2;
-    double minX = bounds.getMinX();
-    double maxX = bounds.getMaxX();
-    double minY = bounds.getMinY();
-    double maxY = bounds.getMaxY();
-    double minZ = bounds.getMinZ();
-    double maxZ = bounds.getMaxZ();
-
-    return new AABB[]{new AABB(minX, midX, minY, midY, minZ, midZ),
-                      new AABB(minX, midX, minY, midY, midZ, maxZ),
-                      new AABB(minX, midX, midY, maxY, minZ, midZ),
-                      new AABB(minX, midX, midY, maxY, midZ, maxZ),
-                      new AABB(midX, maxX, minY, midY, minZ, midZ),
-                      new AABB(midX, maxX, minY, midY, midZ, maxZ),
-                      new AABB(midX, maxX, midY, maxY, minZ, midZ),
-                      new AABB(midX, maxX, midY, maxY, midZ, maxZ)};
+    Volume[] entries = elements.toArray(new Volume[elements.size()]);
+    return new OctreeKOP<D>(pack(packed, BOUNDS, LOOSE, entries),
+                            children,
+                            (D[]) entries,
+                            looseness,
+                            max);
   }
 
 
@@ -512,10 +679,10 @@ public final class OctreeKOP<D extends Volume> {
   @Override
   public String toString() {
     if (isLeaf()) {
-      return "LEAF box=" + bounds + " entries=" + entries.length;
+      return "LEAF box=" + getBounds() + " entries=" + entries.length;
     }
     else {
-      return "NODE box=" + bounds + " entries=" + entries.length +
+      return "NODE box=" + getBounds() + " entries=" + entries.length +
              " depth=" + depth();
     }
   }
@@ -621,4 +788,154 @@ public final class OctreeKOP<D extends Volume> {
   private boolean isLeaf() {
     return this.children == null;
   }
+
+
+  /**
+   * Builds the subtree of one node. The entries of a node are partitioned by
+   * child octant into the other of two buffers, so the children read from the
+   * buffer their parent wrote to. Siblings use disjoint ranges of the buffers.
+   *
+   * @param <D> type of the entries
+   */
+  @SuppressWarnings("serial")
+  private static final class BulkLoader<D extends Volume>
+      extends RecursiveTask<OctreeKOP<D>> {
+
+    /**
+     * The list holding the bounds of the node, which is not modified once
+     * the node has been split, so siblings can share it.
+     */
+    private final PackedBounds boxes;
+    private final int bounds;
+    private final int loose;
+    private final Volume[] source;
+    private final Volume[] target;
+    private final int from;
+    private final int to;
+    private final int depth;
+    private final double looseness;
+    private final int max;
+
+
+    private BulkLoader(PackedBounds boxes,
+                       int bounds,
+                       int loose,
+                       Volume[] source,
+                       Volume[] target,
+                       int from,
+                       int to,
+                       int depth,
+                       double looseness,
+                       int max) {
+      this.boxes = boxes;
+      this.bounds = bounds;
+      this.loose = loose;
+      this.source = source;
+      this.target = target;
+      this.from = from;
+      this.to = to;
+      this.depth = depth;
+      this.looseness = looseness;
+      this.max = max;
+    }
+
+
+    @Override
+    protected OctreeKOP<D> compute() {
+      int size = to - from;
+      if (size <= max || depth >= MAX_BULK_DEPTH) {
+        return leaf(Arrays.copyOfRange(source, from, to));
+      }
+
+      PackedBounds childBoxes = new PackedBounds(1 + 2 * OCTO);
+      int center = childBoxes.add(boxes, bounds);
+      int first = addOctants(childBoxes, center, looseness);
+
+      // assign each entry to a child octant, or to this node (OCTO) if it
+      // does not fit into the loose bounds of the child
+      byte[] octants = new byte[size];
+      int[] offsets = new int[OCTO + 2];
+      for (int i = 0; i < size; i++) {
+        AABB entry = source[from + i].getBounds();
+        int octant = childBoxes.octant(center,
+                                       entry.getCenterX(),
+                                       entry.getCenterY(),
+                                       entry.getCenterZ());
+        if (!childBoxes.contains(first + OCTO + octant, entry)) {
+          octant = OCTO;
+        }
+        octants[i] = (byte) octant;
+        offsets[octant + 1]++;
+      }
+      if (offsets[OCTO + 1] == size) {
+        // nothing fits into a child, splitting would not help
+        return leaf(Arrays.copyOfRange(source, from, to));
+      }
+
+      offsets[0] = from;
+      for (int i = 0; i <= OCTO; i++) {
+        offsets[i + 1] += offsets[i];
+      }
+      int[] next = Arrays.copyOf(offsets, OCTO + 1);
+      for (int i = 0; i < size; i++) {
+        target[next[octants[i]]++] = source[from + i];
+      }
+
+      List<BulkLoader<D>> tasks = new ArrayList<>(OCTO);
+      OctreeKOP<D>[] children = (OctreeKOP<D>[]) new OctreeKOP<?>[OCTO];
+      for (int i = 0; i < OCTO; i++) {
+        if (offsets[i + 1] > offsets[i]) {
+          tasks.add(new BulkLoader<>(childBoxes,
+                                     first + i,
+                                     first + OCTO + i,
+                                     target,
+                                     source,
+                                     offsets[i],
+                                     offsets[i + 1],
+                                     depth + 1,
+                                     looseness,
+                                     max));
+        } else {
+          children[i] = new OctreeKOP<D>(pack(childBoxes,
+                                              first + i,
+                                              first + OCTO + i,
+                                              EMPTY),
+                                         null,
+                                         (D[]) EMPTY,
+                                         looseness,
+                                         max);
+        }
+      }
+
+      if (size > PARALLEL_THRESHOLD) {
+        invokeAll(tasks);
+      }
+      int task = 0;
+      for (int i = 0; i < OCTO; i++) {
+        if (children[i] == null) {
+          BulkLoader<D> loader = tasks.get(task++);
+          children[i] = size > PARALLEL_THRESHOLD ? loader.join() :
+                        loader.compute();
+        }
+      }
+
+      Volume[] entries = Arrays.copyOfRange(target,
+                                            offsets[OCTO],
+                                            offsets[OCTO + 1]);
+      return new OctreeKOP<D>(pack(boxes, bounds, loose, entries),
+                              children,
+                              (D[]) entries,
+                              looseness,
+                              max);
+    }
+
+
+    private OctreeKOP<D> leaf(Volume[] entries) {
+      return new OctreeKOP<D>(pack(boxes, bounds, loose, entries),
+                              null,
+                              (D[]) entries,
+                              looseness,
+                              max);
+    }
+  }
 }
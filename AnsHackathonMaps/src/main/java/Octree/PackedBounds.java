@@ -0,0 +1,384 @@
+package Octree;
+
+import java.util.Arrays;
+
+
+/**
+ * A list of axis aligned bounding boxes stored as one array per coordinate
+ * (struct of arrays) instead of one {@link AABB} object per box. The batch
+ * tests run over the arrays in simple counted loops without dereferences, so
+ * testing a query box against many boxes does not load a {@link Volume} and
+ * its {@link AABB} for each of them. {@link OctreeKOP} keeps the bounds of
+ * each node and of its entries in one, and splits and grows node bounds in
+ * place without creating {@link AABB} objects.
+ * <p>
+ * Each of the six comparisons of a box is turned into 0 or 1 and the results
+ * are combined with a bitwise and, so the loops do not branch per coordinate.
+ * They are the comparisons of {@link AABB}, so the results agree for signed
+ * zeros, infinite bounds and NaN.
+ */
+public final class PackedBounds {
+
+  private static final int OCTO = 8;
+
+  private double[] minX;
+  private double[] maxX;
+  private double[] minY;
+  private double[] maxY;
+  private double[] minZ;
+  private double[] maxZ;
+
+  private int size;
+
+
+  /**
+   * Constructs an empty list.
+   *
+   * @param capacity initial capacity
+   */
+  public PackedBounds(int capacity) {
+    capacity = Math.max(capacity, 1);
+    minX = new double[capacity];
+    maxX = new double[capacity];
+    minY = new double[capacity];
+    maxY = new double[capacity];
+    minZ = new double[capacity];
+    maxZ = new double[capacity];
+  }
+
+
+  /**
+   * Returns the number of boxes.
+   *
+   * @return number of boxes
+   */
+  public int size() {
+    return size;
+  }
+
+
+  /**
+   * Removes all boxes.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+
+  /**
+   * Appends a box.
+   *
+   * @param bounds bounding box
+   * @return index of the box
+   */
+  public int add(AABB bounds) {
+    return add(bounds.getMinX(),
+               bounds.getMaxX(),
+               bounds.getMinY(),
+               bounds.getMaxY(),
+               bounds.getMinZ(),
+               bounds.getMaxZ());
+  }
+
+
+  /**
+   * Appends a box.
+   *
+   * @param minX minimum x-coordinate
+   * @param maxX maximum x-coordinate
+   * @param minY minimum y-coordinate
+   * @param maxY maximum y-coordinate
+   * @param minZ minimum z-coordinate
+   * @param maxZ maximum z-coordinate
+   * @return index of the box
+   */
+  public int add(double minX,
+                 double maxX,
+                 double minY,
+                 double maxY,
+                 double minZ,
+                 double maxZ) {
+    ensureCapacity(size + 1);
+    set(size, minX, maxX, minY, maxY, minZ, maxZ);
+    return size++;
+  }
+
+
+  /**
+   * Appends a copy of a box of another list.
+   *
+   * @param other list to copy from, may be this list
+   * @param index index of the box in the other list
+   * @return index of the box
+   */
+  public int add(PackedBounds other, int index) {
+    other.checkIndex(index);
+    return add(other.minX[index],
+               other.maxX[index],
+               other.minY[index],
+               other.maxY[index],
+               other.minZ[index],
+               other.maxZ[index]);
+  }
+
+
+  /**
+   * Replaces a box.
+   *
+   * @param index index of the box
+   * @param minX  minimum x-coordinate
+   * @param maxX  maximum x-coordinate
+   * @param minY  minimum y-coordinate
+   * @param maxY  maximum y-coordinate
+   * @param minZ  minimum z-coordinate
+   * @param maxZ  maximum z-coordinate
+   */
+  public void set(int index,
+                  double minX,
+                  double maxX,
+                  double minY,
+                  double maxY,
+                  double minZ,
+                  double maxZ) {
+    this.minX[index] = minX;
+    this.maxX[index] = maxX;
+    this.minY[index] = minY;
+    this.maxY[index] = maxY;
+    this.minZ[index] = minZ;
+    this.maxZ[index] = maxZ;
+  }
+
+
+  /**
+   * Returns a box as a new {@link AABB}.
+   *
+   * @param index index of the box
+   * @return bounding box
+   */
+  public AABB get(int index) {
+    checkIndex(index);
+    return new AABB(minX[index],
+                    maxX[index],
+                    minY[index],
+                    maxY[index],
+                    minZ[index],
+                    maxZ[index]);
+  }
+
+
+  /**
+   * Appends the 8 octants of a box, in the order of
+   * {@link AABB#createBoxes()}, without allocating any objects.
+   *
+   * @param index index of the box to split
+   * @return index of the first octant
+   */
+  public int addOctants(int index) {
+    checkIndex(index);
+    ensureCapacity(size + OCTO);
+
+    double x0 = minX[index], x2 = maxX[index];
+    double y0 = minY[index], y2 = maxY[index];
+    double z0 = minZ[index], z2 = maxZ[index];
+    double x1 = x0 / 2 + x2 / 2;
+    double y1 = y0 / 2 + y2 / 2;
+    double z1 = z0 / 2 + z2 / 2;
+
+    int first = size;
+    for (int octant = 0; octant < OCTO; octant++) {
+      boolean highX = (octant & 4) != 0;
+      boolean highY = (octant & 2) != 0;
+      boolean highZ = (octant & 1) != 0;
+      set(first + octant,
+          highX ? x1 : x0, highX ? x2 : x1,
+          highY ? y1 : y0, highY ? y2 : y1,
+          highZ ? z1 : z0, highZ ? z2 : z1);
+    }
+    size += OCTO;
+    return first;
+  }
+
+
+  /**
+   * Returns the octant of a box that a point falls into, as numbered by
+   * {@link #addOctants(int)}. Points on a center plane belong to the upper
+   * half.
+   *
+   * @param index index of the box
+   * @param x     x-coordinate
+   * @param y     y-coordinate
+   * @param z     z-coordinate
+   * @return octant, from 0 to 7
+   */
+  public int octant(int index, double x, double y, double z) {
+    checkIndex(index);
+    return (x >= minX[index] / 2 + maxX[index] / 2 ? 4 : 0) |
+           (y >= minY[index] / 2 + maxY[index] / 2 ? 2 : 0) |
+           (z >= minZ[index] / 2 + maxZ[index] / 2 ? 1 : 0);
+  }
+
+
+  /**
+   * Grows a box around its center in place, see {@link AABB#grow(double)}.
+   *
+   * @param index index of the box
+   * @param scale scale to grow
+   */
+  public void grow(int index, double scale) {
+    checkIndex(index);
+    double dx = (maxX[index] - minX[index]) * scale / 2.0;
+    double dy = (maxY[index] - minY[index]) * scale / 2.0;
+    double dz = (maxZ[index] - minZ[index]) * scale / 2.0;
+    double cx = (minX[index] + maxX[index]) / 2.0;
+    double cy = (minY[index] + maxY[index]) / 2.0;
+    double cz = (minZ[index] + maxZ[index]) / 2.0;
+    set(index, cx - dx, cx + dx, cy - dy, cy + dy, cz - dz, cz + dz);
+  }
+
+
+  /**
+   * Tests a query box against a range of boxes, using the same rule as
+   * {@link AABB#intersects(AABB)}.
+   *
+   * @param box  query box
+   * @param from index of the first box
+   * @param to   index after the last box
+   * @param hits receives 1 for each box that intersects and 0 otherwise,
+   *             starting at index 0
+   * @return number of intersecting boxes
+   */
+  public int intersects(QueryBox box, int from, int to, byte[] hits) {
+    checkRange(from, to);
+    double qMinX = box.minX, qMaxX = box.maxX;
+    double qMinY = box.minY, qMaxY = box.maxY;
+    double qMinZ = box.minZ, qMaxZ = box.maxZ;
+    double[] minX = this.minX, maxX = this.maxX;
+    double[] minY = this.minY, maxY = this.maxY;
+    double[] minZ = this.minZ, maxZ = this.maxZ;
+
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      int hit = (maxX[i] > qMinX ? 1 : 0) & (minX[i] < qMaxX ? 1 : 0) &
+                (maxY[i] > qMinY ? 1 : 0) & (minY[i] < qMaxY ? 1 : 0) &
+                (maxZ[i] > qMinZ ? 1 : 0) & (minZ[i] < qMaxZ ? 1 : 0);
+      hits[i - from] = (byte) hit;
+      count += hit;
+    }
+    return count;
+  }
+
+
+  /**
+   * Tests a query box against one box, using the same rule as
+   * {@link AABB#intersects(AABB)}.
+   *
+   * @param box   query box
+   * @param index index of the box
+   * @return true if the boxes intersect
+   */
+  public boolean intersects(QueryBox box, int index) {
+    checkIndex(index);
+    return maxX[index] > box.minX && minX[index] < box.maxX &&
+           maxY[index] > box.minY && minY[index] < box.maxY &&
+           maxZ[index] > box.minZ && minZ[index] < box.maxZ;
+  }
+
+
+  /**
+   * Counts the boxes intersecting a query box.
+   *
+   * @param box query box
+   * @return number of intersecting boxes
+   */
+  public int count(QueryBox box) {
+    return count(box, 0, size);
+  }
+
+
+  /**
+   * Counts the boxes of a range intersecting a query box.
+   *
+   * @param box  query box
+   * @param from index of the first box
+   * @param to   index after the last box
+   * @return number of intersecting boxes
+   */
+  public int count(QueryBox box, int from, int to) {
+    checkRange(from, to);
+    double qMinX = box.minX, qMaxX = box.maxX;
+    double qMinY = box.minY, qMaxY = box.maxY;
+    double qMinZ = box.minZ, qMaxZ = box.maxZ;
+    double[] minX = this.minX, maxX = this.maxX;
+    double[] minY = this.minY, maxY = this.maxY;
+    double[] minZ = this.minZ, maxZ = this.maxZ;
+
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      count += (maxX[i] > qMinX ? 1 : 0) & (minX[i] < qMaxX ? 1 : 0) &
+               (maxY[i] > qMinY ? 1 : 0) & (minY[i] < qMaxY ? 1 : 0) &
+               (maxZ[i] > qMinZ ? 1 : 0) & (minZ[i] < qMaxZ ? 1 : 0);
+    }
+    return count;
+  }
+
+
+  /**
+   * Tests if a box contains a point, using the same rule as
+   * {@link AABB#contains(double, double, double)}.
+   *
+   * @param index index of the box
+   * @param x     x-coordinate
+   * @param y     y-coordinate
+   * @param z     z-coordinate
+   * @return true if the box contains the point
+   */
+  public boolean contains(int index, double x, double y, double z) {
+    checkIndex(index);
+    return x >= minX[index] && x <= maxX[index] &&
+           y >= minY[index] && y <= maxY[index] &&
+           z >= minZ[index] && z <= maxZ[index];
+  }
+
+
+  /**
+   * Tests if a box contains another box, using the same rule as
+   * {@link AABB#contains(AABB)}.
+   *
+   * @param index index of the box
+   * @param other contained box
+   * @return true if the box contains the other box
+   */
+  public boolean contains(int index, AABB other) {
+    return contains(index, other.getMinX(), other.getMinY(), other.getMinZ()) &&
+           contains(index, other.getMaxX(), other.getMaxY(), other.getMaxZ());
+  }
+
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > minX.length) {
+      int length = Math.max(capacity, minX.length * 2);
+      minX = Arrays.copyOf(minX, length);
+      maxX = Arrays.copyOf(maxX, length);
+      minY = Arrays.copyOf(minY, length);
+      maxY = Arrays.copyOf(maxY, length);
+      minZ = Arrays.copyOf(minZ, length);
+      maxZ = Arrays.copyOf(maxZ, length);
+    }
+  }
+
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " +
+                                          size);
+    }
+  }
+
+
+  private void checkRange(int from, int to) {
+    if (from < 0 || to > size || from > to) {
+      throw new IndexOutOfBoundsException("Range: " + from + "-" + to +
+                                          ", size: " + size);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package Octree;
+
+import Octree.math.SymmetricEigen3x3;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Local shape features of every point of a {@link PointOctree}, computed from
+ * the covariance of its k nearest neighbours.
+ * <p>
+ * With the eigenvalues of the covariance sorted as &lambda;1 &ge; &lambda;2
+ * &ge; &lambda;3, the features are
+ * <ul>
+ * <li>the normal, the eigenvector of &lambda;3, oriented upwards,</li>
+ * <li>linearity (&lambda;1 - &lambda;2) / &lambda;1, close to 1 along wires
+ * and edges,</li>
+ * <li>planarity (&lambda;2 - &lambda;3) / &lambda;1, close to 1 on roofs,
+ * walls and terrain,</li>
+ * <li>verticality 1 - |n<sub>z</sub>|, 0 on level ground and 1 on walls.</li>
+ * </ul>
+ * The features are stored as float columns indexed by the original point
+ * index, like the other attributes of the cloud. Points are processed in
+ * Morton order, in blocks that run in parallel: neighbouring queries then
+ * visit the same nodes, and the covariances of a block are decomposed
+ * together by {@link SymmetricEigen3x3}.
+ */
+public final class PointFeatures {
+
+  /**
+   * A common neighbourhood size for airborne scans.
+   */
+  public static final int DEFAULT_NEIGHBOURS = 16;
+
+  /**
+   * Number of points a task processes.
+   */
+  private static final int BLOCK_SIZE = 4096;
+
+  private final float[] normalX;
+  private final float[] normalY;
+  private final float[] normalZ;
+  private final float[] linearity;
+  private final float[] planarity;
+  private final float[] verticality;
+
+
+  private PointFeatures(int size) {
+    normalX = new float[size];
+    normalY = new float[size];
+    normalZ = new float[size];
+    linearity = new float[size];
+    planarity = new float[size];
+    verticality = new float[size];
+  }
+
+
+  /**
+   * Computes the features of every point of an octree.
+   *
+   * @param tree       the points
+   * @param neighbours size of the neighbourhood, including the point itself
+   * @return the features
+   */
+  public static PointFeatures compute(PointOctree tree, int neighbours) {
+    if (neighbours < 3) {
+      throw new IllegalArgumentException("At least 3 neighbours are needed, got " + neighbours);
+    }
+    PointFeatures features = new PointFeatures(tree.size());
+    Block block = new Block(tree, neighbours, features, 0, tree.size());
+    if (tree.size() <= BLOCK_SIZE) {
+      block.compute();
+    } else {
+      ForkJoinPool.commonPool().invoke(block);
+    }
+    return features;
+  }
+
+
+  /**
+   * Returns the number of points.
+   *
+   * @return number of points
+   */
+  public int size() {
+    return normalX.length;
+  }
+
+
+  /**
+   * Returns the x-component of a point's unit normal.
+   *
+   * @param index original index of the point
+   * @return x-component of the normal
+   */
+  public float getNormalX(int index) {
+    return normalX[index];
+  }
+
+
+  /**
+   * Returns the y-component of a point's unit normal.
+   *
+   * @param index original index of the point
+   * @return y-component of the normal
+   */
+  public float getNormalY(int index) {
+    return normalY[index];
+  }
+
+
+  /**
+   * Returns the z-component of a point's unit normal, which is never
+   * negative.
+   *
+   * @param index original index of the point
+   * @return z-component of the normal
+   */
+  public float getNormalZ(int index) {
+    return normalZ[index];
+  }
+
+
+  /**
+   * Returns how line-like a point's neighbourhood is.
+   *
+   * @param index original index of the point
+   * @return linearity, between 0 and 1
+   */
+  public float getLinearity(int index) {
+    return linearity[index];
+  }
+
+
+  /**
+   * Returns how plane-like a point's neighbourhood is.
+   *
+   * @param index original index of the point
+   * @return planarity, between 0 and 1
+   */
+  public float getPlanarity(int index) {
+    return planarity[index];
+  }
+
+
+  /**
+   * Returns how steep the surface at a point is.
+   *
+   * @param index original index of the point
+   * @return verticality, between 0 (level) and 1 (vertical)
+   */
+  public float getVerticality(int index) {
+    return verticality[index];
+  }
+
+
+  /**
+   * Scratch buffers of one thread.
+   */
+  private static final class Workspace {
+
+    private final PointOctree.Search search = new PointOctree.Search();
+    private int[] positions = new int[0];
+    private double[] distances2 = new double[0];
+    private final double[] xx = new double[BLOCK_SIZE];
+    private final double[] xy = new double[BLOCK_SIZE];
+    private final double[] xz = new double[BLOCK_SIZE];
+    private final double[] yy = new double[BLOCK_SIZE];
+    private final double[] yz = new double[BLOCK_SIZE];
+    private final double[] zz = new double[BLOCK_SIZE];
+    private final double[] values = new double[3 * BLOCK_SIZE];
+    private final double[] vectors = new double[9 * BLOCK_SIZE];
+
+
+    void ensureNeighbours(int neighbours) {
+      if (positions.length < neighbours) {
+        positions = new int[neighbours];
+        distances2 = new double[neighbours];
+      }
+    }
+  }
+
+
+  private static final ThreadLocal<Workspace> WORKSPACES =
+      ThreadLocal.withInitial(Workspace::new);
+
+
+  /**
+   * Computes the features of a range of sorted positions, splitting it over
+   * the fork-join pool.
+   */
+  @SuppressWarnings("serial")
+  private static final class Block extends RecursiveAction {
+
+    private final PointOctree tree;
+    private final int neighbours;
+    private final PointFeatures features;
+    private final int from;
+    private final int to;
+
+
+    Block(PointOctree tree, int neighbours, PointFeatures features, int from,
+          int to) {
+      this.tree = tree;
+      this.neighbours = neighbours;
+      this.features = features;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from > BLOCK_SIZE) {
+        // split on a block boundary
+        int blocks = (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int mid = from + blocks / 2 * BLOCK_SIZE;
+        invokeAll(new Block(tree, neighbours, features, from, mid),
+                  new Block(tree, neighbours, features, mid, to));
+        return;
+      }
+
+      Workspace w = WORKSPACES.get();
+      w.ensureNeighbours(neighbours);
+      int count = to - from;
+      for (int i = 0; i < count; i++) {
+        covariance(w, from + i, i);
+      }
+      SymmetricEigen3x3.solve(count, w.xx, w.xy, w.xz, w.yy, w.yz, w.zz,
+                              w.values, w.vectors);
+      for (int i = 0; i < count; i++) {
+        store(w, i, tree.originalIndex(from + i));
+      }
+    }
+
+
+    /**
+     * Stores the covariance of the neighbourhood of a point as problem i.
+     */
+    private void covariance(Workspace w, int position, int i) {
+      int found = tree.nearestSorted(tree.sortedX(position),
+                                     tree.sortedY(position),
+                                     tree.sortedZ(position), neighbours,
+                                     w.positions, w.distances2, w.search);
+      int[] positions = w.positions;
+
+      double mx = 0, my = 0, mz = 0;
+      for (int j = 0; j < found; j++) {
+        int p = positions[j];
+        mx += tree.sortedX(p);
+        my += tree.sortedY(p);
+        mz += tree.sortedZ(p);
+      }
+      mx /= found;
+      my /= found;
+      mz /= found;
+
+      double sxx = 0, sxy = 0, sxz = 0, syy = 0, syz = 0, szz = 0;
+      for (int j = 0; j < found; j++) {
+        int p = positions[j];
+        double dx = tree.sortedX(p) - mx;
+        double dy = tree.sortedY(p) - my;
+        double dz = tree.sortedZ(p) - mz;
+        sxx += dx * dx;
+        sxy += dx * dy;
+        sxz += dx * dz;
+        syy += dy * dy;
+        syz += dy * dz;
+        szz += dz * dz;
+      }
+      w.xx[i] = sxx;
+      w.xy[i] = sxy;
+      w.xz[i] = sxz;
+      w.yy[i] = syy;
+      w.yz[i] = syz;
+      w.zz[i] = szz;
+    }
+
+
+    /**
+     * Derives the features of problem i and stores them for a point.
+     */
+    private void store(Workspace w, int i, int index) {
+      double l3 = Math.max(0, w.values[3 * i]);
+      double l2 = Math.max(0, w.values[3 * i + 1]);
+      double l1 = w.values[3 * i + 2];
+
+      // a neighbourhood of coincident points has no shape; call it level
+      if (!(l1 > 0)) {
+        features.normalZ[index] = 1;
+        return;
+      }
+
+      // eigenvector of the smallest eigenvalue, turned upwards
+      double nx = w.vectors[9 * i];
+      double ny = w.vectors[9 * i + 1];
+      double nz = w.vectors[9 * i + 2];
+      if (nz < 0) {
+        nx = -nx;
+        ny = -ny;
+        nz = -nz;
+      }
+      features.normalX[index] = (float) nx;
+      features.normalY[index] = (float) ny;
+      features.normalZ[index] = (float) nz;
+      features.linearity[index] = (float) ((l1 - l2) / l1);
+      features.planarity[index] = (float) ((l2 - l3) / l1);
+      features.verticality[index] = (float) (1 - nz);
+    }
+  }
+}
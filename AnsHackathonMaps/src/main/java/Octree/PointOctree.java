@@ -0,0 +1,826 @@
+package Octree;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+
+/**
+ * An octree for large point clouds. The tree is bulk-built once from arrays of
+ * coordinates: the points are reordered into Morton (z-order) order by an MSD
+ * radix partition on the octants, so every node is just a contiguous index
+ * range of the sorted coordinate arrays and no per-point objects exist. The
+ * partition of the top-level octants runs in parallel.
+ * <p>
+ * Query results are reported as indices into the arrays that were passed to
+ * {@link #build(double[], double[], double[], int)}, so point attributes
+ * (colour, intensity, classification) can be kept in separate columns. The
+ * tree is immutable and can be queried from several threads.
+ */
+public final class PointOctree {
+
+  private static final int DEFAULT_LEAF_SIZE = 32;
+
+  private static final int MAX_DEPTH = 21;
+
+  private static final int OCTO = 8;
+
+  /**
+   * Ranges smaller than this are built in the calling thread.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /**
+   * The point coordinates in Morton order.
+   */
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] zs;
+
+  /**
+   * The original index of each sorted point.
+   */
+  private final int[] order;
+
+  /**
+   * The flat node arrays. The children of a node are stored contiguously,
+   * starting at firstChild, in the octant order of {@link AABB#createBoxes()}.
+   */
+  private final int[] nodeStart;
+  private final int[] nodeEnd;
+  private final int[] nodeFirstChild;
+  private final byte[] nodeMask;
+  private final byte[] nodeLevel;
+  private final double[] nodeMin;
+
+  /**
+   * The root cube.
+   */
+  private final double rootX;
+  private final double rootY;
+  private final double rootZ;
+  private final double rootSize;
+
+  private final int nodeCount;
+
+  /**
+   * The sorted position of each original index, built on first use.
+   */
+  private volatile int[] inverse;
+
+
+  private PointOctree(double[] xs, double[] ys, double[] zs, int[] order,
+                      Nodes nodes, double rootX, double rootY, double rootZ,
+                      double rootSize) {
+    this.xs = xs;
+    this.ys = ys;
+    this.zs = zs;
+    this.order = order;
+    this.nodeStart = nodes.start;
+    this.nodeEnd = nodes.end;
+    this.nodeFirstChild = nodes.firstChild;
+    this.nodeMask = nodes.mask;
+    this.nodeLevel = nodes.level;
+    this.nodeMin = nodes.min;
+    this.nodeCount = nodes.count;
+    this.rootX = rootX;
+    this.rootY = rootY;
+    this.rootZ = rootZ;
+    this.rootSize = rootSize;
+  }
+
+
+  /**
+   * Builds an octree with the default leaf size.
+   *
+   * @param x x-coordinates
+   * @param y y-coordinates
+   * @param z z-coordinates
+   * @return the octree
+   */
+  public static PointOctree build(double[] x, double[] y, double[] z) {
+    return build(x, y, z, DEFAULT_LEAF_SIZE);
+  }
+
+
+  /**
+   * Builds an octree. The input arrays are not modified.
+   *
+   * @param x        x-coordinates
+   * @param y        y-coordinates
+   * @param z        z-coordinates
+   * @param leafSize maximum number of points in a leaf (unless the maximum
+   *                 depth is reached)
+   * @return the octree
+   */
+  public static PointOctree build(double[] x, double[] y, double[] z,
+                                  int leafSize) {
+    int n = x.length;
+    if (y.length != n || z.length != n) {
+      throw new IllegalArgumentException("Coordinate arrays differ in length");
+    }
+    if (leafSize < 1) {
+      throw new IllegalArgumentException("leafSize should be positive");
+    }
+
+    double[] xs = x.clone();
+    double[] ys = y.clone();
+    double[] zs = z.clone();
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+
+    // the root cube encloses all points
+    double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      minX = Math.min(minX, xs[i]);
+      maxX = Math.max(maxX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxY = Math.max(maxY, ys[i]);
+      minZ = Math.min(minZ, zs[i]);
+      maxZ = Math.max(maxZ, zs[i]);
+    }
+    if (n == 0) {
+      minX = minY = minZ = 0;
+      maxX = maxY = maxZ = 0;
+    }
+    double size = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+    size = size > 0 ? Math.nextUp(size) : 1;
+
+    Builder builder = new Builder(xs, ys, zs, order, leafSize, minX, minY,
+                                  minZ, size);
+    Nodes nodes = ForkJoinPool.commonPool().invoke(builder);
+    nodes.trim();
+
+    return new PointOctree(xs, ys, zs, order, nodes, minX, minY, minZ, size);
+  }
+
+
+  /**
+   * Returns the number of points.
+   *
+   * @return number of points
+   */
+  public int size() {
+    return xs.length;
+  }
+
+
+  /**
+   * Returns the number of nodes.
+   *
+   * @return number of nodes
+   */
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+
+  /**
+   * Returns the bounding cube of the root node.
+   *
+   * @return bounding box
+   */
+  public AABB getBounds() {
+    return new AABB(rootX, rootX + rootSize, rootY, rootY + rootSize, rootZ,
+                    rootZ + rootSize);
+  }
+
+
+  /**
+   * Returns the depth of the octree.
+   *
+   * @return depth
+   */
+  public int depth() {
+    int depth = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      depth = Math.max(depth, nodeLevel[i]);
+    }
+    return depth;
+  }
+
+
+  /**
+   * Returns the x-coordinate of a point.
+   *
+   * @param index original index of the point
+   * @return x-coordinate
+   */
+  public double getX(int index) {
+    return xs[sortedPosition(index)];
+  }
+
+
+  /**
+   * Returns the y-coordinate of a point.
+   *
+   * @param index original index of the point
+   * @return y-coordinate
+   */
+  public double getY(int index) {
+    return ys[sortedPosition(index)];
+  }
+
+
+  /**
+   * Returns the z-coordinate of a point.
+   *
+   * @param index original index of the point
+   * @return z-coordinate
+   */
+  public double getZ(int index) {
+    return zs[sortedPosition(index)];
+  }
+
+
+  /**
+   * Returns the original indices of all points in Morton order. Points that
+   * are close in this order are close in space, which makes it a good
+   * processing order for neighbourhood analyses.
+   *
+   * @return a copy of the Morton order
+   */
+  public int[] mortonOrder() {
+    return order.clone();
+  }
+
+
+  /**
+   * Reports every point inside the box (inclusive bounds).
+   *
+   * @param minX     minimum x-coordinate
+   * @param maxX     maximum x-coordinate
+   * @param minY     minimum y-coordinate
+   * @param maxY     maximum y-coordinate
+   * @param minZ     minimum z-coordinate
+   * @param maxZ     maximum z-coordinate
+   * @param consumer receives the original index of each point
+   */
+  public void selectBox(double minX, double maxX, double minY, double maxY,
+                        double minZ, double maxZ, IntConsumer consumer) {
+    if (nodeCount == 0 || xs.length == 0) {
+      return;
+    }
+    int[] stack = new int[OCTO * (MAX_DEPTH + 1)];
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      double cellSize = cellSize(node);
+      double cx = nodeMin[node * 3];
+      double cy = nodeMin[node * 3 + 1];
+      double cz = nodeMin[node * 3 + 2];
+      if (cx > maxX || cx + cellSize < minX ||
+          cy > maxY || cy + cellSize < minY ||
+          cz > maxZ || cz + cellSize < minZ) {
+        continue;
+      }
+
+      boolean inside = cx >= minX && cx + cellSize <= maxX &&
+          cy >= minY && cy + cellSize <= maxY &&
+          cz >= minZ && cz + cellSize <= maxZ;
+      if (inside) {
+        // the whole cell is selected
+        for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+          consumer.accept(order[i]);
+        }
+      } else if (nodeMask[node] == 0) {
+        for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+          double x = xs[i], y = ys[i], z = zs[i];
+          if (x >= minX && x <= maxX && y >= minY && y <= maxY &&
+              z >= minZ && z <= maxZ) {
+            consumer.accept(order[i]);
+          }
+        }
+      } else {
+        top = pushChildren(node, stack, top);
+      }
+    }
+  }
+
+
+  /**
+   * Reports every point within the given distance of a position.
+   *
+   * @param x        x-coordinate of the center
+   * @param y        y-coordinate of the center
+   * @param z        z-coordinate of the center
+   * @param radius   search radius
+   * @param consumer receives the original index of each point
+   */
+  public void selectRadius(double x, double y, double z, double radius,
+                           IntConsumer consumer) {
+    if (nodeCount == 0 || xs.length == 0) {
+      return;
+    }
+    double r2 = radius * radius;
+    int[] stack = new int[OCTO * (MAX_DEPTH + 1)];
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      if (cellDistance2(node, x, y, z) > r2) {
+        continue;
+      }
+      if (nodeMask[node] == 0) {
+        for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+          double dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+          if (dx * dx + dy * dy + dz * dz <= r2) {
+            consumer.accept(order[i]);
+          }
+        }
+      } else {
+        top = pushChildren(node, stack, top);
+      }
+    }
+  }
+
+
+  /**
+   * Finds the k nearest points of a position. The results are sorted by
+   * increasing distance.
+   *
+   * @param x         x-coordinate of the position
+   * @param y         y-coordinate of the position
+   * @param z         z-coordinate of the position
+   * @param k         number of neighbours to find
+   * @param indices   receives the original indices (length at least k)
+   * @param distances2 receives the squared distances (length at least k), may
+   *                  be null
+   * @return the number of neighbours found (less than k if the tree holds
+   * fewer points)
+   */
+  public int nearest(double x, double y, double z, int k, int[] indices,
+                     double[] distances2) {
+    double[] heap = distances2 != null ? distances2 : new double[k];
+    int found = nearestSorted(x, y, z, k, indices, heap, new Search());
+    for (int i = 0; i < found; i++) {
+      indices[i] = order[indices[i]];
+    }
+    return found;
+  }
+
+
+  /**
+   * Like {@link #nearest}, but reports sorted positions instead of original
+   * indices and reuses the traversal buffers of a search, so a thread running
+   * many queries allocates nothing per query.
+   */
+  int nearestSorted(double x, double y, double z, int k, int[] positions,
+                    double[] heap, Search search) {
+    if (k <= 0 || nodeCount == 0 || xs.length == 0) {
+      return 0;
+    }
+
+    // max-heap on the squared distance, holding sorted positions
+    int found = 0;
+    int[] stack = search.stack;
+    double[] stackDistances = search.stackDistances;
+    double[] childDistances = search.childDistances;
+    int[] children = search.children;
+    int top = 0;
+    stack[top] = 0;
+    stackDistances[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      // the distance of a cell was computed when it was pushed
+      if (found == k && stackDistances[top] >= heap[0]) {
+        continue;
+      }
+      if (nodeMask[node] == 0) {
+        for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+          double dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+          double d2 = dx * dx + dy * dy + dz * dz;
+          if (found < k) {
+            siftUp(heap, positions, found++, d2, i);
+          } else if (d2 < heap[0]) {
+            siftDown(heap, positions, k, d2, i);
+          }
+        }
+      } else {
+        // push the children so that the nearest one is visited first
+        int count = 0;
+        int child = nodeFirstChild[node];
+        int mask = nodeMask[node] & 0xFF;
+        for (int octant = 0; octant < OCTO; octant++) {
+          if ((mask & (1 << octant)) != 0) {
+            double d2 = cellDistance2(child, x, y, z);
+            int j = count++;
+            while (j > 0 && childDistances[j - 1] < d2) {
+              childDistances[j] = childDistances[j - 1];
+              children[j] = children[j - 1];
+              j--;
+            }
+            childDistances[j] = d2;
+            children[j] = child;
+            child++;
+          }
+        }
+        for (int i = 0; i < count; i++) {
+          // no need to push cells that cannot hold a nearer point
+          if (found == k && childDistances[i] >= heap[0]) {
+            continue;
+          }
+          stack[top] = children[i];
+          stackDistances[top++] = childDistances[i];
+        }
+      }
+    }
+
+    // heap sort into ascending order
+    for (int end = found - 1; end > 0; end--) {
+      double d2 = heap[end];
+      int position = positions[end];
+      heap[end] = heap[0];
+      positions[end] = positions[0];
+      siftDown(heap, positions, end, d2, position);
+    }
+    return found;
+  }
+
+
+  /**
+   * Returns the x-coordinate of the point at a sorted position.
+   */
+  double sortedX(int position) {
+    return xs[position];
+  }
+
+
+  /**
+   * Returns the y-coordinate of the point at a sorted position.
+   */
+  double sortedY(int position) {
+    return ys[position];
+  }
+
+
+  /**
+   * Returns the z-coordinate of the point at a sorted position.
+   */
+  double sortedZ(int position) {
+    return zs[position];
+  }
+
+
+  /**
+   * Returns the original index of the point at a sorted position.
+   */
+  int originalIndex(int position) {
+    return order[position];
+  }
+
+
+  private static void siftUp(double[] heap, int[] values, int position,
+                             double d2, int value) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (heap[parent] >= d2) {
+        break;
+      }
+      heap[position] = heap[parent];
+      values[position] = values[parent];
+      position = parent;
+    }
+    heap[position] = d2;
+    values[position] = value;
+  }
+
+
+  /**
+   * Replaces the root of the heap and restores the heap order.
+   */
+  private static void siftDown(double[] heap, int[] values, int size,
+                               double d2, int value) {
+    int position = 0;
+    while (true) {
+      int child = position * 2 + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1] > heap[child]) {
+        child++;
+      }
+      if (heap[child] <= d2) {
+        break;
+      }
+      heap[position] = heap[child];
+      values[position] = values[child];
+      position = child;
+    }
+    heap[position] = d2;
+    values[position] = value;
+  }
+
+
+  private int pushChildren(int node, int[] stack, int top) {
+    int child = nodeFirstChild[node];
+    int count = Integer.bitCount(nodeMask[node] & 0xFF);
+    for (int i = 0; i < count; i++) {
+      stack[top++] = child + i;
+    }
+    return top;
+  }
+
+
+  private double cellSize(int node) {
+    return rootSize / (1L << nodeLevel[node]);
+  }
+
+
+  /**
+   * Returns the squared distance of a position to a node's cell.
+   */
+  private double cellDistance2(int node, double x, double y, double z) {
+    double size = cellSize(node);
+    double dx = axisDistance(x, nodeMin[node * 3], size);
+    double dy = axisDistance(y, nodeMin[node * 3 + 1], size);
+    double dz = axisDistance(z, nodeMin[node * 3 + 2], size);
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+
+  private static double axisDistance(double value, double min, double size) {
+    if (value < min) {
+      return min - value;
+    } else if (value > min + size) {
+      return value - min - size;
+    }
+    return 0;
+  }
+
+
+  private int sortedPosition(int index) {
+    int[] inverse = this.inverse;
+    if (inverse == null) {
+      inverse = new int[order.length];
+      for (int i = 0; i < order.length; i++) {
+        inverse[order[i]] = i;
+      }
+      this.inverse = inverse;
+    }
+    return inverse[index];
+  }
+
+
+  /**
+   * Traversal buffers of a nearest neighbour search, reusable by one thread.
+   */
+  static final class Search {
+
+    private final int[] stack = new int[OCTO * (MAX_DEPTH + 1)];
+    private final double[] stackDistances = new double[OCTO * (MAX_DEPTH + 1)];
+    private final double[] childDistances = new double[OCTO];
+    private final int[] children = new int[OCTO];
+  }
+
+
+  /**
+   * Growable flat node storage.
+   */
+  private static final class Nodes {
+    int[] start = new int[16];
+    int[] end = new int[16];
+    int[] firstChild = new int[16];
+    byte[] mask = new byte[16];
+    byte[] level = new byte[16];
+    double[] min = new double[16 * 3];
+    int count;
+
+    int allocate(int nodes) {
+      int first = count;
+      count += nodes;
+      if (count > start.length) {
+        int capacity = Math.max(start.length * 2, count);
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        mask = Arrays.copyOf(mask, capacity);
+        level = Arrays.copyOf(level, capacity);
+        min = Arrays.copyOf(min, capacity * 3);
+      }
+      return first;
+    }
+
+    void set(int node, int from, int to, int lvl, double x, double y,
+             double z) {
+      start[node] = from;
+      end[node] = to;
+      firstChild[node] = -1;
+      mask[node] = 0;
+      level[node] = (byte) lvl;
+      min[node * 3] = x;
+      min[node * 3 + 1] = y;
+      min[node * 3 + 2] = z;
+    }
+
+    /**
+     * Copies another subtree behind the nodes of this one. The root of the
+     * other subtree goes to the given slot, its other nodes are appended.
+     */
+    void append(Nodes other, int rootSlot) {
+      int base = allocate(other.count - 1) - 1;
+      copy(other, 0, rootSlot, base);
+      for (int i = 1; i < other.count; i++) {
+        copy(other, i, base + i, base);
+      }
+    }
+
+    private void copy(Nodes other, int from, int to, int base) {
+      start[to] = other.start[from];
+      end[to] = other.end[from];
+      firstChild[to] = other.firstChild[from] < 0 ? -1 :
+          other.firstChild[from] + base;
+      mask[to] = other.mask[from];
+      level[to] = other.level[from];
+      System.arraycopy(other.min, from * 3, min, to * 3, 3);
+    }
+
+    void trim() {
+      start = Arrays.copyOf(start, count);
+      end = Arrays.copyOf(end, count);
+      firstChild = Arrays.copyOf(firstChild, count);
+      mask = Arrays.copyOf(mask, count);
+      level = Arrays.copyOf(level, count);
+      min = Arrays.copyOf(min, count * 3);
+    }
+  }
+
+
+  /**
+   * Builds the subtree of one cell. Large cells fork a task per octant, small
+   * ones are built in place. Tasks work on disjoint ranges of the point
+   * arrays, so they need no synchronization.
+   */
+  @SuppressWarnings("serial")
+  private static final class Builder extends RecursiveTask<Nodes> {
+    private final double[] xs, ys, zs;
+    private final int[] order;
+    private final int leafSize;
+    private final int from, to, level;
+    private final double x, y, z, size;
+
+    Builder(double[] xs, double[] ys, double[] zs, int[] order, int leafSize,
+            double x, double y, double z, double size) {
+      this(xs, ys, zs, order, leafSize, 0, xs.length, 0, x, y, z, size);
+    }
+
+    private Builder(double[] xs, double[] ys, double[] zs, int[] order,
+                    int leafSize, int from, int to, int level, double x,
+                    double y, double z, double size) {
+      this.xs = xs;
+      this.ys = ys;
+      this.zs = zs;
+      this.order = order;
+      this.leafSize = leafSize;
+      this.from = from;
+      this.to = to;
+      this.level = level;
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      this.size = size;
+    }
+
+    @Override
+    protected Nodes compute() {
+      Nodes nodes = new Nodes();
+      int root = nodes.allocate(1);
+      nodes.set(root, from, to, level, x, y, z);
+      // coincident points never separate, so large ranges stop at the maximum
+      // depth too; buildSerial then leaves the node a leaf
+      if (to - from <= PARALLEL_THRESHOLD || level >= MAX_DEPTH) {
+        buildSerial(nodes, root, from, to, level, x, y, z, size);
+        return nodes;
+      }
+
+      int[] bounds = partition(from, to, x + size / 2, y + size / 2,
+                               z + size / 2);
+      double half = size / 2;
+      Builder[] tasks = new Builder[OCTO];
+      int count = 0;
+      int mask = 0;
+      for (int octant = 0; octant < OCTO; octant++) {
+        if (bounds[octant + 1] > bounds[octant]) {
+          mask |= 1 << octant;
+          tasks[count++] = new Builder(xs, ys, zs, order, leafSize,
+                                       bounds[octant], bounds[octant + 1],
+                                       level + 1, childX(octant, half),
+                                       childY(octant, half),
+                                       childZ(octant, half), half);
+        }
+      }
+      invokeAll(Arrays.copyOf(tasks, count));
+
+      int firstChild = nodes.allocate(count);
+      nodes.firstChild[root] = firstChild;
+      nodes.mask[root] = (byte) mask;
+      for (int i = 0; i < count; i++) {
+        nodes.append(tasks[i].join(), firstChild + i);
+      }
+      return nodes;
+    }
+
+    private double childX(int octant, double half) {
+      return (octant & 4) != 0 ? x + half : x;
+    }
+
+    private double childY(int octant, double half) {
+      return (octant & 2) != 0 ? y + half : y;
+    }
+
+    private double childZ(int octant, double half) {
+      return (octant & 1) != 0 ? z + half : z;
+    }
+
+    private void buildSerial(Nodes nodes, int node, int from, int to,
+                             int level, double x, double y, double z,
+                             double size) {
+      if (to - from <= leafSize || level >= MAX_DEPTH) {
+        return;
+      }
+
+      double half = size / 2;
+      int[] bounds = partition(from, to, x + half, y + half, z + half);
+      int count = 0;
+      int mask = 0;
+      for (int octant = 0; octant < OCTO; octant++) {
+        if (bounds[octant + 1] > bounds[octant]) {
+          mask |= 1 << octant;
+          count++;
+        }
+      }
+
+      int child = nodes.allocate(count);
+      nodes.firstChild[node] = child;
+      nodes.mask[node] = (byte) mask;
+      for (int octant = 0; octant < OCTO; octant++) {
+        if ((mask & (1 << octant)) != 0) {
+          double cx = (octant & 4) != 0 ? x + half : x;
+          double cy = (octant & 2) != 0 ? y + half : y;
+          double cz = (octant & 1) != 0 ? z + half : z;
+          nodes.set(child, bounds[octant], bounds[octant + 1], level + 1, cx,
+                    cy, cz);
+          buildSerial(nodes, child, bounds[octant], bounds[octant + 1],
+                      level + 1, cx, cy, cz, half);
+          child++;
+        }
+      }
+    }
+
+    /**
+     * Sorts the range by octant in place (an American flag sort step) and
+     * returns the 9 octant boundaries.
+     */
+    private int[] partition(int from, int to, double midX, double midY,
+                            double midZ) {
+      int[] bounds = new int[OCTO + 1];
+      for (int i = from; i < to; i++) {
+        bounds[octant(i, midX, midY, midZ) + 1]++;
+      }
+      bounds[0] = from;
+      for (int octant = 0; octant < OCTO; octant++) {
+        bounds[octant + 1] += bounds[octant];
+      }
+
+      int[] next = Arrays.copyOf(bounds, OCTO);
+      for (int octant = 0; octant < OCTO; octant++) {
+        while (next[octant] < bounds[octant + 1]) {
+          int i = next[octant];
+          int target = octant(i, midX, midY, midZ);
+          if (target == octant) {
+            next[octant]++;
+          } else {
+            swap(i, next[target]++);
+          }
+        }
+      }
+      return bounds;
+    }
+
+    private int octant(int i, double midX, double midY, double midZ) {
+      return (xs[i] >= midX ? 4 : 0) | (ys[i] >= midY ? 2 : 0) |
+          (zs[i] >= midZ ? 1 : 0);
+    }
+
+    private void swap(int i, int j) {
+      double t = xs[i];
+      xs[i] = xs[j];
+      xs[j] = t;
+      t = ys[i];
+      ys[i] = ys[j];
+      ys[j] = t;
+      t = zs[i];
+      zs[i] = zs[j];
+      zs[j] = t;
+      int o = order[i];
+      order[i] = order[j];
+      order[j] = o;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package Octree;
+
+
+/**
+ * A mutable axis aligned box for repeated octree queries. Unlike {@link AABB}
+ * it can be moved around without allocating a new object for every query.
+ * A query box is not thread-safe; use one per thread.
+ */
+public final class QueryBox {
+
+  double minX, maxX, minY, maxY, minZ, maxZ;
+
+
+  /**
+   * Constructs an empty query box.
+   */
+  public QueryBox() {
+  }
+
+
+  /**
+   * Sets the bounds of the box.
+   *
+   * @param minX minimum x-coordinate
+   * @param maxX maximum x-coordinate
+   * @param minY minimum y-coordinate
+   * @param maxY maximum y-coordinate
+   * @param minZ minimum z-coordinate
+   * @param maxZ maximum z-coordinate
+   * @return this box
+   */
+  public QueryBox set(double minX,
+                      double maxX,
+                      double minY,
+                      double maxY,
+                      double minZ,
+                      double maxZ) {
+    this.minX = minX;
+    this.maxX = maxX;
+    this.minY = minY;
+    this.maxY = maxY;
+    this.minZ = minZ;
+    this.maxZ = maxZ;
+    return this;
+  }
+
+
+  /**
+   * Sets the bounds of the box to those of a bounding box.
+   *
+   * @param bounds bounding box
+   * @return this box
+   */
+  public QueryBox set(AABB bounds) {
+    return set(bounds.getMinX(),
+               bounds.getMaxX(),
+               bounds.getMinY(),
+               bounds.getMaxY(),
+               bounds.getMinZ(),
+               bounds.getMaxZ());
+  }
+
+
+  /**
+   * Centers the box on a position.
+   *
+   * @param x  x-coordinate of the center
+   * @param y  y-coordinate of the center
+   * @param z  z-coordinate of the center
+   * @param rx half of the length along the x-axis
+   * @param ry half of the length along the y-axis
+   * @param rz half of the length along the z-axis
+   * @return this box
+   */
+  public QueryBox setAround(double x,
+                            double y,
+                            double z,
+                            double rx,
+                            double ry,
+                            double rz) {
+    return set(x - rx, x + rx, y - ry, y + ry, z - rz, z + rz);
+  }
+
+
+  /**
+   * Determines if a bounding box intersects with this one, using the same
+   * rule as {@link AABB#intersects(AABB)}.
+   *
+   * @param other The other bounding box
+   * @return true if the bounding box intersects with this box
+   */
+  public boolean intersects(AABB other) {
+    return maxX > other.getMinX() &&
+        minX < other.getMaxX() &&
+        maxY > other.getMinY() &&
+        minY < other.getMaxY() &&
+        maxZ > other.getMinZ() &&
+        minZ < other.getMaxZ();
+  }
+
+
+  @Override
+  public String toString() {
+    return "(" +
+        "minX=" + minX +
+        ", maxX=" + maxX +
+        ", minY=" + minY +
+        ", maxY=" + maxY +
+        ", minZ=" + minZ +
+        ", maxZ=" + maxZ +
+        ')';
+  }
+}
@@ -0,0 +1,552 @@
+package Octree;
+
+import ConvexHull.Point3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * A sparse grid of cubic voxels that aggregates a point cloud. Only occupied
+ * voxels are stored, and every voxel keeps primitive statistics of its points
+ * instead of the points themselves: the number of points per classification,
+ * the mean intensity and the sums of the colour channels. Building the grid
+ * therefore takes O(points) time and O(occupied voxels) memory.
+ * <p>
+ * Voxels are numbered densely from 0 in the order they were first hit (the
+ * "slot"); a hash table maps voxel coordinates to slots. The grid is not
+ * thread-safe, {@link #build} builds partial grids in parallel and merges
+ * them.
+ */
+public final class VoxelGrid {
+
+  /**
+   * Number of classification counters per voxel. LAS point formats 0-5 store
+   * classifications in 5 bits, other values are not counted.
+   */
+  public static final int CLASSES = 32;
+
+  /**
+   * Ranges smaller than this are aggregated in the calling thread.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /**
+   * Voxel coordinates are packed into keys with 21 bits per axis.
+   */
+  private static final int COORDINATE_BITS = 21;
+  private static final int COORDINATE_BIAS = 1 << (COORDINATE_BITS - 1);
+  private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+  private static final long EMPTY = -1;
+
+  private final double size;
+  private final double originX;
+  private final double originY;
+  private final double originZ;
+
+  /**
+   * Open addressing table from packed voxel coordinates to slots.
+   */
+  private long[] keys;
+  private int[] slots;
+  private int mask;
+
+  /**
+   * The statistics of each voxel, indexed by slot.
+   */
+  private long[] voxelKeys;
+  private int[] counts;
+  private int[] classCounts;
+  private double[] intensities;
+  private long[] reds;
+  private long[] greens;
+  private long[] blues;
+
+  private int voxels;
+
+
+  /**
+   * Constructs an empty grid. A point belongs to the voxel
+   * floor((x - originX) / size) on each axis.
+   *
+   * @param size    edge length of a voxel
+   * @param originX x-coordinate of a voxel corner
+   * @param originY y-coordinate of a voxel corner
+   * @param originZ z-coordinate of a voxel corner
+   */
+  public VoxelGrid(double size, double originX, double originY,
+                   double originZ) {
+    if (!(size > 0)) {
+      throw new IllegalArgumentException("Voxel size should be positive");
+    }
+    this.size = size;
+    this.originX = originX;
+    this.originY = originY;
+    this.originZ = originZ;
+
+    keys = new long[64];
+    Arrays.fill(keys, EMPTY);
+    slots = new int[64];
+    mask = 63;
+    allocateColumns(32);
+  }
+
+
+  /**
+   * Builds a grid from a point cloud in one parallel pass.
+   *
+   * @param points  points
+   * @param size    edge length of a voxel
+   * @param originX x-coordinate of a voxel corner
+   * @param originY y-coordinate of a voxel corner
+   * @param originZ z-coordinate of a voxel corner
+   * @return voxel grid
+   */
+  public static VoxelGrid build(List<? extends Point3d> points, double size,
+                                double originX, double originY,
+                                double originZ) {
+    Builder builder = new Builder(points, 0, points.size(), size, originX,
+                                  originY, originZ);
+    return ForkJoinPool.commonPool().invoke(builder);
+  }
+
+
+  /**
+   * Adds a point.
+   *
+   * @param x              x-coordinate
+   * @param y              y-coordinate
+   * @param z              z-coordinate
+   * @param classification classification
+   * @param intensity      intensity
+   * @param r              red channel
+   * @param g              green channel
+   * @param b              blue channel
+   * @return slot of the voxel containing the point
+   */
+  public int add(double x, double y, double z, int classification,
+                 double intensity, int r, int g, int b) {
+    int slot = slot(voxel(x, originX), voxel(y, originY), voxel(z, originZ));
+
+    int count = ++counts[slot];
+    if (classification >= 0 && classification < CLASSES) {
+      classCounts[slot * CLASSES + classification]++;
+    }
+    intensities[slot] += (intensity - intensities[slot]) / count;
+    reds[slot] += r;
+    greens[slot] += g;
+    blues[slot] += b;
+    return slot;
+  }
+
+
+  /**
+   * Adds all voxels of another grid with the same geometry to this grid.
+   *
+   * @param other grid to merge
+   */
+  public void merge(VoxelGrid other) {
+    if (other.size != size || other.originX != originX ||
+        other.originY != originY || other.originZ != originZ) {
+      throw new IllegalArgumentException("Voxel grids differ in geometry");
+    }
+
+    for (int from = 0; from < other.voxels; from++) {
+      accumulate(slot(other.voxelKeys[from]), other, from);
+    }
+  }
+
+
+  /**
+   * Creates a grid with voxels twice as large and the same origin. Every
+   * voxel of the new grid aggregates the statistics of the (up to) eight
+   * voxels it covers, so the cloud does not have to be read again.
+   *
+   * @return coarser grid
+   */
+  public VoxelGrid coarsen() {
+    VoxelGrid coarse = new VoxelGrid(size * 2, originX, originY, originZ);
+    for (int from = 0; from < voxels; from++) {
+      int to = coarse.slot(Math.floorDiv(getX(from), 2),
+                           Math.floorDiv(getY(from), 2),
+                           Math.floorDiv(getZ(from), 2));
+      coarse.accumulate(to, this, from);
+    }
+    return coarse;
+  }
+
+
+  /**
+   * Adds the statistics of a voxel of another grid to a voxel of this grid.
+   */
+  private void accumulate(int to, VoxelGrid other, int from) {
+    int count = counts[to] + other.counts[from];
+    intensities[to] += (other.intensities[from] - intensities[to]) *
+                       other.counts[from] / count;
+    counts[to] = count;
+    for (int c = 0; c < CLASSES; c++) {
+      classCounts[to * CLASSES + c] += other.classCounts[from * CLASSES + c];
+    }
+    reds[to] += other.reds[from];
+    greens[to] += other.greens[from];
+    blues[to] += other.blues[from];
+  }
+
+
+  /**
+   * Returns the number of occupied voxels.
+   *
+   * @return number of voxels
+   */
+  public int size() {
+    return voxels;
+  }
+
+
+  /**
+   * Returns the edge length of a voxel.
+   *
+   * @return voxel size
+   */
+  public double getVoxelSize() {
+    return size;
+  }
+
+
+  /**
+   * Finds the slot of a voxel.
+   *
+   * @param x voxel x-index
+   * @param y voxel y-index
+   * @param z voxel z-index
+   * @return slot, or -1 if the voxel is empty
+   */
+  public int find(int x, int y, int z) {
+    long key = key(x, y, z);
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return slots[i];
+      } else if (keys[i] == EMPTY) {
+        return -1;
+      }
+    }
+  }
+
+
+  /**
+   * Returns the x-index of a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return voxel x-index
+   */
+  public int getX(int slot) {
+    return unpack(voxelKeys[checkSlot(slot)] >>> (2 * COORDINATE_BITS));
+  }
+
+
+  /**
+   * Returns the y-index of a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return voxel y-index
+   */
+  public int getY(int slot) {
+    return unpack(voxelKeys[checkSlot(slot)] >>> COORDINATE_BITS);
+  }
+
+
+  /**
+   * Returns the z-index of a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return voxel z-index
+   */
+  public int getZ(int slot) {
+    return unpack(voxelKeys[checkSlot(slot)]);
+  }
+
+
+  /**
+   * Returns the number of points in a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return number of points
+   */
+  public int getCount(int slot) {
+    return counts[checkSlot(slot)];
+  }
+
+
+  /**
+   * Returns the number of points of a classification in a voxel.
+   *
+   * @param slot           slot of the voxel
+   * @param classification classification
+   * @return number of points
+   */
+  public int getClassCount(int slot, int classification) {
+    if (classification < 0 || classification >= CLASSES) {
+      return 0;
+    }
+    return classCounts[checkSlot(slot) * CLASSES + classification];
+  }
+
+
+  /**
+   * Returns the most frequent classification in a voxel. Ties go to the lower
+   * classification.
+   *
+   * @param slot slot of the voxel
+   * @return classification
+   */
+  public int getMajorityClass(int slot) {
+    int base = checkSlot(slot) * CLASSES;
+    int best = 0;
+    for (int c = 1; c < CLASSES; c++) {
+      if (classCounts[base + c] > classCounts[base + best]) {
+        best = c;
+      }
+    }
+    return best;
+  }
+
+
+  /**
+   * Returns the mean intensity of the points in a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return mean intensity
+   */
+  public double getIntensity(int slot) {
+    return intensities[checkSlot(slot)];
+  }
+
+
+  /**
+   * Returns the mean red channel of the points in a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return mean red channel
+   */
+  public int getRed(int slot) {
+    return (int) (reds[checkSlot(slot)] / counts[slot]);
+  }
+
+
+  /**
+   * Returns the mean green channel of the points in a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return mean green channel
+   */
+  public int getGreen(int slot) {
+    return (int) (greens[checkSlot(slot)] / counts[slot]);
+  }
+
+
+  /**
+   * Returns the mean blue channel of the points in a voxel.
+   *
+   * @param slot slot of the voxel
+   * @return mean blue channel
+   */
+  public int getBlue(int slot) {
+    return (int) (blues[checkSlot(slot)] / counts[slot]);
+  }
+
+
+  /**
+   * Creates a cube for every occupied voxel, holding its bounds, indices,
+   * majority classification and mean attributes.
+   *
+   * @return cubes in slot order
+   */
+  public List<Cube3d> toCubes() {
+    List<Cube3d> cubes = new ArrayList<>(voxels);
+    for (int slot = 0; slot < voxels; slot++) {
+      int x = getX(slot);
+      int y = getY(slot);
+      int z = getZ(slot);
+      double minX = originX + x * size;
+      double minY = originY + y * size;
+      double minZ = originZ + z * size;
+
+      Cube3d cube = new Cube3d(minX, minX + size, minY, minY + size, minZ,
+                               minZ + size);
+      cube.setMineX(x);
+      cube.setMineY(y);
+      cube.setMineZ(z);
+      int majority = getMajorityClass(slot);
+      cube.setMostClassification(majority);
+      cube.setMostClassificationCount(getClassCount(slot, majority));
+      cube.setPointCount(counts[slot]);
+      cube.setIntensity(intensities[slot]);
+      cube.setRgb(getRed(slot), getGreen(slot), getBlue(slot));
+      cubes.add(cube);
+    }
+    return cubes;
+  }
+
+
+  private int voxel(double value, double origin) {
+    return (int) Math.floor((value - origin) / size);
+  }
+
+
+  private static long key(int x, int y, int z) {
+    if (x < -COORDINATE_BIAS || x >= COORDINATE_BIAS ||
+        y < -COORDINATE_BIAS || y >= COORDINATE_BIAS ||
+        z < -COORDINATE_BIAS || z >= COORDINATE_BIAS) {
+      throw new IllegalArgumentException(
+          "Voxel out of range: " + x + ", " + y + ", " + z);
+    }
+    return (long) (x + COORDINATE_BIAS) << (2 * COORDINATE_BITS) |
+           (long) (y + COORDINATE_BIAS) << COORDINATE_BITS |
+           (long) (z + COORDINATE_BIAS);
+  }
+
+
+  private static int unpack(long bits) {
+    return (int) (bits & COORDINATE_MASK) - COORDINATE_BIAS;
+  }
+
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+
+  private int slot(int x, int y, int z) {
+    return slot(key(x, y, z));
+  }
+
+
+  /**
+   * Returns the slot of a voxel, allocating it if the voxel is empty.
+   */
+  private int slot(long key) {
+    int i = hash(key) & mask;
+    while (keys[i] != EMPTY) {
+      if (keys[i] == key) {
+        return slots[i];
+      }
+      i = (i + 1) & mask;
+    }
+
+    if (voxels == counts.length) {
+      allocateColumns(voxels * 2);
+    }
+    int slot = voxels++;
+    keys[i] = key;
+    slots[i] = slot;
+    voxelKeys[slot] = key;
+
+    // keep the table at most half full
+    if (voxels * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    return slot;
+  }
+
+
+  private void rehash(int capacity) {
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    slots = new int[capacity];
+    mask = capacity - 1;
+    for (int slot = 0; slot < voxels; slot++) {
+      int i = hash(voxelKeys[slot]) & mask;
+      while (keys[i] != EMPTY) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = voxelKeys[slot];
+      slots[i] = slot;
+    }
+  }
+
+
+  private void allocateColumns(int capacity) {
+    if (counts == null) {
+      voxelKeys = new long[capacity];
+      counts = new int[capacity];
+      classCounts = new int[capacity * CLASSES];
+      intensities = new double[capacity];
+      reds = new long[capacity];
+      greens = new long[capacity];
+      blues = new long[capacity];
+    } else {
+      voxelKeys = Arrays.copyOf(voxelKeys, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+      classCounts = Arrays.copyOf(classCounts, capacity * CLASSES);
+      intensities = Arrays.copyOf(intensities, capacity);
+      reds = Arrays.copyOf(reds, capacity);
+      greens = Arrays.copyOf(greens, capacity);
+      blues = Arrays.copyOf(blues, capacity);
+    }
+  }
+
+
+  private int checkSlot(int slot) {
+    if (slot < 0 || slot >= voxels) {
+      throw new IndexOutOfBoundsException("Slot: " + slot + ", size: " +
+                                          voxels);
+    }
+    return slot;
+  }
+
+
+  /**
+   * Aggregates a range of the points. Large ranges are split in two, the
+   * partial grids are merged into the larger one.
+   */
+  @SuppressWarnings("serial")
+  private static final class Builder extends RecursiveTask<VoxelGrid> {
+    private final List<? extends Point3d> points;
+    private final int from, to;
+    private final double size, originX, originY, originZ;
+
+    Builder(List<? extends Point3d> points, int from, int to, double size,
+            double originX, double originY, double originZ) {
+      this.points = points;
+      this.from = from;
+      this.to = to;
+      this.size = size;
+      this.originX = originX;
+      this.originY = originY;
+      this.originZ = originZ;
+    }
+
+    @Override
+    protected VoxelGrid compute() {
+      if (to - from > PARALLEL_THRESHOLD) {
+        int mid = (from + to) >>> 1;
+        Builder left = new Builder(points, from, mid, size, originX, originY,
+                                   originZ);
+        Builder right = new Builder(points, mid, to, size, originX, originY,
+                                    originZ);
+        left.fork();
+        VoxelGrid b = right.compute();
+        VoxelGrid a = left.join();
+        if (a.voxels < b.voxels) {
+          VoxelGrid t = a;
+          a = b;
+          b = t;
+        }
+        a.merge(b);
+        return a;
+      }
+
+      VoxelGrid grid = new VoxelGrid(size, originX, originY, originZ);
+      for (int i = from; i < to; i++) {
+        Point3d p = points.get(i);
+        grid.add(p.x, p.y, p.z, (int) p.c, p.i, p.r, p.g, p.b);
+      }
+      return grid;
+    }
+  }
+}
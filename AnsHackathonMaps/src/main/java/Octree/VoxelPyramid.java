@@ -0,0 +1,73 @@
+package Octree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A stack of voxel grids for level-of-detail exports. Level 0 is the grid the
+ * pyramid was created with, every further level has voxels twice as large as
+ * the previous one and is aggregated from it with {@link VoxelGrid#coarsen()}.
+ * Each level costs one pass over the voxels of the level below, at most an
+ * eighth of which remain, so the whole pyramid costs less than 8/7 of
+ * aggregating the finest level once.
+ */
+public final class VoxelPyramid {
+
+  private final List<VoxelGrid> levels;
+
+
+  /**
+   * Builds a pyramid.
+   *
+   * @param base   finest grid (level 0)
+   * @param levels number of levels, including the base
+   */
+  public VoxelPyramid(VoxelGrid base, int levels) {
+    if (levels < 1) {
+      throw new IllegalArgumentException("A pyramid has at least one level");
+    }
+    this.levels = new ArrayList<>(levels);
+    this.levels.add(base);
+    for (int i = 1; i < levels; i++) {
+      this.levels.add(this.levels.get(i - 1).coarsen());
+    }
+  }
+
+
+  /**
+   * Returns the number of levels.
+   *
+   * @return number of levels
+   */
+  public int getLevelCount() {
+    return levels.size();
+  }
+
+
+  /**
+   * Returns the grid of a level.
+   *
+   * @param level level, 0 being the finest
+   * @return voxel grid
+   */
+  public VoxelGrid getLevel(int level) {
+    if (level < 0 || level >= levels.size()) {
+      throw new IndexOutOfBoundsException("Level: " + level + ", levels: " +
+                                          levels.size());
+    }
+    return levels.get(level);
+  }
+
+
+  /**
+   * Returns the factor by which the voxels of a level are larger than those
+   * of level 0.
+   *
+   * @param level level
+   * @return scale factor (2 to the power of the level)
+   */
+  public static int getScale(int level) {
+    return 1 << level;
+  }
+}
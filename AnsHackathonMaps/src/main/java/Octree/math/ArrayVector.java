@@ -58,6 +58,57 @@ final class ArrayVector extends DefaultVector {
   }
 
 
+  @Override
+  public double multiply(Vector other) {
+    if (other instanceof ArrayVector && other.getDimension() == this.data.length) {
+      return VectorOperations.ddot(this.data, ((ArrayVector) other).data);
+    }
+    return super.multiply(other);
+  }
+
+
+  @Override
+  public Vector multiply(double multiplicand) {
+    double[] result = new double[this.data.length];
+    VectorOperations.dscal(multiplicand, this.data, result);
+    return new ArrayVector(result);
+  }
+
+
+  @Override
+  public Vector add(Vector other) {
+    if (other instanceof ArrayVector && other.getDimension() == this.data.length) {
+      double[] result = new double[this.data.length];
+      VectorOperations.dadd(this.data, ((ArrayVector) other).data, result);
+      return new ArrayVector(result);
+    }
+    return super.add(other);
+  }
+
+
+  @Override
+  public Vector subtract(Vector other) {
+    if (other instanceof ArrayVector && other.getDimension() == this.data.length) {
+      double[] result = new double[this.data.length];
+      VectorOperations.dsub(this.data, ((ArrayVector) other).data, result);
+      return new ArrayVector(result);
+    }
+    return super.subtract(other);
+  }
+
+
+  @Override
+  public double length() {
+    return VectorOperations.dnrm2(this.data);
+  }
+
+
+  @Override
+  public double lengthSquared() {
+    return VectorOperations.ddot(this.data, this.data);
+  }
+
+
   @Override
   public DoubleStream stream() {
     return Arrays.stream(this.data);
@@ -119,8 +119,8 @@ final class BlockMatrix extends DefaultMatrix {
 
     return new BlockMatrix(rows,
                            columns,
-                           blockColumns,
                            blockRows,
+                           blockColumns,
                            evaluated);
   }
 
@@ -148,7 +148,7 @@ final class BlockMatrix extends DefaultMatrix {
    * @param blockColumn The block column index
    * @return The block, or null
    */
-  private PackedMatrix getBlock(int blockRow, int blockColumn) {
+  PackedMatrix getBlock(int blockRow, int blockColumn) {
     return blocks[blockRow * blockColumns + blockColumn];
   }
 
@@ -301,8 +301,8 @@ final class BlockMatrix extends DefaultMatrix {
 
     return new BlockMatrix(rows,
                            columns,
-                           blockColumns,
                            blockRows,
+                           blockColumns,
                            scaled);
   }
 
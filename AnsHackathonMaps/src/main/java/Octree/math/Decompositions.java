@@ -0,0 +1,157 @@
+package Octree.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Shared parts of the blocked decompositions ({@link DefaultLU#blocked},
+ * {@link DefaultQR#blocked} and {@link DefaultCholesky#blocked}).
+ * <p>
+ * The blocked decompositions copy the matrix into a row-major packed array
+ * and work through it in panels of {@value #BLOCK} columns. Each panel is
+ * factored with the textbook loops, after which the rest of the matrix (the
+ * trailing matrix) is updated with a few matrix products. Those products do
+ * almost all of the arithmetic and go through
+ * {@link MatrixOperations#dgemm}, so they run cache blocked and split over
+ * the common fork-join pool when the blocked provider is installed. The
+ * cheaper triangular steps are split over the pool by {@link #forEach}.
+ */
+final class Decompositions {
+
+  /**
+   * Columns per panel.
+   */
+  static final int BLOCK = 64;
+
+  /**
+   * Rows or columns a task of {@link #forEach} handles at least.
+   */
+  private static final int GRAIN = 64;
+
+
+  private Decompositions() {
+  }
+
+
+  /**
+   * Work on a range of rows or columns.
+   */
+  interface Range {
+
+    /**
+     * Processes the indices [from, to).
+     */
+    void compute(int from, int to);
+  }
+
+
+  /**
+   * Processes the indices [from, to) in parallel chunks.
+   *
+   * @param from first index
+   * @param to   index after the last one
+   * @param body the work
+   */
+  static void forEach(int from, int to, Range body) {
+    if (to - from <= GRAIN || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+      body.compute(from, to);
+    }
+    else {
+      ForkJoinPool.commonPool().invoke(new Chunk(body, from, to));
+    }
+  }
+
+
+  /**
+   * Computes <i>A<sub>sub</sub> = A<sub>sub</sub> - op(X) &times; op(Y)</i>,
+   * where <i>A<sub>sub</sub></i> is the m by n sub-matrix of a that starts at
+   * the given row and column.
+   *
+   * @param a       row-major packed matrix with the given number of columns
+   * @param columns column count of a
+   * @param row     first row of the sub-matrix
+   * @param column  first column of the sub-matrix
+   * @param x       row-major packed matrix X
+   * @param y       row-major packed matrix Y
+   * @param m       rows of the sub-matrix and of op(X)
+   * @param n       columns of the sub-matrix and of op(Y)
+   * @param k       columns of op(X) and rows of op(Y)
+   * @param tx      whether X is used transposed
+   * @param ty      whether Y is used transposed
+   * @param scratch array of at least m &times; n elements for the product
+   */
+  static void subtractProduct(double[] a,
+                              int columns,
+                              int row,
+                              int column,
+                              double[] x,
+                              double[] y,
+                              int m,
+                              int n,
+                              int k,
+                              boolean tx,
+                              boolean ty,
+                              double[] scratch) {
+    MatrixOperations.dgemm(x, y, scratch, m, n, k, tx, ty, 1, 0);
+    forEach(0, m, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int target = (row + i) * columns + column;
+        int source = i * n;
+        for (int j = 0; j < n; j++) {
+          a[target + j] -= scratch[source + j];
+        }
+      }
+    });
+  }
+
+
+  /**
+   * Copies a sub-matrix into a new row-major packed array.
+   *
+   * @param a       row-major packed matrix
+   * @param columns column count of a
+   * @param row     first row to copy
+   * @param column  first column to copy
+   * @param m       number of rows to copy
+   * @param n       number of columns to copy
+   * @return the m by n sub-matrix
+   */
+  static double[] copy(double[] a, int columns, int row, int column, int m, int n) {
+    double[] result = new double[m * n];
+    for (int i = 0; i < m; i++) {
+      System.arraycopy(a, (row + i) * columns + column, result, i * n, n);
+    }
+    return result;
+  }
+
+
+  /**
+   * Splits a range in halves until chunks are small enough.
+   */
+  @SuppressWarnings("serial")
+  private static final class Chunk extends RecursiveAction {
+
+    private final Range body;
+    private final int from;
+    private final int to;
+
+
+    Chunk(Range body, int from, int to) {
+      this.body = body;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from <= GRAIN) {
+        body.compute(from, to);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new Chunk(body, from, mid), new Chunk(body, mid, to));
+    }
+  }
+}
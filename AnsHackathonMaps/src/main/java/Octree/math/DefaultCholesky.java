@@ -18,8 +18,10 @@
 package Octree.math;
 
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.sqrt;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -27,6 +29,12 @@ import java.util.Optional;
  */
 final class DefaultCholesky implements Cholesky {
 
+  /**
+   * Columns of the trailing matrix updated by one product in
+   * {@link #blocked(Matrix)}.
+   */
+  private static final int STRIPE = 256;
+
   /**
    * Matrix L
    */
@@ -147,6 +155,102 @@ final class DefaultCholesky implements Cholesky {
     return new DefaultCholesky(null, R.toMatrix());
   }
 
+
+  /**
+   * Cholesky algorithm for symmetric and positive definite matrix, a panel of
+   * {@link Decompositions#BLOCK} columns at a time (blocked, right-looking).
+   * After a panel of L is computed, the lower half of the trailing matrix is
+   * updated with matrix products, in stripes of {@value #STRIPE} columns.
+   * Meant for large matrices, see {@link Decompositions}.
+   *
+   * @param matrix  Square, symmetric matrix.
+   * @return Cholesky decomposition, with L
+   */
+  static Cholesky blocked(Matrix matrix) {
+
+    if (!matrix.isSquare()) {
+      throw new IllegalArgumentException("Matrix is not square");
+    }
+
+    int n = matrix.getRowDimension();
+    double[] a = matrix.toArray();
+    for (int j = 0; j < n; j++) {
+      for (int k = 0; k < j; k++) {
+        if (a[k * n + j] != a[j * n + k]) {
+          throw new IllegalArgumentException("Matrix is not symmetric");
+        }
+      }
+    }
+
+    double[] scratch = null;
+    for (int k0 = 0; k0 < n; k0 += Decompositions.BLOCK) {
+      int panel = k0;
+      int end = min(k0 + Decompositions.BLOCK, n);
+      int width = end - panel;
+
+      // Diagonal block: L11*L11' = A11
+      for (int j = panel; j < end; j++) {
+        int rj = j * n;
+        for (int k = panel; k < j; k++) {
+          int rk = k * n;
+          double s = a[rj + k];
+          for (int i = panel; i < k; i++) {
+            s -= a[rj + i] * a[rk + i];
+          }
+          a[rj + k] = s / a[rk + k];
+        }
+        double d = a[rj + j];
+        for (int i = panel; i < j; i++) {
+          d -= a[rj + i] * a[rj + i];
+        }
+
+        // Still positive definite?
+        if (d <= 0.0) {
+          throw new IllegalArgumentException("Matrix is not positive definite");
+        }
+        a[rj + j] = sqrt(d);
+      }
+      if (end == n) {
+        break;
+      }
+
+      // Rows below: L21*L11' = A21
+      Decompositions.forEach(end, n, (from, to) -> {
+        for (int j = from; j < to; j++) {
+          int rj = j * n;
+          for (int k = panel; k < end; k++) {
+            int rk = k * n;
+            double s = a[rj + k];
+            for (int i = panel; i < k; i++) {
+              s -= a[rj + i] * a[rk + i];
+            }
+            a[rj + k] = s / a[rk + k];
+          }
+        }
+      });
+
+      // Lower half of A22 = A22 - L21*L21'
+      double[] l21 = Decompositions.copy(a, n, end, panel, n - end, width);
+      if (scratch == null) {
+        scratch = new double[(n - end) * min(STRIPE, n - end)];
+      }
+      for (int s0 = end; s0 < n; s0 += STRIPE) {
+        int columns = min(STRIPE, n - s0);
+        double[] rows = s0 == end
+                        ? l21
+                        : Arrays.copyOfRange(l21, (s0 - end) * width, l21.length);
+        Decompositions.subtractProduct(a, n, s0, s0, rows, rows, n - s0, columns,
+                                       width, false, true, scratch);
+      }
+    }
+
+    for (int j = 0; j < n; j++) {
+      Arrays.fill(a, j * n + j + 1, (j + 1) * n, 0.0);
+    }
+    MatrixBuilder<?> L = MatrixContext.getInstance().create(n, n, a);
+    return new DefaultCholesky(L.toMatrix(), null);
+  }
+
   @Override
   public Matrix getL() {
     if (L != null) return L;
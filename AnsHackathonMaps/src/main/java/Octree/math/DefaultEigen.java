@@ -107,6 +107,18 @@ final class DefaultEigen implements Eigen {
                      new DefaultComplexVector(reals, imags));
   }
 
+  /**
+   * Returns the decomposition of a symmetric matrix that has been computed
+   * elsewhere.
+   * @param V orthogonal eigenvector matrix
+   * @param values real eigenvalues, in the order of the columns of V
+   * @return Eigenvalue decomposition
+   */
+  static Eigen symmetric(Matrix V, double[] values) {
+    return new DefaultEigen(V,
+                     new DefaultComplexVector(values, new double[values.length]));
+  }
+
   // Non-symmetric reduction to Hessenberg form.
 
   private static void tred2(int n, double[] reals, double[] imags, MatrixBuilder<?> V) {
@@ -176,7 +176,7 @@ final class DefaultLU implements LU {
 
       // Compute multipliers.
 
-      if (j < m & LU.get(j, j) != 0.0) {
+      if (j < m && LU.get(j, j) != 0.0) {
         for (int i = j + 1; i < m; i++) {
           LU.set(i, j, LU.get(i, j) / LU.get(j, j));
         }
@@ -186,6 +186,110 @@ final class DefaultLU implements LU {
   }
 
 
+  /**
+   * Creates a LU decomposition using the blocked, right-looking algorithm.
+   * Each panel of {@link Decompositions#BLOCK} columns is eliminated with
+   * partial pivoting, the matching rows of <i>U</i> are solved for, and the
+   * trailing matrix is updated with one matrix product. Meant for large
+   * matrices, see {@link Decompositions}.
+   *
+   * @param matrix  matrix to decompose
+   * @return LU decomposition
+   */
+  static LU blocked(Matrix matrix) {
+    int      m     = matrix.getRowDimension();
+    int      n     = matrix.getColumnDimension();
+    double[] a     = matrix.toArray();
+    int[]    piv   = new int[m];
+    for (int i = 0; i < m; i++) {
+      piv[i] = i;
+    }
+    int pivSign = 1;
+
+    int      steps   = min(m, n);
+    double[] scratch = null;
+    for (int k0 = 0; k0 < steps; k0 += Decompositions.BLOCK) {
+      int panel = k0;
+      int end   = min(k0 + Decompositions.BLOCK, steps);
+
+      // Eliminate the panel, swapping whole rows.
+      for (int j = panel; j < end; j++) {
+        int    p   = j;
+        double max = abs(a[j * n + j]);
+        for (int i = j + 1; i < m; i++) {
+          double value = abs(a[i * n + j]);
+          if (value > max) {
+            max = value;
+            p = i;
+          }
+        }
+        if (p != j) {
+          int rp = p * n;
+          int rj = j * n;
+          for (int c = 0; c < n; c++) {
+            double t = a[rp + c];
+            a[rp + c] = a[rj + c];
+            a[rj + c] = t;
+          }
+          int t = piv[p];
+          piv[p] = piv[j];
+          piv[j] = t;
+          pivSign = -pivSign;
+        }
+        double pivot = a[j * n + j];
+        if (pivot != 0.0) {
+          int rj = j * n;
+          for (int i = j + 1; i < m; i++) {
+            int    ri = i * n;
+            double l  = a[ri + j] / pivot;
+            a[ri + j] = l;
+            if (l != 0.0) {
+              for (int c = j + 1; c < end; c++) {
+                a[ri + c] -= l * a[rj + c];
+              }
+            }
+          }
+        }
+      }
+      if (end == n) {
+        continue;
+      }
+
+      // Solve L11*U12 = A12 for the panel rows right of the panel.
+      Decompositions.forEach(end, n, (from, to) -> {
+        for (int i = panel + 1; i < end; i++) {
+          int ri = i * n;
+          for (int p = panel; p < i; p++) {
+            double l = a[ri + p];
+            if (l != 0.0) {
+              int rp = p * n;
+              for (int c = from; c < to; c++) {
+                a[ri + c] -= l * a[rp + c];
+              }
+            }
+          }
+        }
+      });
+
+      // A22 = A22 - L21*U12
+      if (end < m) {
+        int width = end - panel;
+        if (scratch == null) {
+          scratch = new double[(m - end) * (n - end)];
+        }
+        Decompositions.subtractProduct(
+            a, n, end, end,
+            Decompositions.copy(a, n, end, panel, m - end, width),
+            Decompositions.copy(a, n, panel, end, width, n - end),
+            m - end, n - end, width, false, false, scratch);
+      }
+    }
+
+    MatrixBuilder<?> LU = MatrixContext.getInstance().create(m, n, a);
+    return new DefaultLU(LU.toMatrix(), pivSign, piv);
+  }
+
+
   @Override
   public Matrix getL() {
     int              m = lu.getRowDimension();
@@ -17,8 +17,13 @@
 
 package Octree.math;
 
+import static java.lang.Math.abs;
 import static java.lang.Math.hypot;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 
@@ -99,6 +104,146 @@ final class DefaultQR implements Octree.math.QR {
     return new DefaultQR(QR.toMatrix(), diagonalR);
   }
 
+  /**
+   * Decompose QR using householder vectors, a panel of
+   * {@link Decompositions#BLOCK} columns at a time. The reflections of a panel
+   * are gathered in the compact WY form <i>I - V&times;T&times;V&prime;</i>
+   * and applied to the trailing matrix with matrix products. The result is
+   * stored as with {@link #householder(Matrix)}. Meant for large matrices, see
+   * {@link Decompositions}.
+   *
+   * @param matrix  Matrix to decompose
+   * @return The decomposition
+   */
+  static QR blocked(Matrix matrix) {
+
+    int m = matrix.getRowDimension();
+    int n = matrix.getColumnDimension();
+
+    double[] diagonalR = new double[n];
+    double[] a = matrix.toArray();
+    double[] scratch = null;
+
+    for (int k0 = 0; k0 < n; k0 += Decompositions.BLOCK) {
+      int end = min(k0 + Decompositions.BLOCK, n);
+      int width = end - k0;
+      double[] sums = new double[width];
+
+      // Reflect the panel.
+      for (int k = k0; k < end; k++) {
+        // 2-norm of the k-th column, scaled against under/overflow.
+        double scale = 0;
+        for (int i = k; i < m; i++) {
+          scale = max(scale, abs(a[i * n + k]));
+        }
+        double nrm = 0;
+        if (scale != 0) {
+          for (int i = k; i < m; i++) {
+            double v = a[i * n + k] / scale;
+            nrm += v * v;
+          }
+          nrm = scale * sqrt(nrm);
+        }
+
+        if (nrm != 0.0) {
+          // Form k-th Householder vector.
+          if (a[k * n + k] < 0) {
+            nrm = -nrm;
+          }
+          for (int i = k; i < m; i++) {
+            a[i * n + k] /= nrm;
+          }
+          a[k * n + k] += 1.0;
+
+          // Apply transformation to the rest of the panel, row by row.
+          int first = k + 1 - k0;
+          Arrays.fill(sums, first, width, 0.0);
+          for (int i = k; i < m; i++) {
+            int ri = i * n + k0;
+            double v = a[i * n + k];
+            for (int j = first; j < width; j++) {
+              sums[j] += v * a[ri + j];
+            }
+          }
+          double vkk = a[k * n + k];
+          for (int j = first; j < width; j++) {
+            sums[j] = -sums[j] / vkk;
+          }
+          for (int i = k; i < m; i++) {
+            int ri = i * n + k0;
+            double v = a[i * n + k];
+            for (int j = first; j < width; j++) {
+              a[ri + j] += sums[j] * v;
+            }
+          }
+        }
+        diagonalR[k] = -nrm;
+      }
+      if (end == n || k0 >= m) {
+        continue;
+      }
+
+      // V holds the Householder vectors of the panel, zero above them.
+      int rows = m - k0;
+      double[] v = Decompositions.copy(a, n, k0, k0, rows, width);
+      for (int i = 0; i < min(width, rows); i++) {
+        for (int j = i + 1; j < width; j++) {
+          v[i * width + j] = 0;
+        }
+      }
+
+      // T, upper triangular, such that H1*H2*...*Hw = I - V*T*V'. The
+      // reflection of column j is I - tau*v*v' with tau = 1/v(j,j).
+      double[] gram = new double[width * width];
+      MatrixOperations.dgemm(v, v, gram, width, width, rows, true, false, 1, 0);
+      double[] t = new double[width * width];
+      for (int j = 0; j < width; j++) {
+        double vjj = j < rows ? v[j * width + j] : 0;
+        double tau = vjj != 0 ? 1 / vjj : 0;
+        for (int i = 0; i < j; i++) {
+          double s = 0;
+          for (int p = i; p < j; p++) {
+            s += t[i * width + p] * gram[p * width + j];
+          }
+          t[i * width + j] = -tau * s;
+        }
+        t[j * width + j] = tau;
+      }
+
+      // A2 = A2 - V*(T'*(V'*A2))
+      int columns = n - end;
+      double[] w = new double[width * columns];
+      MatrixOperations.dgemm(v, Decompositions.copy(a, n, k0, end, rows, columns),
+                             w, width, columns, rows, true, false, 1, 0);
+      Decompositions.forEach(0, columns, (from, to) -> {
+        for (int i = width - 1; i >= 0; i--) {
+          int ri = i * columns;
+          double tii = t[i * width + i];
+          for (int c = from; c < to; c++) {
+            w[ri + c] *= tii;
+          }
+          for (int p = 0; p < i; p++) {
+            double tpi = t[p * width + i];
+            if (tpi != 0.0) {
+              int rp = p * columns;
+              for (int c = from; c < to; c++) {
+                w[ri + c] += tpi * w[rp + c];
+              }
+            }
+          }
+        }
+      });
+      if (scratch == null) {
+        scratch = new double[rows * columns];
+      }
+      Decompositions.subtractProduct(a, n, k0, end, v, w, rows, columns, width,
+                                     false, false, scratch);
+    }
+
+    MatrixBuilder<?> QR = MatrixContext.getInstance().create(m, n, a);
+    return new DefaultQR(QR.toMatrix(), diagonalR);
+  }
+
   @Override
   public Matrix getH() {
     int m = QR.getRowDimension();
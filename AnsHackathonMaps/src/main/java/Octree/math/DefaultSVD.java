@@ -469,6 +469,21 @@ final class DefaultSVD implements SVD {
                                        .toVector());
   }
 
+  /**
+   * Returns a decomposition that has been computed elsewhere.
+   *
+   * @param u              matrix <i>U</i>
+   * @param v              matrix <i>V</i>
+   * @param singularValues the singular values, descending
+   * @return The Singular Value Decomposition
+   */
+  static SVD of(Matrix u, Matrix v, double[] singularValues) {
+    return new DefaultSVD(u,
+                          v,
+                          VectorContext.getInstance().create(singularValues)
+                                       .toVector());
+  }
+
   @Override
   public double condition() {
     int m = u.getRowDimension();
@@ -508,7 +523,7 @@ final class DefaultSVD implements SVD {
     double eps = pow(2.0, -52.0);
     double tol = max(m, n) * norm2() * eps;
     int r = 0;
-    for (int i = 0; i < singularValues.length(); i++) {
+    for (int i = 0; i < singularValues.getDimension(); i++) {
       double element = singularValues.get(i);
       if (element > tol) {
         r++;
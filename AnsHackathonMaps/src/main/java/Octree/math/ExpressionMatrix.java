@@ -0,0 +1,442 @@
+package Octree.math;
+
+import static java.lang.Math.min;
+
+
+/**
+ * Lazily evaluated linear combination of matrices, see {@link Matrix#lazy()}.
+ * <p>
+ * The expression is a flat list of terms <i>&alpha;<sub>i</sub> &times;
+ * op(M<sub>i</sub>)</i>, where op(M) is M or its transpose. {@link #add},
+ * {@link #subtract}, {@link #multiply(double)}, {@link #negate()} and
+ * {@link #transpose()} only rewrite the list, so chains of them do not touch
+ * the matrix data. {@link #toArray()} and {@link #evaluate()} compute all
+ * terms in one pass over the result, reading the arrays of packed operands in
+ * place. In a product, a single term passes its factor and transposition on
+ * to dgemm, which applies them while packing its operands, so <i>(&alpha;
+ * &times; A)&prime; &times; B</i> is never formed.
+ * <p>
+ * Matrices are immutable, so an expression always sees the values its
+ * operands had when it was built. Expressions that grow beyond
+ * {@value #MAX_TERMS} terms are evaluated, so long chains do not make
+ * {@link #get(int, int)} slow.
+ */
+final class ExpressionMatrix extends DefaultMatrix {
+
+  /**
+   * The serial version unique identifier.
+   */
+  private static final long serialVersionUID = -7975129567294454490L;
+
+  /**
+   * Maximum number of terms kept unevaluated.
+   */
+  static final int MAX_TERMS = 8;
+
+  /**
+   * Rows of the result processed together: the rows of one row of blocks of
+   * a block matrix.
+   */
+  private static final int TILE = BlockMatrix.SUBMATRIX_DIMENSION;
+
+  private final int rows;
+
+  private final int columns;
+
+  private final Matrix[] operands;
+
+  private final double[] factors;
+
+  /**
+   * Whether each operand is used transposed.
+   */
+  private final boolean[] transposed;
+
+
+  private ExpressionMatrix(int rows,
+                           int columns,
+                           Matrix[] operands,
+                           double[] factors,
+                           boolean[] transposed) {
+    this.rows = rows;
+    this.columns = columns;
+    this.operands = operands;
+    this.factors = factors;
+    this.transposed = transposed;
+  }
+
+
+  /**
+   * Returns a matrix as expression.
+   *
+   * @param matrix a matrix
+   * @return the matrix itself if it is an expression, a single term
+   * expression otherwise
+   */
+  static ExpressionMatrix of(Matrix matrix) {
+    if (matrix instanceof ExpressionMatrix) {
+      return (ExpressionMatrix) matrix;
+    }
+    return new ExpressionMatrix(matrix.getRowDimension(),
+                                matrix.getColumnDimension(),
+                                new Matrix[] {matrix},
+                                new double[] {1.0},
+                                new boolean[] {false});
+  }
+
+
+  @Override
+  public int getRowDimension() {
+    return rows;
+  }
+
+
+  @Override
+  public int getColumnDimension() {
+    return columns;
+  }
+
+
+  @Override
+  public double get(int row, int column) {
+    double value = 0;
+    for (int i = 0; i < operands.length; i++) {
+      value += factors[i] * (transposed[i]
+                             ? operands[i].get(column, row)
+                             : operands[i].get(row, column));
+    }
+    return value;
+  }
+
+
+  @Override
+  public ExpressionMatrix lazy() {
+    return this;
+  }
+
+
+  @Override
+  public ExpressionMatrix transpose() {
+    boolean[] flipped = new boolean[transposed.length];
+    for (int i = 0; i < flipped.length; i++) {
+      flipped[i] = !transposed[i];
+    }
+    return new ExpressionMatrix(columns, rows, operands, factors, flipped);
+  }
+
+
+  @Override
+  public ExpressionMatrix multiply(double multiplicand) {
+    double[] scaled = new double[factors.length];
+    for (int i = 0; i < scaled.length; i++) {
+      scaled[i] = factors[i] * multiplicand;
+    }
+    return new ExpressionMatrix(rows, columns, operands, scaled, transposed);
+  }
+
+
+  @Override
+  public ExpressionMatrix negate() {
+    return multiply(-1.0);
+  }
+
+
+  @Override
+  public ExpressionMatrix add(Matrix other) {
+    return combine(other, 1.0);
+  }
+
+
+  @Override
+  public ExpressionMatrix subtract(Matrix other) {
+    return combine(other, -1.0);
+  }
+
+
+  /**
+   * Appends the terms of another matrix, scaled.
+   */
+  private ExpressionMatrix combine(Matrix other, double sign) {
+    if (rows != other.getRowDimension() ||
+        columns != other.getColumnDimension()) {
+      throw new IllegalArgumentException("Matrix dimensions do not agree");
+    }
+    ExpressionMatrix expression = of(other);
+    int count = operands.length + expression.operands.length;
+
+    Matrix[] allOperands = new Matrix[count];
+    double[] allFactors = new double[count];
+    boolean[] allTransposed = new boolean[count];
+    System.arraycopy(operands, 0, allOperands, 0, operands.length);
+    System.arraycopy(factors, 0, allFactors, 0, operands.length);
+    System.arraycopy(transposed, 0, allTransposed, 0, operands.length);
+    for (int i = 0; i < expression.operands.length; i++) {
+      int index = operands.length + i;
+      allOperands[index] = expression.operands[i];
+      allFactors[index] = sign * expression.factors[i];
+      allTransposed[index] = expression.transposed[i];
+    }
+
+    ExpressionMatrix result = new ExpressionMatrix(rows, columns, allOperands,
+                                                   allFactors, allTransposed);
+    return count > MAX_TERMS ? of(result.evaluate()) : result;
+  }
+
+
+  @Override
+  public Matrix multiply(Matrix other) {
+    if (columns != other.getRowDimension()) {
+      throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+    }
+    ExpressionMatrix right = of(other);
+    int m = rows;
+    int n = right.columns;
+    int k = columns;
+
+    double[] c = new double[m * n];
+    PackedTerm a = this.single();
+    PackedTerm b = right.single();
+    if (a.data != null && b.data != null) {
+      MatrixOperations.dgemm(a.data, b.data, c, m, n, k,
+                             a.transposed, b.transposed,
+                             a.factor * b.factor, 0);
+    }
+    return MatrixContext.getInstance().create(m, n, c).toMatrix();
+  }
+
+
+  @Override
+  public Matrix evaluate() {
+    if (rows <= MatrixContext.RECURSIVE && columns <= MatrixContext.RECURSIVE) {
+      return MatrixContext.getInstance().create(rows, columns, toArray())
+                          .toMatrix();
+    }
+
+    // compute the blocks of a block matrix directly
+    Term[] terms = terms();
+    int blockRows = BlockMatrixBuilder.calculateBlockCount(rows);
+    int blockColumns = BlockMatrixBuilder.calculateBlockCount(columns);
+    PackedMatrix[] blocks = new PackedMatrix[blockRows * blockColumns];
+    for (int row = 0, index = 0; row < rows; row += TILE) {
+      for (int column = 0; column < columns; column += TILE, index++) {
+        double[] data = new double[TILE * TILE];
+        for (Term term : terms) {
+          term.addTo(data, 0, TILE, row, min(row + TILE, rows),
+                     column, min(column + TILE, columns));
+        }
+        blocks[index] = new PackedMatrix(TILE, TILE, false, data);
+      }
+    }
+    return new BlockMatrix(rows, columns, blockRows, blockColumns, blocks);
+  }
+
+
+  @Override
+  public double[] toArray() {
+    Term[] terms = terms();
+    double[] result = new double[rows * columns];
+    for (int tile = 0; tile < rows; tile += TILE) {
+      int end = min(tile + TILE, rows);
+      for (Term term : terms) {
+        term.addTo(result, tile * columns, columns, tile, end, 0, columns);
+      }
+    }
+    return result;
+  }
+
+
+  private Term[] terms() {
+    Term[] terms = new Term[operands.length];
+    for (int i = 0; i < terms.length; i++) {
+      terms[i] = term(i);
+    }
+    return terms;
+  }
+
+
+  /**
+   * Returns the expression as one term with packed data: itself if it has one
+   * term, its evaluated data otherwise.
+   */
+  private PackedTerm single() {
+    if (operands.length != 1) {
+      return new PackedTerm(toArray(), false, 1.0);
+    }
+    if (operands[0] instanceof PackedMatrix) {
+      return (PackedTerm) term(0);
+    }
+    return new PackedTerm(operands[0].toArray(), transposed[0], factors[0]);
+  }
+
+
+  /**
+   * Returns a term, reading the data of packed and block matrices in place.
+   */
+  private Term term(int i) {
+    Matrix operand = operands[i];
+    if (operand instanceof PackedMatrix) {
+      PackedMatrix packed = (PackedMatrix) operand;
+      return new PackedTerm(packed.getPacked(),
+                            transposed[i] != packed.isTransposed(),
+                            factors[i]);
+    }
+    if (operand instanceof BlockMatrix) {
+      return new BlockTerm((BlockMatrix) operand, transposed[i], factors[i]);
+    }
+    return new PackedTerm(operand.toArray(), transposed[i], factors[i]);
+  }
+
+
+  /**
+   * Adds <i>factor &times; S</i> to an m by n region of a row-major packed
+   * array, where <i>S(r, c)</i> is <code>data[start + r * ld + c]</code>, or
+   * <code>data[start + c * ld + r]</code> if transposed.
+   */
+  private static void add(double[] result,
+                          int offset,
+                          int stride,
+                          double[] data,
+                          int start,
+                          int ld,
+                          boolean transposed,
+                          int m,
+                          int n,
+                          double factor) {
+    if (transposed) {
+      for (int c = 0; c < n; c++) {
+        int source = start + c * ld;
+        int target = offset + c;
+        for (int r = 0; r < m; r++) {
+          result[target + r * stride] += factor * data[source + r];
+        }
+      }
+    }
+    else {
+      for (int r = 0; r < m; r++) {
+        int source = start + r * ld;
+        int target = offset + r * stride;
+        for (int c = 0; c < n; c++) {
+          result[target + c] += factor * data[source + c];
+        }
+      }
+    }
+  }
+
+
+  /**
+   * A term <i>factor &times; op(M)</i> of the expression.
+   */
+  private abstract class Term {
+
+    final boolean transposed;
+
+    final double factor;
+
+
+    Term(boolean transposed, double factor) {
+      this.transposed = transposed;
+      this.factor = factor;
+    }
+
+
+    /**
+     * Adds rows [from, to) and columns [columnFrom, columnTo) of the term to a
+     * region of a row-major packed array. The ranges start at a multiple of
+     * {@value #TILE} and the rows do not cross the next one.
+     *
+     * @param target     row-major packed array
+     * @param offset     index of the first element of the region
+     * @param stride     row length of the target
+     * @param from       first row
+     * @param to         row after the last one
+     * @param columnFrom first column
+     * @param columnTo   column after the last one
+     */
+    abstract void addTo(double[] target,
+                        int offset,
+                        int stride,
+                        int from,
+                        int to,
+                        int columnFrom,
+                        int columnTo);
+  }
+
+
+  /**
+   * Term with row-major packed data: <i>M</i>, or <i>M&prime;</i> if
+   * transposed is set.
+   */
+  private final class PackedTerm extends Term {
+
+    /**
+     * The data, or null if it only contains zero's.
+     */
+    final double[] data;
+
+
+    PackedTerm(double[] data, boolean transposed, double factor) {
+      super(transposed, factor);
+      this.data = data;
+    }
+
+
+    @Override
+    void addTo(double[] target,
+               int offset,
+               int stride,
+               int from,
+               int to,
+               int columnFrom,
+               int columnTo) {
+      if (data != null) {
+        add(target, offset, stride, data,
+            transposed ? columnFrom * rows + from : from * columns + columnFrom,
+            transposed ? rows : columns,
+            transposed, to - from, columnTo - columnFrom, factor);
+      }
+    }
+  }
+
+
+  /**
+   * Term of a block matrix, read block by block.
+   */
+  private final class BlockTerm extends Term {
+
+    final BlockMatrix matrix;
+
+
+    BlockTerm(BlockMatrix matrix, boolean transposed, double factor) {
+      super(transposed, factor);
+      this.matrix = matrix;
+    }
+
+
+    @Override
+    void addTo(double[] target,
+               int offset,
+               int stride,
+               int from,
+               int to,
+               int columnFrom,
+               int columnTo) {
+      // the rows of the term are rows of blocks, or columns if transposed
+      int index = from / TILE;
+      for (int column = columnFrom; column < columnTo; column += TILE) {
+        PackedMatrix block = transposed
+                             ? matrix.getBlock(column / TILE, index)
+                             : matrix.getBlock(index, column / TILE);
+        if (block == null || block.getPacked() == null) {
+          continue;
+        }
+        // blocks at the edges may be larger than the part in the matrix
+        int ld = block.isTransposed()
+                 ? block.getRowDimension()
+                 : block.getColumnDimension();
+        add(target, offset + column - columnFrom, stride, block.getPacked(), 0,
+            ld, transposed != block.isTransposed(),
+            to - from, min(TILE, columnTo - column), factor);
+      }
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package Octree.math;
+
+
+/**
+ * Singular value decomposition of small dense matrices, such as the 3&times;3
+ * cross-covariance of a point registration.
+ * <p>
+ * The solver is the one-sided Jacobi (Hestenes) method: it rotates pairs of
+ * columns of <i>A</i> until they are orthogonal, which makes them
+ * <i>s<sub>k</sub> u<sub>k</sub></i>, and accumulates the rotations in
+ * <i>V</i>. For the matrix sizes it is meant for, a few sweeps suffice, the
+ * small singular values are computed to high relative accuracy, and nothing is
+ * allocated: the results are written to caller-supplied arrays.
+ * {@link DefaultSVD#svd(Matrix)} remains the solver for large matrices.
+ */
+public final class JacobiSVD {
+
+  /**
+   * A pair of columns is considered orthogonal once their inner product is
+   * this small relative to their norms.
+   */
+  private static final double EPSILON = 1e-15;
+
+  private static final int MAX_SWEEPS = 32;
+
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private JacobiSVD() {
+  }
+
+
+  /**
+   * Computes the singular value decomposition <i>A = U&times;S&times;V&prime;</i>
+   * of an m-by-n matrix, m &ge; n.
+   *
+   * @param rows           number of rows m
+   * @param columns        number of columns n
+   * @param a              the matrix, row-major packed, not modified
+   * @param u              output, the n columns of the m-by-n matrix
+   *                       <i>U</i>, one after the other
+   * @param singularValues output, the n singular values in descending order
+   * @param v              output, the n columns of the n-by-n matrix
+   *                       <i>V</i>, one after the other, or null if only
+   *                       <i>U</i> and the singular values are needed
+   */
+  public static void solve(int rows,
+                           int columns,
+                           double[] a,
+                           double[] u,
+                           double[] singularValues,
+                           double[] v) {
+    int m = rows;
+    int n = columns;
+    if (m < n) {
+      throw new IllegalArgumentException("Matrix should have at least as many rows as columns");
+    }
+    if (a.length < m * n) {
+      throw new IllegalArgumentException("Input array should hold " + m * n + " elements");
+    }
+    if (u.length < m * n || singularValues.length < n
+        || (v != null && v.length < n * n)) {
+      throw new IllegalArgumentException("Output arrays too small for a " + m + "x" + n + " matrix");
+    }
+
+    // the columns of A, one after the other
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < m; i++) {
+        u[j * m + i] = a[i * n + j];
+      }
+    }
+    decompose(m, n, u, singularValues, v);
+  }
+
+
+  /**
+   * Computes the singular value decomposition of an m-by-n matrix, m &ge; n,
+   * given by its columns, in place.
+   *
+   * @param m              number of rows
+   * @param n              number of columns
+   * @param u              the n columns of the matrix, one after the other;
+   *                       replaced by the columns of <i>U</i>
+   * @param singularValues output, the n singular values in descending order
+   * @param v              output, the n columns of <i>V</i>, or null
+   */
+  static void decompose(int m,
+                        int n,
+                        double[] u,
+                        double[] singularValues,
+                        double[] v) {
+    if (n == 0) {
+      return;
+    }
+    if (v != null) {
+      for (int i = 0; i < n * n; i++) {
+        v[i] = 0;
+      }
+      for (int j = 0; j < n; j++) {
+        v[j * n + j] = 1;
+      }
+    }
+
+    // scale by a power of two, exactly, so that the largest element is near
+    // 1: the squared column norms then neither overflow above about 1e154
+    // nor underflow below about 1e-154
+    double max = 0;
+    for (int i = 0; i < m * n; i++) {
+      max = java.lang.Math.max(max, java.lang.Math.abs(u[i]));
+    }
+    int exponent = 0;
+    if (max > 0 && max <= Double.MAX_VALUE) {
+      exponent = java.lang.Math.getExponent(max);
+      for (int i = 0; i < m * n; i++) {
+        u[i] = java.lang.Math.scalb(u[i], -exponent);
+      }
+    }
+
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+      boolean rotated = false;
+      for (int p = 0; p < n - 1; p++) {
+        for (int q = p + 1; q < n; q++) {
+          int up = p * m;
+          int uq = q * m;
+          double alpha = 0;
+          double beta = 0;
+          double gamma = 0;
+          for (int i = 0; i < m; i++) {
+            alpha += u[up + i] * u[up + i];
+            beta += u[uq + i] * u[uq + i];
+            gamma += u[up + i] * u[uq + i];
+          }
+          if (gamma == 0
+              || java.lang.Math.abs(gamma)
+                 <= EPSILON * java.lang.Math.sqrt(alpha) * java.lang.Math.sqrt(beta)) {
+            continue;
+          }
+          rotated = true;
+
+          // the Jacobi rotation that diagonalizes [alpha gamma; gamma beta]
+          double t = tangent(alpha, beta, gamma);
+          double c = 1 / java.lang.Math.sqrt(t * t + 1);
+          double s = t * c;
+          rotate(u, up, uq, m, c, s);
+          if (v != null) {
+            rotate(v, p * n, q * n, n, c, s);
+          }
+        }
+      }
+      if (!rotated) {
+        break;
+      }
+    }
+
+    // the norms of the orthogonal columns are the singular values, scaled back
+    for (int j = 0; j < n; j++) {
+      double norm = 0;
+      for (int i = 0; i < m; i++) {
+        norm += u[j * m + i] * u[j * m + i];
+      }
+      norm = java.lang.Math.sqrt(norm);
+      singularValues[j] = java.lang.Math.scalb(norm, exponent);
+      if (norm > 0) {
+        for (int i = 0; i < m; i++) {
+          u[j * m + i] /= norm;
+        }
+      }
+    }
+
+    // sort the singular values, and their columns, in descending order
+    for (int j = 0; j < n - 1; j++) {
+      int largest = j;
+      for (int k = j + 1; k < n; k++) {
+        if (singularValues[k] > singularValues[largest]) {
+          largest = k;
+        }
+      }
+      if (largest != j) {
+        double r = singularValues[j];
+        singularValues[j] = singularValues[largest];
+        singularValues[largest] = r;
+        swap(u, j * m, largest * m, m);
+        if (v != null) {
+          swap(v, j * n, largest * n, n);
+        }
+      }
+    }
+
+    // the columns of (nearly) zero singular values are noise, or zero; replace
+    // them to keep U orthonormal
+    double tolerance = singularValues[0] * m * 0x1p-52;
+    for (int j = 0; j < n; j++) {
+      if (singularValues[j] <= tolerance) {
+        complete(u, m, j);
+      }
+    }
+  }
+
+
+  /**
+   * Rotates two columns: <i>x' = c x - s y</i>, <i>y' = s x + c y</i>.
+   */
+  private static void rotate(double[] data, int x, int y, int length, double c, double s) {
+    for (int i = 0; i < length; i++) {
+      double r = c * data[x + i] - s * data[y + i];
+      data[y + i] = s * data[x + i] + c * data[y + i];
+      data[x + i] = r;
+    }
+  }
+
+
+  private static void swap(double[] data, int x, int y, int length) {
+    for (int i = 0; i < length; i++) {
+      double r = data[x + i];
+      data[x + i] = data[y + i];
+      data[y + i] = r;
+    }
+  }
+
+
+  /**
+   * Replaces column j by a unit vector orthogonal to the orthonormal columns
+   * before it: the unit vector e<sub>i</sub> that is farthest from their span,
+   * orthogonalized against them.
+   */
+  private static void complete(double[] u, int m, int j) {
+    int best = 0;
+    double smallest = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < m; i++) {
+      double projection = 0;
+      for (int k = 0; k < j; k++) {
+        projection += u[k * m + i] * u[k * m + i];
+      }
+      if (projection < smallest) {
+        smallest = projection;
+        best = i;
+      }
+    }
+
+    int column = j * m;
+    for (int i = 0; i < m; i++) {
+      u[column + i] = i == best ? 1 : 0;
+    }
+    // orthogonalize twice, the second pass removes the rounding errors of the
+    // first
+    for (int pass = 0; pass < 2; pass++) {
+      for (int k = 0; k < j; k++) {
+        double dot = 0;
+        for (int i = 0; i < m; i++) {
+          dot += u[k * m + i] * u[column + i];
+        }
+        for (int i = 0; i < m; i++) {
+          u[column + i] -= dot * u[k * m + i];
+        }
+      }
+    }
+    double norm = 0;
+    for (int i = 0; i < m; i++) {
+      norm += u[column + i] * u[column + i];
+    }
+    norm = java.lang.Math.sqrt(norm);
+    for (int i = 0; i < m; i++) {
+      u[column + i] /= norm;
+    }
+  }
+
+
+  /**
+   * Returns the tangent of the Jacobi rotation angle that annihilates
+   * element (p,q), the smaller root of t<sup>2</sup> + 2&theta;t - 1 = 0.
+   */
+  private static double tangent(double app, double aqq, double apq) {
+    double theta = (aqq - app) / (2 * apq);
+    double abs = java.lang.Math.abs(theta);
+    // for huge theta, theta^2 would overflow; t is then 1 / (2 theta)
+    double t = abs > 1e150
+        ? 0.5 / abs
+        : 1 / (abs + java.lang.Math.sqrt(theta * theta + 1));
+    return theta < 0 ? -t : t;
+  }
+}
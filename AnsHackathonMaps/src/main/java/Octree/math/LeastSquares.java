@@ -0,0 +1,241 @@
+package Octree.math;
+
+import java.util.Optional;
+
+
+/**
+ * Streaming linear least squares: finds <i>x</i> minimizing
+ * <i>||A&times;x - y||</i> for a system whose rows are added one at a time,
+ * without ever storing <i>A</i>.
+ * <p>
+ * The accumulator holds the triangular factor <i>R</i> of a QR decomposition
+ * of the rows seen so far, augmented with the matching elements of
+ * <i>Q&prime;&times;y</i>, and folds each new row in with Givens rotations.
+ * Its memory depends only on the number of columns. Working on <i>R</i>
+ * rather than on the normal equations <i>A&prime;&times;A</i> keeps the
+ * conditioning of <i>A</i>, which matters for polynomial fits.
+ * <p>
+ * Two accumulators over different rows {@link #merge(LeastSquares) merge}
+ * into one over all rows (the R factor of the stacked factors, as in TSQR),
+ * so samples can be split into chunks fed by parallel workers. An
+ * accumulator itself is not thread-safe.
+ */
+public final class LeastSquares {
+
+  /**
+   * Number of unknowns.
+   */
+  private final int columns;
+
+  /**
+   * Row length of the augmented factor.
+   */
+  private final int stride;
+
+  /**
+   * The augmented factor [R, Q'y; 0, ||residual||], row major. The elements
+   * below the diagonal are always zero.
+   */
+  private final double[] r;
+
+  /**
+   * Scratch row, augmented with its y.
+   */
+  private final double[] row;
+
+  private long count;
+
+
+  /**
+   * Creates an empty accumulator.
+   *
+   * @param columns number of unknowns
+   */
+  public LeastSquares(int columns) {
+    if (columns <= 0) {
+      throw new IllegalArgumentException("columns should be > 0");
+    }
+    this.columns = columns;
+    this.stride = columns + 1;
+    this.r = new double[stride * stride];
+    this.row = new double[stride];
+  }
+
+
+  /**
+   * Creates an empty accumulator for fitting a polynomial with
+   * {@link #addPolynomial(double, double)}.
+   *
+   * @param order order of the polynomial
+   * @return the accumulator
+   */
+  public static LeastSquares polynomial(int order) {
+    if (order < 0) {
+      throw new IllegalArgumentException("order should be positive");
+    }
+    return new LeastSquares(order + 1);
+  }
+
+
+  /**
+   * Returns the number of unknowns.
+   *
+   * @return number of columns of A
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+
+  /**
+   * Returns the number of rows added, including those of merged
+   * accumulators.
+   *
+   * @return number of rows of A
+   */
+  public long getCount() {
+    return count;
+  }
+
+
+  /**
+   * Adds a row of the system.
+   *
+   * @param a the row of A
+   * @param y the matching element of y
+   */
+  public void add(double[] a, double y) {
+    if (a.length != columns) {
+      throw new IllegalArgumentException("row should have " + columns + " elements");
+    }
+    System.arraycopy(a, 0, row, 0, columns);
+    row[columns] = y;
+    fold(row, 0);
+    count++;
+  }
+
+
+  /**
+   * Adds a sample to a polynomial fit: the row 1, x, x<sup>2</sup>, ... and
+   * the value y.
+   *
+   * @param x x-value
+   * @param y y-value
+   */
+  public void addPolynomial(double x, double y) {
+    double xn = 1;
+    for (int j = 0; j < columns; j++) {
+      row[j] = xn;
+      xn *= x;
+    }
+    row[columns] = y;
+    fold(row, 0);
+    count++;
+  }
+
+
+  /**
+   * Adds all rows of another accumulator to this one. The other accumulator
+   * is not changed.
+   *
+   * @param other accumulator with the same number of columns
+   */
+  public void merge(LeastSquares other) {
+    if (other.columns != columns) {
+      throw new IllegalArgumentException("accumulators should have the same number of columns");
+    }
+    double[] source = other == this ? r.clone() : other.r;
+    // row i of the other factor starts with i zeros
+    for (int i = 0; i < stride; i++) {
+      System.arraycopy(source, i * stride, row, 0, stride);
+      fold(row, i);
+    }
+    count += other.count;
+  }
+
+
+  /**
+   * Rotates a row into the factor, leaving the row zero.
+   *
+   * @param w     the row, augmented with its y
+   * @param first index of the first element of w that may be non-zero
+   */
+  private void fold(double[] w, int first) {
+    double[] r = this.r;
+    int stride = this.stride;
+    for (int i = first; i < stride; i++) {
+      double wi = w[i];
+      if (wi == 0) {
+        continue;
+      }
+      int base = i * stride;
+      double rii = r[base + i];
+      double h = java.lang.Math.sqrt(rii * rii + wi * wi);
+      double c = rii / h;
+      double s = wi / h;
+      r[base + i] = h;
+      for (int j = i + 1; j < stride; j++) {
+        double rij = r[base + j];
+        double wj = w[j];
+        r[base + j] = c * rij + s * wj;
+        w[j] = c * wj - s * rij;
+      }
+    }
+  }
+
+
+  /**
+   * Returns the sum of the squared residuals of the least squares solution.
+   *
+   * @return <i>||A&times;x - y||<sup>2</sup></i>
+   */
+  public double getResidualSumOfSquares() {
+    double norm = r[stride * stride - 1];
+    return norm * norm;
+  }
+
+
+  /**
+   * Returns the triangular factor, so the system can be analysed or solved
+   * for other right hand sides with the {@link Matrix} facilities.
+   *
+   * @return R, a square matrix with as many rows as there are unknowns
+   */
+  public Matrix getR() {
+    double[] data = new double[columns * columns];
+    for (int i = 0; i < columns; i++) {
+      System.arraycopy(r, i * stride, data, i * columns, columns);
+    }
+    return Matrix.rowPacked(columns, data);
+  }
+
+
+  /**
+   * Solves the least squares problem for the rows added so far, by back
+   * substitution on R.
+   *
+   * @return the solution, or empty if A does not have full rank
+   */
+  public Optional<double[]> solve() {
+    double max = 0;
+    for (int i = 0; i < columns; i++) {
+      max = java.lang.Math.max(max, java.lang.Math.abs(r[i * stride + i]));
+    }
+    double tolerance = max * columns * 1e-15;
+
+    double[] x = new double[columns];
+    for (int i = columns - 1; i >= 0; i--) {
+      int base = i * stride;
+      double rii = r[base + i];
+      if (java.lang.Math.abs(rii) <= tolerance) {
+        return Optional.empty();
+      }
+      double sum = r[base + columns];
+      for (int j = i + 1; j < columns; j++) {
+        sum -= r[base + j] * x[j];
+      }
+      x[i] = sum / rii;
+    }
+    return Optional.of(x);
+  }
+}
@@ -20,6 +20,8 @@ package Octree.math;
 import static java.lang.Math.abs;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class contains very general math functions. Usually these functions are
@@ -47,6 +49,11 @@ public final class Math {
    */
   public static final double TWO_PI = java.lang.Math.PI * 2.0;
 
+  /**
+   * Samples per task of a polynomial fit.
+   */
+  private static final int POLYFIT_CHUNK = 1 << 16;
+
   /**
    * Private constructor to prevent instantiation
    */
@@ -333,7 +340,9 @@ public final class Math {
   }
 
   /**
-   * Performs a polynomial fitting
+   * Performs a polynomial fitting. The samples are accumulated with a
+   * {@link LeastSquares}, in parallel chunks for large inputs, so memory does
+   * not grow with the number of samples.
    *
    * @param xs x-values
    * @param ys y-values
@@ -362,26 +371,60 @@ public final class Math {
                                              "number of input values: " + order);
     }
 
-    // Matrix from y values
-    Matrix yMatrix = Matrix.columnPacked(yLength, ys);
-
-    // Vandermonde matrix
-    Matrix vandermonde = Matrix.vandermonde(order + 1, xs);
+    // least squares on the Vandermonde rows, accumulated in chunks
+    LeastSquares fit = xLength <= POLYFIT_CHUNK
+        ? polyfit(xs, ys, order, 0, xLength)
+        : ForkJoinPool.commonPool().invoke(new PolyfitChunk(xs, ys, order, 0, xLength));
 
-    // matrix qr decomposition
-    QR qr = vandermonde.qr();
+    // determine polynomial coefficients
+    return fit.solve().get();
+  }
 
-    // determine R
-    Matrix upperTriangularMatrix = qr.getR();
+  /**
+   * Fits the samples [from, to).
+   */
+  private static LeastSquares polyfit(double[] xs, double[] ys, int order,
+                                      int from, int to) {
+    LeastSquares fit = LeastSquares.polynomial(order);
+    for (int i = from; i < to; i++) {
+      fit.addPolynomial(xs[i], ys[i]);
+    }
+    return fit;
+  }
 
-    // determine result matrix
-    Matrix result = upperTriangularMatrix
-                        .invert()
-                        .get()
-                        .multiply(qr.getQ().transpose().multiply(yMatrix));
+  /**
+   * Fits a range of samples, splitting it over the fork-join pool and merging
+   * the partial fits.
+   */
+  @SuppressWarnings("serial")
+  private static final class PolyfitChunk extends RecursiveTask<LeastSquares> {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int order;
+    private final int from;
+    private final int to;
+
+    PolyfitChunk(double[] xs, double[] ys, int order, int from, int to) {
+      this.xs = xs;
+      this.ys = ys;
+      this.order = order;
+      this.from = from;
+      this.to = to;
+    }
 
-    // determine polynomial coefficients
-    return result.transpose().row(0).reverse().toArray();
+    @Override
+    protected LeastSquares compute() {
+      if (to - from <= POLYFIT_CHUNK) {
+        return polyfit(xs, ys, order, from, to);
+      }
+      int mid = (from + to) >>> 1;
+      PolyfitChunk right = new PolyfitChunk(xs, ys, order, mid, to);
+      right.fork();
+      LeastSquares fit = new PolyfitChunk(xs, ys, order, from, mid).compute();
+      fit.merge(right.join());
+      return fit;
+    }
   }
 
   /**
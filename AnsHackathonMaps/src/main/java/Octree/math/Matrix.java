@@ -450,6 +450,19 @@ public interface Matrix extends java.io.Serializable {
     return scalar(size, 1.0);
   }
 
+  /**
+   * Creates a builder for a sparse matrix, which stores only its non-zero
+   * elements. Use it for large systems with few elements per row, such as the
+   * finite difference equations of a grid.
+   *
+   * @param rows    number of rows
+   * @param columns number of columns
+   * @return an empty builder
+   */
+  static SparseMatrixBuilder sparse(int rows, int columns) {
+    return new SparseMatrixBuilder(rows, columns);
+  }
+
   /**
    * Determines if this is a square matrix. A matrix is square when its number
    * of rows are equal to its number of columns.
@@ -477,6 +490,10 @@ public interface Matrix extends java.io.Serializable {
    * LU decomposition</a>
    */
   default LU lu() {
+    if (getRowDimension() > MatrixContext.BLOCKED
+        || getColumnDimension() > MatrixContext.BLOCKED) {
+      return DefaultLU.blocked(this);
+    }
     return DefaultLU.crout(this);
   }
 
@@ -494,6 +511,10 @@ public interface Matrix extends java.io.Serializable {
    * QR Decomposition</a>
    */
   default QR qr() {
+    if (getRowDimension() > MatrixContext.BLOCKED
+        || getColumnDimension() > MatrixContext.BLOCKED) {
+      return DefaultQR.blocked(this);
+    }
     return DefaultQR.householder(this);
   }
 
@@ -535,6 +556,9 @@ public interface Matrix extends java.io.Serializable {
 
     int n = getRowDimension();
 
+    // read the elements once instead of in every iteration
+    double[] a = toArray();
+    double[] b = other.toArray();
     double[] x = new double[n];
 
     for (int k = 0; k < iterations; k++) {
@@ -544,10 +568,10 @@ public interface Matrix extends java.io.Serializable {
         double s = 0;
         for (int j = 0; j < n; j++) {
           if (i != j) {
-            s = s + get(i, j) * x[j];
+            s = s + a[i * n + j] * x[j];
           }
         }
-        x[i] = (other.get(i) - s) / get(i, i);
+        x[i] = (b[i] - s) / a[i * n + i];
       }
 
       // determine if the solution converged enough
@@ -555,9 +579,9 @@ public interface Matrix extends java.io.Serializable {
       for (int i = 0; i < n; i++) {
         double y = 0;
         for (int j = 0; j < n; j++) {
-          y += get(i, j) * x[j];
+          y += a[i * n + j] * x[j];
         }
-        if (abs(y - other.get(i)) > tolerance) {
+        if (abs(y - b[i]) > tolerance) {
           convergence = false;
           break;
         }
@@ -780,6 +804,11 @@ public interface Matrix extends java.io.Serializable {
       throw new IllegalArgumentException("Matrix inner dimensions must agree.");
     }
 
+    // let dgemm apply the scale and transposition of a lazy operand
+    if (other instanceof ExpressionMatrix) {
+      return ExpressionMatrix.of(this).multiply(other);
+    }
+
     int m = getRowDimension();
     int n = other.getColumnDimension();
     int k = getColumnDimension();
@@ -808,6 +837,25 @@ public interface Matrix extends java.io.Serializable {
     return new ArrayVector(data);
   }
 
+  /**
+   * Returns a lazy view of this matrix. On the view, {@link #add(Matrix)},
+   * {@link #subtract(Matrix)}, {@link #multiply(double)}, {@link #negate()}
+   * and {@link #transpose()} return unevaluated expressions instead of new
+   * matrices. An expression is computed in a single pass when its data is
+   * needed: by {@link #evaluate()}, {@link #toArray()} or a matrix product,
+   * which folds a scaled or transposed operand into the multiplication
+   * itself.
+   * <p>
+   * <code>a.lazy().subtract(b).multiply(0.5).transpose().evaluate()</code>
+   * thus allocates only the result, where the eager operations allocate three
+   * matrices.
+   *
+   * @return lazy view of this matrix
+   */
+  default Matrix lazy() {
+    return ExpressionMatrix.of(this);
+  }
+
   /**
    * Evaluates the matrix. Evaluating the matrix ensures all values are
    * calculated and present in the returned matrix, in such a way that
@@ -925,6 +973,9 @@ public interface Matrix extends java.io.Serializable {
    *   Wikipedia on Cholesky Decomposition</a>
    */
   default Cholesky chol() {
+    if (getRowDimension() > MatrixContext.BLOCKED) {
+      return DefaultCholesky.blocked(this);
+    }
     return DefaultCholesky.left(this);
   }
 
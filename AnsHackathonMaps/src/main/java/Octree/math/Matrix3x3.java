@@ -647,6 +647,86 @@ public final class Matrix3x3 extends DefaultMatrix {
   }
 
 
+  /**
+   * Computes the eigenvalues and eigenvectors of this matrix, which should be
+   * symmetric, without allocating. See {@link SymmetricEigen3x3}.
+   *
+   * @param values  output, the 3 eigenvalues in ascending order
+   * @param vectors output, the 3 unit eigenvectors one after the other, or
+   *                null if only the eigenvalues are needed
+   * @throws IllegalStateException if this matrix is not symmetric
+   */
+  public void eig(double[] values, double[] vectors) {
+    if (!isSymmetric()) {
+      throw new IllegalStateException("Matrix is not symmetric");
+    }
+    SymmetricEigen3x3.solve(r0c0, r0c1, r0c2, r1c1, r1c2, r2c2,
+                            values, 0, vectors, 0);
+  }
 
 
-}
\ No newline at end of file
+  /**
+   * Overridden to solve symmetric matrices with {@link SymmetricEigen3x3}.
+   * @return Eigendecomposition
+   */
+  @Override
+  public Eigen eig() {
+    if (!isSymmetric()) {
+      return super.eig();
+    }
+    double[] values = new double[3];
+    double[] vectors = new double[9];
+    eig(values, vectors);
+    return DefaultEigen.symmetric(fromColumns(vectors), values);
+  }
+
+
+  /**
+   * Computes the singular value decomposition of this matrix without
+   * allocating. See {@link JacobiSVD}.
+   *
+   * @param u              output, the 3 columns of <i>U</i>, one after the
+   *                       other
+   * @param singularValues output, the 3 singular values in descending order
+   * @param v              output, the 3 columns of <i>V</i>, one after the
+   *                       other, or null if it is not needed
+   */
+  public void svd(double[] u, double[] singularValues, double[] v) {
+    if (u.length < 9 || singularValues.length < 3 || (v != null && v.length < 9)) {
+      throw new IllegalArgumentException("Output arrays too small for a 3x3 matrix");
+    }
+    u[0] = r0c0; u[1] = r1c0; u[2] = r2c0;
+    u[3] = r0c1; u[4] = r1c1; u[5] = r2c1;
+    u[6] = r0c2; u[7] = r1c2; u[8] = r2c2;
+    JacobiSVD.decompose(3, 3, u, singularValues, v);
+  }
+
+
+  /**
+   * Overridden to decompose with {@link JacobiSVD}.
+   * @return Singular value decomposition
+   */
+  @Override
+  public SVD svd() {
+    double[] u = new double[9];
+    double[] singularValues = new double[3];
+    double[] v = new double[9];
+    svd(u, singularValues, v);
+    return DefaultSVD.of(fromColumns(u), fromColumns(v), singularValues);
+  }
+
+
+  private boolean isSymmetric() {
+    return r0c1 == r1c0 && r0c2 == r2c0 && r1c2 == r2c1;
+  }
+
+
+  /**
+   * Creates a matrix from its columns, one after the other.
+   */
+  private static Matrix3x3 fromColumns(double[] columns) {
+    return new Matrix3x3(columns[0], columns[3], columns[6],
+                         columns[1], columns[4], columns[7],
+                         columns[2], columns[5], columns[8]);
+  }
+}
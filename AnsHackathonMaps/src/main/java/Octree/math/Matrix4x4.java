@@ -716,7 +716,89 @@ final class Matrix4x4 extends DefaultMatrix {
   }
 
 
+  /**
+   * Computes the eigenvalues and eigenvectors of this matrix, which should be
+   * symmetric, without allocating. See {@link SymmetricEigen4x4}.
+   *
+   * @param values  output, the 4 eigenvalues in ascending order
+   * @param vectors output, the 4 unit eigenvectors one after the other, or
+   *                null if only the eigenvalues are needed
+   * @throws IllegalStateException if this matrix is not symmetric
+   */
+  public void eig(double[] values, double[] vectors) {
+    if (!isSymmetric()) {
+      throw new IllegalStateException("Matrix is not symmetric");
+    }
+    SymmetricEigen4x4.solve(r0c0, r0c1, r0c2, r0c3, r1c1, r1c2, r1c3,
+                            r2c2, r2c3, r3c3, values, 0, vectors, 0);
+  }
+
+
+  /**
+   * Overridden to solve symmetric matrices with {@link SymmetricEigen4x4}.
+   * @return Eigendecomposition
+   */
+  @Override
+  public Eigen eig() {
+    if (!isSymmetric()) {
+      return super.eig();
+    }
+    double[] values = new double[4];
+    double[] vectors = new double[16];
+    eig(values, vectors);
+    return DefaultEigen.symmetric(fromColumns(vectors), values);
+  }
 
 
+  /**
+   * Computes the singular value decomposition of this matrix without
+   * allocating. See {@link JacobiSVD}.
+   *
+   * @param u              output, the 4 columns of <i>U</i>, one after the
+   *                       other
+   * @param singularValues output, the 4 singular values in descending order
+   * @param v              output, the 4 columns of <i>V</i>, one after the
+   *                       other, or null if it is not needed
+   */
+  public void svd(double[] u, double[] singularValues, double[] v) {
+    if (u.length < 16 || singularValues.length < 4 || (v != null && v.length < 16)) {
+      throw new IllegalArgumentException("Output arrays too small for a 4x4 matrix");
+    }
+    u[0] = r0c0; u[1] = r1c0; u[2] = r2c0; u[3] = r3c0;
+    u[4] = r0c1; u[5] = r1c1; u[6] = r2c1; u[7] = r3c1;
+    u[8] = r0c2; u[9] = r1c2; u[10] = r2c2; u[11] = r3c2;
+    u[12] = r0c3; u[13] = r1c3; u[14] = r2c3; u[15] = r3c3;
+    JacobiSVD.decompose(4, 4, u, singularValues, v);
+  }
 
-}
\ No newline at end of file
+
+  /**
+   * Overridden to decompose with {@link JacobiSVD}.
+   * @return Singular value decomposition
+   */
+  @Override
+  public SVD svd() {
+    double[] u = new double[16];
+    double[] singularValues = new double[4];
+    double[] v = new double[16];
+    svd(u, singularValues, v);
+    return DefaultSVD.of(fromColumns(u), fromColumns(v), singularValues);
+  }
+
+
+  private boolean isSymmetric() {
+    return r0c1 == r1c0 && r0c2 == r2c0 && r0c3 == r3c0
+           && r1c2 == r2c1 && r1c3 == r3c1 && r2c3 == r3c2;
+  }
+
+
+  /**
+   * Creates a matrix from its columns, one after the other.
+   */
+  private static Matrix4x4 fromColumns(double[] columns) {
+    return new Matrix4x4(columns[0], columns[4], columns[8], columns[12],
+                         columns[1], columns[5], columns[9], columns[13],
+                         columns[2], columns[6], columns[10], columns[14],
+                         columns[3], columns[7], columns[11], columns[15]);
+  }
+}
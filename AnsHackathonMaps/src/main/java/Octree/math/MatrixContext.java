@@ -41,6 +41,13 @@ class MatrixContext {
   static final long RECURSIVE =
       Integer.getInteger("thorwin.math.matrix.recursive", 128);
 
+  /**
+   * Matrices with more rows or columns than this are decomposed with the
+   * blocked algorithms (see {@link Decompositions}).
+   */
+  static final long BLOCKED =
+      Integer.getInteger("thorwin.math.matrix.blocked", 128);
+
 
   /**
    * Returns the {@code MatrixContext} used for constructing new {@code Matrix}
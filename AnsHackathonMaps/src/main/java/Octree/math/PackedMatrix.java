@@ -199,9 +199,7 @@ final class PackedMatrix extends DefaultMatrix {
     // if transposed flags are equal, we can just add the arrays
     if (this.transposed == other.transposed) {
       double[] packed = new double[this.packed.length];
-      for (int i = 0; i < packed.length; i++) {
-        packed[i] = this.packed[i] + other.packed[i];
-      }
+      VectorOperations.dadd(this.packed, other.packed, packed);
       return new PackedMatrix(rows,
                               columns,
                               transposed,
@@ -265,9 +263,7 @@ final class PackedMatrix extends DefaultMatrix {
     // if transposed flags are equal, we can just subtract the arrays
     if (this.transposed == other.transposed) {
       double[] packed = new double[this.packed.length];
-      for (int i = 0; i < packed.length; i++) {
-        packed[i] = this.packed[i] - other.packed[i];
-      }
+      VectorOperations.dsub(this.packed, other.packed, packed);
       return new PackedMatrix(this.rows, this.columns, transposed, packed);
     }
 
@@ -317,10 +313,7 @@ final class PackedMatrix extends DefaultMatrix {
     if (this.packed == null) return this;
 
     double[] packed = new double[this.packed.length];
-
-    for (int i = 0; i < packed.length; i++) {
-      packed[i] = this.packed[i] * multiplicand;
-    }
+    VectorOperations.dscal(multiplicand, this.packed, packed);
 
     return new PackedMatrix(this.rows, this.columns, transposed, packed);
   }
@@ -466,6 +459,26 @@ final class PackedMatrix extends DefaultMatrix {
   }
 
 
+  /**
+   * Returns the internal array, without copying it. When the matrix is
+   * {@link #isTransposed() transposed} the array holds the transposed matrix.
+   * Callers must not modify it.
+   * @return row-major packed array, or null if the matrix only contains zero's
+   */
+  double[] getPacked() {
+    return packed;
+  }
+
+
+  /**
+   * Returns whether the internal array holds the transpose of this matrix.
+   * @return the transposed flag
+   */
+  boolean isTransposed() {
+    return transposed;
+  }
+
+
   /**
    * Returns true if this matrix contains does not contain any non-zero values.
    * Or in more human terms, it is guaranteed to only contain zero's but
@@ -0,0 +1,537 @@
+package Octree.math;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+
+/**
+ * Implementation of a sparse matrix in compressed sparse row (CSR) format:
+ * the column indices and values of the non-zero elements are stored row after
+ * row, and a row index array points to the start of each row. Matrices are
+ * created with a {@link SparseMatrixBuilder}, see
+ * {@link Matrix#sparse(int, int)}. This class is immutable.
+ * <p>
+ * Besides the {@link Matrix} operations, the matrix multiplies with primitive
+ * arrays and solves linear systems with the Jacobi method or with conjugate
+ * gradients, preconditioned with the diagonal. These run over blocks of rows
+ * with a similar number of non-zero elements, which are processed in
+ * parallel.
+ */
+public final class SparseMatrix extends DefaultMatrix {
+
+  /**
+   * The serial version unique identifier.
+   */
+  private static final long serialVersionUID = -2231051822020586475L;
+
+  /**
+   * Non-zero elements (plus rows) per block of rows processed by one task.
+   */
+  static final int BLOCK_WORK = 1 << 16;
+
+  private final int rows;
+
+  private final int columns;
+
+  /**
+   * Index of the first element of each row, and the number of elements at the
+   * end.
+   */
+  private final int[] rowStart;
+
+  private final int[] columnIndices;
+
+  private final double[] values;
+
+  /**
+   * First row of each block, and the number of rows at the end.
+   */
+  private final int[] blockStart;
+
+
+  /**
+   * Constructs a sparse matrix. This (package-private) constructor does not
+   * copy or validate the arrays; the column indices of each row should be
+   * ascending and unique.
+   *
+   * @param rows          number of rows
+   * @param columns       number of columns
+   * @param rowStart      index of the first element of each row, followed by
+   *                      the number of elements
+   * @param columnIndices column index of each element
+   * @param values        value of each element
+   */
+  SparseMatrix(int rows, int columns, int[] rowStart, int[] columnIndices,
+               double[] values) {
+    this.rows = rows;
+    this.columns = columns;
+    this.rowStart = rowStart;
+    this.columnIndices = columnIndices;
+    this.values = values;
+    this.blockStart = partition(rows, rowStart);
+  }
+
+
+  /**
+   * Splits the rows into blocks of about {@value #BLOCK_WORK} elements.
+   */
+  private static int[] partition(int rows, int[] rowStart) {
+    long work = (long) rowStart[rows] + rows;
+    int blocks = (int) max(1, java.lang.Math.min(rows, (work + BLOCK_WORK - 1) / BLOCK_WORK));
+    int[] starts = new int[blocks + 1];
+    int row = 0;
+    for (int b = 1; b < blocks; b++) {
+      long target = work * b / blocks;
+      while (row < rows && (long) rowStart[row] + row < target) {
+        row++;
+      }
+      starts[b] = row;
+    }
+    starts[blocks] = rows;
+    return starts;
+  }
+
+
+  @Override
+  public int getRowDimension() {
+    return rows;
+  }
+
+
+  @Override
+  public int getColumnDimension() {
+    return columns;
+  }
+
+
+  @Override
+  public double get(int row, int column) {
+    if (row < 0 || row >= rows) {
+      throw new IndexOutOfBoundsException("Invalid row index: " + row);
+    }
+    if (column < 0 || column >= columns) {
+      throw new IndexOutOfBoundsException("Invalid column index: " + column);
+    }
+    int index = Arrays.binarySearch(columnIndices, rowStart[row],
+                                    rowStart[row + 1], column);
+    return index >= 0 ? values[index] : 0.0;
+  }
+
+
+  /**
+   * Returns the number of stored elements.
+   *
+   * @return number of non-zero elements
+   */
+  public int getNonZeroCount() {
+    return rowStart[rows];
+  }
+
+
+  /**
+   * Returns the elements of the main diagonal.
+   *
+   * @return diagonal, as long as the shorter dimension
+   */
+  public double[] diagonal() {
+    double[] diagonal = new double[java.lang.Math.min(rows, columns)];
+    for (int row = 0; row < diagonal.length; row++) {
+      diagonal[row] = get(row, row);
+    }
+    return diagonal;
+  }
+
+
+  /**
+   * Computes <i>y = A&times;x</i>.
+   *
+   * @param x vector with as many elements as there are columns
+   * @param y receives the product, as many elements as there are rows
+   */
+  public void multiply(double[] x, double[] y) {
+    if (x.length != columns || y.length != rows) {
+      throw new IllegalArgumentException("Vector lengths do not match the matrix");
+    }
+    if (x == y) {
+      x = x.clone();
+    }
+    double[] source = x;
+    forEachBlock((block) -> multiplyRows(source, y, blockStart[block],
+                                         blockStart[block + 1]));
+  }
+
+
+  private void multiplyRows(double[] x, double[] y, int from, int to) {
+    for (int row = from; row < to; row++) {
+      double sum = 0;
+      for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+        sum += values[k] * x[columnIndices[k]];
+      }
+      y[row] = sum;
+    }
+  }
+
+
+  @Override
+  public Vector multiply(Vector other) {
+    if (other.getDimension() != columns) {
+      throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+    }
+    double[] y = new double[rows];
+    multiply(other.toArray(), y);
+    return new ArrayVector(y);
+  }
+
+
+  @Override
+  public Matrix multiply(Matrix other) {
+    if (columns != other.getRowDimension()) {
+      throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+    }
+    int n = other.getColumnDimension();
+    double[] b = other.toArray();
+    double[] c = new double[rows * n];
+    forEachBlock((block) -> {
+      for (int row = blockStart[block]; row < blockStart[block + 1]; row++) {
+        int offset = row * n;
+        for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+          double value = values[k];
+          int source = columnIndices[k] * n;
+          for (int j = 0; j < n; j++) {
+            c[offset + j] += value * b[source + j];
+          }
+        }
+      }
+    });
+    return MatrixContext.getInstance().create(rows, n, c).toMatrix();
+  }
+
+
+  @Override
+  public SparseMatrix multiply(double multiplicand) {
+    double[] scaled = values.clone();
+    for (int k = 0; k < scaled.length; k++) {
+      scaled[k] *= multiplicand;
+    }
+    return new SparseMatrix(rows, columns, rowStart, columnIndices, scaled);
+  }
+
+
+  @Override
+  public SparseMatrix negate() {
+    return multiply(-1.0);
+  }
+
+
+  @Override
+  public Matrix add(Matrix other) {
+    if (!(other instanceof SparseMatrix)) {
+      return super.add(other);
+    }
+    return combine((SparseMatrix) other, 1.0);
+  }
+
+
+  @Override
+  public Matrix subtract(Matrix other) {
+    if (!(other instanceof SparseMatrix)) {
+      return super.subtract(other);
+    }
+    return combine((SparseMatrix) other, -1.0);
+  }
+
+
+  private SparseMatrix combine(SparseMatrix other, double sign) {
+    if (rows != other.rows || columns != other.columns) {
+      throw new IllegalArgumentException("Matrix dimensions must agree.");
+    }
+    SparseMatrixBuilder builder = new SparseMatrixBuilder(rows, columns);
+    for (int row = 0; row < rows; row++) {
+      for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+        builder.add(row, columnIndices[k], values[k]);
+      }
+      for (int k = other.rowStart[row]; k < other.rowStart[row + 1]; k++) {
+        builder.add(row, other.columnIndices[k], sign * other.values[k]);
+      }
+    }
+    return builder.toMatrix();
+  }
+
+
+  @Override
+  public SparseMatrix transpose() {
+    int nonZeros = rowStart[rows];
+    int[] start = new int[columns + 1];
+    for (int k = 0; k < nonZeros; k++) {
+      start[columnIndices[k] + 1]++;
+    }
+    for (int column = 0; column < columns; column++) {
+      start[column + 1] += start[column];
+    }
+    int[] next = Arrays.copyOf(start, columns);
+    int[] indices = new int[nonZeros];
+    double[] transposed = new double[nonZeros];
+    // rows are visited in order, so the new rows come out sorted
+    for (int row = 0; row < rows; row++) {
+      for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+        int position = next[columnIndices[k]]++;
+        indices[position] = row;
+        transposed[position] = values[k];
+      }
+    }
+    return new SparseMatrix(columns, rows, start, indices, transposed);
+  }
+
+
+  @Override
+  public SparseMatrix evaluate() {
+    return this;
+  }
+
+
+  @Override
+  public double[] toArray() {
+    double[] packed = new double[java.lang.Math.multiplyExact(rows, columns)];
+    for (int row = 0; row < rows; row++) {
+      for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+        packed[row * columns + columnIndices[k]] = values[k];
+      }
+    }
+    return packed;
+  }
+
+
+  @Override
+  public Optional<? extends Vector> jacobi(Vector other,
+                                           int iterations,
+                                           double tolerance) {
+    if (!isSquare()) {
+      throw new IllegalArgumentException("Matrix is not square");
+    }
+    double[] x = new double[rows];
+    int used = jacobi(other.toArray(), x, iterations, tolerance, false);
+    return used < 0 ? Optional.empty() : Optional.of(new ArrayVector(x));
+  }
+
+
+  /**
+   * Solves <i>A&times;x = b</i> with the Jacobi method, which converges for
+   * diagonally dominant matrices.
+   *
+   * @param b             right hand side
+   * @param x             initial guess, receives the solution
+   * @param maxIterations maximum number of iterations
+   * @param tolerance     the iteration stops once
+   *                      <i>||b - A&times;x|| &le; tolerance &times; ||b||</i>
+   * @return the number of iterations used, or -1 if the solution did not
+   * converge
+   */
+  public int solveJacobi(double[] b, double[] x, int maxIterations,
+                         double tolerance) {
+    return jacobi(b, x, maxIterations, tolerance, true);
+  }
+
+
+  /**
+   * Runs Jacobi iterations until the residual is small enough: relative in
+   * the two-norm, or absolute in the maximum norm like
+   * {@link Matrix#jacobi(Vector, int, double)}.
+   */
+  private int jacobi(double[] b, double[] x, int maxIterations,
+                     double tolerance, boolean relative) {
+    double[] inverse = inverseDiagonal(b, x, false);
+    double limit = relative ? tolerance * tolerance * dot(b, b) : tolerance;
+
+    double[] current = x;
+    double[] next = new double[rows];
+    double[] partial = new double[blockStart.length - 1];
+    int iteration = 0;
+    while (true) {
+      // the residual of the current solution gives the next one
+      double[] from = current;
+      double[] to = next;
+      forEachBlock((block) -> {
+        double norm = 0;
+        for (int row = blockStart[block]; row < blockStart[block + 1]; row++) {
+          double sum = 0;
+          for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+            sum += values[k] * from[columnIndices[k]];
+          }
+          double residual = b[row] - sum;
+          norm = relative ? norm + residual * residual : max(norm, abs(residual));
+          to[row] = from[row] + inverse[row] * residual;
+        }
+        partial[block] = norm;
+      });
+      double norm = 0;
+      for (double value : partial) {
+        norm = relative ? norm + value : max(norm, value);
+      }
+      if (norm <= limit || iteration == maxIterations) {
+        if (current != x) {
+          System.arraycopy(current, 0, x, 0, rows);
+        }
+        return norm <= limit ? iteration : -1;
+      }
+      next = current;
+      current = to;
+      iteration++;
+    }
+  }
+
+
+  /**
+   * Solves <i>A&times;x = b</i> for a symmetric positive definite matrix with
+   * conjugate gradients, preconditioned with the diagonal of the matrix.
+   *
+   * @param b             right hand side
+   * @param x             initial guess, receives the solution
+   * @param maxIterations maximum number of iterations
+   * @param tolerance     the iteration stops once
+   *                      <i>||b - A&times;x|| &le; tolerance &times; ||b||</i>
+   * @return the number of iterations used, or -1 if the solution did not
+   * converge
+   */
+  public int solveConjugateGradient(double[] b, double[] x, int maxIterations,
+                                    double tolerance) {
+    double[] inverse = inverseDiagonal(b, x, true);
+    double limit = tolerance * tolerance * dot(b, b);
+
+    double[] r = new double[rows];
+    double[] z = new double[rows];
+    double[] p = new double[rows];
+    double[] q = new double[rows];
+    double[] partial = new double[blockStart.length - 1];
+    double[] partial2 = new double[blockStart.length - 1];
+
+    // r = b - A x, z = p = M^-1 r
+    multiply(x, q);
+    forEachBlock((block) -> {
+      double rz = 0;
+      double rr = 0;
+      for (int row = blockStart[block]; row < blockStart[block + 1]; row++) {
+        double residual = b[row] - q[row];
+        r[row] = residual;
+        z[row] = inverse[row] * residual;
+        p[row] = z[row];
+        rz += residual * z[row];
+        rr += residual * residual;
+      }
+      partial[block] = rz;
+      partial2[block] = rr;
+    });
+    double rz = sum(partial);
+    if (sum(partial2) <= limit) {
+      return 0;
+    }
+
+    for (int iteration = 1; iteration <= maxIterations; iteration++) {
+      // q = A p, fused with p'q
+      forEachBlock((block) -> {
+        int from = blockStart[block];
+        int to = blockStart[block + 1];
+        multiplyRows(p, q, from, to);
+        double pq = 0;
+        for (int row = from; row < to; row++) {
+          pq += p[row] * q[row];
+        }
+        partial[block] = pq;
+      });
+      double pq = sum(partial);
+      if (!(pq > 0)) {
+        // the matrix is not positive definite
+        return -1;
+      }
+      double alpha = rz / pq;
+
+      forEachBlock((block) -> {
+        double rzNext = 0;
+        double rr = 0;
+        for (int row = blockStart[block]; row < blockStart[block + 1]; row++) {
+          x[row] += alpha * p[row];
+          double residual = r[row] - alpha * q[row];
+          r[row] = residual;
+          z[row] = inverse[row] * residual;
+          rzNext += residual * z[row];
+          rr += residual * residual;
+        }
+        partial[block] = rzNext;
+        partial2[block] = rr;
+      });
+      double rzNext = sum(partial);
+      if (sum(partial2) <= limit) {
+        return iteration;
+      }
+
+      double beta = rzNext / rz;
+      rz = rzNext;
+      forEachBlock((block) -> {
+        for (int row = blockStart[block]; row < blockStart[block + 1]; row++) {
+          p[row] = z[row] + beta * p[row];
+        }
+      });
+    }
+    return -1;
+  }
+
+
+  /**
+   * Checks a system and returns the reciprocals of the diagonal.
+   */
+  private double[] inverseDiagonal(double[] b, double[] x, boolean positive) {
+    if (!isSquare()) {
+      throw new IllegalArgumentException("Matrix is not square");
+    }
+    if (b.length != rows || x.length != rows) {
+      throw new IllegalArgumentException("Vector lengths do not match the matrix");
+    }
+    double[] inverse = diagonal();
+    for (int row = 0; row < rows; row++) {
+      double d = inverse[row];
+      if (positive ? !(d > 0) : d == 0) {
+        throw new IllegalArgumentException(
+            (positive ? "Matrix is not positive definite" : "Zero on the diagonal")
+            + " at row " + row);
+      }
+      inverse[row] = 1 / d;
+    }
+    return inverse;
+  }
+
+
+  private void forEachBlock(IntConsumer action) {
+    int blocks = blockStart.length - 1;
+    if (blocks == 1) {
+      action.accept(0);
+    } else {
+      IntStream.range(0, blocks).parallel().forEach(action);
+    }
+  }
+
+
+  /**
+   * Sums the partial results of the blocks, always in the same order, so
+   * results do not depend on the scheduling.
+   */
+  private static double sum(double[] partial) {
+    double sum = 0;
+    for (double value : partial) {
+      sum += value;
+    }
+    return sum;
+  }
+
+
+  private static double dot(double[] a, double[] b) {
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+}
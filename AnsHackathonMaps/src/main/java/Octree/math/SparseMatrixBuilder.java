@@ -0,0 +1,159 @@
+package Octree.math;
+
+import java.util.Arrays;
+
+
+/**
+ * Builder for {@link SparseMatrix}. Entries are collected as (row, column,
+ * value) triplets in any order and converted to compressed rows by
+ * {@link #toMatrix()}: entries added with {@link #add} are summed, which is
+ * how finite difference and finite element systems are assembled, and
+ * {@link #set} replaces whatever was added or set before it.
+ */
+public final class SparseMatrixBuilder extends MatrixBuilder<SparseMatrix> {
+
+  private final int rowCount;
+
+  private final int columnCount;
+
+  /**
+   * The triplets, in the order they were given.
+   */
+  private int[] rows;
+  private int[] columns;
+  private double[] values;
+  private boolean[] replaces;
+
+  private int size;
+
+
+  /**
+   * Constructs an empty builder.
+   *
+   * @param rowCount    number of rows
+   * @param columnCount number of columns
+   */
+  public SparseMatrixBuilder(int rowCount, int columnCount) {
+    if (rowCount <= 0 || columnCount <= 0) {
+      throw new IllegalArgumentException("Matrix dimensions should be > 0");
+    }
+    this.rowCount = rowCount;
+    this.columnCount = columnCount;
+    rows = new int[16];
+    columns = new int[16];
+    values = new double[16];
+    replaces = new boolean[16];
+  }
+
+
+  /**
+   * Adds a value to an element.
+   *
+   * @param row    row index
+   * @param column column index
+   * @param value  value to add
+   */
+  public void add(int row, int column, double value) {
+    append(row, column, value, false);
+  }
+
+
+  @Override
+  public void set(int row, int column, double value) {
+    append(row, column, value, true);
+  }
+
+
+  /**
+   * Returns the value of an element. This looks at every entry given so far,
+   * so it is meant for occasional checks, not for assembly.
+   */
+  @Override
+  public double get(int row, int column) {
+    checkIndex(row, column);
+    double value = 0;
+    for (int i = 0; i < size; i++) {
+      if (rows[i] == row && columns[i] == column) {
+        value = replaces[i] ? values[i] : value + values[i];
+      }
+    }
+    return value;
+  }
+
+
+  @Override
+  public SparseMatrix toMatrix() {
+    // bucket the triplets by row, keeping their order within a row
+    int[] rowStart = new int[rowCount + 1];
+    for (int i = 0; i < size; i++) {
+      rowStart[rows[i] + 1]++;
+    }
+    for (int row = 0; row < rowCount; row++) {
+      rowStart[row + 1] += rowStart[row];
+    }
+    int[] next = Arrays.copyOf(rowStart, rowCount);
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      // column in the high bits, so sorting a row keeps the given order
+      keys[next[rows[i]]++] = (long) columns[i] << 32 | i;
+    }
+
+    // sort each row by column and merge duplicates
+    int[] columnIndices = new int[size];
+    double[] entries = new double[size];
+    int count = 0;
+    int start = 0;
+    for (int row = 0; row < rowCount; row++) {
+      int end = rowStart[row + 1];
+      Arrays.sort(keys, start, end);
+      rowStart[row] = count;
+      int previous = -1;
+      for (int k = start; k < end; k++) {
+        int column = (int) (keys[k] >>> 32);
+        int i = (int) keys[k];
+        if (column != previous) {
+          columnIndices[count] = column;
+          entries[count++] = values[i];
+          previous = column;
+        } else if (replaces[i]) {
+          entries[count - 1] = values[i];
+        } else {
+          entries[count - 1] += values[i];
+        }
+      }
+      start = end;
+    }
+    rowStart[rowCount] = count;
+
+    return new SparseMatrix(rowCount, columnCount, rowStart,
+                            Arrays.copyOf(columnIndices, count),
+                            Arrays.copyOf(entries, count));
+  }
+
+
+  private void append(int row, int column, double value, boolean replace) {
+    checkIndex(row, column);
+    if (size == rows.length) {
+      int capacity = java.lang.Math.addExact(size, size >> 1);
+      rows = Arrays.copyOf(rows, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      values = Arrays.copyOf(values, capacity);
+      replaces = Arrays.copyOf(replaces, capacity);
+    }
+    rows[size] = row;
+    columns[size] = column;
+    values[size] = value;
+    replaces[size] = replace;
+    size++;
+  }
+
+
+  private void checkIndex(int row, int column) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Invalid row index: " + row);
+    }
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Invalid column index: " + column);
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package Octree.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Eigenvalues and eigenvectors of many symmetric 3&times;3 matrices, such as
+ * the covariance matrices of point neighbourhoods.
+ * <p>
+ * Each matrix is given by its six distinct elements. The batched
+ * {@link #solve(int, double[], double[], double[], double[], double[],
+ * double[], double[], double[]) solve} takes them as six arrays (one per
+ * element) and writes the results of problem {@code i} to
+ * {@code values[3i .. 3i+2]}, in ascending order, and
+ * {@code vectors[9i .. 9i+8]}, the unit eigenvectors one after the other in
+ * the same order. Problems are solved in parallel, and nothing is allocated
+ * per problem.
+ * <p>
+ * The solver is the cyclic Jacobi method, unrolled for 3&times;3 matrices. It
+ * yields orthonormal eigenvectors that stay accurate for repeated or nearly
+ * repeated eigenvalues, such as those of planar or linear neighbourhoods,
+ * where closed-form solutions lose precision.
+ */
+public final class SymmetricEigen3x3 {
+
+  /**
+   * Batches smaller than this are solved by the calling thread.
+   */
+  private static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * Iteration stops once the largest off-diagonal element is this small
+   * relative to the largest diagonal element.
+   */
+  private static final double EPSILON = 1e-15;
+
+  private static final int MAX_SWEEPS = 32;
+
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private SymmetricEigen3x3() {
+  }
+
+
+  /**
+   * Solves a batch of symmetric eigenproblems.
+   *
+   * @param count   number of problems
+   * @param xx      element (0,0) of each matrix
+   * @param xy      element (0,1) of each matrix
+   * @param xz      element (0,2) of each matrix
+   * @param yy      element (1,1) of each matrix
+   * @param yz      element (1,2) of each matrix
+   * @param zz      element (2,2) of each matrix
+   * @param values  output, 3 eigenvalues per problem in ascending order
+   * @param vectors output, 3 unit eigenvectors per problem, or null if only
+   *                the eigenvalues are needed
+   */
+  public static void solve(int count,
+                           double[] xx,
+                           double[] xy,
+                           double[] xz,
+                           double[] yy,
+                           double[] yz,
+                           double[] zz,
+                           double[] values,
+                           double[] vectors) {
+    if (xx.length < count || xy.length < count || xz.length < count
+        || yy.length < count || yz.length < count || zz.length < count) {
+      throw new IllegalArgumentException("Input arrays should hold " + count + " elements");
+    }
+    if (values.length < 3 * count || (vectors != null && vectors.length < 9 * count)) {
+      throw new IllegalArgumentException("Output arrays too small for " + count + " problems");
+    }
+
+    Batch batch = new Batch(xx, xy, xz, yy, yz, zz, values, vectors, 0, count);
+    if (count <= PARALLEL_THRESHOLD) {
+      batch.compute();
+    }
+    else {
+      ForkJoinPool.commonPool().invoke(batch);
+    }
+  }
+
+
+  /**
+   * Solves a single symmetric eigenproblem.
+   *
+   * @param xx           element (0,0)
+   * @param xy           element (0,1)
+   * @param xz           element (0,2)
+   * @param yy           element (1,1)
+   * @param yz           element (1,2)
+   * @param zz           element (2,2)
+   * @param values       output, the 3 eigenvalues in ascending order
+   * @param valueOffset  index of the first eigenvalue in values
+   * @param vectors      output, the 3 unit eigenvectors, or null
+   * @param vectorOffset index of the first eigenvector element in vectors
+   */
+  public static void solve(double xx,
+                           double xy,
+                           double xz,
+                           double yy,
+                           double yz,
+                           double zz,
+                           double[] values,
+                           int valueOffset,
+                           double[] vectors,
+                           int vectorOffset) {
+    double a00 = xx, a01 = xy, a02 = xz, a11 = yy, a12 = yz, a22 = zz;
+    // eigenvector k is column k of v
+    double v00 = 1, v01 = 0, v02 = 0;
+    double v10 = 0, v11 = 1, v12 = 0;
+    double v20 = 0, v21 = 0, v22 = 1;
+
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+      // compares magnitudes, not squares, which would overflow above about
+      // 1e154 and underflow below about 1e-154
+      double off = java.lang.Math.max(java.lang.Math.abs(a01),
+          java.lang.Math.max(java.lang.Math.abs(a02), java.lang.Math.abs(a12)));
+      double diagonal = java.lang.Math.max(java.lang.Math.abs(a00),
+          java.lang.Math.max(java.lang.Math.abs(a11), java.lang.Math.abs(a22)));
+      if (off <= EPSILON * diagonal) {
+        break;
+      }
+
+      // rotation in the (0,1) plane
+      if (a01 != 0) {
+        double t = tangent(a00, a11, a01);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a00 -= t * a01;
+        a11 += t * a01;
+        a01 = 0;
+        double r02 = c * a02 - s * a12;
+        a12 = s * a02 + c * a12;
+        a02 = r02;
+        double r;
+        r = c * v00 - s * v01; v01 = s * v00 + c * v01; v00 = r;
+        r = c * v10 - s * v11; v11 = s * v10 + c * v11; v10 = r;
+        r = c * v20 - s * v21; v21 = s * v20 + c * v21; v20 = r;
+      }
+
+      // rotation in the (0,2) plane
+      if (a02 != 0) {
+        double t = tangent(a00, a22, a02);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a00 -= t * a02;
+        a22 += t * a02;
+        a02 = 0;
+        double r01 = c * a01 - s * a12;
+        a12 = s * a01 + c * a12;
+        a01 = r01;
+        double r;
+        r = c * v00 - s * v02; v02 = s * v00 + c * v02; v00 = r;
+        r = c * v10 - s * v12; v12 = s * v10 + c * v12; v10 = r;
+        r = c * v20 - s * v22; v22 = s * v20 + c * v22; v20 = r;
+      }
+
+      // rotation in the (1,2) plane
+      if (a12 != 0) {
+        double t = tangent(a11, a22, a12);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a11 -= t * a12;
+        a22 += t * a12;
+        a12 = 0;
+        double r01 = c * a01 - s * a02;
+        a02 = s * a01 + c * a02;
+        a01 = r01;
+        double r;
+        r = c * v01 - s * v02; v02 = s * v01 + c * v02; v01 = r;
+        r = c * v11 - s * v12; v12 = s * v11 + c * v12; v11 = r;
+        r = c * v21 - s * v22; v22 = s * v21 + c * v22; v21 = r;
+      }
+    }
+
+    // sort the eigenvalues, and their columns of v, in ascending order
+    if (a00 > a11) {
+      double r = a00; a00 = a11; a11 = r;
+      r = v00; v00 = v01; v01 = r;
+      r = v10; v10 = v11; v11 = r;
+      r = v20; v20 = v21; v21 = r;
+    }
+    if (a11 > a22) {
+      double r = a11; a11 = a22; a22 = r;
+      r = v01; v01 = v02; v02 = r;
+      r = v11; v11 = v12; v12 = r;
+      r = v21; v21 = v22; v22 = r;
+    }
+    if (a00 > a11) {
+      double r = a00; a00 = a11; a11 = r;
+      r = v00; v00 = v01; v01 = r;
+      r = v10; v10 = v11; v11 = r;
+      r = v20; v20 = v21; v21 = r;
+    }
+
+    values[valueOffset] = a00;
+    values[valueOffset + 1] = a11;
+    values[valueOffset + 2] = a22;
+    if (vectors != null) {
+      vectors[vectorOffset] = v00;
+      vectors[vectorOffset + 1] = v10;
+      vectors[vectorOffset + 2] = v20;
+      vectors[vectorOffset + 3] = v01;
+      vectors[vectorOffset + 4] = v11;
+      vectors[vectorOffset + 5] = v21;
+      vectors[vectorOffset + 6] = v02;
+      vectors[vectorOffset + 7] = v12;
+      vectors[vectorOffset + 8] = v22;
+    }
+  }
+
+
+  /**
+   * Returns the tangent of the Jacobi rotation angle that annihilates
+   * element (p,q), the smaller root of t<sup>2</sup> + 2&theta;t - 1 = 0.
+   */
+  private static double tangent(double app, double aqq, double apq) {
+    double theta = (aqq - app) / (2 * apq);
+    double abs = java.lang.Math.abs(theta);
+    // for huge theta, theta^2 would overflow; t is then 1 / (2 theta)
+    double t = abs > 1e150
+        ? 0.5 / abs
+        : 1 / (abs + java.lang.Math.sqrt(theta * theta + 1));
+    return theta < 0 ? -t : t;
+  }
+
+
+  /**
+   * Solves a range of a batch, splitting it over the fork-join pool.
+   */
+  @SuppressWarnings("serial")
+  private static final class Batch extends RecursiveAction {
+
+    private final double[] xx;
+    private final double[] xy;
+    private final double[] xz;
+    private final double[] yy;
+    private final double[] yz;
+    private final double[] zz;
+    private final double[] values;
+    private final double[] vectors;
+    private final int from;
+    private final int to;
+
+
+    Batch(double[] xx,
+          double[] xy,
+          double[] xz,
+          double[] yy,
+          double[] yz,
+          double[] zz,
+          double[] values,
+          double[] vectors,
+          int from,
+          int to) {
+      this.xx = xx;
+      this.xy = xy;
+      this.xz = xz;
+      this.yy = yy;
+      this.yz = yz;
+      this.zz = zz;
+      this.values = values;
+      this.vectors = vectors;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from > PARALLEL_THRESHOLD) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new Batch(xx, xy, xz, yy, yz, zz, values, vectors, from, mid),
+                  new Batch(xx, xy, xz, yy, yz, zz, values, vectors, mid, to));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        solve(xx[i], xy[i], xz[i], yy[i], yz[i], zz[i], values, 3 * i, vectors, 9 * i);
+      }
+    }
+  }
+}
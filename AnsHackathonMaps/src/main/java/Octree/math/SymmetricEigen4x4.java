@@ -0,0 +1,243 @@
+package Octree.math;
+
+
+/**
+ * Eigenvalues and eigenvectors of a symmetric 4&times;4 matrix, such as the
+ * matrix whose largest eigenvector is the rotation quaternion of a rigid
+ * registration.
+ * <p>
+ * Like {@link SymmetricEigen3x3}, the solver is the cyclic Jacobi method,
+ * unrolled, and it writes its results to caller-supplied arrays without
+ * allocating: the 4 eigenvalues in ascending order and the 4 unit
+ * eigenvectors one after the other in the same order.
+ */
+public final class SymmetricEigen4x4 {
+
+  /**
+   * Iteration stops once the largest off-diagonal element is this small
+   * relative to the largest diagonal element.
+   */
+  private static final double EPSILON = 1e-15;
+
+  private static final int MAX_SWEEPS = 32;
+
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private SymmetricEigen4x4() {
+  }
+
+
+  /**
+   * Solves a symmetric eigenproblem, given by the upper triangle of the
+   * matrix.
+   *
+   * @param a00          element (0,0)
+   * @param a01          element (0,1)
+   * @param a02          element (0,2)
+   * @param a03          element (0,3)
+   * @param a11          element (1,1)
+   * @param a12          element (1,2)
+   * @param a13          element (1,3)
+   * @param a22          element (2,2)
+   * @param a23          element (2,3)
+   * @param a33          element (3,3)
+   * @param values       output, the 4 eigenvalues in ascending order
+   * @param valueOffset  index of the first eigenvalue in values
+   * @param vectors      output, the 4 unit eigenvectors, or null
+   * @param vectorOffset index of the first eigenvector element in vectors
+   */
+  public static void solve(double a00,
+                           double a01,
+                           double a02,
+                           double a03,
+                           double a11,
+                           double a12,
+                           double a13,
+                           double a22,
+                           double a23,
+                           double a33,
+                           double[] values,
+                           int valueOffset,
+                           double[] vectors,
+                           int vectorOffset) {
+    // eigenvector k is column k of v
+    double v00 = 1, v01 = 0, v02 = 0, v03 = 0;
+    double v10 = 0, v11 = 1, v12 = 0, v13 = 0;
+    double v20 = 0, v21 = 0, v22 = 1, v23 = 0;
+    double v30 = 0, v31 = 0, v32 = 0, v33 = 1;
+
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+      // compares magnitudes, not squares, which would overflow above about
+      // 1e154 and underflow below about 1e-154
+      double off = java.lang.Math.max(
+          java.lang.Math.max(java.lang.Math.abs(a01), java.lang.Math.abs(a02)),
+          java.lang.Math.max(java.lang.Math.max(java.lang.Math.abs(a03), java.lang.Math.abs(a12)),
+                             java.lang.Math.max(java.lang.Math.abs(a13), java.lang.Math.abs(a23))));
+      double diagonal = java.lang.Math.max(
+          java.lang.Math.max(java.lang.Math.abs(a00), java.lang.Math.abs(a11)),
+          java.lang.Math.max(java.lang.Math.abs(a22), java.lang.Math.abs(a33)));
+      if (off <= EPSILON * diagonal) {
+        break;
+      }
+
+      // rotation in the (0,1) plane
+      if (a01 != 0) {
+        double t = tangent(a00, a11, a01);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a00 -= t * a01;
+        a11 += t * a01;
+        a01 = 0;
+        double r;
+        r = c * a02 - s * a12; a12 = s * a02 + c * a12; a02 = r;
+        r = c * a03 - s * a13; a13 = s * a03 + c * a13; a03 = r;
+        r = c * v00 - s * v01; v01 = s * v00 + c * v01; v00 = r;
+        r = c * v10 - s * v11; v11 = s * v10 + c * v11; v10 = r;
+        r = c * v20 - s * v21; v21 = s * v20 + c * v21; v20 = r;
+        r = c * v30 - s * v31; v31 = s * v30 + c * v31; v30 = r;
+      }
+
+      // rotation in the (0,2) plane
+      if (a02 != 0) {
+        double t = tangent(a00, a22, a02);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a00 -= t * a02;
+        a22 += t * a02;
+        a02 = 0;
+        double r;
+        r = c * a01 - s * a12; a12 = s * a01 + c * a12; a01 = r;
+        r = c * a03 - s * a23; a23 = s * a03 + c * a23; a03 = r;
+        r = c * v00 - s * v02; v02 = s * v00 + c * v02; v00 = r;
+        r = c * v10 - s * v12; v12 = s * v10 + c * v12; v10 = r;
+        r = c * v20 - s * v22; v22 = s * v20 + c * v22; v20 = r;
+        r = c * v30 - s * v32; v32 = s * v30 + c * v32; v30 = r;
+      }
+
+      // rotation in the (0,3) plane
+      if (a03 != 0) {
+        double t = tangent(a00, a33, a03);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a00 -= t * a03;
+        a33 += t * a03;
+        a03 = 0;
+        double r;
+        r = c * a01 - s * a13; a13 = s * a01 + c * a13; a01 = r;
+        r = c * a02 - s * a23; a23 = s * a02 + c * a23; a02 = r;
+        r = c * v00 - s * v03; v03 = s * v00 + c * v03; v00 = r;
+        r = c * v10 - s * v13; v13 = s * v10 + c * v13; v10 = r;
+        r = c * v20 - s * v23; v23 = s * v20 + c * v23; v20 = r;
+        r = c * v30 - s * v33; v33 = s * v30 + c * v33; v30 = r;
+      }
+
+      // rotation in the (1,2) plane
+      if (a12 != 0) {
+        double t = tangent(a11, a22, a12);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a11 -= t * a12;
+        a22 += t * a12;
+        a12 = 0;
+        double r;
+        r = c * a01 - s * a02; a02 = s * a01 + c * a02; a01 = r;
+        r = c * a13 - s * a23; a23 = s * a13 + c * a23; a13 = r;
+        r = c * v01 - s * v02; v02 = s * v01 + c * v02; v01 = r;
+        r = c * v11 - s * v12; v12 = s * v11 + c * v12; v11 = r;
+        r = c * v21 - s * v22; v22 = s * v21 + c * v22; v21 = r;
+        r = c * v31 - s * v32; v32 = s * v31 + c * v32; v31 = r;
+      }
+
+      // rotation in the (1,3) plane
+      if (a13 != 0) {
+        double t = tangent(a11, a33, a13);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a11 -= t * a13;
+        a33 += t * a13;
+        a13 = 0;
+        double r;
+        r = c * a01 - s * a03; a03 = s * a01 + c * a03; a01 = r;
+        r = c * a12 - s * a23; a23 = s * a12 + c * a23; a12 = r;
+        r = c * v01 - s * v03; v03 = s * v01 + c * v03; v01 = r;
+        r = c * v11 - s * v13; v13 = s * v11 + c * v13; v11 = r;
+        r = c * v21 - s * v23; v23 = s * v21 + c * v23; v21 = r;
+        r = c * v31 - s * v33; v33 = s * v31 + c * v33; v31 = r;
+      }
+
+      // rotation in the (2,3) plane
+      if (a23 != 0) {
+        double t = tangent(a22, a33, a23);
+        double c = 1 / java.lang.Math.sqrt(t * t + 1);
+        double s = t * c;
+        a22 -= t * a23;
+        a33 += t * a23;
+        a23 = 0;
+        double r;
+        r = c * a02 - s * a03; a03 = s * a02 + c * a03; a02 = r;
+        r = c * a12 - s * a13; a13 = s * a12 + c * a13; a12 = r;
+        r = c * v02 - s * v03; v03 = s * v02 + c * v03; v02 = r;
+        r = c * v12 - s * v13; v13 = s * v12 + c * v13; v12 = r;
+        r = c * v22 - s * v23; v23 = s * v22 + c * v23; v22 = r;
+        r = c * v32 - s * v33; v33 = s * v32 + c * v33; v32 = r;
+      }
+    }
+
+    values[valueOffset] = a00;
+    values[valueOffset + 1] = a11;
+    values[valueOffset + 2] = a22;
+    values[valueOffset + 3] = a33;
+    if (vectors != null) {
+      vectors[vectorOffset] = v00;
+      vectors[vectorOffset + 1] = v10;
+      vectors[vectorOffset + 2] = v20;
+      vectors[vectorOffset + 3] = v30;
+      vectors[vectorOffset + 4] = v01;
+      vectors[vectorOffset + 5] = v11;
+      vectors[vectorOffset + 6] = v21;
+      vectors[vectorOffset + 7] = v31;
+      vectors[vectorOffset + 8] = v02;
+      vectors[vectorOffset + 9] = v12;
+      vectors[vectorOffset + 10] = v22;
+      vectors[vectorOffset + 11] = v32;
+      vectors[vectorOffset + 12] = v03;
+      vectors[vectorOffset + 13] = v13;
+      vectors[vectorOffset + 14] = v23;
+      vectors[vectorOffset + 15] = v33;
+    }
+
+    // sort the eigenvalues, and their vectors, in ascending order
+    for (int i = 1; i < 4; i++) {
+      for (int j = i; j > 0 && values[valueOffset + j - 1] > values[valueOffset + j]; j--) {
+        double r = values[valueOffset + j - 1];
+        values[valueOffset + j - 1] = values[valueOffset + j];
+        values[valueOffset + j] = r;
+        if (vectors != null) {
+          int first = vectorOffset + 4 * (j - 1);
+          for (int k = 0; k < 4; k++) {
+            r = vectors[first + k];
+            vectors[first + k] = vectors[first + 4 + k];
+            vectors[first + 4 + k] = r;
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Returns the tangent of the Jacobi rotation angle that annihilates
+   * element (p,q), the smaller root of t<sup>2</sup> + 2&theta;t - 1 = 0.
+   */
+  private static double tangent(double app, double aqq, double apq) {
+    double theta = (aqq - app) / (2 * apq);
+    double abs = java.lang.Math.abs(theta);
+    // for huge theta, theta^2 would overflow; t is then 1 / (2 theta)
+    double t = abs > 1e150
+        ? 0.5 / abs
+        : 1 / (abs + java.lang.Math.sqrt(theta * theta + 1));
+    return theta < 0 ? -t : t;
+  }
+}
@@ -243,7 +243,7 @@ public interface Vector extends java.io.Serializable {
     VectorBuilder<?> builder = VectorContext.getInstance().create(dimension);
 
     for (int i = 0; i < dimension; i++) {
-      builder.set(i, get(i) + multiplicand);
+      builder.set(i, get(i) * multiplicand);
     }
 
     return builder.toVector();
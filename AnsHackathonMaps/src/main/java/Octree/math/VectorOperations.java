@@ -69,4 +69,58 @@ public class VectorOperations {
   public static void daxpy(double a, double[] x, double[] y) {
     PROVIDER.daxpy(a,x,y);
   }
+
+
+  /**
+   * Calculates <i>Y = &alpha; &times; X</i>.
+   * @param alpha scaling factor
+   * @param x input vector X
+   * @param y output vector Y
+   */
+  public static void dscal(double alpha, double[] x, double[] y) {
+    PROVIDER.dscal(alpha, x, y);
+  }
+
+
+  /**
+   * Calculates <i>Z = X + Y</i>.
+   * @param x input vector X
+   * @param y input vector Y
+   * @param z output vector Z
+   */
+  public static void dadd(double[] x, double[] y, double[] z) {
+    PROVIDER.dadd(x, y, z);
+  }
+
+
+  /**
+   * Calculates <i>Z = X - Y</i>.
+   * @param x input vector X
+   * @param y input vector Y
+   * @param z output vector Z
+   */
+  public static void dsub(double[] x, double[] y, double[] z) {
+    PROVIDER.dsub(x, y, z);
+  }
+
+
+  /**
+   * Calculates the dot product <i>X &middot; Y</i>.
+   * @param x vector X
+   * @param y vector Y
+   * @return dot product
+   */
+  public static double ddot(double[] x, double[] y) {
+    return PROVIDER.ddot(x, y);
+  }
+
+
+  /**
+   * Calculates the euclidean norm <i>||X||</i>.
+   * @param x vector X
+   * @return euclidean norm
+   */
+  public static double dnrm2(double[] x) {
+    return PROVIDER.dnrm2(x);
+  }
 }
@@ -0,0 +1,419 @@
+package Octree.math.spi;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Matrix operations with a cache-blocked, multi-threaded matrix multiply.
+ * <p>
+ * {@link #dgemm} follows the usual layered blocking of optimized BLAS
+ * implementations: C is computed in row blocks, which are split over the
+ * common fork-join pool. For each row block, panels of B ({@value #KC} rows by
+ * {@value #NC} columns, sized for the last level cache) and blocks of A
+ * ({@value #MC} by {@value #KC}, sized for L2) are copied into contiguous
+ * buffers in the order the micro-kernel reads them, and the micro-kernel
+ * accumulates {@value #MR} by {@value #NR} tiles of C in registers. Transposed
+ * operands are read in transposed order while packing, so they are never
+ * copied as a whole.
+ * <p>
+ * Small products are left to the plain loops of
+ * {@link MatrixOperationsProvider}, for which packing does not pay off.
+ * <p>
+ * The provider is registered as a service, so {@code MatrixOperations} picks
+ * it up through its {@link java.util.ServiceLoader}.
+ */
+public class BlockedMatrixOperationsProvider extends MatrixOperationsProvider {
+
+  /**
+   * Rows of a micro tile.
+   */
+  static final int MR = 4;
+
+  /**
+   * Columns of a micro tile.
+   */
+  static final int NR = 4;
+
+  /**
+   * Rows of a packed block of A.
+   */
+  static final int MC = 64;
+
+  /**
+   * Depth of the packed blocks of A and B.
+   */
+  static final int KC = 256;
+
+  /**
+   * Columns of a packed panel of B.
+   */
+  static final int NC = 1024;
+
+  /**
+   * Products with fewer multiply-adds than this use the unblocked loops.
+   */
+  private static final long MIN_BLOCKED_WORK = 64 * 64 * 64;
+
+  /**
+   * Pack buffers of each thread, for A and for B.
+   */
+  private static final ThreadLocal<double[][]> BUFFERS =
+      ThreadLocal.withInitial(() -> new double[][] {
+          new double[MC * KC], new double[KC * NC]
+      });
+
+
+  @Override
+  public void dgemm(double[] a,
+                    double[] b,
+                    double[] c,
+                    int m,
+                    int n,
+                    int k,
+                    boolean ta,
+                    boolean tb,
+                    double alpha,
+                    double beta) {
+    if ((long) m * n * k < MIN_BLOCKED_WORK) {
+      super.dgemm(a, b, c, m, n, k, ta, tb, alpha, beta);
+      return;
+    }
+
+    if (c == a) {
+      a = a.clone();
+    }
+    if (c == b) {
+      b = b.clone();
+    }
+
+    Product product = new Product(a, b, c, m, n, k, ta, tb, alpha, beta);
+    int rows = rowsPerTask(m, ForkJoinPool.getCommonPoolParallelism());
+    if (rows >= m) {
+      product.compute(0, m);
+    }
+    else {
+      ForkJoinPool.commonPool().invoke(new RowBlock(product, 0, m, rows));
+    }
+  }
+
+
+  /**
+   * Returns the number of rows of C a task computes: a multiple of
+   * {@value #MC}, small enough to give every thread a few tasks.
+   */
+  static int rowsPerTask(int m, int parallelism) {
+    int tasks = Math.max(1, parallelism) * 4;
+    int rows = (m + tasks - 1) / tasks;
+    return Math.max(MC, (rows + MC - 1) / MC * MC);
+  }
+
+
+  @Override
+  public boolean isAccelerated() {
+    return true;
+  }
+
+
+  /**
+   * Operands and parameters of a product <i>C = &alpha; &times; op(A) &times;
+   * op(B) + &beta; &times; C</i>.
+   */
+  private static final class Product {
+
+    private final double[] a;
+    private final double[] b;
+    private final double[] c;
+    private final int m;
+    private final int n;
+    private final int k;
+    private final boolean ta;
+    private final boolean tb;
+    private final double alpha;
+    private final double beta;
+
+
+    Product(double[] a,
+            double[] b,
+            double[] c,
+            int m,
+            int n,
+            int k,
+            boolean ta,
+            boolean tb,
+            double alpha,
+            double beta) {
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.m = m;
+      this.n = n;
+      this.k = k;
+      this.ta = ta;
+      this.tb = tb;
+      this.alpha = alpha;
+      this.beta = beta;
+    }
+
+
+    /**
+     * Computes the rows [from, to) of C.
+     */
+    void compute(int from, int to) {
+      scaleRows(from, to);
+      if (alpha == 0) {
+        return;
+      }
+
+      double[][] buffers = BUFFERS.get();
+      double[] packedA = buffers[0];
+      double[] packedB = buffers[1];
+
+      for (int jc = 0; jc < n; jc += NC) {
+        int nc = Math.min(NC, n - jc);
+        for (int pc = 0; pc < k; pc += KC) {
+          int kc = Math.min(KC, k - pc);
+          packB(packedB, pc, kc, jc, nc);
+          for (int ic = from; ic < to; ic += MC) {
+            int mc = Math.min(MC, to - ic);
+            packA(packedA, ic, mc, pc, kc);
+            multiplyBlock(packedA, packedB, ic, mc, jc, nc, kc);
+          }
+        }
+      }
+    }
+
+
+    private void scaleRows(int from, int to) {
+      int start = from * n;
+      int end = to * n;
+      // beta 0 overwrites C, even where it holds NaN or infinity
+      if (beta == 0.0) {
+        for (int i = start; i < end; i++) {
+          c[i] = 0.0;
+        }
+      }
+      else if (beta != 1.0) {
+        for (int i = start; i < end; i++) {
+          c[i] *= beta;
+        }
+      }
+    }
+
+
+    /**
+     * Packs rows [ic, ic + mc) and columns [pc, pc + kc) of op(A) into
+     * slivers of {@value #MR} rows, stored column by column. Rows past the end
+     * are padded with zeros.
+     */
+    private void packA(double[] packed, int ic, int mc, int pc, int kc) {
+      int index = 0;
+      for (int ir = 0; ir < mc; ir += MR) {
+        int rows = Math.min(MR, mc - ir);
+        for (int p = 0; p < kc; p++) {
+          for (int r = 0; r < MR; r++) {
+            packed[index++] = r < rows ? elementA(ic + ir + r, pc + p) : 0.0;
+          }
+        }
+      }
+    }
+
+
+    /**
+     * Packs rows [pc, pc + kc) and columns [jc, jc + nc) of op(B) into
+     * slivers of {@value #NR} columns, stored row by row. Columns past the end
+     * are padded with zeros.
+     */
+    private void packB(double[] packed, int pc, int kc, int jc, int nc) {
+      int index = 0;
+      for (int jr = 0; jr < nc; jr += NR) {
+        int columns = Math.min(NR, nc - jr);
+        if (!tb && columns == NR) {
+          int source = pc * n + jc + jr;
+          for (int p = 0; p < kc; p++) {
+            packed[index] = b[source];
+            packed[index + 1] = b[source + 1];
+            packed[index + 2] = b[source + 2];
+            packed[index + 3] = b[source + 3];
+            index += NR;
+            source += n;
+          }
+        }
+        else {
+          for (int p = 0; p < kc; p++) {
+            for (int col = 0; col < NR; col++) {
+              packed[index++] =
+                  col < columns ? elementB(pc + p, jc + jr + col) : 0.0;
+            }
+          }
+        }
+      }
+    }
+
+
+    private double elementA(int row, int column) {
+      return ta ? a[column * m + row] : a[row * k + column];
+    }
+
+
+    private double elementB(int row, int column) {
+      return tb ? b[column * k + row] : b[row * n + column];
+    }
+
+
+    /**
+     * Multiplies a packed block of A with a packed panel of B and adds the
+     * result to C.
+     */
+    private void multiplyBlock(double[] packedA,
+                               double[] packedB,
+                               int ic,
+                               int mc,
+                               int jc,
+                               int nc,
+                               int kc) {
+      for (int jr = 0; jr < nc; jr += NR) {
+        int columns = Math.min(NR, nc - jr);
+        for (int ir = 0; ir < mc; ir += MR) {
+          int rows = Math.min(MR, mc - ir);
+          multiplyTile(packedA, ir * kc, packedB, jr * kc, kc,
+                       ic + ir, rows, jc + jr, columns);
+        }
+      }
+    }
+
+
+    /**
+     * Micro-kernel: accumulates a {@value #MR} by {@value #NR} tile of the
+     * product in registers and adds &alpha; times the tile to C.
+     */
+    private void multiplyTile(double[] packedA,
+                              int ia,
+                              double[] packedB,
+                              int ib,
+                              int kc,
+                              int row,
+                              int rows,
+                              int column,
+                              int columns) {
+      double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+      double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+      double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+      double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+      int end = ia + kc * MR;
+      while (ia < end) {
+        double a0 = packedA[ia];
+        double a1 = packedA[ia + 1];
+        double a2 = packedA[ia + 2];
+        double a3 = packedA[ia + 3];
+        double b0 = packedB[ib];
+        double b1 = packedB[ib + 1];
+        double b2 = packedB[ib + 2];
+        double b3 = packedB[ib + 3];
+
+        c00 += a0 * b0;
+        c01 += a0 * b1;
+        c02 += a0 * b2;
+        c03 += a0 * b3;
+        c10 += a1 * b0;
+        c11 += a1 * b1;
+        c12 += a1 * b2;
+        c13 += a1 * b3;
+        c20 += a2 * b0;
+        c21 += a2 * b1;
+        c22 += a2 * b2;
+        c23 += a2 * b3;
+        c30 += a3 * b0;
+        c31 += a3 * b1;
+        c32 += a3 * b2;
+        c33 += a3 * b3;
+
+        ia += MR;
+        ib += NR;
+      }
+
+      int ic = row * n + column;
+      if (rows == MR && columns == NR) {
+        addRow(ic, c00, c01, c02, c03);
+        addRow(ic + n, c10, c11, c12, c13);
+        addRow(ic + 2 * n, c20, c21, c22, c23);
+        addRow(ic + 3 * n, c30, c31, c32, c33);
+      }
+      else {
+        addRow(ic, columns, c00, c01, c02, c03);
+        if (rows > 1) {
+          addRow(ic + n, columns, c10, c11, c12, c13);
+        }
+        if (rows > 2) {
+          addRow(ic + 2 * n, columns, c20, c21, c22, c23);
+        }
+        if (rows > 3) {
+          addRow(ic + 3 * n, columns, c30, c31, c32, c33);
+        }
+      }
+    }
+
+
+    private void addRow(int ic, double v0, double v1, double v2, double v3) {
+      c[ic] += alpha * v0;
+      c[ic + 1] += alpha * v1;
+      c[ic + 2] += alpha * v2;
+      c[ic + 3] += alpha * v3;
+    }
+
+
+    private void addRow(int ic,
+                        int columns,
+                        double v0,
+                        double v1,
+                        double v2,
+                        double v3) {
+      c[ic] += alpha * v0;
+      if (columns > 1) {
+        c[ic + 1] += alpha * v1;
+      }
+      if (columns > 2) {
+        c[ic + 2] += alpha * v2;
+      }
+      if (columns > 3) {
+        c[ic + 3] += alpha * v3;
+      }
+    }
+  }
+
+
+  /**
+   * Computes a range of rows of C, splitting it over the fork-join pool.
+   */
+  @SuppressWarnings("serial")
+  private static final class RowBlock extends RecursiveAction {
+
+    private final Product product;
+    private final int from;
+    private final int to;
+    private final int rows;
+
+
+    RowBlock(Product product, int from, int to, int rows) {
+      this.product = product;
+      this.from = from;
+      this.to = to;
+      this.rows = rows;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from <= rows) {
+        product.compute(from, to);
+        return;
+      }
+      // split on a block boundary
+      int blocks = (to - from + rows - 1) / rows;
+      int mid = from + blocks / 2 * rows;
+      invokeAll(new RowBlock(product, from, mid, rows),
+                new RowBlock(product, mid, to, rows));
+    }
+  }
+}
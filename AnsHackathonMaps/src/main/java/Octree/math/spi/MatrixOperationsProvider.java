@@ -68,6 +68,13 @@ public class MatrixOperationsProvider {
       b = b.clone();
     }
 
+    // With an empty inner dimension A x B is zero, and the kernels below
+    // would read the first element of the empty A
+    if (k == 0) {
+      scale(c, beta);
+      return;
+    }
+
     // Special case dgemm is used just for multiplying the matrices and storing
     // the result in c. This is the use case for matrix classes using this
     // method to implement their multiply method.
@@ -76,6 +83,8 @@ public class MatrixOperationsProvider {
         multiplySmall(a, b, c, m, n, k);
       }
       else {
+        // multiplyLarge accumulates into c
+        Arrays.fill(c, 0, m * n, 0.0);
         multiplyLarge(a, b, c, m, n, k);
       }
     }
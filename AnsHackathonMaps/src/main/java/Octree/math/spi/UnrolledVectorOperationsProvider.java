@@ -0,0 +1,68 @@
+package Octree.math.spi;
+
+
+/**
+ * Vector operations with reductions split over independent accumulators.
+ * <p>
+ * The JIT compiles the element-wise loops of {@link VectorOperationsProvider}
+ * to SIMD instructions by itself, but it has to keep the additions of a
+ * floating point reduction in order, so a plain dot product waits for every
+ * addition to finish before starting the next. This provider sums
+ * {@value #LANES} interleaved partial sums instead, which keeps the adder
+ * pipeline busy and lets the partial sums map onto vector lanes. The result
+ * may differ from the sequential sum in the last bits.
+ * <p>
+ * The provider is registered as a service, so {@code VectorOperations} picks
+ * it up through its {@link java.util.ServiceLoader}.
+ */
+public class UnrolledVectorOperationsProvider extends VectorOperationsProvider {
+
+  /**
+   * Number of partial sums.
+   */
+  static final int LANES = 8;
+
+
+  @Override
+  public double ddot(double[] x, double[] y) {
+    if (x.length != y.length) {
+      throw new IllegalArgumentException("length of x and y should be equal");
+    }
+    return dot(x, y);
+  }
+
+
+  @Override
+  public double dnrm2(double[] x) {
+    return norm(x, dot(x, x));
+  }
+
+
+  @Override
+  public boolean isAccelerated() {
+    return true;
+  }
+
+
+  private static double dot(double[] x, double[] y) {
+    double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+
+    int length = x.length;
+    int fence = length - length % LANES;
+    int i = 0;
+    for (; i < fence; i += LANES) {
+      s0 += x[i] * y[i];
+      s1 += x[i + 1] * y[i + 1];
+      s2 += x[i + 2] * y[i + 2];
+      s3 += x[i + 3] * y[i + 3];
+      s4 += x[i + 4] * y[i + 4];
+      s5 += x[i + 5] * y[i + 5];
+      s6 += x[i + 6] * y[i + 6];
+      s7 += x[i + 7] * y[i + 7];
+    }
+    for (; i < length; i++) {
+      s0 += x[i] * y[i];
+    }
+    return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+  }
+}
@@ -45,7 +45,120 @@ public class VectorOperationsProvider {
       throw new IllegalArgumentException("length of x and y should be equal");
     }
     for (int i = 0; i < x.length; i++) {
-      y[i] = a * x[i];
+      y[i] += a * x[i];
     }
   }
+
+
+  /**
+   * Calculates <i>Y = &alpha; &times; X</i>
+   * @param alpha value
+   * @param x input vector X
+   * @param y output vector Y
+   */
+  public void dscal(double alpha, double[] x, double[] y) {
+    if (x.length != y.length) {
+      throw new IllegalArgumentException("length of x and y should be equal");
+    }
+    for (int i = 0; i < x.length; i++) {
+      y[i] = alpha * x[i];
+    }
+  }
+
+
+  /**
+   * Calculates <i>Z = X + Y</i>
+   * @param x input vector X
+   * @param y input vector Y
+   * @param z output vector Z
+   */
+  public void dadd(double[] x, double[] y, double[] z) {
+    if (x.length != y.length || x.length != z.length) {
+      throw new IllegalArgumentException("length of x, y and z should be equal");
+    }
+    for (int i = 0; i < x.length; i++) {
+      z[i] = x[i] + y[i];
+    }
+  }
+
+
+  /**
+   * Calculates <i>Z = X - Y</i>
+   * @param x input vector X
+   * @param y input vector Y
+   * @param z output vector Z
+   */
+  public void dsub(double[] x, double[] y, double[] z) {
+    if (x.length != y.length || x.length != z.length) {
+      throw new IllegalArgumentException("length of x, y and z should be equal");
+    }
+    for (int i = 0; i < x.length; i++) {
+      z[i] = x[i] - y[i];
+    }
+  }
+
+
+  /**
+   * Calculates the dot product <i>X &middot; Y</i>
+   * @param x vector X
+   * @param y vector Y
+   * @return dot product
+   */
+  public double ddot(double[] x, double[] y) {
+    if (x.length != y.length) {
+      throw new IllegalArgumentException("length of x and y should be equal");
+    }
+    double dot = 0.0;
+    for (int i = 0; i < x.length; i++) {
+      dot += x[i] * y[i];
+    }
+    return dot;
+  }
+
+
+  /**
+   * Calculates the euclidean norm <i>||X||</i>
+   * @param x vector X
+   * @return euclidean norm
+   */
+  public double dnrm2(double[] x) {
+    return norm(x, ddot(x, x));
+  }
+
+
+  /**
+   * Returns true if the provider is accelerated.
+   * @return true if accelerated
+   */
+  public boolean isAccelerated() {
+    return false;
+  }
+
+
+  /**
+   * Completes a norm from the sum of squares of the elements. If the sum
+   * overflowed or underflowed, the norm is computed again with the elements
+   * scaled by the largest magnitude.
+   * @param x vector X
+   * @param sumOfSquares sum of the squares of the elements of X
+   * @return euclidean norm
+   */
+  protected static double norm(double[] x, double sumOfSquares) {
+    if (sumOfSquares >= Double.MIN_NORMAL && sumOfSquares < Double.POSITIVE_INFINITY) {
+      return Math.sqrt(sumOfSquares);
+    }
+    double max = 0.0;
+    for (int i = 0; i < x.length; i++) {
+      max = Math.max(max, Math.abs(x[i]));
+    }
+    if (max == 0.0 || Double.isNaN(max) || Double.isInfinite(max)) {
+      return max;
+    }
+    double scaled = 0.0;
+    for (int i = 0; i < x.length; i++) {
+      double value = x[i] / max;
+      scaled += value * value;
+    }
+    return max * Math.sqrt(scaled);
+  }
 }
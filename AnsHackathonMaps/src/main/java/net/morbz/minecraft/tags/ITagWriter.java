@@ -0,0 +1,14 @@
+package net.morbz.minecraft.tags;
+
+/**
+ * An interface for all classes that can write their NBT representation directly to a NBTWriter, 
+ * without creating Tag objects.
+ */
+public interface ITagWriter {
+	/**
+	 * Writes the NBT representation of this class as a single named tag.
+	 * 
+	 * @param writer The writer
+	 */
+	public void writeTag(NBTWriter writer);
+}
@@ -0,0 +1,372 @@
+package net.morbz.minecraft.tags;
+
+import java.io.IOException;
+
+import org.jnbt.NBTConstants;
+
+/**
+ * A lazy, cursor based NBT reader that works on a byte array. Unlike NBTInputStream it does not 
+ * build Tag objects: the caller steps through the tags of a compound with nextTag(), matches 
+ * names with isName() and either reads, enters or skips each tag. Byte arrays can be used in 
+ * place through their offset in the buffer. One instance can be reset and reused for any number 
+ * of buffers.
+ */
+public class NBTReader {
+	private static final int TYPE_LONG_ARRAY = 12;
+	
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	
+	// The current tag
+	private int type;
+	private int nameOffset;
+	private int nameLength;
+	
+	// The element type of the last list entered
+	private int listType;
+	
+	/**
+	 * Sets the data to read. The cursor is placed before the root tag.
+	 * 
+	 * @param buffer The buffer that holds uncompressed NBT data
+	 * @param offset The start of the data
+	 * @param length The length of the data
+	 */
+	public void reset(byte[] buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.position = offset;
+		this.limit = offset + length;
+		this.type = NBTConstants.TYPE_END;
+		this.nameLength = 0;
+	}
+	
+	/**
+	 * @return The buffer that is being read
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+	
+	/**
+	 * Reads the header of the next tag in the current compound. When TYPE_END is returned the 
+	 * compound has been left.
+	 * 
+	 * @return The type of the tag
+	 * @throws IOException When the data ends unexpectedly
+	 */
+	public int nextTag() throws IOException {
+		type = readUnsignedByte();
+		if(type == NBTConstants.TYPE_END) {
+			nameLength = 0;
+		} else {
+			nameLength = readUnsignedShort();
+			nameOffset = position;
+			advance(nameLength);
+		}
+		return type;
+	}
+	
+	/**
+	 * Makes the next list element the current tag. It has no name and the type of the list.
+	 * 
+	 * @return The type of the element
+	 */
+	public int nextListElement() {
+		type = listType;
+		nameLength = 0;
+		return type;
+	}
+	
+	/**
+	 * @return The type of the current tag
+	 */
+	public int getType() {
+		return type;
+	}
+	
+	/**
+	 * Compares the name of the current tag without decoding it.
+	 * 
+	 * @param name The name to compare, which must only contain ASCII characters
+	 * @return True if the name of the current tag is equal
+	 */
+	public boolean isName(String name) {
+		if(name.length() != nameLength) {
+			return false;
+		}
+		for(int i = 0; i < nameLength; i++) {
+			if(buffer[nameOffset + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The decoded name of the current tag
+	 */
+	public String getName() {
+		return new String(buffer, nameOffset, nameLength, NBTConstants.CHARSET);
+	}
+	
+	/**
+	 * Enters the current compound tag. Its children are read with nextTag() until it returns 
+	 * TYPE_END.
+	 * 
+	 * @throws IOException When the current tag is not a compound
+	 */
+	public void enterCompound() throws IOException {
+		expect(NBTConstants.TYPE_COMPOUND);
+	}
+	
+	/**
+	 * Enters the current list tag. Its elements are read by calling nextListElement() once per 
+	 * element.
+	 * 
+	 * @return The number of elements
+	 * @throws IOException When the current tag is not a list
+	 */
+	public int enterList() throws IOException {
+		expect(NBTConstants.TYPE_LIST);
+		listType = readUnsignedByte();
+		return readLength();
+	}
+	
+	/**
+	 * @return The element type of the last list that was entered
+	 */
+	public int getListType() {
+		return listType;
+	}
+	
+	/**
+	 * Reads the payload of the current byte tag.
+	 * 
+	 * @return The value
+	 * @throws IOException When the current tag is not a byte
+	 */
+	public byte readByte() throws IOException {
+		expect(NBTConstants.TYPE_BYTE);
+		return (byte)readUnsignedByte();
+	}
+	
+	/**
+	 * Reads the payload of the current int tag.
+	 * 
+	 * @return The value
+	 * @throws IOException When the current tag is not an int
+	 */
+	public int readIntTag() throws IOException {
+		expect(NBTConstants.TYPE_INT);
+		return readInt();
+	}
+	
+	/**
+	 * Reads the payload of the current long tag.
+	 * 
+	 * @return The value
+	 * @throws IOException When the current tag is not a long
+	 */
+	public long readLongTag() throws IOException {
+		expect(NBTConstants.TYPE_LONG);
+		long high = readInt() & 0xFFFFFFFFL;
+		return (high << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Reads the length of the current byte array tag and skips its data. The data stays 
+	 * accessible in the buffer at the returned offset.
+	 * 
+	 * @param length Receives the array length at index 0. Can be 'null'
+	 * @return The offset of the array data in the buffer
+	 * @throws IOException When the current tag is not a byte array
+	 */
+	public int readByteArrayOffset(int[] length) throws IOException {
+		expect(NBTConstants.TYPE_BYTE_ARRAY);
+		int size = readLength();
+		int offset = position;
+		advance(size);
+		if(length != null) {
+			length[0] = size;
+		}
+		return offset;
+	}
+	
+	/**
+	 * Copies the data of the current byte array tag.
+	 * 
+	 * @param dst The destination, must be large enough for the array
+	 * @return The array length
+	 * @throws IOException When the current tag is not a byte array
+	 */
+	public int readByteArray(byte[] dst) throws IOException {
+		expect(NBTConstants.TYPE_BYTE_ARRAY);
+		int size = readLength();
+		int offset = position;
+		advance(size);
+		System.arraycopy(buffer, offset, dst, 0, size);
+		return size;
+	}
+	
+	/**
+	 * Reads the current string tag.
+	 * 
+	 * @return The value
+	 * @throws IOException When the current tag is not a string
+	 */
+	public String readString() throws IOException {
+		expect(NBTConstants.TYPE_STRING);
+		int size = readUnsignedShort();
+		int offset = position;
+		advance(size);
+		return new String(buffer, offset, size, NBTConstants.CHARSET);
+	}
+	
+	/**
+	 * Skips the payload of the current tag, including all children.
+	 * 
+	 * @throws IOException When the data is malformed
+	 */
+	public void skip() throws IOException {
+		skipPayload(type);
+	}
+	
+	/**
+	 * Skips the rest of the current compound, up to and including its end tag.
+	 * 
+	 * @throws IOException When the data is malformed
+	 */
+	public void skipRest() throws IOException {
+		while(nextTag() != NBTConstants.TYPE_END) {
+			skip();
+		}
+	}
+	
+	private void skipPayload(int type) throws IOException {
+		switch(type) {
+			case NBTConstants.TYPE_END:
+				break;
+			case NBTConstants.TYPE_BYTE:
+				advance(1);
+				break;
+			case NBTConstants.TYPE_SHORT:
+				advance(2);
+				break;
+			case NBTConstants.TYPE_INT:
+			case NBTConstants.TYPE_FLOAT:
+				advance(4);
+				break;
+			case NBTConstants.TYPE_LONG:
+			case NBTConstants.TYPE_DOUBLE:
+				advance(8);
+				break;
+			case NBTConstants.TYPE_BYTE_ARRAY:
+				advance(readLength());
+				break;
+			case NBTConstants.TYPE_STRING:
+				advance(readUnsignedShort());
+				break;
+			case NBTConstants.TYPE_LIST:
+				int elementType = readUnsignedByte();
+				int size = readLength();
+				int elementSize = fixedSize(elementType);
+				if(elementSize >= 0) {
+					advance((long)size * elementSize);
+				} else {
+					for(int i = 0; i < size; i++) {
+						skipPayload(elementType);
+					}
+				}
+				break;
+			case NBTConstants.TYPE_COMPOUND:
+				while(true) {
+					int childType = readUnsignedByte();
+					if(childType == NBTConstants.TYPE_END) {
+						break;
+					}
+					advance(readUnsignedShort());
+					skipPayload(childType);
+				}
+				break;
+			case NBTConstants.TYPE_INT_ARRAY:
+				advance(readLength() * 4L);
+				break;
+			case TYPE_LONG_ARRAY:
+				advance(readLength() * 8L);
+				break;
+			default:
+				throw new IOException("Invalid tag type: " + type);
+		}
+		
+		// The payload has been consumed
+		this.type = NBTConstants.TYPE_END;
+	}
+	
+	private static int fixedSize(int type) {
+		switch(type) {
+			case NBTConstants.TYPE_END:
+				return 0;
+			case NBTConstants.TYPE_BYTE:
+				return 1;
+			case NBTConstants.TYPE_SHORT:
+				return 2;
+			case NBTConstants.TYPE_INT:
+			case NBTConstants.TYPE_FLOAT:
+				return 4;
+			case NBTConstants.TYPE_LONG:
+			case NBTConstants.TYPE_DOUBLE:
+				return 8;
+			default:
+				return -1;
+		}
+	}
+	
+	private void expect(int expected) throws IOException {
+		if(type != expected) {
+			throw new IOException("Expected tag type " + expected + " but was " + type);
+		}
+		type = NBTConstants.TYPE_END;
+	}
+	
+	private int readUnsignedByte() throws IOException {
+		if(position >= limit) {
+			throw new IOException("Unexpected end of NBT data");
+		}
+		return buffer[position++] & 0xFF;
+	}
+	
+	private int readUnsignedShort() throws IOException {
+		advance(2);
+		return ((buffer[position - 2] & 0xFF) << 8) | (buffer[position - 1] & 0xFF);
+	}
+	
+	private int readInt() throws IOException {
+		advance(4);
+		int p = position - 4;
+		return ((buffer[p] & 0xFF) << 24) | ((buffer[p + 1] & 0xFF) << 16) 
+			| ((buffer[p + 2] & 0xFF) << 8) | (buffer[p + 3] & 0xFF);
+	}
+	
+	/**
+	 * Reads the length of an array or list, which must not be negative.
+	 */
+	private int readLength() throws IOException {
+		int length = readInt();
+		if(length < 0) {
+			throw new IOException("Negative array or list length: " + length);
+		}
+		return length;
+	}
+	
+	/**
+	 * Moves the cursor forward. The byte count is a long so that the sizes of large arrays can be 
+	 * checked without overflowing.
+	 */
+	private void advance(long bytes) throws IOException {
+		if(bytes < 0 || bytes > limit - position) {
+			throw new IOException("Unexpected end of NBT data");
+		}
+		position += (int)bytes;
+	}
+}
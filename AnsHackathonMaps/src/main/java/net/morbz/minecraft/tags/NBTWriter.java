@@ -0,0 +1,321 @@
+package net.morbz.minecraft.tags;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.jnbt.NBTConstants;
+
+/**
+ * A streaming NBT writer. Tags are encoded straight into a growable byte buffer without building 
+ * a tree of Tag objects first. The buffer is kept between uses, so one instance can encode any 
+ * number of chunks without producing garbage once it has grown to the largest chunk size.
+ */
+public class NBTWriter {
+	private static final int DEFAULT_CAPACITY = 64 * 1024;
+	private static final int MAX_DEPTH = 512;
+	
+	private byte[] buffer;
+	private int count = 0;
+	
+	// Remaining elements of each open list, -1 for a compound
+	private int[] open = new int[MAX_DEPTH];
+	private int depth = 0;
+	
+	/**
+	 * Creates a new instance with the default initial capacity.
+	 */
+	public NBTWriter() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param capacity The initial buffer capacity in bytes
+	 */
+	public NBTWriter(int capacity) {
+		buffer = new byte[Math.max(capacity, 16)];
+	}
+	
+	/**
+	 * Discards everything that has been written. The buffer is kept for reuse.
+	 */
+	public void reset() {
+		count = 0;
+		depth = 0;
+	}
+	
+	/**
+	 * @return The number of bytes written
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Returns the internal buffer. Only the first size() bytes are valid and the array may be 
+	 * replaced by a later write.
+	 * 
+	 * @return The buffer
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+	
+	/**
+	 * Writes the encoded bytes to an output stream.
+	 * 
+	 * @param out The output stream
+	 * @throws IOException When writing fails
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, count);
+	}
+	
+	/**
+	 * Starts a compound tag. When the writer is inside a list the name is ignored and only the 
+	 * payload is written. Must be closed with endCompound().
+	 * 
+	 * @param name The tag name
+	 */
+	public void beginCompound(String name) {
+		header(NBTConstants.TYPE_COMPOUND, name);
+		push(-1);
+	}
+	
+	/**
+	 * Ends the current compound tag.
+	 */
+	public void endCompound() {
+		if(depth == 0 || open[depth - 1] != -1) {
+			throw new IllegalStateException("No open compound");
+		}
+		depth--;
+		ensure(1);
+		buffer[count++] = NBTConstants.TYPE_END;
+	}
+	
+	/**
+	 * Starts a list tag. Exactly 'size' elements of the given type have to follow before 
+	 * endList() is called.
+	 * 
+	 * @param name The tag name
+	 * @param type The element type, one of the NBTConstants.TYPE_* values
+	 * @param size The number of elements
+	 */
+	public void beginList(String name, int type, int size) {
+		header(NBTConstants.TYPE_LIST, name);
+		ensure(5);
+		buffer[count++] = (byte)type;
+		putInt(size);
+		push(size);
+	}
+	
+	/**
+	 * Ends the current list tag.
+	 */
+	public void endList() {
+		if(depth == 0 || open[depth - 1] < 0) {
+			throw new IllegalStateException("No open list");
+		}
+		if(open[depth - 1] != 0) {
+			throw new IllegalStateException("List is missing " + open[depth - 1] + " elements");
+		}
+		depth--;
+	}
+	
+	/**
+	 * Writes a byte tag.
+	 * 
+	 * @param name The tag name
+	 * @param value The value
+	 */
+	public void writeByte(String name, byte value) {
+		header(NBTConstants.TYPE_BYTE, name);
+		ensure(1);
+		buffer[count++] = value;
+	}
+	
+	/**
+	 * Writes a short tag.
+	 * 
+	 * @param name The tag name
+	 * @param value The value
+	 */
+	public void writeShort(String name, short value) {
+		header(NBTConstants.TYPE_SHORT, name);
+		ensure(2);
+		putShort(value);
+	}
+	
+	/**
+	 * Writes an int tag.
+	 * 
+	 * @param name The tag name
+	 * @param value The value
+	 */
+	public void writeInt(String name, int value) {
+		header(NBTConstants.TYPE_INT, name);
+		ensure(4);
+		putInt(value);
+	}
+	
+	/**
+	 * Writes a long tag.
+	 * 
+	 * @param name The tag name
+	 * @param value The value
+	 */
+	public void writeLong(String name, long value) {
+		header(NBTConstants.TYPE_LONG, name);
+		ensure(8);
+		putInt((int)(value >>> 32));
+		putInt((int)value);
+	}
+	
+	/**
+	 * Writes a byte array tag.
+	 * 
+	 * @param name The tag name
+	 * @param bytes The value
+	 */
+	public void writeByteArray(String name, byte[] bytes) {
+		header(NBTConstants.TYPE_BYTE_ARRAY, name);
+		ensure(4 + bytes.length);
+		putInt(bytes.length);
+		System.arraycopy(bytes, 0, buffer, count, bytes.length);
+		count += bytes.length;
+	}
+	
+	/**
+	 * Writes a byte array tag that only contains zeros without needing a source array.
+	 * 
+	 * @param name The tag name
+	 * @param length The array length
+	 */
+	public void writeZeroByteArray(String name, int length) {
+		header(NBTConstants.TYPE_BYTE_ARRAY, name);
+		ensure(4 + length);
+		putInt(length);
+		Arrays.fill(buffer, count, count + length, (byte)0);
+		count += length;
+	}
+	
+	/**
+	 * Writes an int array tag.
+	 * 
+	 * @param name The tag name
+	 * @param ints The value
+	 */
+	public void writeIntArray(String name, int[] ints) {
+		beginIntArray(name, ints.length);
+		for(int i = 0; i < ints.length; i++) {
+			putInt(ints[i]);
+		}
+	}
+	
+	/**
+	 * Starts an int array tag. The given number of values have to be written with 
+	 * writeIntArrayValue() directly afterwards.
+	 * 
+	 * @param name The tag name
+	 * @param length The array length
+	 */
+	public void beginIntArray(String name, int length) {
+		header(NBTConstants.TYPE_INT_ARRAY, name);
+		ensure(4 + length * 4);
+		putInt(length);
+	}
+	
+	/**
+	 * Writes a single value of an int array started with beginIntArray().
+	 * 
+	 * @param value The value
+	 */
+	public void writeIntArrayValue(int value) {
+		ensure(4);
+		putInt(value);
+	}
+	
+	/**
+	 * Writes a string tag.
+	 * 
+	 * @param name The tag name
+	 * @param value The value
+	 */
+	public void writeString(String name, String value) {
+		header(NBTConstants.TYPE_STRING, name);
+		putString(value);
+	}
+	
+	/**
+	 * Writes the type and name of a tag, or counts down the open list if the writer is inside a 
+	 * list.
+	 */
+	private void header(int type, String name) {
+		if(depth > 0 && open[depth - 1] >= 0) {
+			// List element, payload only
+			if(open[depth - 1] == 0) {
+				throw new IllegalStateException("List is already full");
+			}
+			open[depth - 1]--;
+			return;
+		}
+		ensure(1);
+		buffer[count++] = (byte)type;
+		putString(name);
+	}
+	
+	private void push(int remaining) {
+		if(depth == MAX_DEPTH) {
+			throw new IllegalStateException("Maximum nesting depth exceeded");
+		}
+		open[depth++] = remaining;
+	}
+	
+	private void putString(String value) {
+		// Fast path for ASCII, which covers all tag names used by Minecraft
+		int length = value.length();
+		boolean ascii = true;
+		for(int i = 0; i < length; i++) {
+			if(value.charAt(i) >= 0x80) {
+				ascii = false;
+				break;
+			}
+		}
+		
+		if(ascii) {
+			ensure(2 + length);
+			putShort((short)length);
+			for(int i = 0; i < length; i++) {
+				buffer[count++] = (byte)value.charAt(i);
+			}
+		} else {
+			byte[] bytes = value.getBytes(NBTConstants.CHARSET);
+			ensure(2 + bytes.length);
+			putShort((short)bytes.length);
+			System.arraycopy(bytes, 0, buffer, count, bytes.length);
+			count += bytes.length;
+		}
+	}
+	
+	private void putShort(short value) {
+		buffer[count++] = (byte)(value >>> 8);
+		buffer[count++] = (byte)value;
+	}
+	
+	private void putInt(int value) {
+		buffer[count++] = (byte)(value >>> 24);
+		buffer[count++] = (byte)(value >>> 16);
+		buffer[count++] = (byte)(value >>> 8);
+		buffer[count++] = (byte)value;
+	}
+	
+	private void ensure(int bytes) {
+		if(count + bytes > buffer.length) {
+			int capacity = Math.max(buffer.length * 2, count + bytes);
+			buffer = Arrays.copyOf(buffer, capacity);
+		}
+	}
+}
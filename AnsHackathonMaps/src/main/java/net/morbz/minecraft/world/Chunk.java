@@ -29,13 +29,16 @@ import net.morbz.minecraft.blocks.IBlock;
 import net.morbz.minecraft.blocks.Material;
 import net.morbz.minecraft.tags.CompoundTagFactory;
 import net.morbz.minecraft.tags.ITagProvider;
+import net.morbz.minecraft.tags.ITagWriter;
 import net.morbz.minecraft.tags.ListTagFactory;
+import net.morbz.minecraft.tags.NBTWriter;
 
 import org.jnbt.ByteTag;
 import org.jnbt.CompoundTag;
 import org.jnbt.IntArrayTag;
 import org.jnbt.IntTag;
 import org.jnbt.LongTag;
+import org.jnbt.NBTConstants;
 import org.jnbt.Tag;
 
 /**
@@ -44,7 +47,7 @@ import org.jnbt.Tag;
  * 
  * @author MorbZ
  */
-public class Chunk implements ITagProvider, IBlockContainer {
+public class Chunk implements ITagProvider, ITagWriter, IBlockContainer {
 	/**
 	 * Sections per chunk
 	 */
@@ -125,6 +128,27 @@ public class Chunk implements ITagProvider, IBlockContainer {
 		section.setBlock(x, blockY, z, block);
 	}
 	
+	/**
+	 * Fills a vertical column of blocks.
+	 * 
+	 * @param x The X-coordinate within the chunk
+	 * @param z The Z-coordinate within the chunk
+	 * @param minY The lowest Y-coordinate (inclusive)
+	 * @param maxY The highest Y-coordinate (inclusive)
+	 * @param block The block
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, IBlock block) {
+		// Fill section by section
+		int y = minY;
+		while(y <= maxY) {
+			Section section = getSection(y, true);
+			int sectionEnd = Math.min(maxY, (y / Section.SECTION_HEIGHT + 1) * Section.SECTION_HEIGHT - 1);
+			section.fillColumn(x, z, y % Section.SECTION_HEIGHT, sectionEnd % Section.SECTION_HEIGHT, 
+					block);
+			y = sectionEnd + 1;
+		}
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -305,4 +329,49 @@ public class Chunk implements ITagProvider, IBlockContainer {
 		factory3.set(factory2.getTag());
 		return factory3.getTag();
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeTag(NBTWriter writer) {
+		// Count sections with blocks, the list size is written up front
+		int sectionCount = 0;
+		for(Section section : sections) {
+			if(section != null && section.getBlockCount() > 0) {
+				sectionCount++;
+			}
+		}
+		
+		writer.beginCompound("");
+		writer.beginCompound("Level");
+		
+		// Write section tags
+		writer.beginList("Sections", NBTConstants.TYPE_COMPOUND, sectionCount);
+		for(Section section : sections) {
+			if(section != null && section.getBlockCount() > 0) {
+				section.writeTag(writer);
+			}
+		}
+		writer.endList();
+		
+		// Write level tags
+		writer.writeInt("xPos", xPos);
+		writer.writeInt("zPos", zPos);
+		writer.writeLong("LastUpdate", System.currentTimeMillis());
+		writer.writeByte("V", (byte)1);
+		writer.writeByte("LightPopulated", (byte)1);
+		writer.writeByte("TerrainPopulated", (byte)1);
+		
+		// Write height map
+		writer.beginIntArray("HeightMap", BLOCKS_PER_CHUNK_SIDE * BLOCKS_PER_CHUNK_SIDE);
+		for(int z = 0; z < BLOCKS_PER_CHUNK_SIDE; z++) {
+			for(int x = 0; x < BLOCKS_PER_CHUNK_SIDE; x++) {
+				writer.writeIntArrayValue(heightMap[x][z]);
+			}
+		}
+		
+		writer.endCompound();
+		writer.endCompound();
+	}
 }
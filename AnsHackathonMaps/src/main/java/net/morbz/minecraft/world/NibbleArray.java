@@ -52,11 +52,12 @@ public class NibbleArray {
 	 * @param value The value of the element
 	 */
 	public void set(int index, byte value) {
+		// Replace the nibble, the other half of the byte is kept
 		byte data = bytes[index / 2];
 		if(index % 2 == 0) {
-			data |= (byte)(value & 0xF);
+			data = (byte)((data & 0xF0) | (value & 0xF));
 		} else {
-			data |= (byte)((value & 0xF) << 4);
+			data = (byte)((data & 0x0F) | ((value & 0xF) << 4));
 		}
 		bytes[index / 2] = data;
 	}
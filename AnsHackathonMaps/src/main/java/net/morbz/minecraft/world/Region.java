@@ -24,13 +24,15 @@ package net.morbz.minecraft.world;
 * SOFTWARE.
 */
 
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 
 import net.morbz.minecraft.blocks.IBlock;
+import net.morbz.minecraft.tags.NBTWriter;
+import net.unknown.ChunkCompression;
 import net.unknown.RegionFile;
-
-import org.jnbt.NBTOutputStream;
+import net.unknown.RegionFileWriter;
 
 /** 
  * Defines a region. It consists of up to 32x32 chunks in XZ-dimension.
@@ -101,6 +103,21 @@ public class Region implements IBlockContainer {
 		chunk.setBlock(blockX, y, blockZ, block);
 	}
 	
+	/**
+	 * Fills a vertical column of blocks.
+	 * 
+	 * @param x The X-coordinate within the region
+	 * @param z The Z-coordinate within the region
+	 * @param minY The lowest Y-coordinate (inclusive)
+	 * @param maxY The highest Y-coordinate (inclusive)
+	 * @param block The block
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, IBlock block) {
+		Chunk chunk = getChunk(x, z, true);
+		chunk.fillColumn(x % Chunk.BLOCKS_PER_CHUNK_SIDE, z % Chunk.BLOCKS_PER_CHUNK_SIDE, minY, maxY, 
+				block);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -184,6 +201,17 @@ public class Region implements IBlockContainer {
 		return 0;
 	}
 	
+	/**
+	 * Returns the chunk at the given chunk position.
+	 * 
+	 * @param chunkX The X-coordinate of the chunk within the region
+	 * @param chunkZ The Z-coordinate of the chunk within the region
+	 * @return The chunk or 'null' if it has not been created
+	 */
+	public Chunk getChunkAt(int chunkX, int chunkZ) {
+		return chunks[chunkX][chunkZ];
+	}
+	
 	private Chunk getChunk(int x, int z, boolean create) {
 		// Make chunk coords
 		int chunkX = x / Chunk.BLOCKS_PER_CHUNK_SIDE;
@@ -213,25 +241,75 @@ public class Region implements IBlockContainer {
 	}
 	
 	/**
-	 * Writes this region to a file.
+	 * Writes this region to a new file. An existing file at the given path will be overwritten.
 	 * 
 	 * @param path The path to write the file
 	 * @throws IOException 
 	 */
 	public void writeToFile(File path) throws IOException {
-		// Write region file
-		RegionFile regionFile = new RegionFile(path);
+		writeToFile(path, ChunkCompression.DEFAULT);
+	}
+	
+	/**
+	 * Writes this region to a new file. An existing file at the given path will be overwritten.
+	 * 
+	 * @param path The path to write the file
+	 * @param compression The compression of the chunk data
+	 * @throws IOException 
+	 */
+	public void writeToFile(File path, ChunkCompression compression) throws IOException {
+		// Write region file, the encode buffer is shared by all chunks
+		RegionFileWriter regionFile = new RegionFileWriter(path, compression);
+		NBTWriter writer = new NBTWriter();
 		try {
 			 for(int x = 0; x < CHUNKS_PER_REGION_SIDE; x++) {
 				for(int z = 0; z < CHUNKS_PER_REGION_SIDE; z++) {
 					Chunk chunk = chunks[x][z];
 					if(chunk != null && chunk.hasBlocks()) {
-						NBTOutputStream out = new NBTOutputStream(regionFile.getChunkDataOutputStream(x, z), false);
+						writer.reset();
+						chunk.writeTag(writer);
+						regionFile.writeChunk(x, z, writer.getBuffer(), writer.size());
+					}
+				}
+			}
+		} finally {
+			regionFile.close();
+		}
+	}
+	
+	/**
+	 * Updates the given chunks in an existing region file, which is created if it doesn't exist. 
+	 * Chunks of the range that have no blocks are removed from the file. All other chunks of the 
+	 * file are left untouched.
+	 * 
+	 * @param path The path of the region file
+	 * @param minChunkX The lowest X-coordinate of the chunks to write within the region
+	 * @param minChunkZ The lowest Z-coordinate of the chunks to write within the region
+	 * @param maxChunkX The highest X-coordinate of the chunks to write within the region
+	 * @param maxChunkZ The highest Z-coordinate of the chunks to write within the region
+	 * @param compression The compression of the chunk data
+	 * @throws IOException 
+	 */
+	public void updateFile(File path, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, 
+			ChunkCompression compression) throws IOException {
+		RegionFile regionFile = new RegionFile(path);
+		regionFile.setCompression(compression);
+		NBTWriter writer = new NBTWriter();
+		try {
+			for(int x = minChunkX; x <= maxChunkX; x++) {
+				for(int z = minChunkZ; z <= maxChunkZ; z++) {
+					Chunk chunk = chunks[x][z];
+					if(chunk != null && chunk.hasBlocks()) {
+						writer.reset();
+						chunk.writeTag(writer);
+						DataOutputStream out = regionFile.getChunkDataOutputStream(x, z);
 						try {
-							out.writeTag(chunks[x][z].getTag());
+							writer.writeTo(out);
 						} finally {
 							out.close();
 						}
+					} else {
+						regionFile.deleteChunk(x, z);
 					}
 				}
 			}
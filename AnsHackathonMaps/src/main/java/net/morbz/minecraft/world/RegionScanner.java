@@ -0,0 +1,145 @@
+package net.morbz.minecraft.world;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.morbz.minecraft.tags.NBTReader;
+import net.unknown.RegionFileReader;
+
+import org.jnbt.NBTConstants;
+
+/**
+ * Reads the block data of existing region files without building Tag objects. The scanner walks 
+ * each chunk with a NBTReader, skips everything except the sections and hands the "Blocks" and 
+ * "Data" arrays of each section to a visitor in place. A scanner reuses its buffers for every 
+ * chunk and file, so it should be kept for the whole scan. It is not thread-safe; use one scanner 
+ * per thread to scan several files in parallel.
+ */
+public class RegionScanner {
+	/**
+	 * Receives the sections found by the scanner.
+	 */
+	public interface SectionVisitor {
+		/**
+		 * Called for every section that has block data. The arrays are only valid during the call.
+		 * 
+		 * @param chunkX The X-coordinate of the chunk within the region
+		 * @param chunkZ The Z-coordinate of the chunk within the region
+		 * @param sectionY The Y-position of the section within the chunk
+		 * @param buffer The buffer that holds the arrays
+		 * @param blocksOffset The offset of the block IDs in the buffer (Section.BLOCKS_PER_SECTION 
+		 * bytes)
+		 * @param dataOffset The offset of the block data nibbles in the buffer or -1 if the section
+		 * has no block data
+		 */
+		public void visitSection(int chunkX, int chunkZ, int sectionY, byte[] buffer, int blocksOffset, 
+				int dataOffset);
+	}
+	
+	private NBTReader reader = new NBTReader();
+	private int[] length = new int[1];
+	
+	/**
+	 * Scans all chunks of a region file.
+	 * 
+	 * @param file The region file
+	 * @param visitor The visitor that receives the sections
+	 * @return The number of chunks that were read
+	 * @throws IOException When the file can't be read or is malformed
+	 */
+	public int scan(File file, SectionVisitor visitor) throws IOException {
+		int chunkCount = 0;
+		RegionFileReader regionFile = new RegionFileReader(file);
+		try {
+			for(int z = 0; z < Region.CHUNKS_PER_REGION_SIDE; z++) {
+				for(int x = 0; x < Region.CHUNKS_PER_REGION_SIDE; x++) {
+					if(regionFile.readChunk(x, z)) {
+						scanChunk(x, z, regionFile.getBuffer(), regionFile.getLength(), visitor);
+						chunkCount++;
+					}
+				}
+			}
+		} finally {
+			regionFile.close();
+		}
+		return chunkCount;
+	}
+	
+	/**
+	 * Scans the uncompressed NBT data of a single chunk.
+	 * 
+	 * @param chunkX The X-coordinate of the chunk within the region
+	 * @param chunkZ The Z-coordinate of the chunk within the region
+	 * @param buffer The NBT data
+	 * @param dataLength The length of the NBT data
+	 * @param visitor The visitor that receives the sections
+	 * @throws IOException When the data is malformed
+	 */
+	public void scanChunk(int chunkX, int chunkZ, byte[] buffer, int dataLength, SectionVisitor visitor) 
+			throws IOException {
+		reader.reset(buffer, 0, dataLength);
+		
+		// Root compound
+		reader.nextTag();
+		reader.enterCompound();
+		while(reader.nextTag() != NBTConstants.TYPE_END) {
+			if(reader.getType() != NBTConstants.TYPE_COMPOUND || !reader.isName("Level")) {
+				reader.skip();
+				continue;
+			}
+			
+			// Level compound
+			reader.enterCompound();
+			while(reader.nextTag() != NBTConstants.TYPE_END) {
+				if(reader.getType() == NBTConstants.TYPE_LIST && reader.isName("Sections")) {
+					scanSections(chunkX, chunkZ, visitor);
+				} else {
+					reader.skip();
+				}
+			}
+		}
+	}
+	
+	private void scanSections(int chunkX, int chunkZ, SectionVisitor visitor) throws IOException {
+		int size = reader.enterList();
+		if(reader.getListType() != NBTConstants.TYPE_COMPOUND) {
+			// Empty lists may have any element type
+			for(int i = 0; i < size; i++) {
+				reader.nextListElement();
+				reader.skip();
+			}
+			return;
+		}
+		
+		for(int i = 0; i < size; i++) {
+			reader.nextListElement();
+			reader.enterCompound();
+			
+			// Tags can be in any order, so collect them first
+			int y = -1;
+			int blocksOffset = -1;
+			int dataOffset = -1;
+			while(reader.nextTag() != NBTConstants.TYPE_END) {
+				if(reader.getType() == NBTConstants.TYPE_BYTE && reader.isName("Y")) {
+					y = reader.readByte();
+				} else if(reader.getType() == NBTConstants.TYPE_BYTE_ARRAY && reader.isName("Blocks")) {
+					blocksOffset = reader.readByteArrayOffset(length);
+					if(length[0] != Section.BLOCKS_PER_SECTION) {
+						throw new IOException("Invalid section size: " + length[0]);
+					}
+				} else if(reader.getType() == NBTConstants.TYPE_BYTE_ARRAY && reader.isName("Data")) {
+					dataOffset = reader.readByteArrayOffset(length);
+					if(length[0] != Section.BLOCKS_PER_SECTION / 2) {
+						dataOffset = -1;
+					}
+				} else {
+					reader.skip();
+				}
+			}
+			
+			if(y >= 0 && blocksOffset >= 0) {
+				visitor.visitSection(chunkX, chunkZ, y, reader.getBuffer(), blocksOffset, dataOffset);
+			}
+		}
+	}
+}
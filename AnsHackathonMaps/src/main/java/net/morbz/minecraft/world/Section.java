@@ -27,6 +27,8 @@ package net.morbz.minecraft.world;
 import net.morbz.minecraft.blocks.IBlock;
 import net.morbz.minecraft.tags.CompoundTagFactory;
 import net.morbz.minecraft.tags.ITagProvider;
+import net.morbz.minecraft.tags.ITagWriter;
+import net.morbz.minecraft.tags.NBTWriter;
 
 import org.jnbt.ByteArrayTag;
 import org.jnbt.ByteTag;
@@ -37,7 +39,7 @@ import org.jnbt.Tag;
  * 
  * @author MorbZ
  */
-public class Section implements ITagProvider, IBlockContainer {
+public class Section implements ITagProvider, ITagWriter, IBlockContainer {
 	/**
 	 * The height in blocks of a section
 	 */
@@ -114,6 +116,38 @@ public class Section implements ITagProvider, IBlockContainer {
 		}
 	}
 	
+	/**
+	 * Fills a vertical column of blocks. The block is resolved once and written straight into the
+	 * arrays, the blocks of a column are one layer apart.
+	 * 
+	 * @param x The X-coordinate within the section
+	 * @param z The Z-coordinate within the section
+	 * @param minY The lowest Y-coordinate within the section (inclusive)
+	 * @param maxY The highest Y-coordinate within the section (inclusive)
+	 * @param block The block
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, IBlock block) {
+		// Air is stored like in setBlock()
+		byte id = block.getBlockId();
+		byte data = id != 0 ? block.getBlockData() : 0;
+		byte blockTransparency = id != 0 ? (byte)block.getTransparency() : World.DEFAULT_TRANSPARENCY;
+		
+		int layer = Chunk.BLOCKS_PER_CHUNK_SIDE * Chunk.BLOCKS_PER_CHUNK_SIDE;
+		int end = getBlockIndex(x, maxY, z);
+		for(int index = getBlockIndex(x, minY, z); index <= end; index += layer) {
+			// Count non-air blocks
+			if(blockIds[index] == 0 && id != 0) {
+				blockCount++;
+			} else if(blockIds[index] != 0 && id == 0) {
+				blockCount--;
+			}
+			
+			blockIds[index] = id;
+			blockData.set(index, data);
+			transparency[index] = blockTransparency;
+		}
+	}
+	
 	private byte getTransparency(int x, int y, int z) {
 		int index = getBlockIndex(x, y, z);
 		return transparency[index];
@@ -277,4 +311,18 @@ public class Section implements ITagProvider, IBlockContainer {
 		factory.set(new ByteTag("Y", (byte)y));
 		return factory.getTag();
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeTag(NBTWriter writer) {
+		writer.beginCompound("");
+		writer.writeByteArray("Blocks", blockIds);
+		writer.writeByteArray("Data", blockData.getBytes());
+		writer.writeZeroByteArray("BlockLight", BLOCKS_PER_SECTION / 2);
+		writer.writeByteArray("SkyLight", skyLight.getBytes());
+		writer.writeByte("Y", (byte)y);
+		writer.endCompound();
+	}
 }
@@ -33,6 +33,7 @@ import org.jnbt.NBTOutputStream;
 
 import net.morbz.minecraft.blocks.IBlock;
 import net.morbz.minecraft.level.Level;
+import net.unknown.ChunkCompression;
 
 import javax.swing.filechooser.FileSystemView;
 
@@ -57,9 +58,20 @@ public class World implements IBlockContainer {
 	 */
 	public static final byte DEFAULT_SKY_LIGHT = 0xF;
 	
+	/**
+	 * The margin in blocks around the chunks of an updated area that has to be generated as well, 
+	 * see getUpdateClip(). Sky light reaches a block from up to DEFAULT_SKY_LIGHT blocks away, and 
+	 * the extra chunk covers blocks that are placed next to the point they come from, such as 
+	 * tree crowns.
+	 */
+	public static final int UPDATE_MARGIN = Chunk.BLOCKS_PER_CHUNK_SIDE + DEFAULT_SKY_LIGHT;
+	
 	private Map<Point, Region> regions = new HashMap<Point, Region>();
 	private Level level;
 	private DefaultLayers layers;
+	private ChunkCompression compression = ChunkCompression.DEFAULT;
+	private int clipMinX = Integer.MIN_VALUE, clipMinZ = Integer.MIN_VALUE;
+	private int clipMaxX = Integer.MAX_VALUE, clipMaxZ = Integer.MAX_VALUE;
 	
 	/**
 	 * Creates a new instance.
@@ -81,6 +93,59 @@ public class World implements IBlockContainer {
 		this.layers = layers;
 	}
 	
+	/**
+	 * @return The compression of the chunk data in the region files
+	 */
+	public ChunkCompression getCompression() {
+		return compression;
+	}
+	
+	/**
+	 * Sets the compression of the chunk data in the region files. Use FAST while iterating on a 
+	 * map and BEST for maps that will be distributed. The default is DEFAULT.
+	 * 
+	 * @param compression The compression
+	 */
+	public void setCompression(ChunkCompression compression) {
+		this.compression = compression;
+	}
+	
+	/**
+	 * Restricts the world to the given area. Blocks that are set outside of it are ignored. This 
+	 * is used to generate only the part of the world that is needed for update().
+	 * 
+	 * @param minX The lowest X-coordinate
+	 * @param minZ The lowest Z-coordinate
+	 * @param maxX The highest X-coordinate
+	 * @param maxZ The highest Z-coordinate
+	 */
+	public void setClip(int minX, int minZ, int maxX, int maxZ) {
+		clipMinX = minX;
+		clipMinZ = minZ;
+		clipMaxX = maxX;
+		clipMaxZ = maxZ;
+	}
+	
+	/**
+	 * Returns the area that has to be generated before update() can rewrite the given area: all 
+	 * chunks that intersect it, widened by UPDATE_MARGIN. Pass it to setClip() so that nothing 
+	 * outside of it is generated.
+	 * 
+	 * @param minX The lowest X-coordinate of the updated area
+	 * @param minZ The lowest Z-coordinate of the updated area
+	 * @param maxX The highest X-coordinate of the updated area
+	 * @param maxZ The highest Z-coordinate of the updated area
+	 * @return The clip area as {minX, minZ, maxX, maxZ}
+	 */
+	public static int[] getUpdateClip(int minX, int minZ, int maxX, int maxZ) {
+		int size = Chunk.BLOCKS_PER_CHUNK_SIDE;
+		return new int[] {
+			Math.floorDiv(minX, size) * size - UPDATE_MARGIN, 
+			Math.floorDiv(minZ, size) * size - UPDATE_MARGIN, 
+			(Math.floorDiv(maxX, size) + 1) * size - 1 + UPDATE_MARGIN, 
+			(Math.floorDiv(maxZ, size) + 1) * size - 1 + UPDATE_MARGIN};
+	}
+	
 	/**
 	 * Sets a block at the given world position.
 	 * 
@@ -96,6 +161,11 @@ public class World implements IBlockContainer {
 			return;
 		}
 		
+		// Check for clip area
+		if(x < clipMinX || x > clipMaxX || z < clipMinZ || z > clipMaxZ) {
+			return;
+		}
+		
 		// Get region
 		Region region = getRegion(x, z, true);
 		
@@ -105,16 +175,37 @@ public class World implements IBlockContainer {
 		region.setBlock(blockX, y, blockZ, block);
 	}
 	
-	private Region getRegion(int x, int z, boolean create) {
-		// Get region point
-		int regionX = x / Region.BLOCKS_PER_REGION_SIDE;
-		if(x < 0) {
-			regionX--;
+	/**
+	 * Fills a vertical column of blocks. This is much faster than setting the blocks one by one 
+	 * because the region and the chunk are only looked up once.
+	 * 
+	 * @param x The X-coordinate
+	 * @param z The Z-coordinate
+	 * @param minY The lowest Y-coordinate (inclusive)
+	 * @param maxY The highest Y-coordinate (inclusive)
+	 * @param block The block
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, IBlock block) {
+		// Clamp to the valid height
+		minY = Math.max(minY, 0);
+		maxY = Math.min(maxY, MAX_HEIGHT - 1);
+		if(minY > maxY) {
+			return;
 		}
-		int regionZ = z / Region.BLOCKS_PER_REGION_SIDE;
-		if(z < 0) {
-			regionZ--;
+		
+		// Check for clip area
+		if(x < clipMinX || x > clipMaxX || z < clipMinZ || z > clipMaxZ) {
+			return;
 		}
+		
+		Region region = getRegion(x, z, true);
+		region.fillColumn(getRegionCoord(x), getRegionCoord(z), minY, maxY, block);
+	}
+	
+	private Region getRegion(int x, int z, boolean create) {
+		// Get region point
+		int regionX = getRegionIndex(x);
+		int regionZ = getRegionIndex(z);
 		Point point = new Point(regionX, regionZ);
 		
 		// Create region
@@ -126,7 +217,29 @@ public class World implements IBlockContainer {
 		return region;	
 	}
 	
-	private int getRegionCoord(int coord) {
+	/**
+	 * Returns the index of the region that contains a block coordinate, rounding down for 
+	 * negative coordinates as Minecraft does: -512..-1 is region -1, -1024..-513 is region -2.
+	 * <p>
+	 * Versions before the incremental update put the blocks at exact negative multiples of 512 
+	 * (-512, -1024, ...) one region too far, at the start of the region before the right one. 
+	 * Worlds written by those versions have these columns in the wrong place until they are 
+	 * exported again.
+	 * 
+	 * @param coord The X- or Z-coordinate of a block
+	 * @return The X- or Z-index of the region
+	 */
+	static int getRegionIndex(int coord) {
+		return Math.floorDiv(coord, Region.BLOCKS_PER_REGION_SIDE);
+	}
+	
+	/**
+	 * Returns the coordinate of a block within its region, see getRegionIndex().
+	 * 
+	 * @param coord The X- or Z-coordinate of a block
+	 * @return The coordinate within the region, 0 to 511
+	 */
+	static int getRegionCoord(int coord) {
 		int regionCoord = coord % Region.BLOCKS_PER_REGION_SIDE;
 		if(regionCoord < 0) {
 			regionCoord += Region.BLOCKS_PER_REGION_SIDE;
@@ -223,6 +336,101 @@ public class World implements IBlockContainer {
 			nbtOut.close();
 		}
 		
+		// Write regions
+		writeRegions(regionDir);
+		
+		System.out.println("Done");
+		return levelDir;
+	}
+	
+	/**
+	 * Calculates the light and writes all regions as new files into the given directory.
+	 * 
+	 * @param regionDir The region directory of the level
+	 * @throws IOException When file writing fails
+	 */
+	void writeRegions(File regionDir) throws IOException {
+		// Calculate light
+		calculateLight();
+		
+		// Iterate regions
+		for(Map.Entry<Point, Region> entry : regions.entrySet()) {
+			Point point = entry.getKey();
+			Region region = entry.getValue();
+			
+			// Save region
+			File regionFile = new File(regionDir, "r." + point.x + "." + point.y + ".mca");
+			System.out.println("Writing file: " + regionFile);
+			region.writeToFile(regionFile, compression);
+		}
+	}
+	
+	/**
+	 * Updates the chunks within the given area in a world that has been saved before. Only the 
+	 * region files that contain the area are touched and only the chunks that intersect the area 
+	 * are rewritten, everything else keeps its existing data. All blocks within the area returned 
+	 * by getUpdateClip() must have been set, because light is only calculated from the blocks of 
+	 * this world. Blocks that are missing there would be treated as open sky.
+	 * 
+	 * @param levelDir The directory of the saved world, as returned by save()
+	 * @param minX The lowest X-coordinate of the area
+	 * @param minZ The lowest Z-coordinate of the area
+	 * @param maxX The highest X-coordinate of the area
+	 * @param maxZ The highest Z-coordinate of the area
+	 * @throws IOException When file writing fails
+	 * @throws IllegalStateException When the clip area is smaller than getUpdateClip()
+	 */
+	public void update(File levelDir, int minX, int minZ, int maxX, int maxZ) throws IOException {
+		File regionDir = new File(levelDir, "region");
+		if(!dirExists(regionDir)) {
+			throw new FileNotFoundException("No region directory in " + levelDir);
+		}
+		
+		// Check that the light of the rewritten chunks can be calculated
+		int[] clip = getUpdateClip(minX, minZ, maxX, maxZ);
+		if(clipMinX > clip[0] || clipMinZ > clip[1] || clipMaxX < clip[2] || clipMaxZ < clip[3]) {
+			throw new IllegalStateException("The clip area does not contain the updated chunks "
+				+ "and their margin");
+		}
+		
+		// Calculate light
+		calculateLight();
+		
+		// Get chunk range
+		int minChunkX = Math.floorDiv(minX, Chunk.BLOCKS_PER_CHUNK_SIDE);
+		int minChunkZ = Math.floorDiv(minZ, Chunk.BLOCKS_PER_CHUNK_SIDE);
+		int maxChunkX = Math.floorDiv(maxX, Chunk.BLOCKS_PER_CHUNK_SIDE);
+		int maxChunkZ = Math.floorDiv(maxZ, Chunk.BLOCKS_PER_CHUNK_SIDE);
+		
+		// Iterate regions that intersect the chunk range
+		int chunks = Region.CHUNKS_PER_REGION_SIDE;
+		for(int regionX = Math.floorDiv(minChunkX, chunks); regionX <= Math.floorDiv(maxChunkX, chunks); regionX++) {
+			for(int regionZ = Math.floorDiv(minChunkZ, chunks); regionZ <= Math.floorDiv(maxChunkZ, chunks); regionZ++) {
+				Region region = regions.get(new Point(regionX, regionZ));
+				if(region == null) {
+					// Nothing has been generated here, the chunks will be removed
+					region = new Region(this, regionX, regionZ, layers);
+				}
+				
+				// Update region
+				File regionFile = new File(regionDir, "r." + regionX + "." + regionZ + ".mca");
+				System.out.println("Updating file: " + regionFile);
+				region.updateFile(regionFile, 
+					Math.max(minChunkX - regionX * chunks, 0), 
+					Math.max(minChunkZ - regionZ * chunks, 0), 
+					Math.min(maxChunkX - regionX * chunks, chunks - 1), 
+					Math.min(maxChunkZ - regionZ * chunks, chunks - 1), 
+					compression);
+			}
+		}
+		
+		System.out.println("Done");
+	}
+	
+	/**
+	 * Calculates the height maps and the sky light of all regions.
+	 */
+	private void calculateLight() {
 		// Calculate height maps
 		System.out.println("Calculate height maps");
 		for(Region region : regions.values()) {
@@ -240,20 +448,6 @@ public class World implements IBlockContainer {
 			System.out.print(".");
 		}
 		System.out.println();
-		
-		// Iterate regions
-		for(Map.Entry<Point, Region> entry : regions.entrySet()) {
-			Point point = entry.getKey();
-			Region region = entry.getValue();
-			
-			// Save region
-			File regionFile = new File(regionDir, "r." + point.x + "." + point.y + ".mca");
-			System.out.println("Writing file: " + regionFile);
-			region.writeToFile(regionFile);
-		}
-		
-		System.out.println("Done");
-		return levelDir;
 	}
 	
 	/**
@@ -0,0 +1,85 @@
+/*
+ * Compression settings for chunk data in region files.
+ *
+ * All settings produce zlib streams (chunk version 2), so every world they
+ * write can be read by Minecraft. STORE uses deflate level 0, which only
+ * frames the raw NBT and is meant for local testing where write speed
+ * matters more than file size.
+ *
+ * Deflater instances are pooled per thread and per setting. A pooled
+ * Deflater is reset before it is handed out, must only be used by the
+ * calling thread and must not be ended by the caller.
+ */
+
+package net.unknown;
+
+import java.util.zip.Deflater;
+
+@SuppressWarnings("javadoc")
+public enum ChunkCompression {
+    STORE(Deflater.NO_COMPRESSION),
+    FAST(Deflater.BEST_SPEED),
+    DEFAULT(Deflater.DEFAULT_COMPRESSION),
+    BEST(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+    /* no initial value, so threads that never compress hold no Deflater */
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<>();
+
+    ChunkCompression(int level) {
+        this.level = level;
+    }
+
+    /* the zlib compression level */
+    public int getLevel() {
+        return level;
+    }
+
+    /* gets the reset Deflater of the calling thread for this setting */
+    public Deflater deflater() {
+        Deflater deflater = deflaters.get();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+            deflaters.set(deflater);
+        } else {
+            deflater.reset();
+        }
+        return deflater;
+    }
+
+    /*
+     * compresses length bytes of src into dst starting at index 0. Returns the
+     * compressed data, which is dst itself unless it had to be grown; the
+     * compressed length is stored in compressedLength[0]
+     */
+    public byte[] compress(byte[] src, int length, byte[] dst, int[] compressedLength) {
+        Deflater deflater = deflater();
+        deflater.setInput(src, 0, length);
+        deflater.finish();
+        int count = 0;
+        while (!deflater.finished()) {
+            if (count == dst.length) {
+                byte[] grown = new byte[Math.max(dst.length * 2, 4096)];
+                System.arraycopy(dst, 0, grown, 0, count);
+                dst = grown;
+            }
+            count += deflater.deflate(dst, count, dst.length - count);
+        }
+        compressedLength[0] = count;
+        return dst;
+    }
+
+    /*
+     * ends and drops the pooled Deflaters of the calling thread, for worker
+     * threads that are done writing regions
+     */
+    public static void releaseThreadDeflaters() {
+        for (ChunkCompression compression : values()) {
+            Deflater deflater = compression.deflaters.get();
+            if (deflater != null) {
+                deflater.end();
+                compression.deflaters.remove();
+            }
+        }
+    }
+}
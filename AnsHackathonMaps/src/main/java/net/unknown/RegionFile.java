@@ -80,6 +80,7 @@ public class RegionFile {
     private ArrayList<Boolean> sectorFree;
     private int sizeDelta;
     private long lastModified = 0;
+    private ChunkCompression compression = ChunkCompression.DEFAULT;
 
 	public RegionFile(File path) {
         offsets = new int[SECTOR_INTS];
@@ -236,10 +237,19 @@ public class RegionFile {
         }
     }
 
+    /* sets the compression used for chunks written from now on */
+    public void setCompression(ChunkCompression compression) {
+        this.compression = compression;
+    }
+
+    /*
+     * the returned stream compresses with the pooled Deflater of the calling
+     * thread, so a thread must close it before opening the next one
+     */
     public DataOutputStream getChunkDataOutputStream(int x, int z) {
         if (outOfBounds(x, z)) return null;
 
-        return new DataOutputStream(new DeflaterOutputStream(new ChunkBuffer(x, z)));
+        return new DataOutputStream(new DeflaterOutputStream(new ChunkBuffer(x, z), compression.deflater()));
     }
 
     /*
@@ -336,6 +346,22 @@ public class RegionFile {
         }
     }
 
+    /* removes the chunk at (x,z), its sectors can be reused by other chunks */
+    public synchronized void deleteChunk(int x, int z) throws IOException {
+        if (outOfBounds(x, z)) return;
+
+        int offset = getOffset(x, z);
+        if (offset == 0) return;
+
+        int sectorNumber = offset >> 8;
+        int sectorsAllocated = offset & 0xFF;
+        for (int i = 0; i < sectorsAllocated && sectorNumber + i < sectorFree.size(); ++i) {
+            sectorFree.set(sectorNumber + i, true);
+        }
+        setOffset(x, z, 0);
+        setTimestamp(x, z, 0);
+    }
+
     /* write a chunk data to the region file at specified sector number */
     private void write(int sectorNumber, byte[] data, int length) throws IOException {
         debugln(" " + sectorNumber);
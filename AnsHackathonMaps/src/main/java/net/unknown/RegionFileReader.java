@@ -0,0 +1,211 @@
+/*
+ * Read-only, memory-mapped access to region files.
+ *
+ * The whole file is mapped once and chunks are inflated into a buffer that is
+ * reused for every chunk, so scanning a region allocates no per-chunk byte
+ * arrays or streams. The buffer returned by getBuffer() is only valid until
+ * the next call to readChunk(). See RegionFile for a description of the file
+ * format. Instances are not thread-safe; use one reader per thread.
+ *
+ * close() unmaps the file right away instead of leaving it to the garbage
+ * collector, so that the region file can be rewritten or deleted afterwards,
+ * which Windows does not allow while a mapping is open.
+ */
+
+package net.unknown;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+@SuppressWarnings("javadoc")
+public class RegionFileReader implements Closeable {
+    private static final int VERSION_GZIP = 1;
+    private static final int VERSION_DEFLATE = 2;
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / 4;
+
+    private final File fileName;
+    private final FileChannel channel;
+    private MappedByteBuffer mapped;
+    private ByteBuffer source;
+    private final int offsets[] = new int[SECTOR_INTS];
+    private final int chunkTimestamps[] = new int[SECTOR_INTS];
+
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[16 * 1024];
+    private byte[] buffer = new byte[64 * 1024];
+    private int length;
+
+    public RegionFileReader(File path) throws IOException {
+        fileName = path;
+        channel = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            source = mapped.duplicate();
+            if (mapped.capacity() >= SECTOR_BYTES * 2) {
+                mapped.asIntBuffer().get(offsets).get(chunkTimestamps);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public boolean hasChunk(int x, int z) {
+        return !outOfBounds(x, z) && offsets[x + z * 32] != 0;
+    }
+
+    /* the last modification time of the chunk in seconds, 0 if there is none */
+    public int getTimestamp(int x, int z) {
+        return outOfBounds(x, z) ? 0 : chunkTimestamps[x + z * 32];
+    }
+
+    /*
+     * inflates the chunk at (x,z) into the shared buffer. Returns false if the
+     * chunk does not exist
+     */
+    public boolean readChunk(int x, int z) throws IOException {
+        length = 0;
+        if (mapped == null) {
+            throw new IOException("Region file closed: " + fileName);
+        }
+        if (!hasChunk(x, z)) {
+            return false;
+        }
+
+        int offset = offsets[x + z * 32];
+        int sectorNumber = offset >> 8;
+        int numSectors = offset & 0xFF;
+        long start = (long) sectorNumber * SECTOR_BYTES;
+        long available = (long) numSectors * SECTOR_BYTES;
+        // the first two sectors hold the offsets and timestamps
+        if (sectorNumber < 2 || numSectors < 1 || start + available > mapped.capacity()) {
+            throw new IOException("Invalid sector for chunk " + x + "," + z + " in " + fileName);
+        }
+
+        // the length counts the version byte and the data, not the 4 bytes of the length itself
+        int chunkLength = mapped.getInt((int) start);
+        if (chunkLength < 1 || chunkLength + 4L > available) {
+            throw new IOException("Invalid length " + chunkLength + " for chunk " + x + "," + z + " in " + fileName);
+        }
+        byte version = mapped.get((int) start + 4);
+
+        // copy the compressed data out of the mapping
+        int dataLength = chunkLength - 1;
+        if (compressed.length < dataLength) {
+            compressed = new byte[Math.max(dataLength, compressed.length * 2)];
+        }
+        source.position((int) start + RegionFile.CHUNK_HEADER_SIZE);
+        source.get(compressed, 0, dataLength);
+
+        if (version == VERSION_DEFLATE) {
+            inflate(dataLength);
+        } else if (version == VERSION_GZIP) {
+            gunzip(dataLength);
+        } else {
+            throw new IOException("Unknown version " + version + " for chunk " + x + "," + z + " in " + fileName);
+        }
+        return true;
+    }
+
+    private void inflate(int dataLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, dataLength);
+        try {
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    grow();
+                }
+                int count = inflater.inflate(buffer, length, buffer.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Truncated chunk data in " + fileName);
+                }
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk data in " + fileName, e);
+        }
+    }
+
+    /* gzip chunks are rare (only very old worlds), so they take the stream path */
+    private void gunzip(int dataLength) throws IOException {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed, 0, dataLength));
+        try {
+            int count;
+            while (true) {
+                if (length == buffer.length) {
+                    grow();
+                }
+                count = in.read(buffer, length, buffer.length - length);
+                if (count < 0) {
+                    break;
+                }
+                length += count;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void grow() {
+        byte[] grown = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+    }
+
+    /* the uncompressed NBT data of the last chunk read */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /* the length of the uncompressed NBT data of the last chunk read */
+    public int getLength() {
+        return length;
+    }
+
+    /* is this an invalid chunk coordinate? */
+    private boolean outOfBounds(int x, int z) {
+        return x < 0 || x >= 32 || z < 0 || z >= 32;
+    }
+
+    /* ends the inflater, closes the file and unmaps it; the reader cannot be used afterwards */
+    public void close() throws IOException {
+        inflater.end();
+        try {
+            channel.close();
+        } finally {
+            if (mapped != null) {
+                MappedByteBuffer buffer = mapped;
+                mapped = null;
+                source = null;
+                unmap(buffer);
+            }
+        }
+    }
+
+    /*
+     * releases a mapping through sun.misc.Unsafe.invokeCleaner (Java 9 and
+     * later). If that is not available the mapping stays until the buffer is
+     * garbage collected
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Write-once counterpart of RegionFile for freshly generated regions.
+ *
+ * Chunks are compressed with a ChunkCompression setting and appended to the
+ * file in the order they are written, each one padded to a whole number of
+ * 4KB sectors. The chunk offset and timestamp tables are kept in memory and
+ * the 8KB header is written once when the writer is closed, so there are no
+ * seeks and no header I/O per chunk. See RegionFile for a description of the file format.
+ */
+
+package net.unknown;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+@SuppressWarnings("javadoc")
+public class RegionFileWriter implements Closeable {
+    private static final int VERSION_DEFLATE = 2;
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / 4;
+    private static final int HEADER_SECTORS = 2;
+    private static final int MAX_CHUNK_SECTORS = 255;
+
+    private final FileChannel channel;
+    private final int offsets[] = new int[SECTOR_INTS];
+    private final int chunkTimestamps[] = new int[SECTOR_INTS];
+    private final int timestamp;
+    private int nextSector = HEADER_SECTORS;
+
+    private final ChunkCompression compression;
+    private byte[] compressed = new byte[64 * 1024];
+    private final int[] compressedLength = new int[1];
+
+    /* reused for every gathered write: chunk header, chunk data, sector padding */
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(RegionFile.CHUNK_HEADER_SIZE);
+    private final ByteBuffer padding = ByteBuffer.allocate(SECTOR_BYTES);
+    private final ByteBuffer[] gather = new ByteBuffer[3];
+    private ByteBuffer data = ByteBuffer.wrap(compressed);
+
+    public RegionFileWriter(File path) throws IOException {
+        this(path, ChunkCompression.DEFAULT);
+    }
+
+    public RegionFileWriter(File path, ChunkCompression compression) throws IOException {
+        this.compression = compression;
+        channel = FileChannel.open(path.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.position((long) HEADER_SECTORS * SECTOR_BYTES);
+        timestamp = (int) (System.currentTimeMillis() / 1000L);
+    }
+
+    /*
+     * compresses length bytes of uncompressed chunk data and appends them to
+     * the file as chunk (x,z)
+     */
+    public void writeChunk(int x, int z, byte[] nbt, int length) throws IOException {
+        if (outOfBounds(x, z)) {
+            throw new IOException("Chunk out of bounds: " + x + "," + z);
+        }
+        if (offsets[x + z * 32] != 0) {
+            throw new IOException("Chunk already written: " + x + "," + z);
+        }
+
+        compressed = compression.compress(nbt, length, compressed, this.compressedLength);
+        int compressedLength = this.compressedLength[0];
+        int sectorsNeeded = (compressedLength + RegionFile.CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
+
+        // maximum chunk size is 1MB
+        if (sectorsNeeded > MAX_CHUNK_SECTORS) {
+            throw new IOException("Chunk too large: " + x + "," + z + " needs " + sectorsNeeded + " sectors");
+        }
+
+        chunkHeader.clear();
+        chunkHeader.putInt(compressedLength + 1); // chunk length
+        chunkHeader.put((byte) VERSION_DEFLATE); // chunk version number
+        chunkHeader.flip();
+
+        if (data.array() != compressed) {
+            data = ByteBuffer.wrap(compressed);
+        }
+        data.clear();
+        data.limit(compressedLength);
+
+        padding.clear();
+        padding.limit(sectorsNeeded * SECTOR_BYTES - compressedLength - RegionFile.CHUNK_HEADER_SIZE);
+
+        gather[0] = chunkHeader;
+        gather[1] = data;
+        gather[2] = padding;
+        while (padding.hasRemaining()) {
+            channel.write(gather);
+        }
+
+        offsets[x + z * 32] = (nextSector << 8) | sectorsNeeded;
+        chunkTimestamps[x + z * 32] = timestamp;
+        nextSector += sectorsNeeded;
+    }
+
+    /* is this an invalid chunk coordinate? */
+    private boolean outOfBounds(int x, int z) {
+        return x < 0 || x >= 32 || z < 0 || z >= 32;
+    }
+
+    public boolean hasChunk(int x, int z) {
+        return offsets[x + z * 32] != 0;
+    }
+
+    /* writes the offset and timestamp tables and closes the file */
+    public void close() throws IOException {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES);
+            header.asIntBuffer().put(offsets).put(chunkTimestamps);
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
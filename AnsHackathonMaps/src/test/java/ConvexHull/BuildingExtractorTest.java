@@ -0,0 +1,125 @@
+package ConvexHull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the footprints of the extracted buildings and that no cell is
+ * emitted by two buildings.
+ */
+public class BuildingExtractorTest {
+
+    @Test
+    public void hullFillsTheFootprint() {
+        // an L of two walls, its hull is the triangle x + y <= 9
+        List<Point3d> points = new ArrayList<Point3d>();
+        for (int k = 0; k < 10; k++) {
+            points.add(point(k, 0, 5));
+            points.add(point(0, k, 5));
+        }
+        List<BuildingExtractor.Building> buildings = new BuildingExtractor().extract(points);
+        assertEquals(1, buildings.size());
+
+        BuildingExtractor.Building building = buildings.get(0);
+        assertNotNull(building.getFootprint());
+        assertEquals(55, building.getCellCount());
+        for (int cell = 0; cell < building.getCellCount(); cell++) {
+            int x = building.getX(cell);
+            int y = building.getY(cell);
+            assertTrue(x >= 0 && y >= 0 && x + y <= 9);
+            assertEquals(5, building.getRoofHeight(cell));
+            assertEquals(x == 0 || y == 0 || x + y == 9, building.isWall(cell));
+        }
+    }
+
+    @Test
+    public void hullLeavesCellsOfOtherBuildings() {
+        // a small building inside the hull of the L, not touching it
+        List<Point3d> points = new ArrayList<Point3d>();
+        for (int k = 0; k < 10; k++) {
+            points.add(point(k, 0, 5));
+            points.add(point(0, k, 5));
+        }
+        for (int x = 3; x <= 4; x++) {
+            for (int y = 3; y <= 4; y++) {
+                points.add(point(x, y, 12));
+            }
+        }
+        List<BuildingExtractor.Building> buildings = new BuildingExtractor().extract(points);
+        assertEquals(2, buildings.size());
+        assertDisjoint(buildings);
+
+        BuildingExtractor.Building small = buildings.get(0).getCellCount() == 4 ? buildings.get(0) : buildings.get(1);
+        BuildingExtractor.Building large = small == buildings.get(0) ? buildings.get(1) : buildings.get(0);
+        assertEquals(4, small.getCellCount());
+        for (int cell = 0; cell < small.getCellCount(); cell++) {
+            assertEquals(12, small.getRoofHeight(cell));
+            assertTrue(small.isWall(cell));
+        }
+        assertEquals(55 - 4, large.getCellCount());
+        // the L has walls around the hole
+        for (int cell = 0; cell < large.getCellCount(); cell++) {
+            int x = large.getX(cell);
+            int y = large.getY(cell);
+            if (x == 2 && y == 3) {
+                assertTrue(large.isWall(cell));
+            }
+            if (x == 6 && y == 1) {
+                assertFalse(large.isWall(cell));
+            }
+        }
+    }
+
+    @Test
+    public void overlappingHullsShareNoCells() {
+        // about a third of the cells is occupied, so there are many irregular
+        // components whose hulls overlap each other
+        Random random = new Random(4);
+        List<Point3d> points = new ArrayList<Point3d>();
+        for (int i = 0; i < 3000; i++) {
+            points.add(point(random.nextInt(80), random.nextInt(80), random.nextInt(20)));
+        }
+        BuildingExtractor extractor = new BuildingExtractor();
+        extractor.setMinCells(2);
+        List<BuildingExtractor.Building> buildings = extractor.extract(points);
+        assertTrue(buildings.size() > 1);
+        assertDisjoint(buildings);
+    }
+
+    @Test
+    public void smallBuildingsKeepTheirCells() {
+        List<Point3d> points = new ArrayList<Point3d>();
+        points.add(point(0, 0, 3));
+        points.add(point(1, 1, 4));
+        List<BuildingExtractor.Building> buildings = new BuildingExtractor().extract(points);
+        assertEquals(1, buildings.size());
+        assertNull(buildings.get(0).getFootprint());
+        assertEquals(2, buildings.get(0).getCellCount());
+    }
+
+    private static void assertDisjoint(List<BuildingExtractor.Building> buildings) {
+        Set<Long> cells = new HashSet<Long>();
+        for (BuildingExtractor.Building building : buildings) {
+            for (int cell = 0; cell < building.getCellCount(); cell++) {
+                long key = (long) building.getX(cell) << 32 | building.getY(cell) & 0xffffffffL;
+                assertTrue("Cell " + building.getX(cell) + "," + building.getY(cell) + " emitted twice",
+                        cells.add(key));
+            }
+        }
+    }
+
+    private static Point3d point(double x, double y, double z) {
+        return new Point3d(x, y, z, 0, 0, 0, 100, 6);
+    }
+}
@@ -0,0 +1,106 @@
+package ConvexHull;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the parallel hull against the serial one when some partitions are
+ * degenerate, and the degeneracy check used to skip them.
+ */
+public class ConvexHull3DTest {
+
+    private static final int NUM_POINTS = 20000;
+
+    @Test
+    public void coplanarPartitionsArePassedOn() {
+        Random random = new Random(1);
+        double[] coords = new double[NUM_POINTS * 3];
+        // the first half, several partitions, lies in a plane inside the cube
+        for (int i = 0; i < NUM_POINTS / 2; i++) {
+            coords[i * 3] = 0.25 + random.nextDouble() / 2;
+            coords[i * 3 + 1] = 0.25 + random.nextDouble() / 2;
+            coords[i * 3 + 2] = 0.5;
+        }
+        for (int i = NUM_POINTS / 2; i < NUM_POINTS; i++) {
+            coords[i * 3] = random.nextDouble();
+            coords[i * 3 + 1] = random.nextDouble();
+            coords[i * 3 + 2] = random.nextDouble();
+        }
+
+        ConvexHull3D serial = new ConvexHull3D();
+        serial.build(coords, NUM_POINTS);
+        String errors = stderr(() -> {
+            ConvexHull3D parallel = ConvexHull3D.buildParallel(coords, NUM_POINTS);
+            assertArrayEquals(sortedVertices(serial), sortedVertices(parallel));
+        });
+        assertEquals("", errors);
+    }
+
+    @Test
+    public void degenerateCandidatesAreKept() {
+        ConvexHull3D hull = new ConvexHull3D();
+        // coincident, colinear, coplanar, too few
+        double[][] degenerate = {
+                {1, 2, 3, 1, 2, 3, 1, 2, 3, 1, 2, 3, 1, 2, 3},
+                {0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4},
+                {0, 0, 1, 1, 0, 1, 0, 1, 1, 1, 1, 1, 0.5, 0.5, 1},
+                {0, 0, 0, 1, 0, 0, 0, 1, 0}};
+        String errors = stderr(() -> {
+            for (double[] coords : degenerate) {
+                ConvexHull3D.Candidates candidates = candidates(coords);
+                assertFalse(hull.spansVolume(coords, coords.length / 3));
+                assertSame(candidates, ConvexHull3D.reduce(hull, candidates));
+            }
+        });
+        assertEquals("", errors);
+    }
+
+    @Test
+    public void tetrahedronSpansVolume() {
+        double[] coords = {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0.1, 0.1, 0.1};
+        ConvexHull3D hull = new ConvexHull3D();
+        assertTrue(hull.spansVolume(coords, 5));
+
+        ConvexHull3D.Candidates reduced = ConvexHull3D.reduce(hull, candidates(coords));
+        assertEquals(4, reduced.count);
+        int[] indices = Arrays.copyOf(reduced.indices, reduced.count);
+        Arrays.sort(indices);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, indices);
+    }
+
+    static int[] sortedVertices(ConvexHull3D hull) {
+        int[] indices = hull.getVertexPointIndices();
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    static String stderr(Runnable action) {
+        PrintStream err = System.err;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(buffer, true));
+        try {
+            action.run();
+        } finally {
+            System.setErr(err);
+        }
+        return buffer.toString();
+    }
+
+    private static ConvexHull3D.Candidates candidates(double[] coords) {
+        ConvexHull3D.Candidates candidates = new ConvexHull3D.Candidates(coords.length / 3);
+        for (int i = 0; i < coords.length / 3; i++) {
+            candidates.add(coords, i, i);
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,64 @@
+package ConvexHull;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the streaming hull against the hull of all points at once.
+ */
+public class HullAccumulatorTest {
+
+    @Test
+    public void streamMatchesSerialHull() {
+        Random random = new Random(2);
+        int nump = 50000;
+        double[] coords = new double[nump * 3];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = random.nextGaussian();
+        }
+        HullAccumulator accumulator = new HullAccumulator();
+        accumulator.add(coords, 0, nump);
+
+        ConvexHull3D serial = new ConvexHull3D();
+        serial.build(coords, nump);
+        assertEquals(nump, accumulator.getNumPoints());
+        assertArrayEquals(ConvexHull3DTest.sortedVertices(serial),
+                ConvexHull3DTest.sortedVertices(accumulator.build()));
+    }
+
+    @Test
+    public void coplanarStreamKeepsItsPoints() {
+        Random random = new Random(3);
+        // a flat roof of several buffers, then the walls below it
+        int roof = 30000;
+        int nump = roof + 10000;
+        double[] coords = new double[nump * 3];
+        for (int i = 0; i < roof; i++) {
+            coords[i * 3] = random.nextDouble() * 10;
+            coords[i * 3 + 1] = random.nextDouble() * 10;
+            coords[i * 3 + 2] = 5;
+        }
+        for (int i = roof; i < nump; i++) {
+            coords[i * 3] = random.nextDouble() * 10;
+            coords[i * 3 + 1] = random.nextDouble() * 10;
+            coords[i * 3 + 2] = random.nextDouble() * 5;
+        }
+
+        HullAccumulator accumulator = new HullAccumulator();
+        String errors = ConvexHull3DTest.stderr(() -> {
+            accumulator.add(coords, 0, roof);
+            assertEquals(roof, accumulator.getNumPoints());
+            accumulator.add(coords, roof, nump - roof);
+        });
+        assertEquals("", errors);
+
+        ConvexHull3D serial = new ConvexHull3D();
+        serial.build(coords, nump);
+        assertArrayEquals(ConvexHull3DTest.sortedVertices(serial),
+                ConvexHull3DTest.sortedVertices(accumulator.build()));
+    }
+}
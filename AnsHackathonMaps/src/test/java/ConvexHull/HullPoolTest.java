@@ -0,0 +1,107 @@
+package ConvexHull;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that recycled faces and half-edges come back reset, and that a hull
+ * reused as workspace builds the same hulls as a fresh one.
+ */
+public class HullPoolTest {
+
+    @Test
+    public void clearRecyclesResetObjects() {
+        HullPool pool = new HullPool();
+        Vertex v = new Vertex();
+        Face face = pool.face();
+        face.mark = Face.DELETED;
+        HalfEdge edge = pool.edge(v, face);
+        edge.setNext(edge);
+        edge.setOpposite(pool.edge(v, face));
+
+        pool.clear();
+        Face other = new Face();
+        assertSame(face, pool.face());
+        assertEquals(Face.VISIBLE, face.mark);
+        assertSame(edge, pool.edge(new Vertex(), other));
+        assertSame(other, edge.getFace());
+        assertNull(edge.getNext());
+        assertNull(edge.getOpposite());
+        // beyond the recycled ones, new objects
+        assertNotSame(face, pool.face());
+    }
+
+    @Test
+    public void poolGrowsPastItsInitialCapacity() {
+        HullPool pool = new HullPool();
+        Face[] faces = new Face[100];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = pool.face();
+        }
+        pool.clear();
+        for (int i = 0; i < faces.length; i++) {
+            assertSame(faces[i], pool.face());
+        }
+    }
+
+    @Test
+    public void reusedWorkspaceMatchesFreshHulls() {
+        Random random = new Random(39);
+        ConvexHull3D workspace = new ConvexHull3D();
+        // large, small and large again, so that recycled objects outnumber
+        // and then fall short of those needed
+        int[] sizes = {2000, 4, 5, 300, 50, 3000, 8, 1000};
+        for (int size : sizes) {
+            double[] coords = new double[size * 3];
+            for (int i = 0; i < coords.length; i++) {
+                coords[i] = random.nextGaussian();
+            }
+            workspace.build(coords);
+            ConvexHull3D fresh = new ConvexHull3D(coords);
+            assertSameHull(fresh, workspace);
+
+            workspace.triangulate();
+            fresh.triangulate();
+            assertSameHull(fresh, workspace);
+        }
+    }
+
+    @Test
+    public void workspaceRecoversFromDegenerateInput() {
+        double[] cube = {0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0, 0, 0, 1, 1, 0, 1, 0, 1, 1, 1, 1, 1};
+        double[] plane = {0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0, 0.5, 0.5, 0};
+        ConvexHull3D workspace = new ConvexHull3D(cube);
+
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            workspace.build(plane);
+        } finally {
+            System.setErr(err);
+        }
+        workspace.build(cube);
+        assertSameHull(new ConvexHull3D(cube), workspace);
+        assertEquals(6, workspace.getNumFaces());
+    }
+
+    private static void assertSameHull(ConvexHull3D expected, ConvexHull3D actual) {
+        assertArrayEquals(expected.getVertexPointIndices(), actual.getVertexPointIndices());
+        int[][] faces = expected.getFaces(ConvexHull3D.POINT_RELATIVE);
+        int[][] actualFaces = actual.getFaces(ConvexHull3D.POINT_RELATIVE);
+        assertEquals(faces.length, actualFaces.length);
+        for (int i = 0; i < faces.length; i++) {
+            assertArrayEquals(faces[i], actualFaces[i]);
+        }
+        assertTrue(actual.check(new PrintStream(new ByteArrayOutputStream())));
+    }
+}
@@ -0,0 +1,98 @@
+package ConvexHull;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Hulls many small clusters, as building and tree extraction do, once with a
+ * new {@link ConvexHull3D} per cluster and once with a single hull reused as
+ * workspace, and checks that both give the same hulls. The reused workspace
+ * recycles its vertices, faces and half-edges, so after the first clusters it
+ * builds hulls without allocating.
+ * Run with: java ConvexHull.HullWorkspaceBenchmark [clusters] [rounds]
+ */
+public class HullWorkspaceBenchmark {
+
+    public static void main(String[] args) {
+        int clusters = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Random random = new Random(42);
+        double[][] coords = new double[clusters][];
+        long points = 0;
+        for (int i = 0; i < clusters; i++) {
+            coords[i] = randomCluster(50 + random.nextInt(451), random);
+            points += coords[i].length / 3;
+        }
+
+        ConvexHull3D workspace = new ConvexHull3D();
+        for (int i = 0; i < clusters; i++) {
+            ConvexHull3D fresh = new ConvexHull3D(coords[i]);
+            workspace.build(coords[i]);
+            if (fresh.getNumVertices() != workspace.getNumVertices()
+                    || !Arrays.deepEquals(fresh.getFaces(ConvexHull3D.POINT_RELATIVE), workspace.getFaces(ConvexHull3D.POINT_RELATIVE))) {
+                throw new IllegalStateException("Hulls differ for cluster " + i);
+            }
+        }
+
+        // warm up
+        long faces = 0;
+        for (int i = 0; i < 2; i++) {
+            faces = hullFresh(coords);
+            hullReused(coords, workspace);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            hullFresh(coords);
+        }
+        double freshMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            hullReused(coords, workspace);
+        }
+        double reusedMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+        System.out.printf("%d clusters, %d points, %d faces%n", clusters, points, faces);
+        System.out.printf("new hull per cluster %10.1f ms  %8.0f hulls/s%n", freshMs, clusters / freshMs * 1000);
+        System.out.printf("reused workspace     %10.1f ms  %8.0f hulls/s%n", reusedMs, clusters / reusedMs * 1000);
+    }
+
+    private static long hullFresh(double[][] coords) {
+        long faces = 0;
+        for (double[] cluster : coords) {
+            faces += new ConvexHull3D(cluster).getNumFaces();
+        }
+        return faces;
+    }
+
+    private static long hullReused(double[][] coords, ConvexHull3D workspace) {
+        long faces = 0;
+        for (double[] cluster : coords) {
+            workspace.build(cluster);
+            faces += workspace.getNumFaces();
+        }
+        return faces;
+    }
+
+    /**
+     * Points of a roughly box-shaped cluster, like the points of a tree crown
+     * or a small building.
+     */
+    private static double[] randomCluster(int nump, Random random) {
+        double cx = random.nextDouble() * 1000;
+        double cy = random.nextDouble() * 1000;
+        double cz = random.nextDouble() * 50;
+        double sx = 1 + random.nextDouble() * 10;
+        double sy = 1 + random.nextDouble() * 10;
+        double sz = 1 + random.nextDouble() * 10;
+        double[] coords = new double[nump * 3];
+        for (int i = 0; i < nump; i++) {
+            coords[i * 3] = cx + random.nextGaussian() * sx;
+            coords[i * 3 + 1] = cy + random.nextGaussian() * sy;
+            coords[i * 3 + 2] = cz + random.nextGaussian() * sz;
+        }
+        return coords;
+    }
+}
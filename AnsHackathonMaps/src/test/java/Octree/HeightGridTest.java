@@ -0,0 +1,115 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ConvexHull.Point3d;
+
+
+/**
+ * Tests the hole filling of {@link HeightGrid}. A plane and the saddle
+ * x<sup>2</sup> - y<sup>2</sup> are discrete harmonic, so the filled cells
+ * must reproduce them, across tile borders and in holes larger than the
+ * halo. The solver stops at a residual meant for heights that are rounded
+ * to whole blocks, so every cell is within half a block and most are much
+ * closer.
+ */
+public class HeightGridTest {
+
+  private static final int SIZE = 600;
+
+
+  @Test
+  public void fillReproducesPlane() {
+    HeightGrid grid = sampled(new Random(46), (x, y) -> 0.3 * x - 0.2 * y + 40);
+    grid.fill();
+    assertFilled(grid, (x, y) -> 0.3 * x - 0.2 * y + 40);
+  }
+
+
+  @Test
+  public void fillReproducesSaddle() {
+    // x^2 - y^2 around the centre of the grid, scaled to a few hundred blocks
+    double c = SIZE / 2.0;
+    Surface saddle = (x, y) -> ((x - c) * (x - c) - (y - c) * (y - c)) / 200;
+    HeightGrid grid = sampled(new Random(47), saddle);
+    grid.fill();
+    assertFilled(grid, saddle);
+  }
+
+
+  @Test
+  public void measuredCellsKeepTheirMean() {
+    List<Point3d> points = new ArrayList<>();
+    points.add(new Point3d(0, 0, 10, 0, 0, 0, 0, 2));
+    points.add(new Point3d(0.2, -0.3, 12, 0, 0, 0, 0, 2));
+    points.add(new Point3d(4, 2, 20, 0, 0, 0, 0, 2));
+    HeightGrid grid = HeightGrid.build(points);
+    assertEquals(5, grid.getSizeX());
+    assertEquals(3, grid.getSizeY());
+    assertEquals(11, grid.getHeight(0, 0), 0);
+    assertTrue(Double.isNaN(grid.getHeight(2, 1)));
+
+    grid.fill();
+    assertEquals(11, grid.getHeight(0, 0), 0);
+    assertEquals(20, grid.getHeight(4, 2), 0);
+    assertFalse(grid.isMeasured(2, 1));
+    double height = grid.getHeight(2, 1);
+    assertTrue(height > 11 && height < 20);
+    assertTrue(Double.isNaN(grid.getHeight(5, 0)));
+  }
+
+
+  /**
+   * Samples a surface on the border of the grid, which fixes the solution,
+   * and on a third of the inner cells, leaving out a hole of 150 by 100
+   * cells that crosses a tile border.
+   */
+  private static HeightGrid sampled(Random random, Surface surface) {
+    HeightGrid grid = new HeightGrid(0, 0, SIZE, SIZE);
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        boolean border = x == 0 || y == 0 || x == SIZE - 1 || y == SIZE - 1;
+        boolean hole = x >= 200 && x < 350 && y >= 220 && y < 320;
+        if (border || (!hole && random.nextInt(3) == 0)) {
+          grid.add(x, y, surface.height(x, y));
+        }
+      }
+    }
+    return grid;
+  }
+
+
+  private static void assertFilled(HeightGrid grid, Surface surface) {
+    int filled = 0;
+    double squares = 0;
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        double error = grid.getHeight(x, y) - surface.height(x, y);
+        assertEquals("cell " + x + "," + y, 0, error, 0.5);
+        squares += error * error;
+        if (!grid.isMeasured(x, y)) {
+          filled++;
+        }
+      }
+    }
+    assertTrue(filled > SIZE * SIZE / 2);
+    assertEquals(0, Math.sqrt(squares / (SIZE * SIZE)), 0.03);
+  }
+
+
+  /**
+   * A height field.
+   */
+  private interface Surface {
+
+    double height(double x, double y);
+  }
+}
@@ -0,0 +1,90 @@
+package Octree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares bulk loading an {@link OctreeKOP} with inserting the same boxes
+ * into an empty octree, and checks that both trees select the same entries.
+ * Run with: java Octree.OctreeBulkLoadBenchmark [boxes] [rounds]
+ */
+public class OctreeBulkLoadBenchmark {
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    AABB bounds = new AABB(0, 1024, 0, 256, 0, 1024);
+    List<Box> boxes = randomBoxes(count, new Random(42));
+
+    OctreeKOP<Box> inserted = null;
+    OctreeKOP<Box> built = null;
+    for (int i = 0; i < 2; i++) {
+      // warm up
+      inserted = new OctreeKOP<Box>(bounds).insert(boxes);
+      built = OctreeKOP.build(bounds, boxes);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      inserted = new OctreeKOP<Box>(bounds).insert(boxes);
+    }
+    double insertMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+    start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      built = OctreeKOP.build(bounds, boxes);
+    }
+    double buildMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+    Random random = new Random(7);
+    for (int i = 0; i < 1000; i++) {
+      double x = random.nextDouble() * 1000;
+      double y = random.nextDouble() * 240;
+      double z = random.nextDouble() * 1000;
+      AABB query = new AABB(x, x + 24, y, y + 16, z, z + 24);
+      if (inserted.select(query).size() != built.select(query).size()) {
+        throw new IllegalStateException("Selections differ for " + query);
+      }
+    }
+
+    System.out.printf("%d boxes%n", count);
+    System.out.printf("insert %10.1f ms  depth %d  size %d%n", insertMs,
+                      inserted.depth(), inserted.size());
+    System.out.printf("build  %10.1f ms  depth %d  size %d%n", buildMs,
+                      built.depth(), built.size());
+  }
+
+
+  private static List<Box> randomBoxes(int count, Random random) {
+    List<Box> boxes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      double x = random.nextDouble() * 1020;
+      double y = random.nextDouble() * 250;
+      double z = random.nextDouble() * 1020;
+      double size = 0.5 + random.nextDouble() * 3;
+      boxes.add(new Box(new AABB(x, x + size, y, y + size, z, z + size)));
+    }
+    return boxes;
+  }
+
+
+  /**
+   * A volume with fixed bounds.
+   */
+  private static final class Box implements Volume {
+
+    private final AABB bounds;
+
+    private Box(AABB bounds) {
+      this.bounds = bounds;
+    }
+
+    @Override
+    public AABB getBounds() {
+      return bounds;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the selections of {@link OctreeKOP} against brute force, for trees
+ * built by inserting and by bulk loading.
+ */
+public class OctreeKOPTest {
+
+  private static final AABB ROOT = new AABB(0, 1024, 0, 1024, 0, 1024);
+
+
+  @Test
+  public void bulkLoadedTreeSelectsLikeBruteForce() {
+    List<Box> boxes = boxes(new Random(1), 20000);
+    check(OctreeKOP.build(ROOT, boxes), boxes, new Random(2));
+  }
+
+
+  @Test
+  public void insertedTreeSelectsLikeBruteForce() {
+    List<Box> boxes = boxes(new Random(3), 3000);
+    OctreeKOP<Box> octree = new OctreeKOP<>(ROOT);
+    for (Box box : boxes) {
+      octree = octree.insert(box);
+    }
+    check(octree, boxes, new Random(4));
+  }
+
+
+  @Test
+  public void splitChildrenKeepLoosenessAndCapacity() {
+    List<Box> boxes = boxes(new Random(8), 2000);
+    OctreeKOP<Box> octree = new OctreeKOP<>(ROOT, 1.2, 4);
+    for (Box box : boxes) {
+      octree = octree.insert(box);
+    }
+    check(octree, boxes, new Random(9));
+    assertEquals(true, octree.depth() > new OctreeKOP<Box>(ROOT).insert(boxes).depth());
+  }
+
+
+  @Test
+  public void deletedEntriesAreNotSelected() {
+    List<Box> boxes = boxes(new Random(5), 2000);
+    OctreeKOP<Box> octree = OctreeKOP.build(ROOT, boxes);
+    List<Box> kept = new ArrayList<>();
+    for (int i = 0; i < boxes.size(); i++) {
+      if (i % 3 == 0) {
+        octree = octree.delete(boxes.get(i));
+      } else {
+        kept.add(boxes.get(i));
+      }
+    }
+    check(octree, kept, new Random(6));
+  }
+
+
+  @Test
+  public void emptyTreeSelectsNothing() {
+    OctreeKOP<Box> octree = new OctreeKOP<>(ROOT);
+    QueryBox box = new QueryBox().set(ROOT);
+    assertEquals(0, octree.count(box));
+    assertEquals(0, octree.select(ROOT).size());
+  }
+
+
+  @Test
+  public void visitorStopsEarly() {
+    List<Box> boxes = boxes(new Random(7), 1000);
+    OctreeKOP<Box> octree = OctreeKOP.build(ROOT, boxes);
+    int[] visited = new int[1];
+    assertFalse(octree.select(new QueryBox().set(ROOT), box -> ++visited[0] < 10));
+    assertEquals(10, visited[0]);
+  }
+
+
+  private static void check(OctreeKOP<Box> octree, List<Box> boxes,
+                            Random random) {
+    assertEquals(boxes.size(), octree.size());
+    QueryBox box = new QueryBox();
+    for (int query = 0; query < 200; query++) {
+      double x = random.nextDouble() * 1100 - 50;
+      double y = random.nextDouble() * 1100 - 50;
+      double z = random.nextDouble() * 1100 - 50;
+      double size = random.nextDouble() * 100;
+      AABB bounds = new AABB(x, x + size, y, y + size, z, z + size);
+
+      Set<Box> expected = new HashSet<>();
+      for (Box entry : boxes) {
+        if (entry.getBounds().intersects(bounds)) {
+          expected.add(entry);
+        }
+      }
+      assertEquals(expected, new HashSet<>(octree.select(bounds)));
+      assertEquals(expected.size(), octree.select(bounds).size());
+      assertEquals(expected.size(), octree.count(box.set(bounds)));
+
+      Set<Box> visited = new HashSet<>();
+      octree.select(box, visited::add);
+      assertEquals(expected, visited);
+    }
+  }
+
+
+  private static List<Box> boxes(Random random, int count) {
+    List<Box> boxes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      // entries must lie in the root to be stored
+      double size = random.nextDouble() < 0.1 ? random.nextDouble() * 200 : 1 + random.nextDouble() * 10;
+      double x = random.nextDouble() * (1024 - size);
+      double y = random.nextDouble() * (1024 - size);
+      double z = random.nextDouble() * (1024 - size);
+      boxes.add(new Box(new AABB(x, x + size, y, y + size, z, z + size)));
+    }
+    return boxes;
+  }
+
+
+  private static final class Box implements Volume {
+
+    private final AABB bounds;
+
+    Box(AABB bounds) {
+      this.bounds = bounds;
+    }
+
+    @Override
+    public AABB getBounds() {
+      return bounds;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package Octree;
+
+import java.util.Random;
+
+
+/**
+ * Compares the batch intersection test of {@link PackedBounds} with calling
+ * {@link AABB#intersects(AABB)} on an array of boxes.
+ * Run with: java Octree.PackedBoundsBenchmark [boxes] [queries]
+ */
+public class PackedBoundsBenchmark {
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+    Random random = new Random(42);
+    AABB[] boxes = new AABB[count];
+    PackedBounds packed = new PackedBounds(count);
+    for (int i = 0; i < count; i++) {
+      double x = random.nextDouble() * 1000;
+      double y = random.nextDouble() * 250;
+      double z = random.nextDouble() * 1000;
+      double size = 1 + random.nextDouble() * 30;
+      boxes[i] = new AABB(x, x + size, y, y + size, z, z + size);
+      packed.add(boxes[i]);
+    }
+
+    AABB[] queryBoxes = new AABB[queries];
+    for (int i = 0; i < queries; i++) {
+      double x = random.nextDouble() * 1000;
+      double y = random.nextDouble() * 250;
+      double z = random.nextDouble() * 1000;
+      queryBoxes[i] = new AABB(x, x + 40, y, y + 40, z, z + 40);
+    }
+
+    byte[] hits = new byte[count];
+    QueryBox box = new QueryBox();
+    long objectHits = 0;
+    long packedHits = 0;
+    double objectNs = 0;
+    double packedNs = 0;
+    for (int round = 0; round < 5; round++) {
+      // the first rounds warm up the JIT, the last one is reported
+      long start = System.nanoTime();
+      objectHits = 0;
+      for (AABB query : queryBoxes) {
+        for (AABB bounds : boxes) {
+          if (bounds.intersects(query)) {
+            objectHits++;
+          }
+        }
+      }
+      objectNs = (System.nanoTime() - start) / (double) queries / count;
+
+      start = System.nanoTime();
+      packedHits = 0;
+      for (AABB query : queryBoxes) {
+        packedHits += packed.intersects(box.set(query), 0, count, hits);
+      }
+      packedNs = (System.nanoTime() - start) / (double) queries / count;
+    }
+
+    if (objectHits != packedHits) {
+      throw new IllegalStateException("Hit counts differ: " + objectHits +
+                                      " != " + packedHits);
+    }
+    System.out.printf("%d boxes, %d queries, %d hits%n", count, queries,
+                      packedHits);
+    System.out.printf("AABB.intersects  %6.2f ns/box%n", objectNs);
+    System.out.printf("PackedBounds     %6.2f ns/box%n", packedNs);
+  }
+}
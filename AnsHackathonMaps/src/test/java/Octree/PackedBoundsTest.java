@@ -0,0 +1,179 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that the tests of {@link PackedBounds} agree with
+ * {@link AABB#intersects(AABB)}, {@link AABB#contains(double, double, double)}
+ * and {@link AABB#contains(AABB)}, also for the values where arithmetic tricks
+ * differ from comparisons.
+ */
+public class PackedBoundsTest {
+
+  private static final double[] SPECIAL = {
+      0.0, -0.0, 1, -1, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+      Double.NaN, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE
+  };
+
+
+  @Test
+  public void randomBoxesAgreeWithAABB() {
+    check(new Random(1), 0);
+  }
+
+
+  @Test
+  public void specialValuesAgreeWithAABB() {
+    check(new Random(2), 0.5);
+  }
+
+
+  @Test
+  public void signedZeroTouchIsNoIntersection() {
+    PackedBounds packed = new PackedBounds(1);
+    packed.add(-1, 0.0, -1, 1, -1, 1);
+    QueryBox box = new QueryBox().set(-0.0, 1, -1, 1, -1, 1);
+    assertEquals(0, packed.count(box));
+    assertEquals(false, packed.intersects(box, 0));
+  }
+
+
+  @Test
+  public void infiniteBoundsTouchIsNoIntersection() {
+    double inf = Double.POSITIVE_INFINITY;
+    PackedBounds packed = new PackedBounds(2);
+    packed.add(-inf, -inf, 0, 1, 0, 1);
+    packed.add(inf, inf, 0, 1, 0, 1);
+    QueryBox box = new QueryBox().set(-inf, -inf, 0, 1, 0, 1);
+    assertEquals(0, packed.count(box));
+    box.set(inf, inf, 0, 1, 0, 1);
+    assertEquals(0, packed.count(box));
+
+    assertEquals(true, packed.contains(1, inf, 0.5, 0.5));
+    assertEquals(true, packed.contains(0, -inf, 0.5, 0.5));
+  }
+
+
+  @Test
+  public void octantsMatchCreateBoxes() {
+    AABB bounds = new AABB(-3, 5, 0.5, 1.5, -100, 28);
+    PackedBounds packed = new PackedBounds(1);
+    packed.add(bounds);
+    int first = packed.addOctants(0);
+    AABB[] boxes = bounds.createBoxes();
+    for (int i = 0; i < boxes.length; i++) {
+      assertEquals(boxes[i], packed.get(first + i));
+    }
+  }
+
+
+  @Test
+  public void octantOfPointMatchesOctants() {
+    AABB bounds = new AABB(-3, 5, 0.5, 1.5, -100, 28);
+    PackedBounds packed = new PackedBounds(1);
+    packed.add(bounds);
+    int first = packed.addOctants(0);
+    Random random = new Random(3);
+    for (int i = 0; i < 1000; i++) {
+      double x = -3 + 8 * random.nextInt(17) / 16.0;
+      double y = 0.5 + random.nextInt(17) / 16.0;
+      double z = -100 + 128 * random.nextDouble();
+      int octant = packed.octant(0, x, y, z);
+      // points on a center plane belong to the upper octant
+      int expected = (x >= 1 ? 4 : 0) | (y >= 1 ? 2 : 0) | (z >= -36 ? 1 : 0);
+      assertEquals(expected, octant);
+      assertEquals(true, packed.contains(first + octant, x, y, z));
+    }
+  }
+
+
+  @Test
+  public void grownBoxMatchesAABB() {
+    AABB bounds = new AABB(-3, 5, 0.5, 1.5, -100, 28);
+    PackedBounds packed = new PackedBounds(1);
+    packed.add(bounds);
+    int copy = packed.add(packed, 0);
+    packed.grow(copy, 1.5);
+    assertEquals(bounds, packed.get(0));
+    assertEquals(bounds.grow(1.5), packed.get(copy));
+  }
+
+
+  /**
+   * Compares all batch tests with AABB for random boxes, drawn from the
+   * special values with the given probability.
+   */
+  private static void check(Random random, double special) {
+    int n = 500;
+    AABB[] boxes = new AABB[n];
+    PackedBounds packed = new PackedBounds(4);
+    for (int i = 0; i < n; i++) {
+      boxes[i] = randomBox(random, special);
+      packed.add(boxes[i]);
+    }
+
+    byte[] hits = new byte[n];
+    QueryBox box = new QueryBox();
+    for (int query = 0; query < 500; query++) {
+      AABB bounds = randomBox(random, special);
+      box.set(bounds);
+      int from = random.nextInt(n);
+      int to = from + random.nextInt(n - from + 1);
+
+      int expected = 0;
+      int expectedRange = 0;
+      for (int i = 0; i < n; i++) {
+        boolean intersects = boxes[i].intersects(bounds);
+        assertEquals(intersects, packed.intersects(box, i));
+        if (intersects) {
+          expected++;
+          if (i >= from && i < to) {
+            expectedRange++;
+          }
+        }
+      }
+      assertEquals(expected, packed.count(box));
+      assertEquals(expectedRange, packed.count(box, from, to));
+
+      assertEquals(expectedRange, packed.intersects(box, from, to, hits));
+      for (int i = from; i < to; i++) {
+        assertEquals(boxes[i].intersects(bounds) ? 1 : 0, hits[i - from]);
+      }
+
+      double x = value(random, special);
+      double y = value(random, special);
+      double z = value(random, special);
+      for (int i = from; i < to; i++) {
+        assertEquals(boxes[i].contains(x, y, z), packed.contains(i, x, y, z));
+        assertEquals(boxes[i].contains(bounds), packed.contains(i, bounds));
+      }
+    }
+  }
+
+
+  private static AABB randomBox(Random random, double special) {
+    double[] bounds = new double[6];
+    for (int axis = 0; axis < 3; axis++) {
+      double a = value(random, special);
+      double b = value(random, special);
+      // NaN bounds are kept as they are, AABB accepts them
+      bounds[2 * axis] = b < a ? b : a;
+      bounds[2 * axis + 1] = b < a ? a : b;
+    }
+    return new AABB(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4],
+                    bounds[5]);
+  }
+
+
+  private static double value(Random random, double special) {
+    if (random.nextDouble() < special) {
+      return SPECIAL[random.nextInt(SPECIAL.length)];
+    }
+    return random.nextInt(8) - 4 + random.nextInt(3) * 0.5;
+  }
+}
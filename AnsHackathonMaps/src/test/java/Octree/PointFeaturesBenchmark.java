@@ -0,0 +1,106 @@
+package Octree;
+
+import java.util.Random;
+
+
+/**
+ * Computes {@link PointFeatures} for a synthetic scan of rolling terrain with
+ * buildings, reporting points per second. Before timing, the features of a
+ * tilted plane, a line and a wall are checked against their known normals
+ * and shapes.
+ * Run with: java Octree.PointFeaturesBenchmark [points] [neighbours] [rounds]
+ */
+public class PointFeaturesBenchmark {
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    int neighbours = args.length > 1 ? Integer.parseInt(args[1]) : PointFeatures.DEFAULT_NEIGHBOURS;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+    Random random = new Random(42);
+    check(random);
+
+    double[] x = new double[count];
+    double[] y = new double[count];
+    double[] z = new double[count];
+    double side = Math.sqrt(count / 4.0);
+    for (int i = 0; i < count; i++) {
+      x[i] = random.nextDouble() * side;
+      y[i] = random.nextDouble() * side;
+      z[i] = 10 * Math.sin(x[i] / 50) + random.nextDouble() * 0.05;
+      // every tenth point on a wall of a 20 m building grid
+      if (i % 10 == 0) {
+        x[i] = Math.floor(x[i] / 20) * 20;
+        z[i] += random.nextDouble() * 10;
+      }
+    }
+    PointOctree tree = PointOctree.build(x, y, z);
+
+    // warm up
+    PointFeatures.compute(tree, neighbours);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      PointFeatures.compute(tree, neighbours);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9 / rounds;
+    System.out.printf("%d points, k = %d, %d threads: %.2f s, %.2f M points/s%n",
+                      count, neighbours, Runtime.getRuntime().availableProcessors(),
+                      seconds, count / seconds / 1e6);
+  }
+
+
+  private static void check(Random random) {
+    int count = 30000;
+    double[] x = new double[count];
+    double[] y = new double[count];
+    double[] z = new double[count];
+    for (int i = 0; i < count; i++) {
+      double u = random.nextDouble() * 40;
+      double v = random.nextDouble() * 40;
+      switch (i % 3) {
+        case 0:
+          // plane z = 0.5x + 0.2y
+          x[i] = u;
+          y[i] = v;
+          z[i] = 0.5 * u + 0.2 * v;
+          break;
+        case 1:
+          // line along x
+          x[i] = u;
+          y[i] = 60;
+          z[i] = 60;
+          break;
+        default:
+          // wall x = 100
+          x[i] = 100;
+          y[i] = u;
+          z[i] = v;
+      }
+    }
+    PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z), 16);
+
+    double length = Math.sqrt(0.5 * 0.5 + 0.2 * 0.2 + 1);
+    for (int i = 0; i < count; i++) {
+      switch (i % 3) {
+        case 0:
+          if (Math.abs(features.getNormalX(i) + 0.5 / length) > 1e-5
+              || Math.abs(features.getNormalY(i) + 0.2 / length) > 1e-5
+              || Math.abs(features.getNormalZ(i) - 1 / length) > 1e-5) {
+            throw new IllegalStateException("Wrong normal on the plane at " + i);
+          }
+          break;
+        case 1:
+          if (features.getLinearity(i) < 0.999) {
+            throw new IllegalStateException("Line not linear at " + i);
+          }
+          break;
+        default:
+          if (features.getVerticality(i) < 0.999
+              || features.getLinearity(i) + features.getPlanarity(i) < 0.999) {
+            throw new IllegalStateException("Wall not vertical and flat at " + i);
+          }
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link PointFeatures} on shapes with known features: a level and a
+ * tilted plane, a line and a wall.
+ */
+public class PointFeaturesTest {
+
+  private static final int COUNT = 5000;
+
+
+  @Test
+  public void planeIsPlanar() {
+    // a level grid; the 9 nearest neighbours of an inner point are its 3 x 3
+    // block, whose covariance is the same in x and y
+    int side = 60;
+    double[] x = new double[side * side];
+    double[] y = new double[side * side];
+    double[] z = new double[side * side];
+    for (int i = 0; i < side * side; i++) {
+      x[i] = i % side;
+      y[i] = i / side;
+      z[i] = 3;
+    }
+    PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z), 9);
+    assertEquals(side * side, features.size());
+
+    for (int i = 0; i < side * side; i++) {
+      if (x[i] < 1 || y[i] < 1 || x[i] > side - 2 || y[i] > side - 2) {
+        continue;
+      }
+      assertEquals(1, features.getPlanarity(i), 1e-5);
+      assertEquals(0, features.getLinearity(i), 1e-5);
+      assertEquals(1, features.getNormalZ(i), 1e-5);
+      assertEquals(0, features.getVerticality(i), 1e-5);
+    }
+  }
+
+
+  @Test
+  public void tiltedPlaneHasItsNormal() {
+    Random random = new Random(44);
+    double[] x = new double[COUNT];
+    double[] y = new double[COUNT];
+    double[] z = new double[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      x[i] = random.nextDouble() * 30;
+      y[i] = random.nextDouble() * 30;
+      z[i] = 0.5 * x[i] + 0.2 * y[i];
+    }
+    PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z),
+                                                   PointFeatures.DEFAULT_NEIGHBOURS);
+
+    double length = Math.sqrt(0.5 * 0.5 + 0.2 * 0.2 + 1);
+    for (int i = 0; i < COUNT; i++) {
+      // no spread across the plane, whatever the shape of the neighbourhood
+      assertEquals(1, features.getPlanarity(i) + features.getLinearity(i), 1e-5);
+      assertEquals(-0.5 / length, features.getNormalX(i), 1e-5);
+      assertEquals(-0.2 / length, features.getNormalY(i), 1e-5);
+      assertEquals(1 / length, features.getNormalZ(i), 1e-5);
+      assertEquals(1 - 1 / length, features.getVerticality(i), 1e-5);
+    }
+  }
+
+
+  @Test
+  public void lineIsLinear() {
+    Random random = new Random(45);
+    double[] x = new double[COUNT];
+    double[] y = new double[COUNT];
+    double[] z = new double[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      double t = random.nextDouble() * 100;
+      x[i] = t;
+      y[i] = 2 * t;
+      z[i] = 5;
+    }
+    PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z),
+                                                   PointFeatures.DEFAULT_NEIGHBOURS);
+    for (int i = 0; i < COUNT; i++) {
+      assertEquals(1, features.getLinearity(i), 1e-5);
+      assertEquals(0, features.getPlanarity(i), 1e-5);
+    }
+  }
+
+
+  @Test
+  public void wallIsVertical() {
+    Random random = new Random(46);
+    double[] x = new double[COUNT];
+    double[] y = new double[COUNT];
+    double[] z = new double[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      x[i] = 7;
+      y[i] = random.nextDouble() * 30;
+      z[i] = random.nextDouble() * 30;
+    }
+    PointFeatures features = PointFeatures.compute(PointOctree.build(x, y, z),
+                                                   PointFeatures.DEFAULT_NEIGHBOURS);
+    for (int i = 0; i < COUNT; i++) {
+      assertEquals(1, features.getVerticality(i), 1e-5);
+      assertEquals(1, Math.abs(features.getNormalX(i)), 1e-5);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the bulk-built point octree against brute force, including clouds
+ * whose points cannot be separated by subdivision.
+ */
+public class PointOctreeTest {
+
+  /**
+   * More points than one builder task handles in place.
+   */
+  private static final int LARGE = (1 << 16) + 1000;
+
+
+  @Test
+  public void coincidentPointsStopAtMaximumDepth() {
+    double[] x = new double[LARGE];
+    double[] y = new double[LARGE];
+    double[] z = new double[LARGE];
+    Arrays.fill(x, 1);
+    Arrays.fill(y, 2);
+    Arrays.fill(z, 3);
+
+    PointOctree octree = PointOctree.build(x, y, z);
+    assertEquals(LARGE, octree.size());
+    assertTrue("depth " + octree.depth(), octree.depth() <= 21);
+    assertEquals(LARGE, countBox(octree, 0, 4, 0, 4, 0, 4));
+    assertEquals(LARGE, countRadius(octree, 1, 2, 3, 0));
+
+    int[] indices = new int[10];
+    double[] distances = new double[10];
+    assertEquals(10, octree.nearest(1, 2, 3, 10, indices, distances));
+    for (double distance : distances) {
+      assertEquals(0, distance, 0);
+    }
+  }
+
+
+  @Test
+  public void clusterOfDuplicatesInLargeCloud() {
+    Random random = new Random(1);
+    int n = 2 * LARGE;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    double[] z = new double[n];
+    for (int i = 0; i < n; i++) {
+      boolean duplicate = i % 2 == 0;
+      x[i] = duplicate ? 0.25 : random.nextDouble();
+      y[i] = duplicate ? 0.5 : random.nextDouble();
+      z[i] = duplicate ? 0.75 : random.nextDouble();
+    }
+
+    PointOctree octree = PointOctree.build(x, y, z, 8);
+    assertTrue("depth " + octree.depth(), octree.depth() <= 21);
+    assertBoxMatches(octree, x, y, z, 0.2, 0.3, 0.4, 0.6, 0.7, 0.8);
+    assertBoxMatches(octree, x, y, z, 0.1, 0.15, 0.1, 0.9, 0.3, 0.35);
+    assertEquals(LARGE, countRadius(octree, 0.25, 0.5, 0.75, 0));
+  }
+
+
+  @Test
+  public void queriesMatchBruteForce() {
+    Random random = new Random(2);
+    int n = 5000;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    double[] z = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = random.nextGaussian();
+      y[i] = random.nextGaussian();
+      z[i] = random.nextGaussian() * 0.1;
+    }
+    PointOctree octree = PointOctree.build(x, y, z, 4);
+
+    for (int query = 0; query < 20; query++) {
+      double cx = random.nextGaussian();
+      double cy = random.nextGaussian();
+      double cz = random.nextGaussian() * 0.1;
+      double r = random.nextDouble();
+      assertBoxMatches(octree, x, y, z, cx - r, cx + r, cy - r, cy + r,
+                       cz - r, cz + r);
+
+      int expected = 0;
+      double[] all = new double[n];
+      for (int i = 0; i < n; i++) {
+        double dx = x[i] - cx, dy = y[i] - cy, dz = z[i] - cz;
+        all[i] = dx * dx + dy * dy + dz * dz;
+        if (all[i] <= r * r) {
+          expected++;
+        }
+      }
+      assertEquals(expected, countRadius(octree, cx, cy, cz, r));
+
+      int k = 7;
+      int[] indices = new int[k];
+      double[] distances = new double[k];
+      assertEquals(k, octree.nearest(cx, cy, cz, k, indices, distances));
+      Arrays.sort(all);
+      for (int i = 0; i < k; i++) {
+        assertEquals(all[i], distances[i], 1e-12);
+      }
+    }
+  }
+
+
+  private static void assertBoxMatches(PointOctree octree, double[] x,
+                                       double[] y, double[] z, double minX,
+                                       double maxX, double minY, double maxY,
+                                       double minZ, double maxZ) {
+    int expected = 0;
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY &&
+          z[i] >= minZ && z[i] <= maxZ) {
+        expected++;
+      }
+    }
+    assertEquals(expected, countBox(octree, minX, maxX, minY, maxY, minZ, maxZ));
+  }
+
+
+  private static int countBox(PointOctree octree, double minX, double maxX,
+                              double minY, double maxY, double minZ,
+                              double maxZ) {
+    AtomicInteger count = new AtomicInteger();
+    octree.selectBox(minX, maxX, minY, maxY, minZ, maxZ,
+                     index -> count.incrementAndGet());
+    return count.get();
+  }
+
+
+  private static int countRadius(PointOctree octree, double x, double y,
+                                 double z, double radius) {
+    AtomicInteger count = new AtomicInteger();
+    octree.selectRadius(x, y, z, radius, index -> count.incrementAndGet());
+    return count.get();
+  }
+}
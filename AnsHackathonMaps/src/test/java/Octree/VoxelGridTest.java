@@ -0,0 +1,172 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ConvexHull.Point3d;
+
+
+/**
+ * Tests the statistics of {@link VoxelGrid}: classification votes, means,
+ * the parallel build and coarsening, against sums over the points.
+ */
+public class VoxelGridTest {
+
+  @Test
+  public void majorityClassWinsTheVote() {
+    VoxelGrid grid = new VoxelGrid(1, 0, 0, 0);
+    int slot = grid.add(0.1, 0.2, 0.3, 5, 0, 0, 0, 0);
+    grid.add(0.4, 0.5, 0.6, 2, 0, 0, 0, 0);
+    grid.add(0.7, 0.8, 0.9, 2, 0, 0, 0, 0);
+    // out of range classifications are counted as points only
+    grid.add(0.5, 0.5, 0.5, 40, 0, 0, 0, 0);
+
+    assertEquals(1, grid.size());
+    assertEquals(4, grid.getCount(slot));
+    assertEquals(2, grid.getMajorityClass(slot));
+    assertEquals(2, grid.getClassCount(slot, 2));
+    assertEquals(1, grid.getClassCount(slot, 5));
+    assertEquals(0, grid.getClassCount(slot, 40));
+
+    // ties go to the lower classification
+    grid.add(0.5, 0.5, 0.5, 5, 0, 0, 0, 0);
+    assertEquals(2, grid.getMajorityClass(slot));
+  }
+
+
+  @Test
+  public void meansOfIntensityAndColour() {
+    VoxelGrid grid = new VoxelGrid(2, 0, 0, 0);
+    int slot = grid.add(0, 0, 0, 1, 10, 255, 0, 30);
+    grid.add(1.5, 1.5, 1.5, 1, 20, 0, 100, 30);
+    grid.add(1, 1, 1, 1, 60, 0, 50, 30);
+
+    assertEquals(30, grid.getIntensity(slot), 1e-12);
+    assertEquals(85, grid.getRed(slot));
+    assertEquals(50, grid.getGreen(slot));
+    assertEquals(30, grid.getBlue(slot));
+  }
+
+
+  @Test
+  public void voxelsRoundDownFromTheOrigin() {
+    VoxelGrid grid = new VoxelGrid(0.5, -0.25, 10, 0);
+    int slot = grid.add(-0.3, 10, 0.49, 2, 0, 0, 0, 0);
+    assertEquals(-1, grid.getX(slot));
+    assertEquals(0, grid.getY(slot));
+    assertEquals(0, grid.getZ(slot));
+    assertEquals(slot, grid.find(-1, 0, 0));
+    assertEquals(-1, grid.find(0, 0, 0));
+
+    Cube3d cube = grid.toCubes().get(slot);
+    assertEquals(-0.75, cube.minX, 1e-12);
+    assertEquals(-0.25, cube.maxX, 1e-12);
+    assertEquals(10, cube.minY, 1e-12);
+    assertEquals(0.5, cube.maxZ, 1e-12);
+    assertEquals(-1, (int) cube.getMineX());
+    assertEquals(2, (int) cube.getMostClassification());
+    assertEquals(1, cube.getPointCount());
+  }
+
+
+  @Test
+  public void parallelBuildCountsEveryPoint() {
+    Random random = new Random(1);
+    List<Point3d> points = new ArrayList<>();
+    for (int i = 0; i < 300000; i++) {
+      points.add(new Point3d(random.nextDouble() * 40 - 20,
+                             random.nextDouble() * 40 - 20,
+                             random.nextDouble() * 10,
+                             random.nextInt(256),
+                             random.nextInt(256),
+                             random.nextInt(256),
+                             random.nextInt(1000),
+                             random.nextInt(10)));
+    }
+    VoxelGrid grid = VoxelGrid.build(points, 2, 0, 0, 0);
+
+    // expected statistics per voxel, the voxels are 20 x 20 x 5
+    int[] counts = new int[20 * 20 * 5];
+    int[][] classes = new int[counts.length][10];
+    double[] intensities = new double[counts.length];
+    long[] reds = new long[counts.length];
+    for (Point3d p : points) {
+      int index = index(Math.floorDiv((int) Math.floor(p.x), 2),
+                        Math.floorDiv((int) Math.floor(p.y), 2),
+                        Math.floorDiv((int) Math.floor(p.z), 2));
+      counts[index]++;
+      classes[index][(int) p.c]++;
+      intensities[index] += p.i;
+      reds[index] += p.r;
+    }
+
+    assertEquals(counts.length, grid.size());
+    for (int slot = 0; slot < grid.size(); slot++) {
+      int index = index(grid.getX(slot), grid.getY(slot), grid.getZ(slot));
+      assertEquals(counts[index], grid.getCount(slot));
+      for (int c = 0; c < 10; c++) {
+        assertEquals(classes[index][c], grid.getClassCount(slot, c));
+      }
+      assertEquals(intensities[index] / counts[index],
+                   grid.getIntensity(slot), 1e-9);
+      assertEquals(reds[index] / counts[index], grid.getRed(slot));
+    }
+  }
+
+
+  @Test
+  public void coarseVoxelsSumTheirChildren() {
+    Random random = new Random(2);
+    VoxelGrid grid = new VoxelGrid(1, 0, 0, 0);
+    for (int i = 0; i < 5000; i++) {
+      grid.add(random.nextInt(16) - 8 + 0.5,
+               random.nextInt(16) - 8 + 0.5,
+               random.nextInt(16) - 8 + 0.5,
+               random.nextInt(6), random.nextInt(100), 0, 0, 0);
+    }
+    VoxelGrid coarse = grid.coarsen();
+    assertEquals(2, coarse.getVoxelSize(), 0);
+
+    int points = 0;
+    for (int slot = 0; slot < coarse.size(); slot++) {
+      int x = coarse.getX(slot), y = coarse.getY(slot), z = coarse.getZ(slot);
+      int count = 0;
+      int[] classes = new int[6];
+      double intensity = 0;
+      for (int child = 0; child < 8; child++) {
+        int fine = grid.find(2 * x + (child >> 2), 2 * y + (child >> 1 & 1),
+                             2 * z + (child & 1));
+        if (fine >= 0) {
+          count += grid.getCount(fine);
+          intensity += grid.getIntensity(fine) * grid.getCount(fine);
+          for (int c = 0; c < 6; c++) {
+            classes[c] += grid.getClassCount(fine, c);
+          }
+        }
+      }
+      assertEquals(count, coarse.getCount(slot));
+      assertEquals(intensity / count, coarse.getIntensity(slot), 1e-9);
+      for (int c = 0; c < 6; c++) {
+        assertEquals(classes[c], coarse.getClassCount(slot, c));
+      }
+      points += count;
+    }
+    assertEquals(5000, points);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mergeRejectsOtherGeometry() {
+    new VoxelGrid(1, 0, 0, 0).merge(new VoxelGrid(1, 0.5, 0, 0));
+  }
+
+
+  private static int index(int x, int y, int z) {
+    return ((x + 10) * 20 + (y + 10)) * 5 + z;
+  }
+}
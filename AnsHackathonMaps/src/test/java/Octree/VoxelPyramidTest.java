@@ -0,0 +1,96 @@
+package Octree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that each level of a {@link VoxelPyramid} aggregates the 2 x 2 x 2
+ * children of the level below it.
+ */
+public class VoxelPyramidTest {
+
+  private static final int CLASSES = 8;
+
+
+  @Test
+  public void coarseLevelsAggregateTheirChildren() {
+    Random random = new Random(3);
+    VoxelGrid base = new VoxelGrid(1, -0.5, -0.5, -0.5);
+    for (int i = 0; i < 20000; i++) {
+      // clustered classes, so that the majority of a parent is not trivial
+      double x = random.nextInt(64) - 32;
+      double y = random.nextInt(64) - 32;
+      double z = random.nextInt(16);
+      int classification = (x < 0 ? 2 : 5) + (random.nextInt(4) == 0 ? 1 : 0);
+      base.add(x, y, z, classification, 0, 0, 0, 0);
+    }
+    VoxelPyramid pyramid = new VoxelPyramid(base, 4);
+    assertEquals(4, pyramid.getLevelCount());
+
+    for (int level = 1; level < pyramid.getLevelCount(); level++) {
+      VoxelGrid fine = pyramid.getLevel(level - 1);
+      VoxelGrid coarse = pyramid.getLevel(level);
+      assertEquals(VoxelPyramid.getScale(level), coarse.getVoxelSize(), 0);
+
+      int children = 0;
+      for (int slot = 0; slot < coarse.size(); slot++) {
+        int x = coarse.getX(slot), y = coarse.getY(slot), z = coarse.getZ(slot);
+        int count = 0;
+        int occupied = 0;
+        int[] classes = new int[CLASSES];
+        for (int child = 0; child < 8; child++) {
+          int index = fine.find(2 * x + (child >> 2), 2 * y + (child >> 1 & 1),
+                                2 * z + (child & 1));
+          if (index >= 0) {
+            occupied++;
+            count += fine.getCount(index);
+            for (int c = 0; c < CLASSES; c++) {
+              classes[c] += fine.getClassCount(index, c);
+            }
+          }
+        }
+        // a coarse voxel exists only if one of its children is occupied
+        assertTrue(occupied > 0);
+        assertEquals(count, coarse.getCount(slot));
+        int majority = 0;
+        for (int c = 0; c < CLASSES; c++) {
+          assertEquals(classes[c], coarse.getClassCount(slot, c));
+          if (classes[c] > classes[majority]) {
+            majority = c;
+          }
+        }
+        assertEquals(majority, coarse.getMajorityClass(slot));
+        children += occupied;
+      }
+      // and every occupied child has its parent
+      assertEquals(fine.size(), children);
+      for (int slot = 0; slot < fine.size(); slot++) {
+        assertTrue(coarse.find(Math.floorDiv(fine.getX(slot), 2),
+                               Math.floorDiv(fine.getY(slot), 2),
+                               Math.floorDiv(fine.getZ(slot), 2)) >= 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void singleLevelIsTheBase() {
+    VoxelGrid base = new VoxelGrid(1, 0, 0, 0);
+    base.add(0.5, 0.5, 0.5, 2, 0, 0, 0, 0);
+    VoxelPyramid pyramid = new VoxelPyramid(base, 1);
+    assertEquals(1, pyramid.getLevelCount());
+    assertEquals(base, pyramid.getLevel(0));
+    assertEquals(1, VoxelPyramid.getScale(0));
+  }
+
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void missingLevelIsRejected() {
+    new VoxelPyramid(new VoxelGrid(1, 0, 0, 0), 2).getLevel(2);
+  }
+}
@@ -0,0 +1,89 @@
+package Octree.math;
+
+import java.util.function.Function;
+
+
+/**
+ * Times the LU, QR and Cholesky decompositions of square matrices with the
+ * textbook algorithms ({@link DefaultLU#crout}, {@link DefaultQR#householder},
+ * {@link DefaultCholesky#left}) and with the blocked ones that
+ * {@link Matrix#lu()}, {@link Matrix#qr()} and {@link Matrix#chol()} use for
+ * large matrices. Before timing, the blocked results are checked against the
+ * textbook ones on sizes that do not fill the last panel.
+ * Run with: java Octree.math.DecompositionBenchmark [max size] [max textbook size]
+ */
+public class DecompositionBenchmark {
+
+  public static void main(String[] args) {
+    int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+    // the textbook algorithms take minutes at the largest sizes
+    int maxTextbook = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+    check(37);
+    check(200);
+
+    System.out.printf("%6s %10s %10s %10s %10s %10s %10s%n", "size",
+                      "lu", "blocked", "qr", "blocked", "chol", "blocked");
+    for (int size = 256; size <= maxSize; size *= 2) {
+      Matrix a = Matrix.random(size, size, size);
+      Matrix spd = symmetricPositiveDefinite(a);
+      boolean textbook = size <= maxTextbook;
+      System.out.printf("%6d %s %s %s %s %s %s%n", size,
+                        time(DefaultLU::crout, a, textbook),
+                        time(DefaultLU::blocked, a, true),
+                        time(DefaultQR::householder, a, textbook),
+                        time(DefaultQR::blocked, a, true),
+                        time(DefaultCholesky::left, spd, textbook),
+                        time(DefaultCholesky::blocked, spd, true));
+    }
+  }
+
+
+  private static String time(Function<Matrix, ?> decomposition,
+                             Matrix matrix,
+                             boolean run) {
+    if (!run) {
+      return String.format("%10s", "-");
+    }
+    // warm up
+    decomposition.apply(matrix);
+
+    long start = System.nanoTime();
+    decomposition.apply(matrix);
+    return String.format("%8.3f s", (System.nanoTime() - start) / 1e9);
+  }
+
+
+  private static Matrix symmetricPositiveDefinite(Matrix a) {
+    Matrix product = a.multiply(a.transpose())
+        .add(Matrix.identity(a.getRowDimension()));
+    // make it exactly symmetric
+    return product.add(product.transpose()).multiply(0.5);
+  }
+
+
+  private static void check(int size) {
+    Matrix a = Matrix.random(size, size, 1);
+    LU lu = DefaultLU.crout(a);
+    LU blockedLU = DefaultLU.blocked(a);
+    QR qr = DefaultQR.householder(a);
+    QR blockedQR = DefaultQR.blocked(a);
+    Matrix spd = symmetricPositiveDefinite(a);
+    Cholesky chol = DefaultCholesky.left(spd);
+    Cholesky blockedChol = DefaultCholesky.blocked(spd);
+
+    double tolerance = 1e-10;
+    if (!java.util.Arrays.equals(lu.getPivot(), blockedLU.getPivot())
+        || !lu.getL().equals(blockedLU.getL(), tolerance)
+        || !lu.getU().equals(blockedLU.getU(), tolerance)) {
+      throw new IllegalStateException("Blocked LU differs at size " + size);
+    }
+    if (!qr.getH().equals(blockedQR.getH(), tolerance)
+        || !qr.getR().equals(blockedQR.getR(), tolerance)) {
+      throw new IllegalStateException("Blocked QR differs at size " + size);
+    }
+    if (!chol.getL().equals(blockedChol.getL(), tolerance)) {
+      throw new IllegalStateException("Blocked Cholesky differs at size " + size);
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the blocked LU, QR and Cholesky decompositions against the textbook
+ * versions they replace for large matrices, on shapes below, at and across
+ * the panel width, on tall and wide, singular and rank-deficient matrices,
+ * and on empty ones.
+ * <p>
+ * The textbook getU, getR and getQ build n&times;n (or m&times;n) matrices
+ * from the stored factors, which only works for m &ge; n; for wide matrices
+ * the stored factors are compared through getL and getH.
+ */
+public class DecompositionTest {
+
+  private static final int[][] SHAPES = {
+      {0, 0}, {1, 1}, {2, 2}, {5, 5}, {64, 64}, {130, 130}, {200, 70}, {3, 0}};
+
+  private static final int[][] WIDE = {{0, 3}, {1, 5}, {70, 200}};
+
+  private final Random random = new Random(48);
+
+
+  @Test
+  public void luMatchesCrout() {
+    for (int[] shape : SHAPES) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      LU expected = DefaultLU.crout(a);
+      LU actual = DefaultLU.blocked(a);
+      assertSameLU(expected, actual);
+      if (shape[0] == shape[1]) {
+        assertEquals(expected.det(), actual.det(), 1e-10 * java.lang.Math.abs(expected.det()));
+      }
+      assertTrue(permuted(a, actual.getPivot()).equals(actual.getL().multiply(actual.getU()), 1e-12));
+    }
+  }
+
+
+  @Test
+  public void luOfWideMatrices() {
+    for (int[] shape : WIDE) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      LU expected = DefaultLU.crout(a);
+      LU actual = DefaultLU.blocked(a);
+      assertArrayEquals(expected.getPivot(), actual.getPivot());
+      assertTrue(expected.getL().equals(actual.getL(), 1e-12));
+    }
+  }
+
+
+  @Test
+  public void luOfSingularMatrix() {
+    // a zero column leaves an exact zero on the diagonal of U
+    double[] data = randomArray(130 * 130);
+    for (int i = 0; i < 130; i++) {
+      data[i * 130 + 100] = 0;
+    }
+    Matrix a = create(130, 130, data);
+    LU expected = DefaultLU.crout(a);
+    LU actual = DefaultLU.blocked(a);
+    assertSameLU(expected, actual);
+    assertEquals(0.0, actual.det(), 0.0);
+    Matrix b = randomMatrix(130, 1);
+    assertFalse(expected.solve(b).isPresent());
+    assertFalse(actual.solve(b).isPresent());
+  }
+
+
+  @Test
+  public void luOfRankDeficientMatrix() {
+    Matrix a = randomMatrix(150, 40).multiply(randomMatrix(40, 150));
+    LU actual = DefaultLU.blocked(a);
+    assertTrue(permuted(a, actual.getPivot()).equals(actual.getL().multiply(actual.getU()), 1e-10));
+    assertEquals(0.0, actual.det(), 1e-6);
+  }
+
+
+  @Test
+  public void luOfZeroMatrix() {
+    Matrix a = create(70, 70, new double[70 * 70]);
+    LU actual = DefaultLU.blocked(a);
+    assertSameLU(DefaultLU.crout(a), actual);
+    assertTrue(actual.getU().equals(a, 0));
+  }
+
+
+  @Test
+  public void luSolveMatchesCrout() {
+    Matrix a = randomMatrix(150, 150);
+    Matrix b = randomMatrix(150, 3);
+    Matrix expected = DefaultLU.crout(a).solve(b).get();
+    Matrix actual = DefaultLU.blocked(a).solve(b).get();
+    assertTrue(expected.equals(actual, 1e-9));
+    assertTrue(a.multiply(actual).equals(b, 1e-9));
+  }
+
+
+  @Test
+  public void qrMatchesHouseholder() {
+    for (int[] shape : SHAPES) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      QR expected = DefaultQR.householder(a);
+      QR actual = DefaultQR.blocked(a);
+      assertSameQR(expected, actual);
+      assertTrue(actual.getQ().multiply(actual.getR()).equals(a, 1e-12));
+    }
+  }
+
+
+  @Test
+  public void qrOfWideMatrices() {
+    for (int[] shape : WIDE) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      QR expected = DefaultQR.householder(a);
+      QR actual = DefaultQR.blocked(a);
+      assertTrue(expected.getH().equals(actual.getH(), 1e-12));
+      assertEquals(expected.isFullRank(), actual.isFullRank());
+    }
+  }
+
+
+  @Test
+  public void qrOfRankDeficientMatrix() {
+    // a zero column has no reflection and a zero on the diagonal of R
+    double[] data = randomArray(200 * 70);
+    for (int i = 0; i < 200; i++) {
+      data[i * 70 + 10] = 0;
+    }
+    Matrix a = create(200, 70, data);
+    QR expected = DefaultQR.householder(a);
+    QR actual = DefaultQR.blocked(a);
+    assertSameQR(expected, actual);
+    assertFalse(actual.isFullRank());
+    assertFalse(actual.solve(randomMatrix(200, 1)).isPresent());
+  }
+
+
+  @Test
+  public void qrLeastSquaresMatchesHouseholder() {
+    Matrix a = randomMatrix(300, 90);
+    Matrix b = randomMatrix(300, 2);
+    Matrix expected = DefaultQR.householder(a).solve(b).get();
+    Matrix actual = DefaultQR.blocked(a).solve(b).get();
+    assertTrue(expected.equals(actual, 1e-10));
+    // the residual is orthogonal to the columns of A
+    Matrix residual = b.subtract(a.multiply(actual));
+    assertTrue(a.transpose().multiply(residual).equals(create(90, 2, new double[180]), 1e-10));
+  }
+
+
+  @Test
+  public void choleskyMatchesLeftLooking() {
+    for (int n : new int[] {0, 1, 2, 5, 64, 130, 300}) {
+      Matrix a = randomSymmetricPositiveDefinite(n);
+      Cholesky expected = DefaultCholesky.left(a);
+      Cholesky actual = DefaultCholesky.blocked(a);
+      assertTrue(expected.getL().equals(actual.getL(), 1e-12));
+      assertTrue(actual.getL().multiply(actual.getR()).equals(a, 1e-10));
+
+      Matrix b = randomMatrix(n, 2);
+      assertTrue(expected.solve(b).get().equals(actual.solve(b).get(), 1e-9));
+    }
+  }
+
+
+  @Test
+  public void choleskyRejectsSingularMatrix() {
+    // positive semi-definite: a zero row and column
+    double[] data = randomSymmetricPositiveDefinite(130).toArray();
+    for (int i = 0; i < 130; i++) {
+      data[i * 130 + 77] = 0;
+      data[77 * 130 + i] = 0;
+    }
+    assertRejected(create(130, 130, data), "Matrix is not positive definite");
+  }
+
+
+  @Test
+  public void choleskyRejectsIndefiniteMatrix() {
+    Matrix a = randomSymmetricPositiveDefinite(130).subtract(Matrix.identity(130).multiply(1e4));
+    assertRejected(a, "Matrix is not positive definite");
+  }
+
+
+  @Test
+  public void choleskyRejectsNonSymmetricMatrix() {
+    double[] data = randomSymmetricPositiveDefinite(100).toArray();
+    data[3 * 100 + 90] += 1e-3;
+    assertRejected(create(100, 100, data), "Matrix is not symmetric");
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void choleskyRejectsNonSquareMatrix() {
+    DefaultCholesky.blocked(randomMatrix(5, 4));
+  }
+
+
+  private static void assertSameLU(LU expected, LU actual) {
+    assertArrayEquals(expected.getPivot(), actual.getPivot());
+    assertTrue(expected.getL().equals(actual.getL(), 1e-12));
+    assertTrue(expected.getU().equals(actual.getU(), 1e-10));
+  }
+
+
+  private static void assertSameQR(QR expected, QR actual) {
+    assertEquals(expected.isFullRank(), actual.isFullRank());
+    assertTrue(expected.getH().equals(actual.getH(), 1e-12));
+    assertTrue(expected.getR().equals(actual.getR(), 1e-12));
+    assertTrue(expected.getQ().equals(actual.getQ(), 1e-12));
+  }
+
+
+  private static void assertRejected(Matrix a, String message) {
+    for (int method = 0; method < 2; method++) {
+      try {
+        if (method == 0) {
+          DefaultCholesky.left(a);
+        } else {
+          DefaultCholesky.blocked(a);
+        }
+        throw new AssertionError("accepted by " + (method == 0 ? "left" : "blocked"));
+      } catch (IllegalArgumentException e) {
+        assertEquals(message, e.getMessage());
+      }
+    }
+  }
+
+
+  /**
+   * Returns the rows of a in the order of the pivot vector.
+   */
+  private static Matrix permuted(Matrix a, int[] pivot) {
+    int n = a.getColumnDimension();
+    double[] data = new double[pivot.length * n];
+    for (int i = 0; i < pivot.length; i++) {
+      for (int j = 0; j < n; j++) {
+        data[i * n + j] = a.get(pivot[i], j);
+      }
+    }
+    return create(pivot.length, n, data);
+  }
+
+
+  private Matrix randomSymmetricPositiveDefinite(int n) {
+    Matrix a = randomMatrix(n, n);
+    double[] data = a.transpose().multiply(a).toArray();
+    for (int i = 0; i < n; i++) {
+      data[i * n + i] += 1;
+      // exactly symmetric, whatever the rounding of the product
+      for (int j = 0; j < i; j++) {
+        data[j * n + i] = data[i * n + j];
+      }
+    }
+    return create(n, n, data);
+  }
+
+
+  private Matrix randomMatrix(int m, int n) {
+    return create(m, n, randomArray(m * n));
+  }
+
+
+  private double[] randomArray(int length) {
+    double[] data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = random.nextGaussian();
+    }
+    return data;
+  }
+
+
+  private static Matrix create(int m, int n, double[] data) {
+    return MatrixContext.getInstance().create(m, n, data).toMatrix();
+  }
+}
@@ -0,0 +1,70 @@
+package Octree.math;
+
+import java.util.function.Supplier;
+
+
+/**
+ * Times an element-wise chain, <i>-(0.5 &times; (A - B) + C&prime;)</i>, and a
+ * product with a scaled transpose, <i>(2 &times; A)&prime; &times; B</i>, on
+ * square matrices, with the eager operations and on {@link Matrix#lazy()}
+ * views. Before timing, the lazy results are checked against the eager ones
+ * on packed and on block matrices.
+ * Run with: java Octree.math.ExpressionBenchmark [max size] [rounds]
+ */
+public class ExpressionBenchmark {
+
+  public static void main(String[] args) {
+    int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    check(45);
+    check(301);
+
+    System.out.printf("%6s %12s %12s %12s %12s%n", "size",
+                      "chain", "lazy", "product", "lazy");
+    for (int size = 128; size <= maxSize; size *= 2) {
+      Matrix a = Matrix.random(size, size, 1);
+      Matrix b = Matrix.random(size, size, 2);
+      Matrix c = Matrix.random(size, size, 3);
+      System.out.printf("%6d %s %s %s %s%n", size,
+                        time(() -> chain(a, b, c), rounds),
+                        time(() -> chain(a.lazy(), b, c).evaluate(), rounds),
+                        time(() -> a.transpose().multiply(2).multiply(b), rounds),
+                        time(() -> a.lazy().transpose().multiply(2).multiply(b), rounds));
+    }
+  }
+
+
+  private static Matrix chain(Matrix a, Matrix b, Matrix c) {
+    return a.subtract(b).multiply(0.5).add(c.transpose()).negate();
+  }
+
+
+  private static String time(Supplier<Matrix> operation, int rounds) {
+    // warm up
+    operation.get();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      operation.get();
+    }
+    return String.format("%9.2f ms", (System.nanoTime() - start) / 1e6 / rounds);
+  }
+
+
+  private static void check(int size) {
+    Matrix a = Matrix.random(size, size + 3, 1);
+    Matrix b = Matrix.random(size, size + 3, 2);
+    Matrix c = Matrix.random(size + 3, size, 3);
+    Matrix d = Matrix.random(size + 3, 7, 4);
+
+    Matrix eager = chain(a, b, c);
+    Matrix lazy = chain(a.lazy(), b, c);
+    if (!eager.equals(lazy, 1e-12) || !eager.equals(lazy.evaluate(), 1e-12)
+        || !eager.multiply(d).equals(lazy.multiply(d), 1e-10)
+        || !a.transpose().multiply(2).multiply(a)
+             .equals(a.lazy().transpose().multiply(2).multiply(a), 1e-10)) {
+      throw new IllegalStateException("Lazy and eager results differ at size " + size);
+    }
+  }
+}
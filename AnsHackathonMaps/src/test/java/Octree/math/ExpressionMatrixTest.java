@@ -0,0 +1,175 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests lazy expressions against the eager matrix operations and against
+ * element-wise reference results, for the small fixed-size, packed and block
+ * matrices the context creates, including empty, single-row and
+ * single-column shapes and block grids that are not square.
+ */
+public class ExpressionMatrixTest {
+
+  private static final int[][] SHAPES = {
+      {0, 0}, {1, 1}, {3, 4}, {1, 40}, {40, 1}, {50, 20}, {129, 1}, {300, 70}, {70, 300}, {200, 200}};
+
+  private final Random random = new Random(49);
+
+
+  @Test
+  public void combinationMatchesEagerOperations() {
+    for (int[] shape : SHAPES) {
+      int m = shape[0];
+      int n = shape[1];
+      Matrix a = randomMatrix(m, n);
+      Matrix b = randomMatrix(m, n);
+      Matrix c = randomMatrix(n, m);
+
+      // -(0.5 (A - B) + C')
+      double[] expected = new double[m * n];
+      for (int i = 0; i < m; i++) {
+        for (int j = 0; j < n; j++) {
+          expected[i * n + j] = -(0.5 * (a.get(i, j) - b.get(i, j)) + c.get(j, i));
+        }
+      }
+      Matrix eager = a.subtract(b).multiply(0.5).add(c.transpose()).negate();
+      Matrix lazy = a.lazy().subtract(b).multiply(0.5).add(c.lazy().transpose()).negate();
+
+      assertEquals(m, lazy.getRowDimension());
+      assertEquals(n, lazy.getColumnDimension());
+      assertArrayEquals(expected, eager.toArray(), 1e-15);
+      assertArrayEquals(expected, lazy.toArray(), 1e-15);
+      assertArrayEquals(expected, lazy.evaluate().toArray(), 1e-15);
+      assertTrue(eager.equals(lazy, 1e-15));
+    }
+  }
+
+
+  @Test
+  public void transposeOfExpression() {
+    for (int[] shape : SHAPES) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      Matrix b = randomMatrix(shape[0], shape[1]);
+      Matrix eager = a.multiply(3).add(b).transpose();
+      Matrix lazy = a.lazy().multiply(3).add(b).transpose();
+      assertArrayEquals(eager.toArray(), lazy.toArray(), 1e-15);
+      assertArrayEquals(eager.toArray(), lazy.evaluate().toArray(), 1e-15);
+      // transposing twice gives the expression back
+      assertArrayEquals(a.toArray(), a.lazy().transpose().transpose().toArray(), 0);
+    }
+  }
+
+
+  @Test
+  public void productsFoldFactorAndTranspose() {
+    int[][] shapes = {{0, 0, 0}, {1, 1, 1}, {3, 4, 2}, {1, 40, 30}, {40, 1, 30}, {150, 70, 90}, {70, 150, 3}};
+    for (int[] shape : shapes) {
+      int m = shape[0];
+      int n = shape[1];
+      int k = shape[2];
+      Matrix a = randomMatrix(k, m);
+      Matrix b = randomMatrix(k, n);
+      double[] expected = product(a.transpose().toArray(), b.toArray(), m, n, k);
+      for (int i = 0; i < expected.length; i++) {
+        expected[i] *= 2;
+      }
+
+      // (2A)'B with the expression on the left, and on the right
+      Matrix left = a.lazy().multiply(2).transpose().multiply(b);
+      Matrix right = b.transpose().multiply(a.lazy().multiply(2)).transpose();
+      Matrix eager = a.multiply(2).transpose().multiply(b);
+      assertArrayEquals(expected, eager.toArray(), 1e-12);
+      assertArrayEquals(expected, left.toArray(), 1e-12);
+      assertArrayEquals(expected, right.toArray(), 1e-12);
+    }
+  }
+
+
+  @Test
+  public void productOfSums() {
+    Matrix a = randomMatrix(150, 40);
+    Matrix b = randomMatrix(150, 40);
+    Matrix c = randomMatrix(40, 60);
+    Matrix eager = a.add(b).multiply(c);
+    Matrix lazy = a.lazy().add(b).multiply(c.lazy().negate()).negate();
+    assertArrayEquals(eager.toArray(), lazy.toArray(), 1e-12);
+  }
+
+
+  @Test
+  public void longChainsAreEvaluated() {
+    for (int[] shape : new int[][] {{1, 1}, {50, 20}, {300, 70}}) {
+      Matrix a = randomMatrix(shape[0], shape[1]);
+      Matrix b = randomMatrix(shape[0], shape[1]);
+      Matrix eager = a;
+      Matrix lazy = a.lazy();
+      for (int i = 0; i < 3 * ExpressionMatrix.MAX_TERMS; i++) {
+        eager = eager.add(b).multiply(0.5);
+        lazy = lazy.add(b.lazy()).multiply(0.5);
+      }
+      assertTrue(lazy instanceof ExpressionMatrix);
+      assertArrayEquals(eager.toArray(), lazy.toArray(), 1e-14);
+      assertEquals(eager.get(shape[0] - 1, shape[1] - 1), lazy.get(shape[0] - 1, shape[1] - 1), 1e-14);
+    }
+  }
+
+
+  @Test
+  public void operandsOfOtherTypes() {
+    // transposed packed data, and a sparse matrix read through toArray
+    Matrix packed = randomMatrix(20, 50).transpose();
+    SparseMatrixBuilder builder = Matrix.sparse(50, 20);
+    for (int i = 0; i < 50; i++) {
+      builder.set(i, i % 20, i + 1);
+    }
+    Matrix sparse = builder.toMatrix();
+
+    Matrix eager = packed.subtract(sparse).multiply(-2);
+    Matrix lazy = packed.lazy().subtract(sparse).multiply(-2);
+    assertArrayEquals(eager.toArray(), lazy.toArray(), 1e-15);
+    assertArrayEquals(eager.toArray(), lazy.evaluate().toArray(), 1e-15);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMismatchedDimensions() {
+    randomMatrix(3, 4).lazy().add(randomMatrix(4, 3));
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMismatchedProduct() {
+    randomMatrix(3, 4).lazy().multiply(randomMatrix(3, 4));
+  }
+
+
+  private static double[] product(double[] a, double[] b, int m, int n, int k) {
+    double[] c = new double[m * n];
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int p = 0; p < k; p++) {
+          sum += a[i * k + p] * b[p * n + j];
+        }
+        c[i * n + j] = sum;
+      }
+    }
+    return c;
+  }
+
+
+  private Matrix randomMatrix(int m, int n) {
+    double[] data = new double[m * n];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextGaussian();
+    }
+    return MatrixContext.getInstance().create(m, n, data).toMatrix();
+  }
+}
@@ -0,0 +1,124 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link LeastSquares} and {@link Math#polyfit} against the Vandermonde
+ * QR fit that polyfit used before, including samples far from the origin,
+ * and merged accumulators against a single one.
+ */
+public class LeastSquaresTest {
+
+  private static final double[] OFFSETS = {0, 1e3, 5e4, 5e5};
+
+
+  @Test
+  public void polyfitMatchesVandermondeFit() {
+    Random random = new Random(45);
+    for (int order = 1; order <= 3; order++) {
+      for (double offset : OFFSETS) {
+        int n = 300;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+          double t = random.nextDouble() * 100;
+          xs[i] = offset + t;
+          ys[i] = 20 + 0.3 * t - 0.004 * t * t + random.nextGaussian();
+        }
+        double[] expected = vandermondeFit(xs, ys, order);
+        double[] actual = Math.polyfit(xs, ys, order);
+        assertEquals(order + 1, actual.length);
+
+        // the coefficients of far off samples are ill-conditioned, the
+        // condition number grows like (offset / range) to the power of the
+        // order; compare the fitted values within that bound
+        double tolerance = 1e-12 * java.lang.Math.pow(1 + offset / 100, order);
+        for (int i = 0; i < n; i++) {
+          assertEquals("order " + order + ", offset " + offset,
+                       Math.polynomial(xs[i], expected), Math.polynomial(xs[i], actual), tolerance);
+        }
+      }
+    }
+  }
+
+
+  @Test
+  public void parallelPolyfitMatchesOneAccumulator() {
+    Random random = new Random(46);
+    int n = 300000;
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    LeastSquares fit = LeastSquares.polynomial(2);
+    for (int i = 0; i < n; i++) {
+      xs[i] = 5e5 + random.nextDouble() * 1000;
+      ys[i] = random.nextGaussian();
+      fit.addPolynomial(xs[i], ys[i]);
+    }
+    assertEquals(n, fit.getCount());
+    double[] expected = fit.solve().get();
+    double[] actual = Math.polyfit(xs, ys, 2);
+    for (int i = 0; i < n; i += 1000) {
+      assertEquals(Math.polynomial(xs[i], expected), Math.polynomial(xs[i], actual), 1e-9);
+    }
+  }
+
+
+  @Test
+  public void mergedAccumulatorsMatchOne() {
+    Random random = new Random(47);
+    LeastSquares all = new LeastSquares(3);
+    LeastSquares first = new LeastSquares(3);
+    LeastSquares second = new LeastSquares(3);
+    double[] coefficients = {1.5, -2, 0.25};
+    for (int i = 0; i < 1000; i++) {
+      double[] a = {random.nextGaussian(), random.nextGaussian(), 1};
+      double noise = random.nextGaussian() * 0.1;
+      double y = coefficients[0] * a[0] + coefficients[1] * a[1] + coefficients[2] + noise;
+      all.add(a, y);
+      (i % 3 == 0 ? first : second).add(a, y);
+    }
+    first.merge(second);
+    assertEquals(all.getCount(), first.getCount());
+    assertArrayEquals(all.solve().get(), first.solve().get(), 1e-12);
+    assertArrayEquals(coefficients, all.solve().get(), 0.02);
+
+    // the residual of the solution, computed from the factor
+    assertEquals(all.getResidualSumOfSquares(), first.getResidualSumOfSquares(), 1e-9);
+    assertTrue(all.getResidualSumOfSquares() > 0);
+    assertTrue(all.getResidualSumOfSquares() < 1000 * 0.1 * 0.1 * 2);
+  }
+
+
+  @Test
+  public void rankDeficientSystemHasNoSolution() {
+    LeastSquares fit = new LeastSquares(2);
+    for (int i = 0; i < 10; i++) {
+      fit.add(new double[] {i, 2 * i}, i);
+    }
+    assertFalse(fit.solve().isPresent());
+  }
+
+
+  /**
+   * The fit {@link Math#polyfit} computed before the accumulator, from the
+   * QR decomposition of the whole Vandermonde matrix.
+   */
+  private static double[] vandermondeFit(double[] xs, double[] ys, int order) {
+    Matrix yMatrix = Matrix.columnPacked(ys.length, ys);
+    Matrix vandermonde = Matrix.vandermonde(order + 1, xs);
+    QR qr = vandermonde.qr();
+    Matrix result = qr.getR()
+                      .invert()
+                      .get()
+                      .multiply(qr.getQ().transpose().multiply(yMatrix));
+    return result.transpose().row(0).reverse().toArray();
+  }
+}
@@ -0,0 +1,107 @@
+package Octree.math;
+
+import java.util.Random;
+
+
+/**
+ * Times the symmetric eigendecomposition and the singular value decomposition
+ * of 3&times;3 and 4&times;4 matrices with the caller-array methods of
+ * {@link Matrix3x3} and {@link Matrix4x4} and with the general solvers,
+ * {@link DefaultEigen#decompose} and {@link DefaultSVD#svd}. Before timing, the
+ * results are checked against the general solvers on random matrices.
+ * Run with: java Octree.math.SmallDecompositionBenchmark [calls]
+ */
+public class SmallDecompositionBenchmark {
+
+  public static void main(String[] args) {
+    int calls = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      check(random3x3(random));
+      check(random4x4(random));
+    }
+
+    Matrix3x3 a3 = random3x3(random);
+    Matrix4x4 a4 = random4x4(random);
+    Matrix3x3 s3 = a3.add(a3.transpose());
+    Matrix4x4 s4 = a4.add(a4.transpose());
+    double[] values = new double[4];
+    double[] vectors = new double[16];
+    double[] u = new double[16];
+    double[] v = new double[16];
+
+    // the general solvers allocate, and take much longer per call
+    int general = calls / 20;
+    System.out.printf("%6s %12s %12s %12s %12s%n", "size",
+                      "eig", "general", "svd", "general");
+    System.out.printf("%6s %s %s %s %s%n", "3x3",
+                      time(() -> s3.eig(values, vectors), calls),
+                      time(() -> DefaultEigen.decompose(s3), general),
+                      time(() -> a3.svd(u, values, v), calls),
+                      time(() -> DefaultSVD.svd(a3), general));
+    System.out.printf("%6s %s %s %s %s%n", "4x4",
+                      time(() -> s4.eig(values, vectors), calls),
+                      time(() -> DefaultEigen.decompose(s4), general),
+                      time(() -> a4.svd(u, values, v), calls),
+                      time(() -> DefaultSVD.svd(a4), general));
+  }
+
+
+  private static Matrix3x3 random3x3(Random random) {
+    return new Matrix3x3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(),
+                         random.nextGaussian(), random.nextGaussian(), random.nextGaussian(),
+                         random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+  }
+
+
+  private static Matrix4x4 random4x4(Random random) {
+    double[] d = new double[16];
+    for (int i = 0; i < d.length; i++) {
+      d[i] = random.nextGaussian();
+    }
+    return new Matrix4x4(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7],
+                         d[8], d[9], d[10], d[11], d[12], d[13], d[14], d[15]);
+  }
+
+
+  private static String time(Runnable operation, int calls) {
+    // warm up
+    for (int i = 0; i < calls; i++) {
+      operation.run();
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) {
+      operation.run();
+    }
+    return String.format("%9.0f ns", (System.nanoTime() - start) / (double) calls);
+  }
+
+
+  private static void check(Matrix a) {
+    int n = a.getRowDimension();
+    Matrix symmetric = a.add(a.transpose());
+    Eigen eigen = symmetric.eig();
+    Eigen general = DefaultEigen.decompose(symmetric);
+    SVD svd = a.svd();
+    SVD generalSVD = DefaultSVD.svd(a);
+
+    double tolerance = 1e-12;
+    if (!eigen.getD().equals(general.getD(), tolerance)
+        || !eigen.getV().multiply(eigen.getD()).multiply(eigen.getV().transpose())
+                 .equals(symmetric, tolerance)) {
+      throw new IllegalStateException("Eigendecomposition differs for\n" + symmetric);
+    }
+    for (int i = 0; i < n; i++) {
+      if (java.lang.Math.abs(svd.getSingularValues().get(i)
+                             - generalSVD.getSingularValues().get(i)) > tolerance) {
+        throw new IllegalStateException("Singular values differ for\n" + a);
+      }
+    }
+    if (!svd.getU().multiply(svd.getS()).multiply(svd.getV().transpose())
+            .equals(a, tolerance)) {
+      throw new IllegalStateException("Singular value decomposition differs for\n" + a);
+    }
+  }
+}
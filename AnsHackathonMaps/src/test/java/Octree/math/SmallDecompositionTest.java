@@ -0,0 +1,416 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the 3&times;3 and 4&times;4 symmetric eigensolvers and the one-sided
+ * Jacobi SVD against {@link DefaultEigen#decompose} and {@link DefaultSVD#svd},
+ * on random, repeated-eigenvalue, rank-deficient and zero matrices, on
+ * matrices scaled near the limits of the exponent range, and on tall and
+ * empty shapes.
+ * <p>
+ * Eigenvectors and singular vectors are only defined up to sign, or up to a
+ * rotation within a repeated eigenvalue, so they are checked through
+ * <i>AV = VD</i>, <i>A = USV&prime;</i> and orthonormality rather than
+ * element by element.
+ */
+public class SmallDecompositionTest {
+
+  private final Random random = new Random(50);
+
+
+  @Test
+  public void eigenvaluesMatchGeneralSolver() {
+    for (int trial = 0; trial < 200; trial++) {
+      for (int n = 3; n <= 4; n++) {
+        Matrix a = randomSymmetric(n);
+        double[] values = new double[n];
+        double[] vectors = new double[n * n];
+        eig(a, values, vectors);
+
+        Eigen expected = DefaultEigen.decompose(a);
+        for (int k = 0; k < n; k++) {
+          assertEquals(expected.getEigenvalues().real(k), values[k], 1e-13 * norm(a));
+        }
+        assertEigenvectors(a, values, vectors);
+
+        // the allocating eig() returns the same decomposition
+        Eigen actual = a.eig();
+        for (int k = 0; k < n; k++) {
+          assertEquals(values[k], actual.getEigenvalues().real(k), 0);
+          assertEquals(0, actual.getEigenvalues().imag(k), 0);
+        }
+        assertTrue(actual.getV().equals(fromColumns(n, n, vectors), 0));
+      }
+    }
+  }
+
+
+  @Test
+  public void repeatedEigenvalues() {
+    double[][] spectra = {{2, 2, 5}, {-1, 3, 3}, {4, 4, 4}, {1, 1, 2, 2}, {0, 7, 7, 7}, {-3, -3, -3, -3}};
+    for (double[] spectrum : spectra) {
+      int n = spectrum.length;
+      Matrix a = withSpectrum(spectrum);
+      double[] values = new double[n];
+      double[] vectors = new double[n * n];
+      eig(a, values, vectors);
+      assertArrayEquals(spectrum, values, 1e-13);
+      assertEigenvectors(a, values, vectors);
+    }
+  }
+
+
+  @Test
+  public void zeroAndDiagonalMatrices() {
+    for (int n = 3; n <= 4; n++) {
+      double[] values = new double[n];
+      double[] vectors = new double[n * n];
+      eig(create(n, n, new double[n * n]), values, vectors);
+      assertArrayEquals(new double[n], values, 0);
+      assertTrue(fromColumns(n, n, vectors).equals(Matrix.identity(n), 0));
+
+      // already diagonal: no rotations, the values are sorted
+      double[] diagonal = new double[n * n];
+      for (int i = 0; i < n; i++) {
+        diagonal[i * n + i] = n - i;
+      }
+      Matrix a = create(n, n, diagonal);
+      eig(a, values, null);
+      for (int i = 0; i < n; i++) {
+        assertEquals(i + 1, values[i], 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void nonSymmetricMatrixFallsBackToGeneralSolver() {
+    // a rotation has complex eigenvalues
+    Matrix3x3 rotation = new Matrix3x3(0, -1, 0,
+                                       1, 0, 0,
+                                       0, 0, 1);
+    Eigen expected = DefaultEigen.decompose(rotation);
+    Eigen actual = rotation.eig();
+    for (int k = 0; k < 3; k++) {
+      assertEquals(expected.getEigenvalues().real(k), actual.getEigenvalues().real(k), 0);
+      assertEquals(expected.getEigenvalues().imag(k), actual.getEigenvalues().imag(k), 0);
+    }
+    assertTrue(expected.getV().equals(actual.getV(), 0));
+
+    Matrix a = randomMatrix(4, 4);
+    assertTrue(DefaultEigen.decompose(a).getD().equals(a.eig().getD(), 0));
+  }
+
+
+  @Test(expected = IllegalStateException.class)
+  public void eig3x3RejectsNonSymmetricMatrix() {
+    new Matrix3x3(1, 2, 3, 2, 1, 4, 3, 4.5, 1).eig(new double[3], new double[9]);
+  }
+
+
+  @Test(expected = IllegalStateException.class)
+  public void eig4x4RejectsNonSymmetricMatrix() {
+    double[] data = randomSymmetric(4).toArray();
+    data[1] += 1e-9;
+    ((Matrix4x4) create(4, 4, data)).eig(new double[4], null);
+  }
+
+
+  @Test
+  public void scaledEigenproblemsConverge() {
+    for (double s : new double[] {1e300, 1e160, 1e-170, 1e-300}) {
+      // s * [[1, 1, 0, 0], [1, 1, 0, 0], [0, 0, 1, 0], [0, 0, 0, 1]]
+      double[] values = new double[4];
+      double[] vectors = new double[16];
+      SymmetricEigen4x4.solve(s, s, 0, 0, s, 0, 0, s, 0, s, values, 0, vectors, 0);
+      assertArrayEquals("scale " + s, new double[] {0, s, s, 2 * s}, values, 2e-15 * s);
+      double r = 1 / java.lang.Math.sqrt(2);
+      assertEquals(r, java.lang.Math.abs(vectors[0]), 1e-15);
+      assertEquals(-vectors[0], vectors[1], 1e-15);
+      assertEquals(r, java.lang.Math.abs(vectors[12]), 1e-15);
+      assertEquals(vectors[12], vectors[13], 1e-15);
+    }
+  }
+
+
+  @Test
+  public void scaledMatricesKeepTheirSingularVectors() {
+    int[][] shapes = {{3, 3}, {4, 4}, {30, 3}};
+    for (int[] shape : shapes) {
+      int m = shape[0];
+      int n = shape[1];
+      double[] a = randomMatrix(m, n).toArray();
+      double[] u = new double[m * n];
+      double[] s = new double[n];
+      double[] v = new double[n * n];
+      JacobiSVD.solve(m, n, a, u, s, v);
+
+      for (double scale : new double[] {1e300, 1e160, 1e-170, 1e-300}) {
+        // powers of two scale exactly, so the results must scale exactly too
+        double power = java.lang.Math.scalb(1.0, java.lang.Math.getExponent(scale));
+        double[] scaled = new double[m * n];
+        for (int i = 0; i < scaled.length; i++) {
+          scaled[i] = a[i] * power;
+        }
+        double[] scaledU = new double[m * n];
+        double[] scaledS = new double[n];
+        double[] scaledV = new double[n * n];
+        JacobiSVD.solve(m, n, scaled, scaledU, scaledS, scaledV);
+        for (int k = 0; k < n; k++) {
+          assertEquals(s[k], scaledS[k] / power, 0);
+        }
+        assertArrayEquals(u, scaledU, 0);
+        assertArrayEquals(v, scaledV, 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void singularValuesMatchGeneralSolver() {
+    for (int trial = 0; trial < 200; trial++) {
+      for (int n = 3; n <= 4; n++) {
+        Matrix a = randomMatrix(n, n);
+        double[] u = new double[n * n];
+        double[] s = new double[n];
+        double[] v = new double[n * n];
+        if (n == 3) {
+          ((Matrix3x3) a).svd(u, s, v);
+        } else {
+          ((Matrix4x4) a).svd(u, s, v);
+        }
+        assertArrayEquals(DefaultSVD.svd(a).getSingularValues().toArray(), s, 1e-13 * norm(a));
+        assertSvd(a, u, s, v);
+
+        SVD actual = a.svd();
+        assertArrayEquals(s, actual.getSingularValues().toArray(), 0);
+        assertTrue(actual.getU().multiply(actual.getS()).multiply(actual.getV().transpose())
+                         .equals(a, 1e-13 * norm(a)));
+      }
+    }
+  }
+
+
+  @Test
+  public void rankDeficientMatrices() {
+    for (int n = 3; n <= 4; n++) {
+      for (int rank = 0; rank < n; rank++) {
+        // a sum of rank outer products
+        Matrix a = create(n, n, new double[n * n]);
+        for (int k = 0; k < rank; k++) {
+          a = a.add(randomMatrix(n, 1).multiply(randomMatrix(1, n)));
+        }
+        double[] u = new double[n * n];
+        double[] s = new double[n];
+        double[] v = new double[n * n];
+        if (n == 3) {
+          ((Matrix3x3) a).svd(u, s, v);
+        } else {
+          ((Matrix4x4) a).svd(u, s, v);
+        }
+        // U stays orthonormal, although its last columns are arbitrary
+        assertSvd(a, u, s, v);
+        assertEquals(DefaultSVD.svd(a).rank(), a.svd().rank());
+        assertEquals(rank, a.svd().rank());
+      }
+    }
+  }
+
+
+  @Test
+  public void tallMatricesMatchGeneralSolver() {
+    int[][] shapes = {{1, 1}, {2, 1}, {5, 3}, {6, 6}, {40, 4}, {100, 10}};
+    for (int[] shape : shapes) {
+      int m = shape[0];
+      int n = shape[1];
+      Matrix a = randomMatrix(m, n);
+      double[] u = new double[m * n];
+      double[] s = new double[n];
+      double[] v = new double[n * n];
+      JacobiSVD.solve(m, n, a.toArray(), u, s, v);
+      assertArrayEquals(DefaultSVD.svd(a).getSingularValues().toArray(), s, 1e-13 * norm(a));
+      assertSvd(a, u, s, v);
+
+      // without V, the same U and singular values
+      double[] u2 = new double[m * n];
+      double[] s2 = new double[n];
+      JacobiSVD.solve(m, n, a.toArray(), u2, s2, null);
+      assertArrayEquals(u, u2, 0);
+      assertArrayEquals(s, s2, 0);
+    }
+  }
+
+
+  @Test
+  public void tallRankDeficientAndZeroMatrices() {
+    // two equal columns, and a zero matrix
+    double[] data = randomMatrix(30, 3).toArray();
+    for (int i = 0; i < 30; i++) {
+      data[i * 3 + 2] = data[i * 3];
+    }
+    for (Matrix a : new Matrix[] {create(30, 3, data), create(30, 3, new double[90])}) {
+      double[] u = new double[90];
+      double[] s = new double[3];
+      double[] v = new double[9];
+      JacobiSVD.solve(30, 3, a.toArray(), u, s, v);
+      assertArrayEquals(DefaultSVD.svd(a).getSingularValues().toArray(), s, 1e-13 * (norm(a) + 1));
+      assertSvd(a, u, s, v);
+    }
+  }
+
+
+  @Test
+  public void emptyMatrices() {
+    double[] u = new double[0];
+    JacobiSVD.solve(0, 0, new double[0], u, new double[0], new double[0]);
+    // no columns: nothing to decompose
+    JacobiSVD.solve(3, 0, new double[0], u, new double[0], null);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsWideMatrix() {
+    JacobiSVD.solve(2, 3, new double[6], new double[6], new double[3], null);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsShortOutput() {
+    JacobiSVD.solve(4, 3, new double[12], new double[9], new double[3], null);
+  }
+
+
+  private static void eig(Matrix a, double[] values, double[] vectors) {
+    if (a instanceof Matrix3x3) {
+      ((Matrix3x3) a).eig(values, vectors);
+    } else {
+      ((Matrix4x4) a).eig(values, vectors);
+    }
+  }
+
+
+  /**
+   * Asserts AV = VD, with V orthonormal and the values ascending.
+   */
+  private static void assertEigenvectors(Matrix a, double[] values, double[] vectors) {
+    int n = values.length;
+    Matrix v = fromColumns(n, n, vectors);
+    assertTrue(v.transpose().multiply(v).equals(Matrix.identity(n), 1e-14));
+    for (int k = 1; k < n; k++) {
+      assertTrue(values[k - 1] <= values[k]);
+    }
+    double[] d = new double[n * n];
+    for (int k = 0; k < n; k++) {
+      d[k * n + k] = values[k];
+    }
+    assertTrue(a.multiply(v).equals(v.multiply(create(n, n, d)), 1e-13 * (norm(a) + 1)));
+  }
+
+
+  /**
+   * Asserts A = USV', with orthonormal columns in U and V and descending,
+   * non-negative singular values.
+   */
+  private static void assertSvd(Matrix a, double[] u, double[] s, double[] v) {
+    int m = a.getRowDimension();
+    int n = a.getColumnDimension();
+    Matrix matrixU = fromColumns(m, n, u);
+    Matrix matrixV = fromColumns(n, n, v);
+    assertTrue(matrixU.transpose().multiply(matrixU).equals(Matrix.identity(n), 1e-13));
+    assertTrue(matrixV.transpose().multiply(matrixV).equals(Matrix.identity(n), 1e-13));
+    for (int k = 0; k < n; k++) {
+      assertTrue(s[k] >= 0);
+      assertTrue(k == 0 || s[k - 1] >= s[k]);
+    }
+    double[] diagonal = new double[n * n];
+    for (int k = 0; k < n; k++) {
+      diagonal[k * n + k] = s[k];
+    }
+    Matrix product = matrixU.multiply(create(n, n, diagonal)).multiply(matrixV.transpose());
+    assertTrue(product.equals(a, 1e-13 * (norm(a) + 1)));
+  }
+
+
+  private static Matrix fromColumns(int m, int n, double[] columns) {
+    double[] data = new double[m * n];
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < m; i++) {
+        data[i * n + j] = columns[j * m + i];
+      }
+    }
+    return create(m, n, data);
+  }
+
+
+  private static double norm(Matrix a) {
+    double sum = 0;
+    for (double x : a.toArray()) {
+      sum += x * x;
+    }
+    return java.lang.Math.sqrt(sum);
+  }
+
+
+  /**
+   * Returns QDQ' for a random orthogonal Q, made exactly symmetric.
+   */
+  private Matrix withSpectrum(double[] spectrum) {
+    int n = spectrum.length;
+    double[] q = new double[n * n];
+    double[] s = new double[n];
+    JacobiSVD.solve(n, n, randomMatrix(n, n).toArray(), q, s, null);
+    Matrix matrixQ = fromColumns(n, n, q);
+    double[] d = new double[n * n];
+    for (int k = 0; k < n; k++) {
+      d[k * n + k] = spectrum[k];
+    }
+    return symmetrized(matrixQ.multiply(create(n, n, d)).multiply(matrixQ.transpose()).toArray(), n);
+  }
+
+
+  private Matrix randomSymmetric(int n) {
+    return symmetrized(randomMatrix(n, n).toArray(), n);
+  }
+
+
+  private static Matrix symmetrized(double[] data, int n) {
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        data[j * n + i] = data[i * n + j];
+      }
+    }
+    return create(n, n, data);
+  }
+
+
+  private Matrix randomMatrix(int m, int n) {
+    double[] data = new double[m * n];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextGaussian();
+    }
+    return create(m, n, data);
+  }
+
+
+  /**
+   * Builds element by element, which gives the fixed-size classes for
+   * 3&times;3 and 4&times;4 matrices.
+   */
+  private static Matrix create(int m, int n, double[] data) {
+    MatrixBuilder<?> builder = MatrixContext.getInstance().create(m, n);
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        builder.set(i, j, data[i * n + j]);
+      }
+    }
+    return builder.toMatrix();
+  }
+}
@@ -0,0 +1,309 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the CSR matrix against the same matrix stored densely: products,
+ * transposes and sums, and the solutions of its Jacobi and conjugate gradient
+ * solvers against a dense LU solve.
+ */
+public class SparseMatrixTest {
+
+  private final Random random = new Random(47);
+
+
+  @Test
+  public void productsMatchDenseMatrix() {
+    int[][] shapes = {{1, 1}, {1, 40}, {40, 1}, {300, 7}, {7, 300}, {100, 100}};
+    for (int[] shape : shapes) {
+      double[][] dense = randomSparse(shape[0], shape[1], 0.2);
+      SparseMatrix sparse = toSparse(dense);
+      Matrix reference = Matrix.valueOf(dense);
+
+      double[] x = randomVector(shape[1]);
+      double[] y = new double[shape[0]];
+      sparse.multiply(x, y);
+      assertArrayEquals(reference.multiply(Vector.valueOf(x)).toArray(), y, 1e-12);
+
+      Matrix other = Matrix.valueOf(randomSparse(shape[1], 3, 1));
+      assertTrue(reference.multiply(other).equals(sparse.multiply(other), 1e-12));
+      assertTrue(reference.transpose().equals(sparse.transpose(), 0));
+      double[] expected = reference.toArray();
+      assertArrayEquals(expected, sparse.toArray(), 0);
+      for (int i = 0; i < expected.length; i++) {
+        expected[i] *= -2.5;
+      }
+      assertArrayEquals(expected, sparse.multiply(-2.5).toArray(), 0);
+    }
+  }
+
+
+  @Test
+  public void productOverSeveralBlocks() {
+    // enough non-zero elements for the rows to be split into parallel blocks
+    int n = 3 * SparseMatrix.BLOCK_WORK / 5;
+    SparseMatrix matrix = laplacian(n, 1.0);
+    double[] x = randomVector(n);
+    double[] y = new double[n];
+    matrix.multiply(x, y);
+    for (int i = 0; i < n; i++) {
+      double expected = x[i];
+      if (i > 0) {
+        expected += x[i] - x[i - 1];
+      }
+      if (i < n - 1) {
+        expected += x[i] - x[i + 1];
+      }
+      assertEquals(expected, y[i], 1e-12);
+    }
+
+    // in place
+    double[] z = x.clone();
+    matrix.multiply(z, z);
+    assertArrayEquals(y, z, 0);
+  }
+
+
+  @Test
+  public void sumsMatchDenseMatrix() {
+    double[][] a = randomSparse(20, 30, 0.3);
+    double[][] b = randomSparse(20, 30, 0.3);
+    Matrix reference = Matrix.valueOf(a);
+    assertTrue(reference.add(Matrix.valueOf(b)).equals(toSparse(a).add(toSparse(b)), 1e-15));
+    assertTrue(reference.subtract(Matrix.valueOf(b)).equals(toSparse(a).subtract(toSparse(b)), 1e-15));
+    // a sparse matrix plus a dense one
+    assertTrue(reference.add(Matrix.valueOf(b)).equals(toSparse(a).add(Matrix.valueOf(b)), 1e-15));
+  }
+
+
+  @Test
+  public void builderSumsAddedAndReplacesSetElements() {
+    SparseMatrixBuilder builder = Matrix.sparse(2, 3);
+    builder.add(1, 2, 1.5);
+    builder.add(0, 0, 1);
+    builder.add(1, 2, 2);
+    builder.set(0, 1, 7);
+    builder.add(0, 1, 1);
+    builder.set(0, 0, 4);
+    SparseMatrix matrix = builder.toMatrix();
+    assertArrayEquals(new double[] {4, 8, 0, 0, 0, 3.5}, matrix.toArray(), 0);
+    assertEquals(3, matrix.getNonZeroCount());
+  }
+
+
+  @Test
+  public void conjugateGradientMatchesDenseSolve() {
+    for (int n : new int[] {1, 2, 50}) {
+      double[][] dense = randomSymmetricPositiveDefinite(n);
+      double[] b = randomVector(n);
+      double[] x = new double[n];
+      int iterations = toSparse(dense).solveConjugateGradient(b, x, 10 * n, 1e-12);
+      assertTrue(iterations >= 0 && iterations <= 10 * n);
+      assertArrayEquals(denseSolve(dense, b), x, 1e-9);
+    }
+  }
+
+
+  @Test
+  public void conjugateGradientOnLargeSystem() {
+    int n = SparseMatrix.BLOCK_WORK;
+    SparseMatrix matrix = laplacian(n, 0.1);
+    double[] expected = randomVector(n);
+    double[] b = new double[n];
+    matrix.multiply(expected, b);
+
+    double[] x = new double[n];
+    assertTrue(matrix.solveConjugateGradient(b, x, 1000, 1e-12) > 0);
+    assertArrayEquals(expected, x, 1e-9);
+  }
+
+
+  @Test
+  public void conjugateGradientStopsAtZeroResidual() {
+    SparseMatrix matrix = laplacian(10, 1.0);
+    double[] x = new double[10];
+    assertEquals(0, matrix.solveConjugateGradient(new double[10], x, 100, 1e-12));
+    assertArrayEquals(new double[10], x, 0);
+  }
+
+
+  @Test
+  public void conjugateGradientRejectsIndefiniteMatrix() {
+    // positive diagonal, but an eigenvalue of -1
+    SparseMatrix matrix = toSparse(new double[][] {{1, 2}, {2, 1}});
+    assertEquals(-1, matrix.solveConjugateGradient(new double[] {1, -1}, new double[2], 10, 1e-12));
+  }
+
+
+  @Test
+  public void conjugateGradientOnSingularMatrix() {
+    // the graph Laplacian of a path: singular, with the constant vector as
+    // null space; a right hand side outside its range has no solution
+    SparseMatrix matrix = laplacian(5, 0.0);
+    double[] b = {1, 0, 0, 0, 0};
+    assertEquals(-1, matrix.solveConjugateGradient(b, new double[5], 20, 1e-12));
+
+    // one that sums to zero is in the range, and is solved
+    b = new double[] {1, 0, 0, 0, -1};
+    double[] x = new double[5];
+    assertTrue(matrix.solveConjugateGradient(b, x, 20, 1e-12) >= 0);
+    double[] residual = new double[5];
+    matrix.multiply(x, residual);
+    assertArrayEquals(b, residual, 1e-12);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void conjugateGradientRejectsNonPositiveDiagonal() {
+    toSparse(new double[][] {{1, 0}, {0, 0}}).solveConjugateGradient(new double[2], new double[2], 10, 1e-12);
+  }
+
+
+  @Test
+  public void jacobiMatchesDenseSolve() {
+    for (int n : new int[] {1, 3, 60}) {
+      double[][] dense = randomDiagonallyDominant(n);
+      double[] b = randomVector(n);
+      double[] x = new double[n];
+      assertTrue(toSparse(dense).solveJacobi(b, x, 1000, 1e-13) >= 0);
+      assertArrayEquals(denseSolve(dense, b), x, 1e-10);
+    }
+  }
+
+
+  @Test
+  public void jacobiVectorMatchesDefaultImplementation() {
+    double[][] dense = randomDiagonallyDominant(30);
+    Vector b = Vector.valueOf(randomVector(30));
+    Optional<? extends Vector> expected = Matrix.valueOf(dense).jacobi(b, 1000, 1e-12);
+    Optional<? extends Vector> actual = toSparse(dense).jacobi(b, 1000, 1e-12);
+    assertTrue(expected.isPresent() && actual.isPresent());
+    assertArrayEquals(expected.get().toArray(), actual.get().toArray(), 1e-10);
+  }
+
+
+  @Test
+  public void jacobiReportsDivergence() {
+    // not diagonally dominant: the iteration diverges
+    SparseMatrix matrix = toSparse(new double[][] {{1, 3}, {3, 1}});
+    assertEquals(-1, matrix.solveJacobi(new double[] {1, 1}, new double[2], 50, 1e-12));
+    assertFalse(matrix.jacobi(Vector.valueOf(1, 1), 50, 1e-12).isPresent());
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void jacobiRejectsZeroDiagonal() {
+    toSparse(new double[][] {{0, 1}, {1, 2}}).solveJacobi(new double[2], new double[2], 10, 1e-12);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void solversRejectNonSquareMatrix() {
+    toSparse(randomSparse(3, 4, 1)).solveJacobi(new double[3], new double[3], 10, 1e-12);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplyRejectsWrongLength() {
+    toSparse(randomSparse(3, 4, 1)).multiply(new double[3], new double[3]);
+  }
+
+
+  /**
+   * Returns the tridiagonal matrix with -1 off the diagonal and the number of
+   * neighbours plus shift on it.
+   */
+  private static SparseMatrix laplacian(int n, double shift) {
+    SparseMatrixBuilder builder = Matrix.sparse(n, n);
+    for (int i = 0; i < n; i++) {
+      if (i > 0) {
+        builder.add(i, i - 1, -1);
+        builder.add(i, i, 1);
+      }
+      if (i < n - 1) {
+        builder.add(i, i + 1, -1);
+        builder.add(i, i, 1);
+      }
+      builder.add(i, i, shift);
+    }
+    return builder.toMatrix();
+  }
+
+
+  private static SparseMatrix toSparse(double[][] dense) {
+    SparseMatrixBuilder builder = Matrix.sparse(dense.length, dense[0].length);
+    for (int i = 0; i < dense.length; i++) {
+      for (int j = 0; j < dense[i].length; j++) {
+        if (dense[i][j] != 0) {
+          builder.set(i, j, dense[i][j]);
+        }
+      }
+    }
+    return builder.toMatrix();
+  }
+
+
+  private static double[] denseSolve(double[][] a, double[] b) {
+    Matrix column = Matrix.valueOf(new double[][] {b}).transpose();
+    return Matrix.valueOf(a).solve(column).get().toArray();
+  }
+
+
+  private double[][] randomSparse(int rows, int columns, double density) {
+    double[][] data = new double[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        if (random.nextDouble() < density) {
+          data[i][j] = random.nextGaussian();
+        }
+      }
+    }
+    return data;
+  }
+
+
+  private double[][] randomSymmetricPositiveDefinite(int n) {
+    double[][] a = randomSparse(n, n, 0.1);
+    double[][] spd = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        for (int k = 0; k < n; k++) {
+          spd[i][j] += a[k][i] * a[k][j];
+        }
+      }
+      spd[i][i] += 1;
+    }
+    return spd;
+  }
+
+
+  private double[][] randomDiagonallyDominant(int n) {
+    double[][] a = randomSparse(n, n, 0.2);
+    for (int i = 0; i < n; i++) {
+      double sum = 0;
+      for (int j = 0; j < n; j++) {
+        sum += java.lang.Math.abs(a[i][j]);
+      }
+      a[i][i] = sum + 1;
+    }
+    return a;
+  }
+
+
+  private double[] randomVector(int length) {
+    double[] x = new double[length];
+    for (int i = 0; i < length; i++) {
+      x[i] = random.nextGaussian();
+    }
+    return x;
+  }
+}
@@ -0,0 +1,115 @@
+package Octree.math;
+
+import java.util.Random;
+
+
+/**
+ * Solves the terrain smoothing system <i>(I + &lambda;L)&times;x = h</i> on a
+ * square grid, where <i>L</i> is the grid Laplacian, with
+ * {@link SparseMatrix#solveConjugateGradient} and
+ * {@link SparseMatrix#solveJacobi}, reporting assembly and solve times and
+ * the relative residual. Before timing, products and transposes of a random
+ * sparse matrix are checked against the same matrix stored densely.
+ * Run with: java Octree.math.SparseSolverBenchmark [grid side] [lambda]
+ */
+public class SparseSolverBenchmark {
+
+  public static void main(String[] args) {
+    int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    double lambda = args.length > 1 ? Double.parseDouble(args[1]) : 4;
+
+    Random random = new Random(42);
+    check(random);
+
+    int count = side * side;
+    long start = System.nanoTime();
+    SparseMatrixBuilder builder = Matrix.sparse(count, count);
+    for (int y = 0; y < side; y++) {
+      for (int x = 0; x < side; x++) {
+        int i = y * side + x;
+        builder.add(i, i, 1);
+        if (x > 0) {
+          couple(builder, i, i - 1, lambda);
+        }
+        if (x < side - 1) {
+          couple(builder, i, i + 1, lambda);
+        }
+        if (y > 0) {
+          couple(builder, i, i - side, lambda);
+        }
+        if (y < side - 1) {
+          couple(builder, i, i + side, lambda);
+        }
+      }
+    }
+    SparseMatrix matrix = builder.toMatrix();
+    double assembly = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d unknowns, %d non-zeros, %d threads: assembled in %.2f s%n",
+                      count, matrix.getNonZeroCount(),
+                      Runtime.getRuntime().availableProcessors(), assembly);
+
+    double[] h = new double[count];
+    for (int i = 0; i < count; i++) {
+      h[i] = 10 * java.lang.Math.sin(i % side / 30.0) + random.nextGaussian();
+    }
+
+    double[] x = new double[count];
+    start = System.nanoTime();
+    int iterations = matrix.solveConjugateGradient(h, x, 1000, 1e-8);
+    report("conjugate gradient", matrix, h, x, iterations, start);
+
+    x = new double[count];
+    start = System.nanoTime();
+    iterations = matrix.solveJacobi(h, x, 10000, 1e-8);
+    report("jacobi", matrix, h, x, iterations, start);
+  }
+
+
+  private static void couple(SparseMatrixBuilder builder, int i, int j, double lambda) {
+    builder.add(i, i, lambda);
+    builder.add(i, j, -lambda);
+  }
+
+
+  private static void report(String name,
+                             SparseMatrix matrix,
+                             double[] b,
+                             double[] x,
+                             int iterations,
+                             long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    double[] product = new double[b.length];
+    matrix.multiply(x, product);
+    double residual = 0;
+    double norm = 0;
+    for (int i = 0; i < b.length; i++) {
+      residual += (product[i] - b[i]) * (product[i] - b[i]);
+      norm += b[i] * b[i];
+    }
+    System.out.printf("%-20s %5d iterations %8.2f s, relative residual %.1e%n",
+                      name, iterations, seconds, java.lang.Math.sqrt(residual / norm));
+  }
+
+
+  private static void check(Random random) {
+    int size = 301;
+    SparseMatrixBuilder builder = Matrix.sparse(size, size);
+    double[] dense = new double[size * size];
+    for (int k = 0; k < 3000; k++) {
+      int i = random.nextInt(size);
+      int j = random.nextInt(size);
+      double value = random.nextGaussian();
+      builder.add(i, j, value);
+      dense[i * size + j] += value;
+    }
+    SparseMatrix sparse = builder.toMatrix();
+    Matrix reference = Matrix.rowPacked(size, dense);
+
+    Matrix other = Matrix.random(size, 7, 1);
+    if (!sparse.multiply(other).equals(reference.multiply(other), 1e-10)
+        || !sparse.transpose().equals(reference.transpose(), 0)
+        || !sparse.add(sparse.transpose()).equals(reference.add(reference.transpose()), 1e-12)) {
+      throw new IllegalStateException("Sparse and dense results differ");
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package Octree.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link SymmetricEigen3x3} on matrices scaled far beyond the range in
+ * which squared elements are representable, and the batched solver against
+ * single problems.
+ */
+public class SymmetricEigen3x3Test {
+
+  private static final double[] SCALES = {1e300, 1e160, 1, 1e-170, 1e-300};
+
+
+  @Test
+  public void scaledMatricesConverge() {
+    for (double s : SCALES) {
+      // s * [[1, 1, 0], [1, 1, 0], [0, 0, 1]] has the eigenvalues 0, s, 2s
+      double[] values = new double[3];
+      double[] vectors = new double[9];
+      SymmetricEigen3x3.solve(s, s, 0, s, 0, s, values, 0, vectors, 0);
+      assertEquals("scale " + s, 0, values[0], 1e-15 * s);
+      assertEquals("scale " + s, s, values[1], 1e-15 * s);
+      assertEquals("scale " + s, 2 * s, values[2], 2e-15 * s);
+
+      double r = 1 / java.lang.Math.sqrt(2);
+      assertEquals(r, java.lang.Math.abs(vectors[0]), 1e-15);
+      assertEquals(-vectors[0], vectors[1], 1e-15);
+      assertEquals(1, java.lang.Math.abs(vectors[5]), 1e-15);
+      assertEquals(r, java.lang.Math.abs(vectors[6]), 1e-15);
+      assertEquals(vectors[6], vectors[7], 1e-15);
+    }
+  }
+
+
+  @Test
+  public void scaledRandomMatricesKeepTheirSpectrum() {
+    Random random = new Random(43);
+    double[] values = new double[3];
+    double[] vectors = new double[9];
+    double[] scaled = new double[3];
+    double[] scaledVectors = new double[9];
+    for (int trial = 0; trial < 100; trial++) {
+      double[] a = new double[6];
+      for (int k = 0; k < a.length; k++) {
+        a[k] = random.nextGaussian();
+      }
+      SymmetricEigen3x3.solve(a[0], a[1], a[2], a[3], a[4], a[5], values, 0, vectors, 0);
+      for (double s : SCALES) {
+        // powers of two scale exactly
+        double power = java.lang.Math.scalb(1.0, java.lang.Math.getExponent(s));
+        SymmetricEigen3x3.solve(a[0] * power, a[1] * power, a[2] * power,
+                                a[3] * power, a[4] * power, a[5] * power,
+                                scaled, 0, scaledVectors, 0);
+        for (int k = 0; k < 3; k++) {
+          assertEquals(values[k], scaled[k] / power, 1e-13);
+        }
+        assertArrayEquals(vectors, scaledVectors, 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void batchMatchesSingleProblems() {
+    Random random = new Random(7);
+    int count = 10000;
+    double[][] elements = new double[6][count];
+    for (double[] element : elements) {
+      for (int i = 0; i < count; i++) {
+        element[i] = random.nextGaussian();
+      }
+    }
+    double[] values = new double[3 * count];
+    double[] vectors = new double[9 * count];
+    SymmetricEigen3x3.solve(count, elements[0], elements[1], elements[2],
+                            elements[3], elements[4], elements[5], values, vectors);
+
+    double[] single = new double[3];
+    double[] singleVectors = new double[9];
+    for (int i = 0; i < count; i++) {
+      SymmetricEigen3x3.solve(elements[0][i], elements[1][i], elements[2][i],
+                              elements[3][i], elements[4][i], elements[5][i],
+                              single, 0, singleVectors, 0);
+      for (int k = 0; k < 3; k++) {
+        assertEquals(single[k], values[3 * i + k], 0);
+      }
+      for (int k = 0; k < 9; k++) {
+        assertEquals(singleVectors[k], vectors[9 * i + k], 0);
+      }
+    }
+  }
+}
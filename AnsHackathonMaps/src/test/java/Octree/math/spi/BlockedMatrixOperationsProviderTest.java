@@ -0,0 +1,153 @@
+package Octree.math.spi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the blocked dgemm against the default provider and a textbook triple
+ * loop, for the shapes the blocking has to get right: empty and 1&times;1
+ * operands, single rows and columns, sizes that are not multiples of the
+ * register and cache blocks, and every transposition and alpha/beta case.
+ */
+public class BlockedMatrixOperationsProviderTest {
+
+  private static final double[][] PARAMETERS = {{1, 0}, {1, 1}, {-0.5, 2}, {0, 0.5}, {2, 0}};
+
+  private final MatrixOperationsProvider plain = new MatrixOperationsProvider();
+  private final MatrixOperationsProvider blocked = new BlockedMatrixOperationsProvider();
+  private final Random random = new Random(41);
+
+
+  @Test
+  public void emptyAndUnitShapes() {
+    int[][] shapes = {{0, 0, 0}, {0, 5, 7}, {5, 0, 7}, {5, 7, 0}, {40, 50, 0}, {1, 1, 1}, {1, 1, 0}};
+    for (int[] shape : shapes) {
+      check(shape[0], shape[1], shape[2]);
+    }
+  }
+
+
+  @Test
+  public void smallShapesUseDefaultProvider() {
+    check(3, 4, 5);
+    check(63, 64, 64);
+    check(7, 40, 3);
+  }
+
+
+  @Test
+  public void blockedSquareShapes() {
+    check(64, 64, 64);
+    check(67, 45, 301);
+    check(130, 259, 257);
+  }
+
+
+  @Test
+  public void blockedTallAndWideShapes() {
+    // a single row or column of C, and panels wider than one block of B
+    check(1, 600, 600);
+    check(600, 1, 600);
+    check(700, 3, 200);
+    check(3, 1030, 100);
+    check(5, 5, 20000);
+  }
+
+
+  @Test
+  public void betaZeroOverwritesNaN() {
+    int m = 70;
+    int n = 80;
+    int k = 90;
+    double[] a = randomMatrix(m * k);
+    double[] b = randomMatrix(k * n);
+    double[] c = new double[m * n];
+    Arrays.fill(c, Double.NaN);
+    double[] expected = new double[m * n];
+    naive(a, b, expected, m, n, k, false, false, 1, 0);
+
+    blocked.dgemm(a, b, c, m, n, k, false, false, 1, 0);
+    assertClose(expected, c, k);
+  }
+
+
+  @Test
+  public void outputMayAliasInput() {
+    int size = 70;
+    double[] a = randomMatrix(size * size);
+    double[] b = randomMatrix(size * size);
+    double[] expected = a.clone();
+    naive(a, b, expected, size, size, size, false, false, 1, 0.5);
+
+    blocked.dgemm(a, b, a, size, size, size, false, false, 1, 0.5);
+    assertClose(expected, a, size);
+  }
+
+
+  private void check(int m, int n, int k) {
+    double[] a = randomMatrix(m * k);
+    double[] b = randomMatrix(k * n);
+    double[] c = randomMatrix(m * n);
+    for (int t = 0; t < 4; t++) {
+      boolean ta = (t & 1) != 0;
+      boolean tb = (t & 2) != 0;
+      for (double[] p : PARAMETERS) {
+        double[] expected = c.clone();
+        naive(a, b, expected, m, n, k, ta, tb, p[0], p[1]);
+
+        double[] reference = c.clone();
+        plain.dgemm(a, b, reference, m, n, k, ta, tb, p[0], p[1]);
+        assertClose(expected, reference, k);
+
+        double[] actual = c.clone();
+        blocked.dgemm(a, b, actual, m, n, k, ta, tb, p[0], p[1]);
+        assertClose(expected, actual, k);
+      }
+    }
+  }
+
+
+  private static void naive(double[] a,
+                            double[] b,
+                            double[] c,
+                            int m,
+                            int n,
+                            int k,
+                            boolean ta,
+                            boolean tb,
+                            double alpha,
+                            double beta) {
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int p = 0; p < k; p++) {
+          sum += (ta ? a[p * m + i] : a[i * k + p])
+                 * (tb ? b[j * k + p] : b[p * n + j]);
+        }
+        c[i * n + j] = alpha * sum + (beta == 0 ? 0 : beta * c[i * n + j]);
+      }
+    }
+  }
+
+
+  private static void assertClose(double[] expected, double[] actual, int k) {
+    double tolerance = 1e-13 * (k + 1);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], tolerance);
+    }
+  }
+
+
+  private double[] randomMatrix(int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextDouble() - 0.5;
+    }
+    return values;
+  }
+}
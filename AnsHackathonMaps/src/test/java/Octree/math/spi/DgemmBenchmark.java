@@ -0,0 +1,122 @@
+package Octree.math.spi;
+
+import java.util.Random;
+
+
+/**
+ * Measures the GFLOP/s of dgemm for square matrices, with the default
+ * provider and with {@link BlockedMatrixOperationsProvider}. Before timing,
+ * both providers are checked against a naive product on odd-sized matrices,
+ * with every combination of transposed operands and of alpha and beta.
+ * Run with: java Octree.math.spi.DgemmBenchmark [max size] [seconds per size]
+ */
+public class DgemmBenchmark {
+
+  public static void main(String[] args) {
+    int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+    double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+    MatrixOperationsProvider plain = new MatrixOperationsProvider();
+    MatrixOperationsProvider blocked = new BlockedMatrixOperationsProvider();
+    Random random = new Random(42);
+
+    check(plain, 67, 45, 301, random);
+    check(blocked, 67, 45, 301, random);
+    check(blocked, 130, 1030, 259, random);
+
+    System.out.printf("%6s %12s %12s%n", "size", "default", "blocked");
+    for (int size = 64; size <= maxSize; size *= 2) {
+      double[] a = randomMatrix(size * size, random);
+      double[] b = randomMatrix(size * size, random);
+      double[] c = new double[size * size];
+      // the default provider is too slow to time at the largest sizes
+      String plainRate = size <= 1024
+          ? String.format("%12.2f", gflops(plain, a, b, c, size, seconds))
+          : String.format("%12s", "-");
+      System.out.printf("%6d %s %12.2f%n", size, plainRate,
+                        gflops(blocked, a, b, c, size, seconds));
+    }
+  }
+
+
+  private static double gflops(MatrixOperationsProvider provider,
+                               double[] a,
+                               double[] b,
+                               double[] c,
+                               int size,
+                               double seconds) {
+    // warm up
+    provider.dgemm(a, b, c, size, size, size, false, false, 1, 0);
+
+    int runs = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      provider.dgemm(a, b, c, size, size, size, false, false, 1, 0);
+      runs++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < seconds * 1e9);
+    return 2.0 * size * size * size * runs / elapsed;
+  }
+
+
+  private static void check(MatrixOperationsProvider provider,
+                            int m,
+                            int n,
+                            int k,
+                            Random random) {
+    double[] a = randomMatrix(m * k, random);
+    double[] b = randomMatrix(k * n, random);
+    double[] c = randomMatrix(m * n, random);
+    double[][] parameters = {{1, 0}, {1, 1}, {-0.5, 2}, {0, 0.5}};
+    for (int t = 0; t < 4; t++) {
+      boolean ta = (t & 1) != 0;
+      boolean tb = (t & 2) != 0;
+      for (double[] p : parameters) {
+        double[] c1 = c.clone();
+        double[] c2 = c.clone();
+        naive(a, b, c1, m, n, k, ta, tb, p[0], p[1]);
+        provider.dgemm(a, b, c2, m, n, k, ta, tb, p[0], p[1]);
+        for (int i = 0; i < c1.length; i++) {
+          if (Math.abs(c1[i] - c2[i]) > 1e-9 * k) {
+            throw new IllegalStateException(String.format(
+                "%dx%dx%d ta=%b tb=%b alpha=%s beta=%s differs at %d: %s != %s",
+                m, n, k, ta, tb, p[0], p[1], i, c1[i], c2[i]));
+          }
+        }
+      }
+    }
+  }
+
+
+  private static void naive(double[] a,
+                            double[] b,
+                            double[] c,
+                            int m,
+                            int n,
+                            int k,
+                            boolean ta,
+                            boolean tb,
+                            double alpha,
+                            double beta) {
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int p = 0; p < k; p++) {
+          sum += (ta ? a[p * m + i] : a[i * k + p])
+                 * (tb ? b[j * k + p] : b[p * n + j]);
+        }
+        c[i * n + j] = alpha * sum + (beta == 0 ? 0 : beta * c[i * n + j]);
+      }
+    }
+  }
+
+
+  private static double[] randomMatrix(int length, Random random) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextDouble() - 0.5;
+    }
+    return values;
+  }
+}
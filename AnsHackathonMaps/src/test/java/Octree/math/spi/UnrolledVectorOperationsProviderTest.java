@@ -0,0 +1,114 @@
+package Octree.math.spi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the unrolled reductions against the default provider, on every
+ * remainder of the eight lanes and on elements whose squares overflow or
+ * underflow.
+ */
+public class UnrolledVectorOperationsProviderTest {
+
+  private final VectorOperationsProvider plain = new VectorOperationsProvider();
+  private final VectorOperationsProvider unrolled = new UnrolledVectorOperationsProvider();
+  private final Random random = new Random(42);
+
+
+  @Test
+  public void reductionsMatchDefaultProvider() {
+    for (int length = 0; length <= 3 * UnrolledVectorOperationsProvider.LANES + 1; length++) {
+      check(length);
+    }
+    check(1000);
+    check(100_003);
+  }
+
+
+  @Test
+  public void emptyVector() {
+    double[] empty = new double[0];
+    assertEquals(0.0, unrolled.ddot(empty, empty), 0.0);
+    assertEquals(0.0, unrolled.dnrm2(empty), 0.0);
+  }
+
+
+  @Test
+  public void integerSumsAreExact() {
+    // partial sums of small integers are exact, whatever their order
+    double[] x = new double[101];
+    double[] y = new double[101];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = i;
+      y[i] = x.length - i;
+    }
+    assertEquals(plain.ddot(x, y), unrolled.ddot(x, y), 0.0);
+  }
+
+
+  @Test
+  public void normRescalesOnOverflowAndUnderflow() {
+    for (double magnitude : new double[] {1e200, 1e-200, Double.MAX_VALUE / 2, Double.MIN_NORMAL}) {
+      double[] x = new double[19];
+      Arrays.fill(x, magnitude);
+      double expected = magnitude * Math.sqrt(x.length);
+      assertEquals(expected, plain.dnrm2(x), expected * 1e-15);
+      assertEquals(expected, unrolled.dnrm2(x), expected * 1e-15);
+    }
+  }
+
+
+  @Test
+  public void normPropagatesNaNAndInfinity() {
+    double[] x = {1, 2, 3, 4, 5, 6, 7, 8, 9, Double.NaN};
+    assertTrue(Double.isNaN(unrolled.dnrm2(x)));
+    x[9] = Double.NEGATIVE_INFINITY;
+    assertEquals(Double.POSITIVE_INFINITY, unrolled.dnrm2(x), 0.0);
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void dotRejectsLengthMismatch() {
+    unrolled.ddot(new double[9], new double[8]);
+  }
+
+
+  @Test
+  public void elementWiseOperations() {
+    double[] x = {1, -2, 3};
+    double[] y = {4, 5, -6};
+    double[] z = new double[3];
+
+    unrolled.dadd(x, y, z);
+    assertArrayEquals(new double[] {5, 3, -3}, z, 0.0);
+    unrolled.dsub(x, y, z);
+    assertArrayEquals(new double[] {-3, -7, 9}, z, 0.0);
+    unrolled.dscal(2, x, z);
+    assertArrayEquals(new double[] {2, -4, 6}, z, 0.0);
+    // accumulates into y
+    unrolled.daxpy(2, x, y);
+    assertArrayEquals(new double[] {6, 1, 0}, y, 0.0);
+  }
+
+
+  private void check(int length) {
+    double[] x = new double[length];
+    double[] y = new double[length];
+    double scale = 0;
+    for (int i = 0; i < length; i++) {
+      x[i] = random.nextGaussian();
+      y[i] = random.nextGaussian();
+      scale += Math.abs(x[i] * y[i]);
+    }
+    double tolerance = 1e-15 * (scale + 1) * Math.max(1, Math.log(length + 1));
+    assertEquals(plain.ddot(x, y), unrolled.ddot(x, y), tolerance);
+    assertEquals(plain.dnrm2(x), unrolled.dnrm2(x), 1e-15 * plain.dnrm2(x) * Math.max(1, Math.log(length + 1)));
+  }
+}
@@ -0,0 +1,135 @@
+package Octree.math.spi;
+
+import java.util.Random;
+
+
+/**
+ * Measures the throughput of the vector operations of the default provider
+ * and of {@link UnrolledVectorOperationsProvider} for vector lengths from 16
+ * to 1M elements, after checking both against each other.
+ * Run with: java Octree.math.spi.VectorOperationsBenchmark [max length] [seconds per case]
+ */
+public class VectorOperationsBenchmark {
+
+  private static double sink;
+
+
+  public static void main(String[] args) {
+    int maxLength = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+    double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+    VectorOperationsProvider plain = new VectorOperationsProvider();
+    VectorOperationsProvider unrolled = new UnrolledVectorOperationsProvider();
+    Random random = new Random(42);
+
+    check(plain, unrolled, random);
+
+    System.out.printf("%8s %-6s %12s %12s %8s%n",
+                      "length", "op", "default", "unrolled", "speedup");
+    for (int length = 16; length <= maxLength; length *= 4) {
+      double[] x = randomVector(length, random);
+      double[] y = randomVector(length, random);
+      double[] z = new double[length];
+      for (String op : new String[] {"ddot", "dnrm2", "daxpy", "dadd", "dscal"}) {
+        double before = elementsPerNs(plain, op, x, y, z, seconds);
+        double after = elementsPerNs(unrolled, op, x, y, z, seconds);
+        System.out.printf("%8d %-6s %9.2f e/ns %9.2f e/ns %7.2fx%n",
+                          length, op, before, after, after / before);
+      }
+    }
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+
+  private static double elementsPerNs(VectorOperationsProvider provider,
+                                      String op,
+                                      double[] x,
+                                      double[] y,
+                                      double[] z,
+                                      double seconds) {
+    // warm up
+    int warmup = Math.max(10, Math.min(10000, (1 << 24) / Math.max(1, x.length)));
+    for (int i = 0; i < warmup; i++) {
+      run(provider, op, x, y, z);
+    }
+
+    long runs = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      run(provider, op, x, y, z);
+      runs++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < seconds * 1e9);
+    return (double) x.length * runs / elapsed;
+  }
+
+
+  private static void run(VectorOperationsProvider provider,
+                          String op,
+                          double[] x,
+                          double[] y,
+                          double[] z) {
+    switch (op) {
+      case "ddot":
+        sink += provider.ddot(x, y);
+        break;
+      case "dnrm2":
+        sink += provider.dnrm2(x);
+        break;
+      case "daxpy":
+        provider.daxpy(1e-9, x, z);
+        break;
+      case "dadd":
+        provider.dadd(x, y, z);
+        break;
+      case "dscal":
+        provider.dscal(0.5, x, z);
+        break;
+      default:
+        throw new IllegalArgumentException(op);
+    }
+  }
+
+
+  private static void check(VectorOperationsProvider expected,
+                            VectorOperationsProvider actual,
+                            Random random) {
+    for (int length = 0; length < 40; length++) {
+      double[] x = randomVector(length, random);
+      double[] y = randomVector(length, random);
+      if (Math.abs(expected.ddot(x, y) - actual.ddot(x, y)) > 1e-12) {
+        throw new IllegalStateException("ddot differs for length " + length);
+      }
+      if (Math.abs(expected.dnrm2(x) - actual.dnrm2(x)) > 1e-12) {
+        throw new IllegalStateException("dnrm2 differs for length " + length);
+      }
+      double[] y1 = y.clone();
+      double[] y2 = y.clone();
+      expected.daxpy(2, x, y1);
+      actual.daxpy(2, x, y2);
+      for (int i = 0; i < length; i++) {
+        if (y1[i] != y2[i] || y1[i] != y[i] + 2 * x[i]) {
+          throw new IllegalStateException("daxpy differs for length " + length);
+        }
+      }
+    }
+    double[] huge = {1e200, 1e200, 1e200, 1e200};
+    double[] tiny = {1e-200, 1e-200, 1e-200, 1e-200};
+    if (Math.abs(actual.dnrm2(huge) / 2e200 - 1) > 1e-15
+        || Math.abs(actual.dnrm2(tiny) / 2e-200 - 1) > 1e-15) {
+      throw new IllegalStateException("dnrm2 overflows or underflows");
+    }
+  }
+
+
+  private static double[] randomVector(int length, Random random) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextDouble() - 0.5;
+    }
+    return values;
+  }
+}
@@ -7,5 +7,6 @@ module DigitConverter {
     requires com.jfoenix;
     requires slf4j.api;
     requires slf4j.simple;
+    requires junit;
 
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package net.morbz.minecraft.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jnbt.NBTConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.morbz.minecraft.blocks.IBlock;
+import net.morbz.minecraft.blocks.SimpleBlock;
+import net.morbz.minecraft.blocks.StainedBlock;
+import net.morbz.minecraft.tags.NBTReader;
+import net.unknown.ChunkCompression;
+import net.unknown.RegionFileReader;
+
+/**
+ * Writes regions with RegionFileWriter and reads them back with RegionFileReader, NBTReader and
+ * RegionScanner, and checks that truncated files and corrupt array lengths are reported as
+ * IOException.
+ */
+public class RegionScannerTest {
+	private static final IBlock[] BLOCKS = {
+		SimpleBlock.STONE, SimpleBlock.GRASS, SimpleBlock.LOG,
+		new StainedBlock(StainedBlock.StainedMaterial.WOOL, StainedBlock.StainedColor.GREEN)};
+
+	private File dir;
+
+	@Before
+	public void createDirectory() throws IOException {
+		dir = Files.createTempDirectory("region").toFile();
+	}
+
+	@After
+	public void deleteDirectory() {
+		for(File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void scannerReadsWrittenBlocks() throws IOException {
+		Map<Integer, IBlock> expected = new HashMap<Integer, IBlock>();
+		Region region = randomRegion(expected);
+		for(ChunkCompression compression : ChunkCompression.values()) {
+			File file = new File(dir, "r.0.0." + compression + ".mca");
+			region.writeToFile(file, compression);
+
+			Map<Integer, IBlock> found = new HashMap<Integer, IBlock>();
+			int chunks = new RegionScanner().scan(file, (chunkX, chunkZ, sectionY, buffer, blocks, data) -> {
+				for(int i = 0; i < Section.BLOCKS_PER_SECTION; i++) {
+					if(buffer[blocks + i] != 0) {
+						int nibble = (buffer[data + i / 2] >> (i % 2 == 0 ? 0 : 4)) & 0xF;
+						int x = chunkX * Chunk.BLOCKS_PER_CHUNK_SIDE + i % Chunk.BLOCKS_PER_CHUNK_SIDE;
+						int y = sectionY * Section.SECTION_HEIGHT + i / (Chunk.BLOCKS_PER_CHUNK_SIDE * Chunk.BLOCKS_PER_CHUNK_SIDE);
+						int z = chunkZ * Chunk.BLOCKS_PER_CHUNK_SIDE + i / Chunk.BLOCKS_PER_CHUNK_SIDE % Chunk.BLOCKS_PER_CHUNK_SIDE;
+						found.put(key(x, y, z), new Found(buffer[blocks + i], nibble));
+					}
+				}
+			});
+
+			assertEquals(countChunks(region), chunks);
+			assertEquals(expected.size(), found.size());
+			for(Map.Entry<Integer, IBlock> entry : expected.entrySet()) {
+				IBlock block = found.get(entry.getKey());
+				assertEquals(entry.getValue().getBlockId(), block.getBlockId());
+				assertEquals(entry.getValue().getBlockData(), block.getBlockData());
+			}
+		}
+	}
+
+	@Test
+	public void readerFindsChunkPositions() throws IOException {
+		Region region = randomRegion(new HashMap<Integer, IBlock>());
+		File file = new File(dir, "r.0.0.mca");
+		region.writeToFile(file);
+
+		RegionFileReader regionFile = new RegionFileReader(file);
+		NBTReader reader = new NBTReader();
+		try {
+			for(int x = 0; x < Region.CHUNKS_PER_REGION_SIDE; x++) {
+				for(int z = 0; z < Region.CHUNKS_PER_REGION_SIDE; z++) {
+					boolean exists = region.getChunkAt(x, z) != null;
+					assertEquals(exists, regionFile.hasChunk(x, z));
+					assertEquals(exists, regionFile.readChunk(x, z));
+					if(!exists) {
+						continue;
+					}
+
+					reader.reset(regionFile.getBuffer(), 0, regionFile.getLength());
+					reader.nextTag();
+					reader.enterCompound();
+					assertEquals(NBTConstants.TYPE_COMPOUND, reader.nextTag());
+					assertTrue(reader.isName("Level"));
+					reader.enterCompound();
+					int xPos = -1;
+					int zPos = -1;
+					while(reader.nextTag() != NBTConstants.TYPE_END) {
+						if(reader.isName("xPos")) {
+							xPos = reader.readIntTag();
+						} else if(reader.isName("zPos")) {
+							zPos = reader.readIntTag();
+						} else {
+							reader.skip();
+						}
+					}
+					assertEquals(x, xPos);
+					assertEquals(z, zPos);
+				}
+			}
+		} finally {
+			regionFile.close();
+		}
+	}
+
+	@Test
+	public void truncatedRegionIsRejected() throws IOException {
+		Region region = randomRegion(new HashMap<Integer, IBlock>());
+		File file = new File(dir, "r.0.0.mca");
+		region.writeToFile(file);
+
+		// Cut into the sectors of the last chunk
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(raf.length() - 100);
+		} finally {
+			raf.close();
+		}
+		try {
+			new RegionScanner().scan(file, (chunkX, chunkZ, sectionY, buffer, blocks, data) -> { });
+			fail("Truncated region was read");
+		} catch(IOException e) {
+			// Expected
+		}
+
+		// A file that ends within the header has no chunks
+		raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(1000);
+		} finally {
+			raf.close();
+		}
+		assertEquals(0, new RegionScanner().scan(file, (chunkX, chunkZ, sectionY, buffer, blocks, data) -> { }));
+	}
+
+	@Test
+	public void closedReaderIsUnmapped() throws IOException {
+		Region region = randomRegion(new HashMap<Integer, IBlock>());
+		File file = new File(dir, "r.0.0.mca");
+		region.writeToFile(file);
+
+		RegionFileReader regionFile = new RegionFileReader(file);
+		regionFile.close();
+		regionFile.close();
+		try {
+			regionFile.readChunk(0, 0);
+			fail("Closed reader was read");
+		} catch(IOException e) {
+			// Expected
+		}
+		// The file can be replaced right away
+		assertTrue(file.delete());
+		region.writeToFile(file);
+		regionFile = new RegionFileReader(file);
+		try {
+			assertTrue(regionFile.readChunk(0, 0));
+			assertFalse(regionFile.readChunk(31, 31));
+		} finally {
+			regionFile.close();
+		}
+	}
+
+	@Test
+	public void oversizedArraysAreRejected() throws IOException {
+		// Sizes whose byte counts overflow an int to a small positive or a negative number
+		int[][] lists = {
+			{NBTConstants.TYPE_INT, 0x40000001}, {NBTConstants.TYPE_LONG, 0x20000001},
+			{NBTConstants.TYPE_DOUBLE, 0x30000000}, {NBTConstants.TYPE_BYTE, -1}};
+		for(int[] list : lists) {
+			assertCorrupt(compound(NBTConstants.TYPE_LIST, list[0], list[1]));
+		}
+		assertCorrupt(compound(NBTConstants.TYPE_INT_ARRAY, 0x40000001));
+		assertCorrupt(compound(12, 0x20000001));
+		assertCorrupt(compound(NBTConstants.TYPE_BYTE_ARRAY, -4));
+
+		// A negative list size is also rejected when the list is entered
+		NBTReader reader = new NBTReader();
+		byte[] data = compound(NBTConstants.TYPE_LIST, NBTConstants.TYPE_COMPOUND, -1);
+		reader.reset(data, 0, data.length);
+		reader.nextTag();
+		reader.enterCompound();
+		reader.nextTag();
+		try {
+			reader.enterList();
+			fail("Negative list size was accepted");
+		} catch(IOException e) {
+			// Expected
+		}
+	}
+
+	private static void assertCorrupt(byte[] data) {
+		NBTReader reader = new NBTReader();
+		reader.reset(data, 0, data.length);
+		try {
+			reader.nextTag();
+			reader.skip();
+			fail("Corrupt length was accepted");
+		} catch(IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Encodes a root compound with one tag named "a": the type, the given header ints (and bytes
+	 * for list element types) and 16 bytes of payload.
+	 */
+	private static byte[] compound(int type, int... header) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(NBTConstants.TYPE_COMPOUND);
+		out.writeUTF("");
+		out.writeByte(type);
+		out.writeUTF("a");
+		if(type == NBTConstants.TYPE_LIST) {
+			out.writeByte(header[0]);
+			out.writeInt(header[1]);
+		} else {
+			out.writeInt(header[0]);
+		}
+		out.write(new byte[16]);
+		out.writeByte(NBTConstants.TYPE_END);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Region randomRegion(Map<Integer, IBlock> blocks) {
+		Random random = new Random(29);
+		Region region = new Region(new World(null), 0, 0, null);
+		for(int i = 0; i < 5000; i++) {
+			// A few chunks spread over the region, with gaps between them
+			int x = random.nextInt(6) * 80 + random.nextInt(Chunk.BLOCKS_PER_CHUNK_SIDE);
+			int z = random.nextInt(6) * 80 + random.nextInt(Chunk.BLOCKS_PER_CHUNK_SIDE);
+			int y = random.nextInt(World.MAX_HEIGHT);
+			if(blocks.containsKey(key(x, y, z))) {
+				continue;
+			}
+			IBlock block = BLOCKS[random.nextInt(BLOCKS.length)];
+			region.setBlock(x, y, z, block);
+			blocks.put(key(x, y, z), block);
+		}
+		return region;
+	}
+
+	private static int countChunks(Region region) {
+		int count = 0;
+		for(int x = 0; x < Region.CHUNKS_PER_REGION_SIDE; x++) {
+			for(int z = 0; z < Region.CHUNKS_PER_REGION_SIDE; z++) {
+				if(region.getChunkAt(x, z) != null) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int key(int x, int y, int z) {
+		return (x * Region.BLOCKS_PER_REGION_SIDE + z) * World.MAX_HEIGHT + y;
+	}
+
+	/**
+	 * A block as read back from the file.
+	 */
+	private static class Found implements IBlock {
+		private final byte id;
+		private final byte data;
+
+		Found(byte id, int data) {
+			this.id = id;
+			this.data = (byte)data;
+		}
+
+		@Override
+		public byte getBlockId() {
+			return id;
+		}
+
+		@Override
+		public byte getBlockData() {
+			return data;
+		}
+
+		@Override
+		public int getTransparency() {
+			return 0;
+		}
+	}
+}
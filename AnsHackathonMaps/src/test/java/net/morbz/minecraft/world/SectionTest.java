@@ -0,0 +1,58 @@
+package net.morbz.minecraft.world;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import net.morbz.minecraft.blocks.CustomBlock;
+import net.morbz.minecraft.blocks.IBlock;
+import net.morbz.minecraft.blocks.SimpleBlock;
+
+/**
+ * Compares filled columns with the same blocks set one by one, including blocks that replace
+ * other blocks.
+ */
+public class SectionTest {
+	private static final IBlock FIRST = new CustomBlock(35, 5, 0);
+	private static final IBlock SECOND = new CustomBlock(35, 10, 0);
+	private static final IBlock GLASS = new CustomBlock(20, 0, 1);
+
+	@Test
+	public void fillColumnMatchesSetBlock() {
+		Section filled = new Section(null, 0);
+		Section set = new Section(null, 0);
+		fill(filled, set, 3, 7, 0, 15, FIRST);
+		fill(filled, set, 3, 7, 4, 9, SECOND);
+		fill(filled, set, 3, 7, 8, 8, SimpleBlock.AIR);
+		fill(filled, set, 3, 7, 12, 15, GLASS);
+		fill(filled, set, 0, 0, 0, 15, SECOND);
+		fill(filled, set, 15, 15, 15, 15, FIRST);
+
+		assertEquals(set.getTag(), filled.getTag());
+		assertEquals(set.getBlockCount(), filled.getBlockCount());
+		assertEquals(32, filled.getBlockCount());
+		assertEquals(11, filled.getHighestBlock(3, 7));
+	}
+
+	@Test
+	public void replacedBlockDataIsNotMerged() {
+		Section replaced = new Section(null, 0);
+		replaced.fillColumn(1, 2, 0, 15, FIRST);
+		replaced.fillColumn(1, 2, 0, 15, SECOND);
+		replaced.setBlock(4, 4, 4, SECOND);
+		replaced.setBlock(4, 4, 4, FIRST);
+
+		Section direct = new Section(null, 0);
+		direct.fillColumn(1, 2, 0, 15, SECOND);
+		direct.setBlock(4, 4, 4, FIRST);
+		assertEquals(direct.getTag(), replaced.getTag());
+	}
+
+	private static void fill(Section filled, Section set, int x, int z, int minY, int maxY,
+			IBlock block) {
+		filled.fillColumn(x, z, minY, maxY, block);
+		for(int y = minY; y <= maxY; y++) {
+			set.setBlock(x, y, z, block);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package net.morbz.minecraft.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the mapping of block coordinates to regions, in particular for negative coordinates.
+ */
+public class WorldTest {
+	@Test
+	public void negativeCoordinatesRoundDown() {
+		assertEquals(-1, World.getRegionIndex(-1));
+		assertEquals(-1, World.getRegionIndex(-511));
+		assertEquals(-1, World.getRegionIndex(-512));
+		assertEquals(-2, World.getRegionIndex(-513));
+		assertEquals(-2, World.getRegionIndex(-1024));
+		assertEquals(-3, World.getRegionIndex(-1025));
+	}
+	
+	@Test
+	public void positiveCoordinates() {
+		assertEquals(0, World.getRegionIndex(0));
+		assertEquals(0, World.getRegionIndex(511));
+		assertEquals(1, World.getRegionIndex(512));
+	}
+	
+	@Test
+	public void regionAndCoordinateAddUpToBlock() {
+		for(int coord = -2 * Region.BLOCKS_PER_REGION_SIDE - 3; coord <= Region.BLOCKS_PER_REGION_SIDE + 3; coord++) {
+			int regionCoord = World.getRegionCoord(coord);
+			assertTrue("Coordinate " + coord, regionCoord >= 0 && regionCoord < Region.BLOCKS_PER_REGION_SIDE);
+			assertEquals(coord, World.getRegionIndex(coord) * Region.BLOCKS_PER_REGION_SIDE + regionCoord);
+		}
+	}
+}
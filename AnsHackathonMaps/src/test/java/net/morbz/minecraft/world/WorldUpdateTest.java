@@ -0,0 +1,184 @@
+package net.morbz.minecraft.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.NBTInputStream;
+import org.jnbt.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.morbz.minecraft.blocks.SimpleBlock;
+import net.unknown.RegionFileReader;
+
+/**
+ * Updates one area of a saved world and compares every chunk, blocks and sky light included, with
+ * a full rebuild of the changed world.
+ */
+public class WorldUpdateTest {
+	// The world covers two regions in each direction
+	private static final int MIN = -80;
+	private static final int MAX = 159;
+
+	// A hole in the roof and a pillar, the updated area includes the light that falls through
+	private static final int HOLE_MIN = 72;
+	private static final int HOLE_MAX = 79;
+	private static final int AREA_MIN = HOLE_MIN - World.DEFAULT_SKY_LIGHT;
+	private static final int AREA_MAX = HOLE_MAX + World.DEFAULT_SKY_LIGHT;
+
+	private File dir;
+
+	@Before
+	public void createDirectory() throws IOException {
+		dir = Files.createTempDirectory("world").toFile();
+	}
+
+	@After
+	public void deleteDirectory() {
+		delete(dir);
+	}
+
+	@Test
+	public void updateMatchesFullRebuild() throws IOException {
+		File updated = level("updated");
+		World world = new World(null);
+		generate(world, false);
+		world.writeRegions(new File(updated, "region"));
+
+		File rebuilt = level("rebuilt");
+		world = new World(null);
+		generate(world, true);
+		world.writeRegions(new File(rebuilt, "region"));
+
+		world = new World(null);
+		int[] clip = World.getUpdateClip(AREA_MIN, AREA_MIN, AREA_MAX, AREA_MAX);
+		world.setClip(clip[0], clip[1], clip[2], clip[3]);
+		generate(world, true);
+		world.update(updated, AREA_MIN, AREA_MIN, AREA_MAX, AREA_MAX);
+
+		File[] files = new File(rebuilt, "region").listFiles();
+		assertEquals(4, files.length);
+		for(File file : files) {
+			assertSameChunks(file, new File(new File(updated, "region"), file.getName()));
+		}
+	}
+
+	@Test
+	public void clipCoversChunksAndLight() {
+		int[] clip = World.getUpdateClip(-5, 20, 40, 47);
+		int margin = World.UPDATE_MARGIN;
+		assertEquals(-Chunk.BLOCKS_PER_CHUNK_SIDE - margin, clip[0]);
+		assertEquals(Chunk.BLOCKS_PER_CHUNK_SIDE - margin, clip[1]);
+		assertEquals(3 * Chunk.BLOCKS_PER_CHUNK_SIDE - 1 + margin, clip[2]);
+		assertEquals(3 * Chunk.BLOCKS_PER_CHUNK_SIDE - 1 + margin, clip[3]);
+		assertTrue(margin >= Chunk.BLOCKS_PER_CHUNK_SIDE + World.DEFAULT_SKY_LIGHT);
+	}
+
+	@Test
+	public void updateRejectsSmallClip() throws IOException {
+		File level = level("level");
+		World world = new World(null);
+		generate(world, false);
+		world.writeRegions(new File(level, "region"));
+
+		// The clip that was used before the margin included the light
+		world = new World(null);
+		world.setClip(AREA_MIN - Chunk.BLOCKS_PER_CHUNK_SIDE, AREA_MIN - Chunk.BLOCKS_PER_CHUNK_SIDE,
+			AREA_MAX + Chunk.BLOCKS_PER_CHUNK_SIDE, AREA_MAX + Chunk.BLOCKS_PER_CHUNK_SIDE);
+		generate(world, true);
+		try {
+			world.update(level, AREA_MIN, AREA_MIN, AREA_MAX, AREA_MAX);
+			fail("Update with a clip that is too small");
+		} catch(IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Ground with a roof above it, so that the light under the roof depends on blocks far away.
+	 * The change opens a hole in the roof and puts a pillar below it.
+	 */
+	private static void generate(World world, boolean changed) {
+		for(int x = MIN; x <= MAX; x++) {
+			for(int z = MIN; z <= MAX; z++) {
+				world.setBlock(x, 0, z, SimpleBlock.BEDROCK);
+				world.setBlock(x, 1, z, (x + z) % 7 == 0 ? SimpleBlock.STONE : SimpleBlock.DIRT);
+				boolean hole = x >= HOLE_MIN && x <= HOLE_MAX && z >= HOLE_MIN && z <= HOLE_MAX;
+				if(!changed || !hole) {
+					world.setBlock(x, 40, z, SimpleBlock.STONE);
+				}
+			}
+		}
+		if(changed) {
+			for(int y = 2; y < 40; y++) {
+				world.setBlock(HOLE_MIN + 2, y, HOLE_MIN + 3, SimpleBlock.LOG);
+			}
+		}
+	}
+
+	private File level(String name) {
+		File level = new File(dir, name);
+		assertTrue(new File(level, "region").mkdirs());
+		return level;
+	}
+
+	private static void assertSameChunks(File expected, File actual) throws IOException {
+		RegionFileReader expectedReader = new RegionFileReader(expected);
+		RegionFileReader actualReader = new RegionFileReader(actual);
+		try {
+			for(int x = 0; x < Region.CHUNKS_PER_REGION_SIDE; x++) {
+				for(int z = 0; z < Region.CHUNKS_PER_REGION_SIDE; z++) {
+					String chunk = expected.getName() + " chunk " + x + "," + z;
+					boolean exists = expectedReader.readChunk(x, z);
+					assertEquals(chunk, exists, actualReader.readChunk(x, z));
+					if(exists) {
+						assertEquals(chunk, levelTags(expectedReader), levelTags(actualReader));
+					} else {
+						assertFalse(chunk, actualReader.hasChunk(x, z));
+					}
+				}
+			}
+		} finally {
+			expectedReader.close();
+			actualReader.close();
+		}
+	}
+
+	/**
+	 * Returns the tags of the chunk that was read last, without the time of the last update.
+	 */
+	private static Map<String, Tag> levelTags(RegionFileReader reader) throws IOException {
+		NBTInputStream in = new NBTInputStream(
+			new ByteArrayInputStream(reader.getBuffer(), 0, reader.getLength()), false);
+		try {
+			CompoundTag root = (CompoundTag)in.readTag();
+			CompoundTag level = (CompoundTag)root.getValue().get("Level");
+			Map<String, Tag> tags = new HashMap<String, Tag>(level.getValue());
+			tags.remove("LastUpdate");
+			return tags;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,70 @@
+package net.unknown;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.morbz.minecraft.blocks.SimpleBlock;
+import net.morbz.minecraft.tags.NBTWriter;
+import net.morbz.minecraft.world.Chunk;
+import net.morbz.minecraft.world.Region;
+
+/*
+ * Writes the same generated region with every ChunkCompression setting and
+ * reports the throughput in MB/s of uncompressed NBT and the region file size.
+ * Run with: java net.unknown.ChunkCompressionBenchmark [rounds]
+ */
+@SuppressWarnings("javadoc")
+public class ChunkCompressionBenchmark {
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        // terrain with some noise so the chunks are not trivially compressible
+        Region region = new Region(null, 0, 0, null);
+        for (int x = 0; x < Region.BLOCKS_PER_REGION_SIDE; x++) {
+            for (int z = 0; z < Region.BLOCKS_PER_REGION_SIDE; z++) {
+                int height = 40 + (int) (20 * Math.sin(x / 23.0) * Math.cos(z / 17.0)) + ((x * 31 + z * 17) % 3);
+                for (int y = 0; y < height; y++) {
+                    region.setBlock(x, y, z, y < height - 3 ? SimpleBlock.STONE : SimpleBlock.DIRT);
+                }
+                region.setBlock(x, height, z, SimpleBlock.GRASS);
+            }
+        }
+        region.calculateHeightMap();
+        region.addSkyLight();
+
+        long nbtBytes = encodedSize(region);
+        File file = File.createTempFile("r.0.0", ".mca");
+        file.deleteOnExit();
+
+        System.out.printf("region: %.1f MB of NBT%n", nbtBytes / 1e6);
+        for (ChunkCompression compression : ChunkCompression.values()) {
+            region.writeToFile(file, compression); // warm up
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                region.writeToFile(file, compression);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%-8s %8.1f MB/s %10.2f MB%n", compression,
+                    nbtBytes * rounds / 1e6 / seconds, file.length() / 1e6);
+        }
+    }
+
+    private static long encodedSize(Region region) {
+        // encode the chunks the same way Region.writeToFile does
+        NBTWriter writer = new NBTWriter();
+        long total = 0;
+        for (int x = 0; x < Region.CHUNKS_PER_REGION_SIDE; x++) {
+            for (int z = 0; z < Region.CHUNKS_PER_REGION_SIDE; z++) {
+                Chunk chunk = region.getChunkAt(x, z);
+                if (chunk != null && chunk.hasBlocks()) {
+                    writer.reset();
+                    chunk.writeTag(writer);
+                    total += writer.size();
+                }
+            }
+        }
+        return total;
+    }
+}